@@ -5,31 +5,45 @@ import android.net.Uri
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.ApiClient.Companion.versionedPath
 import com.braintreepayments.api.core.BraintreeClient
+import com.braintreepayments.api.core.BraintreeException
+import com.braintreepayments.api.sharedutils.CoalescingCache
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 import org.json.JSONException
 
 /**
  * Used to integrate with Braintree's American Express API
  */
 class AmericanExpressClient internal constructor(
-    private val braintreeClient: BraintreeClient
+    private val braintreeClient: BraintreeClient,
+    private val rewardsBalanceCache: CoalescingCache<RewardsBalanceKey, AmericanExpressRewardsBalance> =
+        sharedRewardsBalanceCache
 ) {
 
+    internal data class RewardsBalanceKey(val nonce: String, val currencyIsoCode: String)
+
     /**
      * Initializes a new [AmericanExpressClient] instance
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String) : this(
+    @JvmOverloads
+    constructor(context: Context, authorization: String, callbackExecutor: Executor? = null) : this(
         BraintreeClient(
             context,
-            authorization
+            authorization,
+            callbackExecutor = callbackExecutor
         )
     )
 
     /**
      * Gets the rewards balance associated with a Braintree nonce. Only for American Express cards.
      *
+     * Balances are reused for two minutes, and concurrent requests for the same nonce and currency
+     * share a single lookup.
+     *
      * @param nonce   A nonce representing a card that will be used to look up the rewards balance
      * @param currencyIsoCode The currencyIsoCode to use. Example: 'USD'
      * @param callback        [AmericanExpressGetRewardsBalanceCallback]
@@ -38,6 +52,71 @@ class AmericanExpressClient internal constructor(
         nonce: String,
         currencyIsoCode: String,
         callback: AmericanExpressGetRewardsBalanceCallback
+    ) {
+        braintreeClient.sendAnalyticsEvent(AmericanExpressAnalytics.REWARDS_BALANCE_STARTED)
+        rewardsBalanceCache.fetch(
+            key = RewardsBalanceKey(nonce, currencyIsoCode),
+            load = { loadCallback -> fetchRewardsBalance(nonce, currencyIsoCode, loadCallback) }
+        ) { rewardsBalance, error ->
+            if (rewardsBalance != null) {
+                // the rewards balance is mutable; hand each caller a copy so they can't change the cache
+                callbackSuccess(AmericanExpressResult.Success(rewardsBalance.copy()), callback)
+            } else {
+                callbackFailure(
+                    AmericanExpressResult.Failure(error ?: BraintreeException("No rewards balance returned")),
+                    callback
+                )
+            }
+        }
+    }
+
+    /**
+     * Gets the rewards balances associated with several Braintree nonces. Only for American Express
+     * cards. At most four balances are looked up at a time.
+     *
+     * @param nonces          Nonces representing the cards that will be used to look up the rewards
+     * balances
+     * @param currencyIsoCode The currencyIsoCode to use. Example: 'USD'
+     * @param callback        [AmericanExpressGetRewardsBalancesCallback] that receives the result
+     * for each nonce once all of the lookups have completed
+     */
+    fun getRewardsBalances(
+        nonces: List<String>,
+        currencyIsoCode: String,
+        callback: AmericanExpressGetRewardsBalancesCallback
+    ) {
+        val uniqueNonces = nonces.distinct()
+        if (uniqueNonces.isEmpty()) {
+            callback.onAmericanExpressResults(emptyMap())
+            return
+        }
+
+        val lock = Any()
+        val remainingNonces = ArrayDeque(uniqueNonces)
+        val results = mutableMapOf<String, AmericanExpressResult>()
+
+        fun lookUpNext() {
+            val nonce = synchronized(lock) { remainingNonces.removeFirstOrNull() } ?: return
+            getRewardsBalance(nonce, currencyIsoCode) { result ->
+                val isComplete = synchronized(lock) {
+                    results[nonce] = result
+                    results.size == uniqueNonces.size
+                }
+                if (isComplete) {
+                    callback.onAmericanExpressResults(uniqueNonces.associateWith { results.getValue(it) })
+                } else {
+                    lookUpNext()
+                }
+            }
+        }
+
+        repeat(minOf(MAX_CONCURRENT_REWARDS_BALANCE_REQUESTS, uniqueNonces.size)) { lookUpNext() }
+    }
+
+    private fun fetchRewardsBalance(
+        nonce: String,
+        currencyIsoCode: String,
+        callback: (AmericanExpressRewardsBalance?, Exception?) -> Unit
     ) {
         val getRewardsBalanceUrl = Uri.parse(AMEX_REWARDS_BALANCE_PATH)
             .buildUpon()
@@ -46,18 +125,18 @@ class AmericanExpressClient internal constructor(
             .build()
             .toString()
 
-        braintreeClient.sendAnalyticsEvent(AmericanExpressAnalytics.REWARDS_BALANCE_STARTED)
         braintreeClient.sendGET(getRewardsBalanceUrl) { responseBody: String?, httpError: Exception? ->
             if (responseBody != null) {
                 try {
                     val rewardsBalance =
                         AmericanExpressRewardsBalance.fromJson(responseBody)
-                    callbackSuccess(AmericanExpressResult.Success(rewardsBalance), callback)
+                    callback(rewardsBalance, null)
                 } catch (e: JSONException) {
-                    callbackFailure(AmericanExpressResult.Failure(e), callback)
+                    callback(null, e)
                 }
-            } else if (httpError != null) {
-                callbackFailure(AmericanExpressResult.Failure(httpError), callback)
+            } else {
+                // always settle the lookup so that coalesced callers are not left waiting
+                callback(null, httpError ?: BraintreeException("No rewards balance returned"))
             }
         }
     }
@@ -82,7 +161,18 @@ class AmericanExpressClient internal constructor(
     }
 
     companion object {
+        private const val MAX_CONCURRENT_REWARDS_BALANCE_REQUESTS = 4
+
         private val AMEX_REWARDS_BALANCE_PATH =
             versionedPath("payment_methods/amex_rewards_balance")
+
+        private val REWARDS_BALANCE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(2)
+
+        /**
+         * Rewards balances are shared by every [AmericanExpressClient] in the process, since a
+         * nonce identifies the card regardless of the client it is looked up with.
+         */
+        private val sharedRewardsBalanceCache: CoalescingCache<RewardsBalanceKey, AmericanExpressRewardsBalance>
+            by lazy { CoalescingCache(REWARDS_BALANCE_TIME_TO_LIVE) }
     }
 }
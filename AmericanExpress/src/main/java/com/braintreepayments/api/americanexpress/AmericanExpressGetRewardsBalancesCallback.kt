@@ -0,0 +1,13 @@
+package com.braintreepayments.api.americanexpress
+
+/**
+ * Callback for receiving results of
+ * [AmericanExpressClient.getRewardsBalances].
+ */
+fun interface AmericanExpressGetRewardsBalancesCallback {
+    /**
+     * @param americanExpressResults the [AmericanExpressResult] for each nonce, in the order the
+     * nonces were requested
+     */
+    fun onAmericanExpressResults(americanExpressResults: Map<String, AmericanExpressResult>)
+}
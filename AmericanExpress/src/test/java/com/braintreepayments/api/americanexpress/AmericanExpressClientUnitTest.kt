@@ -3,9 +3,12 @@ package com.braintreepayments.api.americanexpress
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.sharedutils.AuthorizationException
+import com.braintreepayments.api.sharedutils.CancellableRequest
+import com.braintreepayments.api.sharedutils.CoalescingCache
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
+import io.mockk.every
 import io.mockk.mockk
 import io.mockk.slot
 import io.mockk.verify
@@ -13,8 +16,10 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
 import kotlin.test.assertEquals
 import kotlin.test.assertNotNull
+import kotlin.test.assertNotSame
 import kotlin.test.assertNull
 import kotlin.test.assertTrue
 
@@ -31,7 +36,7 @@ class AmericanExpressClientUnitTest {
     @Test
     fun getRewardsBalance_sendsGETRequestForAmexAwardsBalance() {
         val braintreeClient = mockk<BraintreeClient>(relaxed = true)
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val urlSlot = slot<String>()
@@ -49,7 +54,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(
             Fixtures.AMEX_REWARDS_BALANCE_SUCCESS).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
         val amexRewardsSlot = slot<AmericanExpressResult>()
         verify { amexRewardsCallback.onAmericanExpressResult(capture(amexRewardsSlot)) }
@@ -74,7 +79,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(
             Fixtures.AMEX_REWARDS_BALANCE_INELIGIBLE_CARD).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val amexRewardsSlot = slot<AmericanExpressResult>()
@@ -100,7 +105,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(
             Fixtures.AMEX_REWARDS_BALANCE_INSUFFICIENT_POINTS).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val amexRewardsSlot = slot<AmericanExpressResult>()
@@ -127,7 +132,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetErrorResponse(
             expectedError).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val amexRewardsSlot = slot<AmericanExpressResult>()
@@ -145,7 +150,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(
             Fixtures.AMEX_REWARDS_BALANCE_SUCCESS).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val params = AnalyticsEventParams()
@@ -160,7 +165,7 @@ class AmericanExpressClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().sendGetErrorResponse(
             AuthorizationException("Bad fingerprint")).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val params = AnalyticsEventParams()
@@ -177,7 +182,7 @@ class AmericanExpressClientUnitTest {
         val notJson = "Big blob that is not a valid JSON object"
         val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(notJson).build()
 
-        val sut = AmericanExpressClient(braintreeClient)
+        val sut = createSut(braintreeClient)
         sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
 
         val params = AnalyticsEventParams()
@@ -191,4 +196,123 @@ class AmericanExpressClientUnitTest {
             braintreeClient.sendAnalyticsEvent(AmericanExpressAnalytics.REWARDS_BALANCE_FAILED, errorParams, true)
         }
     }
+
+    @Test
+    fun getRewardsBalance_whenCalledAgainForSameNonceAndCurrency_reusesRewardsBalance() {
+        val braintreeClient = MockkBraintreeClientBuilder().sendGetSuccessfulResponse(
+            Fixtures.AMEX_REWARDS_BALANCE_SUCCESS).build()
+
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        sut.getRewardsBalance("fake-nonce", "EUR", amexRewardsCallback)
+
+        verify(exactly = 2) { braintreeClient.sendGET(any(), any(HttpResponseCallback::class)) }
+        verify(exactly = 3) {
+            amexRewardsCallback.onAmericanExpressResult(ofType(AmericanExpressResult.Success::class))
+        }
+    }
+
+    @Test
+    fun getRewardsBalance_whileLookupInFlight_coalescesRequests() {
+        val braintreeClient = mockk<BraintreeClient>(relaxed = true)
+        val responseCallbackSlot = slot<HttpResponseCallback>()
+        every { braintreeClient.sendGET(any(), capture(responseCallbackSlot)) } returns CancellableRequest()
+
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        responseCallbackSlot.captured.onResult(Fixtures.AMEX_REWARDS_BALANCE_SUCCESS, null)
+
+        verify(exactly = 1) { braintreeClient.sendGET(any(), any(HttpResponseCallback::class)) }
+        verify(exactly = 2) {
+            amexRewardsCallback.onAmericanExpressResult(ofType(AmericanExpressResult.Success::class))
+        }
+    }
+
+    @Test
+    fun getRewardsBalance_afterFailure_looksUpRewardsBalanceAgain() {
+        val braintreeClient = MockkBraintreeClientBuilder().sendGetErrorResponse(Exception("error")).build()
+
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+
+        verify(exactly = 2) { braintreeClient.sendGET(any(), any(HttpResponseCallback::class)) }
+    }
+
+    @Test
+    fun getRewardsBalances_returnsResultForEachNonceWithBoundedConcurrency() {
+        val braintreeClient = mockk<BraintreeClient>(relaxed = true)
+        val responseCallbacks = mutableListOf<HttpResponseCallback>()
+        every { braintreeClient.sendGET(any(), capture(responseCallbacks)) } returns CancellableRequest()
+
+        val nonces = listOf("nonce-1", "nonce-2", "nonce-3", "nonce-4", "nonce-5", "nonce-1")
+        var results: Map<String, AmericanExpressResult>? = null
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalances(nonces, "USD") { results = it }
+
+        assertEquals(4, responseCallbacks.size)
+        responseCallbacks[0].onResult(Fixtures.AMEX_REWARDS_BALANCE_SUCCESS, null)
+        assertEquals(5, responseCallbacks.size)
+        responseCallbacks.drop(1).toList().forEach { it.onResult(null, Exception("error")) }
+
+        assertEquals(listOf("nonce-1", "nonce-2", "nonce-3", "nonce-4", "nonce-5"), results?.keys?.toList())
+        assertTrue(results?.get("nonce-1") is AmericanExpressResult.Success)
+        assertTrue(results?.get("nonce-5") is AmericanExpressResult.Failure)
+    }
+
+    @Test
+    fun getRewardsBalances_withNoNonces_returnsEmptyMap() {
+        val braintreeClient = mockk<BraintreeClient>(relaxed = true)
+        var results: Map<String, AmericanExpressResult>? = null
+
+        createSut(braintreeClient).getRewardsBalances(emptyList(), "USD") { results = it }
+
+        assertEquals(emptyMap(), results)
+        verify(exactly = 0) { braintreeClient.sendGET(any(), any(HttpResponseCallback::class)) }
+    }
+
+    @Test
+    fun getRewardsBalance_whenResponseHasNeitherBodyNorError_failsAndSettlesLookup() {
+        val braintreeClient = mockk<BraintreeClient>(relaxed = true)
+        val responseCallbacks = mutableListOf<HttpResponseCallback>()
+        every { braintreeClient.sendGET(any(), capture(responseCallbacks)) } returns CancellableRequest()
+
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        responseCallbacks[0].onResult(null, null)
+
+        verify(exactly = 2) {
+            amexRewardsCallback.onAmericanExpressResult(ofType(AmericanExpressResult.Failure::class))
+        }
+
+        sut.getRewardsBalance("fake-nonce", "USD", amexRewardsCallback)
+        assertEquals(2, responseCallbacks.size)
+    }
+
+    @Test
+    fun getRewardsBalance_whileLookupInFlight_handsEachCallerItsOwnCopy() {
+        val braintreeClient = mockk<BraintreeClient>(relaxed = true)
+        val responseCallbackSlot = slot<HttpResponseCallback>()
+        every { braintreeClient.sendGET(any(), capture(responseCallbackSlot)) } returns CancellableRequest()
+        val results = mutableListOf<AmericanExpressResult>()
+
+        val sut = createSut(braintreeClient)
+        sut.getRewardsBalance("fake-nonce", "USD") { results.add(it) }
+        sut.getRewardsBalance("fake-nonce", "USD") { results.add(it) }
+        responseCallbackSlot.captured.onResult(Fixtures.AMEX_REWARDS_BALANCE_SUCCESS, null)
+
+        val first = (results[0] as AmericanExpressResult.Success).rewardsBalance
+        val second = (results[1] as AmericanExpressResult.Success).rewardsBalance
+        first.rewardsAmount = "0"
+        assertNotSame(first, second)
+        assertEquals("45256433", second.rewardsAmount)
+    }
+
+    private fun createSut(braintreeClient: BraintreeClient) = AmericanExpressClient(
+        braintreeClient,
+        CoalescingCache(TimeUnit.MINUTES.toMillis(2))
+    )
 }
@@ -0,0 +1,43 @@
+package com.braintreepayments.baselineprofile
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Collects the baseline profile for the SDK modules by running the Demo app journeys. Run with:
+ *
+ * ```
+ * ./gradlew :BaselineProfile:connectedBenchmarkAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.braintreepayments.baselineprofile.BaselineProfileGenerator
+ * ./gradlew :BaselineProfile:updateSdkBaselineProfiles
+ * ```
+ *
+ * The second task splits the collected profile into the `baseline-prof.txt` of each SDK module. The
+ * Baseline profiles workflow runs both on an emulator and opens a pull request with the result.
+ */
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    @Test
+    fun generate() {
+        baselineProfileRule.collect(
+            packageName = DEMO_PACKAGE,
+            includeInStartupProfile = true,
+            filterPredicate = { it.contains("com/braintreepayments/api/") }
+        ) {
+            startDemo()
+            tokenizeCard()
+            startPayPalVault()
+            startPayPalCheckout()
+            startVenmo()
+            startGooglePay()
+            verifyCardWithThreeDSecure()
+        }
+    }
+}
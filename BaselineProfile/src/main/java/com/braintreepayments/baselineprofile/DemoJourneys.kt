@@ -0,0 +1,113 @@
+package com.braintreepayments.baselineprofile
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.BySelector
+import androidx.test.uiautomator.UiDevice
+import androidx.test.uiautomator.UiScrollable
+import androidx.test.uiautomator.UiSelector
+import androidx.test.uiautomator.Until
+
+// User journeys through the Demo app that exercise the SDK's hot paths. They are shared by the
+// baseline profile generator and the macrobenchmarks so that both cover the same code.
+
+internal const val DEMO_PACKAGE = "com.braintreepayments.demo"
+
+private const val UI_TIMEOUT_MS = 10_000L
+private const val NETWORK_TIMEOUT_MS = 30_000L
+private const val MAX_BACK_PRESSES = 5
+
+internal fun MacrobenchmarkScope.startDemo() {
+    pressHome()
+    startActivityAndWait()
+}
+
+internal fun MacrobenchmarkScope.tokenizeCard() {
+    openPaymentModule("Credit or Debit Cards")
+    device.clickAndWait(By.text("Autofill"))
+    device.clickAndWait(By.text("Purchase"))
+    device.waitFor(By.res(DEMO_PACKAGE, "nonce_details"), NETWORK_TIMEOUT_MS)
+    device.pressBack()
+}
+
+internal fun MacrobenchmarkScope.startPayPalCheckout() {
+    startPayPalFlow("Single Payment")
+}
+
+internal fun MacrobenchmarkScope.startPayPalVault() {
+    startPayPalFlow("Billing Agreement")
+}
+
+internal fun MacrobenchmarkScope.startVenmo() {
+    openPaymentModule("Venmo")
+    device.clickAndWait(By.res(DEMO_PACKAGE, "venmo_button"))
+    // the Venmo app is not installed on test devices, so this either shows an error or opens the
+    // Venmo web fallback
+    device.waitForIdle()
+    returnToDemo()
+}
+
+internal fun MacrobenchmarkScope.startGooglePay() {
+    openPaymentModule("Google Pay")
+    device.clickAndWait(By.res(DEMO_PACKAGE, "google_pay_button"))
+    device.waitForIdle()
+    returnToDemo()
+}
+
+internal fun MacrobenchmarkScope.verifyCardWithThreeDSecure() {
+    setThreeDSecureEnabled(true)
+    openPaymentModule("Credit or Debit Cards")
+    device.clickAndWait(By.text("Autofill"))
+    device.clickAndWait(By.text("Purchase"))
+    // wait for the lookup to complete, either with a nonce or with the Cardinal challenge
+    val loading = By.textStartsWith("Loading")
+    device.wait(Until.hasObject(loading), UI_TIMEOUT_MS)
+    device.wait(Until.gone(loading), NETWORK_TIMEOUT_MS)
+    returnToDemo()
+    setThreeDSecureEnabled(false)
+}
+
+private fun MacrobenchmarkScope.startPayPalFlow(buttonText: String) {
+    openPaymentModule("PayPal")
+    device.clickAndWait(By.text(buttonText))
+    // wait for the PayPal checkout to open in the browser
+    device.wait(Until.gone(By.pkg(DEMO_PACKAGE)), NETWORK_TIMEOUT_MS)
+    returnToDemo()
+}
+
+private fun MacrobenchmarkScope.openPaymentModule(buttonText: String) {
+    device.waitFor(By.text(buttonText), UI_TIMEOUT_MS)
+    // section headers share their text with buttons; the button is the clickable parent
+    device.clickAndWait(By.clickable(true).hasDescendant(By.text(buttonText)))
+}
+
+private fun MacrobenchmarkScope.setThreeDSecureEnabled(enabled: Boolean) {
+    device.clickAndWait(By.desc("More options"))
+    device.clickAndWait(By.text("Settings"))
+    UiScrollable(UiSelector().scrollable(true)).scrollTextIntoView("Enable 3D Secure")
+    // the preference row contains the title and the check box
+    val preference = device.findObject(By.text("Enable 3D Secure")).parent.parent
+    val checkBox = preference.findObject(By.checkable(true))
+    if (checkBox.isChecked != enabled) checkBox.click()
+    returnToDemo()
+}
+
+private fun MacrobenchmarkScope.returnToDemo() {
+    repeat(MAX_BACK_PRESSES) {
+        if (device.hasObject(By.text("Credit or Debit Cards"))) return
+        device.pressBack()
+        device.waitForIdle()
+    }
+    // e.g. the browser did not return to the Demo app
+    startActivityAndWait()
+}
+
+private fun UiDevice.waitFor(selector: BySelector, timeout: Long) {
+    check(wait(Until.hasObject(selector), timeout)) { "Timed out waiting for $selector" }
+}
+
+private fun UiDevice.clickAndWait(selector: BySelector) {
+    waitFor(selector, UI_TIMEOUT_MS)
+    findObject(selector).click()
+    waitForIdle()
+}
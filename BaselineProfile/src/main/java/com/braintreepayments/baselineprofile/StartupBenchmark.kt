@@ -0,0 +1,71 @@
+package com.braintreepayments.baselineprofile
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures Demo app startup and the first card tokenization after a cold start, with and without
+ * the SDK's baseline profiles, to show what the profiles save on a fresh install. Run with:
+ *
+ * ```
+ * ./gradlew :BaselineProfile:connectedBenchmarkAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.braintreepayments.baselineprofile.StartupBenchmark
+ * ```
+ */
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun startupWithoutBaselineProfiles() = startup(CompilationMode.None())
+
+    @Test
+    fun startupWithBaselineProfiles() =
+        startup(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    @Test
+    fun firstTokenizeWithoutBaselineProfiles() = firstTokenize(CompilationMode.None())
+
+    @Test
+    fun firstTokenizeWithBaselineProfiles() =
+        firstTokenize(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = DEMO_PACKAGE,
+        metrics = listOf(StartupTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = ITERATIONS
+    ) {
+        startDemo()
+    }
+
+    @OptIn(ExperimentalMetricApi::class)
+    private fun firstTokenize(compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = DEMO_PACKAGE,
+        // the Demo app traces each card tokenization from the purchase tap to the result
+        metrics = listOf(TraceSectionMetric(CARD_TOKENIZE_TRACE_SECTION)),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = ITERATIONS,
+        setupBlock = { startDemo() }
+    ) {
+        tokenizeCard()
+    }
+
+    companion object {
+        private const val ITERATIONS = 10
+        private const val CARD_TOKENIZE_TRACE_SECTION = "DemoCardTokenize"
+    }
+}
@@ -0,0 +1,40 @@
+package com.braintreepayments.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.core.AnalyticsPayloadFixture
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AnalyticsBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    @Test
+    fun createPayload_singleEvent() {
+        val fixture = AnalyticsPayloadFixture(context, eventCount = 1)
+        benchmarkRule.measureRepeated {
+            fixture.createPayload()
+        }
+    }
+
+    @Test
+    fun createPayload_batchOfEvents() {
+        val fixture = AnalyticsPayloadFixture(context, eventCount = BATCH_SIZE)
+        benchmarkRule.measureRepeated {
+            fixture.createPayload()
+        }
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 20
+    }
+}
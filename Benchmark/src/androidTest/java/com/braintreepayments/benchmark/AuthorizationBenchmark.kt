@@ -0,0 +1,31 @@
+package com.braintreepayments.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.core.Authorization
+import com.braintreepayments.api.testutils.Fixtures
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AuthorizationBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun fromString_tokenizationKey() {
+        benchmarkRule.measureRepeated {
+            Authorization.fromString(Fixtures.TOKENIZATION_KEY)
+        }
+    }
+
+    @Test
+    fun fromString_clientToken() {
+        benchmarkRule.measureRepeated {
+            Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN)
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.braintreepayments.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.card.Card
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class CardBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val card = Card(
+        number = "4111111111111111",
+        expirationMonth = "12",
+        expirationYear = "2030",
+        cvv = "123",
+        cardholderName = "Joe Smith",
+        firstName = "Joe",
+        lastName = "Smith",
+        streetAddress = "123 Main St",
+        locality = "Chicago",
+        region = "IL",
+        postalCode = "60618",
+        countryCode = "USA",
+        sessionId = "session-id"
+    )
+
+    @Test
+    fun buildJSON() {
+        benchmarkRule.measureRepeated {
+            card.buildJSON()
+        }
+    }
+
+    @Test
+    fun buildJSONForGraphQL() {
+        benchmarkRule.measureRepeated {
+            card.buildJSONForGraphQL()
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.braintreepayments.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.core.ConfigurationSnapshotFixture
+import com.braintreepayments.api.testutils.Fixtures
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ConfigurationBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun fromJson_withGraphQL() = measureFromJson(Fixtures.SANDBOX_CONFIGURATION_WITH_GRAPHQL)
+
+    @Test
+    fun fromJson_withGooglePay() = measureFromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+
+    @Test
+    fun fromJson_withLivePayPal() = measureFromJson(Fixtures.CONFIGURATION_WITH_LIVE_PAYPAL)
+
+    @Test
+    fun fromJson_withVisaCheckout() = measureFromJson(Fixtures.CONFIGURATION_WITH_VISA_CHECKOUT)
+
+    @Test
+    fun fromJson_thenReadAllSections() {
+        benchmarkRule.measureRepeated {
+            Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY).readAllSections()
+        }
+    }
+
+    @Test
+    fun readSnapshot() {
+        val fixture = ConfigurationSnapshotFixture(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+
+        benchmarkRule.measureRepeated {
+            fixture.readSnapshot()
+        }
+    }
+
+    /**
+     * A cold start without a snapshot: the cached JSON is parsed and the sections used by a card
+     * tokenization are read.
+     */
+    @Test
+    fun coldStart_fromJson() {
+        benchmarkRule.measureRepeated {
+            Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY).readCardTokenizationValues()
+        }
+    }
+
+    /**
+     * A cold start with a snapshot written after a card tokenization, so that the sections it reads
+     * are in the snapshot.
+     */
+    @Test
+    fun coldStart_fromSnapshot() {
+        val fixture = ConfigurationSnapshotFixture(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY) {
+            it.readCardTokenizationValues()
+        }
+
+        benchmarkRule.measureRepeated {
+            fixture.readSnapshot().readCardTokenizationValues()
+        }
+    }
+
+    private fun measureFromJson(json: String) {
+        benchmarkRule.measureRepeated {
+            Configuration.fromJson(json)
+        }
+    }
+
+    private fun Configuration.readCardTokenizationValues() {
+        clientApiUrl
+        isGraphQLEnabled
+        isGraphQLFeatureEnabled("tokenize_credit_cards")
+        isFraudDataCollectionEnabled
+        ConfigurationSnapshotFixture.readAnalyticsSamplingPolicies(this)
+    }
+
+    private fun Configuration.readAllSections() {
+        braintreeApiUrl
+        supportedCardTypes
+        googlePaySupportedNetworks
+        isGraphQLEnabled
+        payPalClientId
+        venmoAccessToken
+        visaCheckoutSupportedNetworks
+    }
+}
@@ -0,0 +1,54 @@
+package com.braintreepayments.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.core.Authorization
+import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.googlepay.GooglePayRequestTemplates
+import com.braintreepayments.api.testutils.Fixtures
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures building the configuration-dependent parts of a Google Pay payment data request, both
+ * from the configuration on every request and from precomputed templates.
+ */
+@RunWith(AndroidJUnit4::class)
+class GooglePayBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+    private val authorization = Authorization.fromString(Fixtures.TOKENIZATION_KEY)
+
+    @Test
+    fun buildRequestDefaults_fromConfiguration() {
+        benchmarkRule.measureRepeated {
+            GooglePayRequestTemplates.create(configuration, authorization).buildRequestDefaults()
+        }
+    }
+
+    @Test
+    fun buildRequestDefaults_fromTemplates() {
+        val templates = GooglePayRequestTemplates.create(configuration, authorization)
+
+        benchmarkRule.measureRepeated {
+            templates.matches(configuration, authorization)
+            templates.buildRequestDefaults()
+        }
+    }
+
+    private fun GooglePayRequestTemplates.buildRequestDefaults() {
+        cardNetworks()
+        cardTokenizationSpecification(METADATA)
+        payPalPaymentMethodParameters()
+        payPalTokenizationSpecification(METADATA)
+    }
+
+    companion object {
+        private const val METADATA = "{\"source\":\"client\",\"sessionId\":\"session-id\"}"
+    }
+}
@@ -0,0 +1,52 @@
+package com.braintreepayments.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.braintreepayments.api.card.CardNonce
+import com.braintreepayments.api.paypal.PayPalAccountNonce
+import com.braintreepayments.api.testutils.Fixtures
+import com.braintreepayments.api.threedsecure.ThreeDSecureParams
+import org.json.JSONObject
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures parsing of gateway responses, including the JSON parse of the response body that
+ * precedes each call to `fromJSON` in the SDK.
+ */
+@RunWith(AndroidJUnit4::class)
+class NonceParsingBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun cardNonce_fromGraphQLResponse() {
+        benchmarkRule.measureRepeated {
+            CardNonce.fromJSON(JSONObject(Fixtures.GRAPHQL_RESPONSE_CREDIT_CARD))
+        }
+    }
+
+    @Test
+    fun cardNonce_fromRestResponse() {
+        benchmarkRule.measureRepeated {
+            CardNonce.fromJSON(JSONObject(Fixtures.PAYMENT_METHODS_RESPONSE_VISA_CREDIT_CARD))
+        }
+    }
+
+    @Test
+    fun payPalAccountNonce_fromJSON() {
+        benchmarkRule.measureRepeated {
+            PayPalAccountNonce.fromJSON(JSONObject(Fixtures.PAYMENT_METHODS_PAYPAL_ACCOUNT_RESPONSE))
+        }
+    }
+
+    @Test
+    fun threeDSecureParams_fromJson() {
+        benchmarkRule.measureRepeated {
+            ThreeDSecureParams.fromJson(Fixtures.THREE_D_SECURE_LOOKUP_RESPONSE)
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import org.json.JSONArray
 import org.json.JSONException
 import org.json.JSONObject
@@ -14,36 +15,60 @@ internal class AnalyticsApi(
     private val merchantRepository: MerchantRepository = MerchantRepository.instance,
 ) {
 
+    /**
+     * Sends [events] in one batch.
+     *
+     * @param configurationRefreshAgeMillis the time since the configuration was last refreshed in the
+     * background, if background refreshes are enabled
+     * @param callback called with the result of the request, if the caller needs to know whether
+     * the events were sent
+     */
     fun execute(
         events: List<AnalyticsEvent>,
-        configuration: Configuration?
+        configuration: Configuration?,
+        configurationRefreshAgeMillis: Long? = null,
+        callback: NetworkResponseCallback? = null
     ) {
-        val jsonEvents = events.map { mapAnalyticsEventToFPTIEventJSON(it) }
         val metadata = deviceInspector.getDeviceMetadata(
             context = merchantRepository.applicationContext,
             configuration = configuration,
             sessionId = analyticsParamRepository.sessionId,
             integration = merchantRepository.integrationType
         )
-        val analyticsRequest = createFPTIPayload(merchantRepository.authorization, jsonEvents, metadata)
+        val analyticsRequest = createPayload(events, metadata, configurationRefreshAgeMillis)
         httpClient.post(
             path = FPTI_ANALYTICS_URL,
             data = analyticsRequest.toString(),
             configuration = null,
             authorization = merchantRepository.authorization,
-            callback = null
+            callback = callback
         )
     }
 
+    /**
+     * Creates the FPTI request body for [events].
+     */
+    @Throws(JSONException::class)
+    internal fun createPayload(
+        events: List<AnalyticsEvent>,
+        metadata: DeviceMetadata,
+        configurationRefreshAgeMillis: Long? = null
+    ): JSONObject {
+        val jsonEvents = events.map { mapAnalyticsEventToFPTIEventJSON(it) }
+        return createFPTIPayload(merchantRepository.authorization, jsonEvents, metadata, configurationRefreshAgeMillis)
+    }
+
     @Throws(JSONException::class)
     private fun createFPTIPayload(
         authorization: Authorization?,
         events: List<JSONObject>,
-        metadata: DeviceMetadata
+        metadata: DeviceMetadata,
+        configurationRefreshAgeMillis: Long?
     ): JSONObject {
         val batchParamsJSON = mapDeviceMetadataToFPTIBatchParamsJSON(metadata)
         batchParamsJSON.put(FPTI_BATCH_KEY_SPACE_KEY, "SKDUYK")
         batchParamsJSON.put(FPTI_BATCH_KEY_PRODUCT_NAME, "BT_DCC")
+        batchParamsJSON.putOpt(FPTI_BATCH_KEY_CONFIGURATION_REFRESH_AGE, configurationRefreshAgeMillis)
 
         authorization?.let {
             if (it is ClientToken) {
@@ -68,6 +93,7 @@ internal class AnalyticsApi(
     }
 
     private fun mapAnalyticsEventToFPTIEventJSON(event: AnalyticsEvent): JSONObject {
+        val latencySummary = event.latencySummary
         return JSONObject()
             .put(FPTI_KEY_EVENT_NAME, event.name)
             .put(FPTI_KEY_TIMESTAMP, event.timestamp)
@@ -89,6 +115,14 @@ internal class AnalyticsApi(
             .putOpt(FPTI_KEY_ERROR_DESC, event.errorDescription)
             .putOpt(FPTI_KEY_CONTEXT_TYPE, if (event.isVaultRequest) "BA-TOKEN" else "EC-TOKEN")
             .putOpt(FPTI_KEY_PAYPAL_ATTEMPTED_APP_SWITCH, event.didSdkAttemptAppSwitch)
+            .putOpt(FPTI_KEY_LATENCY_COUNT, latencySummary?.count)
+            .putOpt(FPTI_KEY_LATENCY_P50, latencySummary?.p50Millis)
+            .putOpt(FPTI_KEY_LATENCY_P90, latencySummary?.p90Millis)
+            .putOpt(FPTI_KEY_LATENCY_P99, latencySummary?.p99Millis)
+            .putOpt(FPTI_KEY_LATENCY_MAX, latencySummary?.maxMillis)
+            .putOpt(FPTI_KEY_SAMPLING_WEIGHT, event.samplingWeight)
+            .putOpt(FPTI_KEY_CRASH_SESSION_ID, event.crashSessionId)
+            .putOpt(FPTI_KEY_CRASH_CAUSE, event.crashCause)
     }
 
     @Throws(JSONException::class)
@@ -146,6 +180,14 @@ internal class AnalyticsApi(
         private const val FPTI_KEY_PAYPAL_ATTEMPTED_APP_SWITCH = "attempted_app_switch"
         private const val FPTI_KEY_ERROR_DESC = "error_desc"
         private const val FPTI_KEY_CONTEXT_TYPE = "context_type"
+        private const val FPTI_KEY_LATENCY_COUNT = "latency_count"
+        private const val FPTI_KEY_LATENCY_P50 = "latency_p50_ms"
+        private const val FPTI_KEY_LATENCY_P90 = "latency_p90_ms"
+        private const val FPTI_KEY_LATENCY_P99 = "latency_p99_ms"
+        private const val FPTI_KEY_LATENCY_MAX = "latency_max_ms"
+        private const val FPTI_KEY_SAMPLING_WEIGHT = "sampling_weight"
+        private const val FPTI_KEY_CRASH_SESSION_ID = "crash_session_id"
+        private const val FPTI_KEY_CRASH_CAUSE = "crash_cause"
 
         private const val FPTI_BATCH_KEY_VENMO_INSTALLED = "venmo_installed"
         private const val FPTI_BATCH_KEY_PAYPAL_INSTALLED = "paypal_installed"
@@ -167,5 +209,6 @@ internal class AnalyticsApi(
         private const val FPTI_BATCH_KEY_SESSION_ID = "session_id"
         private const val FPTI_BATCH_KEY_SPACE_KEY = "space_key"
         private const val FPTI_BATCH_KEY_PRODUCT_NAME = "product_name"
+        private const val FPTI_BATCH_KEY_CONFIGURATION_REFRESH_AGE = "config_refresh_age_ms"
     }
 }
@@ -1,24 +1,64 @@
 package com.braintreepayments.api.core
 
+import android.os.Handler
+import android.os.Looper
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.ConnectivityMonitor
+import com.braintreepayments.api.sharedutils.HttpResponseTiming
+import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import com.braintreepayments.api.sharedutils.Time
-import org.json.JSONException
+import java.util.concurrent.atomic.AtomicBoolean
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-@Suppress("SwallowedException", "TooGenericExceptionCaught")
 class AnalyticsClient internal constructor(
     private val analyticsApi: AnalyticsApi = AnalyticsApi(),
     private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
     private val analyticsEventRepository: AnalyticsEventRepository = AnalyticsEventRepository.instance,
     private val time: Time = Time(),
     private val configurationLoader: ConfigurationLoader = ConfigurationLoader.instance,
+    private val crashRecordStore: CrashRecordStore = CrashRecordStoreProvider().crashRecordStore,
+    private val latencyRecorder: LatencyRecorder = LatencyRecorder.instance,
+    private val analyticsSampler: AnalyticsSampler = AnalyticsSampler.instance,
+    private val connectivityMonitor: ConnectivityMonitor = ConnectivityMonitor.instance,
+    private val configurationRefresher: ConfigurationRefresher =
+        ConfigurationRefresherProvider().configurationRefresher,
+    private val latencyFlushHandler: Handler = Handler(Looper.getMainLooper()),
 ) {
 
+    private val isFlushParked = AtomicBoolean()
+
+    /**
+     * Sends analytics with the authorization and session of [merchantContext].
+     */
+    internal constructor(merchantContext: MerchantContext) : this(
+        analyticsApi = AnalyticsApi(
+            merchantRepository = merchantContext.merchantRepository,
+            analyticsParamRepository = merchantContext.analyticsParamRepository
+        ),
+        analyticsParamRepository = merchantContext.analyticsParamRepository,
+        analyticsEventRepository = merchantContext.analyticsEventRepository,
+        configurationLoader = merchantContext.configurationLoader,
+        latencyRecorder = merchantContext.latencyRecorder,
+        analyticsSampler = merchantContext.analyticsSampler
+    )
+
+    /**
+     * Sends or queues an event, unless it is dropped by its [AnalyticsSamplingPolicy]. Events are
+     * sampled with the policies of the last configuration that analytics were sent with.
+     *
+     * Events sent without a validated network are queued, and the queue is flushed in one batch
+     * once a network is available, preferably an unmetered one.
+     */
     fun sendEvent(
         eventName: String,
         analyticsEventParams: AnalyticsEventParams = AnalyticsEventParams(),
         sendImmediately: Boolean = true,
     ) {
+        val samplingWeight = analyticsSampler.sample(
+            eventName,
+            analyticsEventParams.samplingPolicy,
+            time.currentTime
+        ) ?: return
         val event = AnalyticsEvent(
             name = eventName,
             timestamp = time.currentTime,
@@ -38,8 +78,9 @@ class AnalyticsClient internal constructor(
             didEnablePayPalAppSwitch = analyticsParamRepository.didEnablePayPalAppSwitch,
             didPayPalServerAttemptAppSwitch = analyticsParamRepository.didPayPalServerAttemptAppSwitch,
             didSdkAttemptAppSwitch = analyticsParamRepository.didSdkAttemptAppSwitch,
+            samplingWeight = samplingWeight.takeIf { it != UNSAMPLED_WEIGHT },
         )
-        if (sendImmediately) {
+        if (sendImmediately && connectivityMonitor.isValidated) {
             configurationLoader.loadConfiguration { result ->
                 if (result is ConfigurationLoaderResult.Success) {
                     executeEventsApi(event, result.configuration)
@@ -47,30 +88,130 @@ class AnalyticsClient internal constructor(
             }
         } else {
             analyticsEventRepository.addEvent(event)
+            if (sendImmediately) parkFlush()
         }
     }
 
-    fun reportCrash(configuration: Configuration?) {
-        val event = AnalyticsEvent(
-            name = "crash",
-            timestamp = time.currentTime
+    /**
+     * Flushes the queued events once a validated network is available. Only one flush is parked at
+     * a time, since a flush sends every event queued until it runs.
+     */
+    private fun parkFlush() {
+        if (!isFlushParked.compareAndSet(false, true)) return
+        connectivityMonitor.runWhenValidated(preferUnmetered = true) {
+            isFlushParked.set(false)
+            configurationLoader.loadConfiguration { result ->
+                if (result is ConfigurationLoaderResult.Success) {
+                    executeEventsApi(null, result.configuration)
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a crash on disk on the calling thread, with the current session and the [cause] of
+     * the crash. The crash is sent with the first batch of analytics events of the next session,
+     * since the process is about to die.
+     */
+    fun reportCrash(cause: String? = null) {
+        crashRecordStore.write(
+            CrashRecord(
+                timestamp = time.currentTime,
+                sessionId = analyticsParamRepository.sessionId,
+                cause = cause
+            )
         )
-        try {
-            executeEventsApi(event, configuration)
-        } catch (e: JSONException) { /* ignored */
+    }
+
+    /**
+     * Adds the latency of a request to [endpoint], which must already be normalized to its template,
+     * to the histogram of that endpoint. A summary of each endpoint is sent once an interval has
+     * elapsed, instead of an event per request, with the next batch of analytics events or on its
+     * own if no other event is sent by then.
+     */
+    fun recordLatency(endpoint: String, timing: HttpResponseTiming) {
+        if (latencyRecorder.record(endpoint, timing.endTime - timing.startTime, time.currentTime)) {
+            latencyFlushHandler.postDelayed(
+                { flushLatencySummaries() },
+                latencyRecorder.interval + LATENCY_FLUSH_DELAY_MARGIN_MILLIS
+            )
+        }
+    }
+
+    private fun flushLatencySummaries() {
+        if (!connectivityMonitor.isValidated) {
+            parkFlush()
+            return
+        }
+        configurationLoader.loadConfiguration { result ->
+            if (result is ConfigurationLoaderResult.Success) {
+                executeEventsApi(null, result.configuration)
+            }
         }
     }
 
     private fun executeEventsApi(
-        event: AnalyticsEvent,
+        event: AnalyticsEvent?,
         configuration: Configuration?,
     ) {
-        val events = analyticsEventRepository.flushAndReturnEvents().toMutableList()
-        events.add(event)
-        analyticsApi.execute(events, configuration)
+        configuration?.let { analyticsSampler.updatePolicies(it) }
+        val crashRecords = crashRecordStore.takePendingRecords()
+        val events = crashRecords.mapTo(mutableListOf()) {
+            AnalyticsEvent(
+                name = CRASH_EVENT_NAME,
+                timestamp = it.timestamp,
+                crashSessionId = it.sessionId,
+                crashCause = it.cause
+            )
+        }
+        events.addAll(analyticsEventRepository.flushAndReturnEvents())
+        latencyRecorder.takeSummaries(time.currentTime).mapTo(events) {
+            AnalyticsEvent(
+                name = CoreAnalytics.API_REQUEST_LATENCY_SUMMARY,
+                timestamp = it.endTime,
+                startTime = it.startTime,
+                endTime = it.endTime,
+                endpoint = it.endpoint,
+                latencySummary = it
+            )
+        }
+        event?.let { events.add(it) }
+        if (events.isEmpty()) return
+        // crash records are only removed once they have been sent
+        val callback = if (crashRecords.isEmpty()) {
+            null
+        } else {
+            NetworkResponseCallback { result ->
+                when (result) {
+                    is NetworkResponseCallback.Result.Success -> crashRecordStore.remove(crashRecords)
+                    is NetworkResponseCallback.Result.Failure -> crashRecordStore.release(crashRecords)
+                }
+            }
+        }
+        configurationRefresher.getLastRefreshAgeMillis { lastRefreshAgeMillis ->
+            analyticsApi.execute(events, configuration, lastRefreshAgeMillis, callback)
+        }
     }
 
     companion object {
-        val lazyInstance: Lazy<AnalyticsClient> = lazy { AnalyticsClient() }
+        private const val CRASH_EVENT_NAME = "crash"
+        private const val UNSAMPLED_WEIGHT = 1.0
+
+        // so that the interval has elapsed by the clock of the latency recorder when the flush runs
+        private const val LATENCY_FLUSH_DELAY_MARGIN_MILLIS = 1000L
+
+        private val defaultInstance by lazy { AnalyticsClient() }
+
+        /**
+         * The analytics client of the authorization that a [BraintreeClient] was last created
+         * with, for components that are not created with an authorization and have no request of
+         * a client to report under, e.g. when the app was restarted during a browser switch.
+         */
+        val lazyInstance: Lazy<AnalyticsClient> = object : Lazy<AnalyticsClient> {
+            override val value: AnalyticsClient
+                get() = MerchantContext.lastUsed?.analyticsClient ?: defaultInstance
+
+            override fun isInitialized() = true
+        }
     }
 }
@@ -24,4 +24,8 @@ internal data class AnalyticsEvent(
     val didEnablePayPalAppSwitch: Boolean? = null,
     val didPayPalServerAttemptAppSwitch: Boolean? = null,
     val didSdkAttemptAppSwitch: Boolean? = null,
+    val latencySummary: LatencySummary? = null,
+    val samplingWeight: Double? = null,
+    val crashSessionId: String? = null,
+    val crashCause: String? = null,
 )
@@ -20,6 +20,8 @@ import androidx.annotation.RestrictTo
  * @property buttonOrder The order or ranking in which payment buttons appear.
  * @property pageType The page or view that a button is displayed on.
  * @property errorDescription use this to provide more detail on a failure event.
+ * @property samplingPolicy limits how many events with this name are sent, unless the configuration
+ * sets a policy for the event.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 data class AnalyticsEventParams @JvmOverloads constructor(
@@ -35,4 +37,5 @@ data class AnalyticsEventParams @JvmOverloads constructor(
     val buttonOrder: String? = null,
     val pageType: String? = null,
     val errorDescription: String? = null,
+    val samplingPolicy: AnalyticsSamplingPolicy? = null,
 )
@@ -8,10 +8,13 @@ internal class AnalyticsEventRepository {
     private val events: MutableList<AnalyticsEvent> = mutableListOf()
 
     /**
-     * Adds an event to the internal event buffer.
+     * Adds an event to the internal event buffer. Events are added from the threads that receive
+     * network responses, so access to the buffer is synchronized.
      */
     fun addEvent(event: AnalyticsEvent) {
-        events.add(event)
+        synchronized(events) {
+            events.add(event)
+        }
     }
 
     /**
@@ -0,0 +1,82 @@
+package com.braintreepayments.api.core
+
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Decides which analytics events are sent according to the [AnalyticsSamplingPolicy] of their
+ * name, and with which sampling weight.
+ *
+ * The policies from the most recent [Configuration] take precedence over the policy an event is
+ * sent with. Events that mark the end of a payment flow are always sent, whatever their policy.
+ * Rate limits are token buckets per event name that hold up to a minute of events, and are shared
+ * by every [AnalyticsClient].
+ */
+internal class AnalyticsSampler(
+    private val random: Random = Random.Default
+) {
+
+    private class TokenBucket(var tokens: Double, var lastRefillTime: Long)
+
+    private val lock = Any()
+    private val buckets = mutableMapOf<String, TokenBucket>()
+    private val droppedWeights = mutableMapOf<String, Double>()
+
+    @Volatile
+    private var remotePolicies: Map<String, AnalyticsSamplingPolicy> = emptyMap()
+
+    fun updatePolicies(configuration: Configuration) {
+        remotePolicies = configuration.analyticsSamplingPolicies
+    }
+
+    /**
+     * Returns the sampling weight of an event named [eventName] if it should be sent, or `null` if
+     * it should be dropped.
+     */
+    fun sample(eventName: String, localPolicy: AnalyticsSamplingPolicy?, currentTime: Long): Double? {
+        if (FUNNEL_EVENT_PATTERN.matches(eventName)) return 1.0
+        val policy = remotePolicies[eventName] ?: localPolicy ?: return 1.0
+
+        val sampleRate = policy.sampleRate.coerceAtMost(1.0)
+        if (sampleRate < 1.0 && random.nextDouble() >= sampleRate) return null
+        val weight = 1 / sampleRate
+
+        val maxEventsPerMinute = policy.maxEventsPerMinute ?: return weight
+        synchronized(lock) {
+            val droppedWeight = droppedWeights.remove(eventName) ?: 0.0
+            if (!takeToken(eventName, maxEventsPerMinute, currentTime)) {
+                droppedWeights[eventName] = droppedWeight + weight
+                return null
+            }
+            return weight + droppedWeight
+        }
+    }
+
+    // only called while holding the lock
+    private fun takeToken(eventName: String, maxEventsPerMinute: Int, currentTime: Long): Boolean {
+        val capacity = maxEventsPerMinute.toDouble()
+        val bucket = buckets.getOrPut(eventName) { TokenBucket(capacity, currentTime) }
+        val elapsed = (currentTime - bucket.lastRefillTime).coerceAtLeast(0)
+        bucket.tokens = minOf(capacity, bucket.tokens + elapsed * capacity / MINUTE_MILLIS)
+        bucket.lastRefillTime = currentTime
+        if (bucket.tokens < 1) return false
+        bucket.tokens -= 1
+        return true
+    }
+
+    companion object {
+        private val MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1).toDouble()
+
+        /**
+         * Matches the events that report the outcome of a tokenization, 3DS verification or local
+         * payment, which funnels are built on.
+         */
+        private val FUNNEL_EVENT_PATTERN =
+            Regex("^[a-z0-9-]+:(tokenize|verify|start-payment):(succeeded|failed)$")
+
+        /**
+         * Singleton instance of the AnalyticsSampler.
+         */
+        val instance: AnalyticsSampler by lazy { AnalyticsSampler() }
+    }
+}
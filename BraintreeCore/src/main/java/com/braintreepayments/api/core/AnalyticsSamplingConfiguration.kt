@@ -0,0 +1,38 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+
+/**
+ * Contains the remote analytics sampling configuration for the Braintree SDK.
+ *
+ * @property policies the [AnalyticsSamplingPolicy] of each event name, which takes precedence over
+ * the policy that the SDK sends the event with.
+ */
+internal data class AnalyticsSamplingConfiguration(
+    val policies: Map<String, AnalyticsSamplingPolicy>
+) {
+
+    constructor(json: JSONObject?) : this(parsePolicies(json?.optJSONObject(EVENT_SAMPLING_KEY)))
+
+    companion object {
+        private const val EVENT_SAMPLING_KEY = "eventSampling"
+        private const val SAMPLE_RATE_KEY = "sampleRate"
+        private const val MAX_EVENTS_PER_MINUTE_KEY = "maxEventsPerMinute"
+
+        private fun parsePolicies(json: JSONObject?): Map<String, AnalyticsSamplingPolicy> {
+            val policies = mutableMapOf<String, AnalyticsSamplingPolicy>()
+            json?.keys()?.forEach { eventName ->
+                val policyJson = json.optJSONObject(eventName) ?: return@forEach
+                policies[eventName] = AnalyticsSamplingPolicy(
+                    sampleRate = policyJson.optDouble(SAMPLE_RATE_KEY, 1.0),
+                    maxEventsPerMinute = if (policyJson.has(MAX_EVENTS_PER_MINUTE_KEY)) {
+                        policyJson.optInt(MAX_EVENTS_PER_MINUTE_KEY)
+                    } else {
+                        null
+                    }
+                )
+            }
+            return policies
+        }
+    }
+}
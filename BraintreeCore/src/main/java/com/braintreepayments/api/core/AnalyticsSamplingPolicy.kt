@@ -0,0 +1,18 @@
+package com.braintreepayments.api.core
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Limits how many analytics events with a given name are sent.
+ *
+ * @property sampleRate the fraction of events that are sent, between 0 and 1. Each sent event
+ * carries a sampling weight of 1/[sampleRate] so that the total count can be reconstructed.
+ * @property maxEventsPerMinute the number of events that are sent per minute once the events that
+ * were sent in bursts have used up the allowance, or `null` for no limit. The weight of events that
+ * are dropped by the limit is added to the next event that is sent.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+data class AnalyticsSamplingPolicy @JvmOverloads constructor(
+    val sampleRate: Double = 1.0,
+    val maxEventsPerMinute: Int? = null,
+)
@@ -1,6 +1,7 @@
 package com.braintreepayments.api.core
 
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -10,10 +11,10 @@ import org.json.JSONObject
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class ApiClient(
     private val braintreeClient: BraintreeClient,
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository
 ) {
 
-    fun tokenizeGraphQL(tokenizePayload: JSONObject, callback: TokenizeCallback) =
+    fun tokenizeGraphQL(tokenizePayload: JSONObject, callback: TokenizeCallback): CancellableRequest =
         braintreeClient.run {
             sendGraphQLPOST(tokenizePayload) { responseBody, httpError ->
                 parseResponseToJSON(responseBody)?.let { json ->
@@ -24,7 +25,7 @@ class ApiClient(
             }
         }
 
-    fun tokenizeREST(paymentMethod: PaymentMethod, callback: TokenizeCallback) =
+    fun tokenizeREST(paymentMethod: PaymentMethod, callback: TokenizeCallback): CancellableRequest =
         braintreeClient.run {
             val url = versionedPath("$PAYMENT_METHOD_ENDPOINT/${paymentMethod.apiPath}")
             paymentMethod.sessionId = analyticsParamRepository.sessionId
@@ -3,13 +3,18 @@ package com.braintreepayments.api.core
 import android.content.Context
 import android.content.pm.ActivityInfo
 import android.net.Uri
+import androidx.annotation.MainThread
 import androidx.annotation.RestrictTo
+import androidx.lifecycle.LifecycleOwner
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
 import com.braintreepayments.api.sharedutils.HttpResponseTiming
+import com.braintreepayments.api.sharedutils.MainThreadExecutor
 import com.braintreepayments.api.sharedutils.ManifestValidator
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import org.json.JSONException
 import org.json.JSONObject
+import java.util.concurrent.Executor
 
 /**
  * Core Braintree class that handles network requests.
@@ -24,21 +29,50 @@ class BraintreeClient internal constructor(
     appLinkReturnUri: Uri?,
     deepLinkFallbackUrlScheme: String? = null,
     sdkComponent: SdkComponent = SdkComponent.create(applicationContext),
+    merchantContext: MerchantContext = MerchantContext.forAuthorization(authorization),
     private val httpClient: BraintreeHttpClient = BraintreeHttpClient(),
     private val graphQLClient: BraintreeGraphQLClient = BraintreeGraphQLClient(),
-    private val configurationLoader: ConfigurationLoader = ConfigurationLoader.instance,
+    private val configurationLoader: ConfigurationLoader = merchantContext.configurationLoader,
     private val manifestValidator: ManifestValidator = ManifestValidator(),
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
-    private val analyticsClient: AnalyticsClient = AnalyticsClient(),
+    /**
+     * The values set by the merchant for the authorization of this client, which are shared by
+     * every client created with the same authorization.
+     *
+     * @suppress
+     */
+    val merchantRepository: MerchantRepository = merchantContext.merchantRepository,
+    /**
+     * Sends analytics with the authorization and session of this client.
+     *
+     * @suppress
+     */
+    val analyticsClient: AnalyticsClient = merchantContext.analyticsClient,
+    /**
+     * The [Executor] that calls back with the results of configuration and network requests.
+     * Internal continuations, such as sending a request once the configuration has loaded, do not
+     * use it.
+     *
+     * @suppress
+     */
+    val callbackExecutor: Executor = MainThreadExecutor(),
+    /**
+     * The analytics session of the authorization of this client.
+     *
+     * @suppress
+     */
+    val analyticsParamRepository: AnalyticsParamRepository = merchantContext.analyticsParamRepository,
 ) {
 
     private val crashReporter: CrashReporter
+    private val endpointNormalizer = EndpointNormalizer.instance
     private var launchesBrowserSwitchAsNewTask: Boolean = false
 
     private val braintreeDeepLinkReturnUrlScheme: String =
         "${getAppPackageNameWithoutUnderscores(applicationContext)}.braintree.deeplinkhandler"
 
     /**
+     * @param callbackExecutor the [Executor] that calls back with results; defaults to the main thread
+     *
      * @suppress
      */
     constructor (
@@ -48,6 +82,7 @@ class BraintreeClient internal constructor(
         appLinkReturnUri: Uri? = null,
         integrationType: IntegrationType? = null,
         deepLinkFallbackUrlScheme: String? = null,
+        callbackExecutor: Executor? = null,
     ) : this(
         applicationContext = context.applicationContext,
         authorization = Authorization.fromString(authorization),
@@ -55,7 +90,8 @@ class BraintreeClient internal constructor(
             ?: "${getAppPackageNameWithoutUnderscores(context.applicationContext)}.braintree",
         appLinkReturnUri = appLinkReturnUri,
         integrationType = integrationType ?: IntegrationType.CUSTOM,
-        deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme
+        deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme,
+        callbackExecutor = callbackExecutor ?: MainThreadExecutor()
     )
 
     init {
@@ -79,6 +115,7 @@ class BraintreeClient internal constructor(
                 it.deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme
             }
         }
+        sdkComponent.configurationRefresher.setLastAuthorization(authorization)
 
         prefetchConfiguration()
     }
@@ -86,26 +123,30 @@ class BraintreeClient internal constructor(
     private fun prefetchConfiguration() {
         // This method is called to prefetch the configuration when the BraintreeClient is created.
         // It ensures that the configuration is loaded and ready for use in subsequent requests.
-        getConfiguration(callback = object : ConfigurationCallback {
-            override fun onResult(configuration: Configuration?, error: Exception?) {
-                // no op
-            }
-        })
+        loadConfiguration { _, _ ->
+            // no op
+        }
     }
 
     /**
      * Retrieve Braintree configuration.
      *
-     * @param callback [ConfigurationCallback]
+     * @param callback [ConfigurationCallback], called on [callbackExecutor]
      */
     fun getConfiguration(callback: ConfigurationCallback) {
+        loadConfiguration { configuration, error ->
+            callbackExecutor.execute { callback.onResult(configuration, error) }
+        }
+    }
+
+    /**
+     * Loads the configuration and calls [callback] on the thread that loaded it, which is the
+     * calling thread for a cached configuration, or a network thread otherwise.
+     */
+    private fun loadConfiguration(callback: ConfigurationCallback) {
         configurationLoader.loadConfiguration { result ->
             when (result) {
-                is ConfigurationLoaderResult.Success -> {
-                    callback.onResult(result.configuration, null)
-                    result.timing?.let { sendAnalyticsTimingEvent("/v1/configuration", it) }
-                }
-
+                is ConfigurationLoaderResult.Success -> callback.onResult(result.configuration, null)
                 is ConfigurationLoaderResult.Failure -> callback.onResult(null, result.error)
             }
         }
@@ -125,31 +166,52 @@ class BraintreeClient internal constructor(
     /**
      * @suppress
      */
-    fun sendGET(url: String, responseCallback: HttpResponseCallback) {
-        getConfiguration { configuration, configError ->
+    fun sendGET(url: String, responseCallback: HttpResponseCallback): CancellableRequest {
+        val request = createCancellableRequest(url)
+        val callback = request.guard(responseCallback)
+        loadConfiguration { configuration, configError ->
+            if (request.isCancelled) return@loadConfiguration
             if (configuration != null) {
-                httpClient.get(url, configuration, merchantRepository.authorization) { result ->
+                httpClient.get(
+                    url,
+                    configuration,
+                    merchantRepository.authorization,
+                    cancellableRequest = request
+                ) { result ->
                     when (result) {
                         is NetworkResponseCallback.Result.Success -> {
                             try {
-                                sendAnalyticsTimingEvent(url, result.response.timing)
-                                responseCallback.onResult(result.response.body, null)
+                                recordLatency(url, result.response.timing)
+                                callback.onResult(result.response.body, null)
                             } catch (jsonException: JSONException) {
-                                responseCallback.onResult(null, jsonException)
+                                callback.onResult(null, jsonException)
                             }
                         }
 
                         is NetworkResponseCallback.Result.Failure -> {
-                            responseCallback.onResult(null, result.error)
+                            callback.onResult(null, result.error)
                         }
                     }
                 }
             } else {
-                responseCallback.onResult(null, configError)
+                callback.onResult(null, configError)
             }
         }
+        return request
     }
 
+    /**
+     * Sends a GET request that is cancelled when [lifecycleOwner] is destroyed.
+     *
+     * @suppress
+     */
+    @MainThread
+    fun sendGET(
+        lifecycleOwner: LifecycleOwner,
+        url: String,
+        responseCallback: HttpResponseCallback
+    ): CancellableRequest = sendGET(url, responseCallback).cancelOnDestroy(lifecycleOwner)
+
     /**
      * @suppress
      */
@@ -159,81 +221,111 @@ class BraintreeClient internal constructor(
         data: String,
         additionalHeaders: Map<String, String> = emptyMap(),
         responseCallback: HttpResponseCallback,
-    ) {
-        getConfiguration { configuration, configError ->
+    ): CancellableRequest {
+        val request = createCancellableRequest(url)
+        val callback = request.guard(responseCallback)
+        loadConfiguration { configuration, configError ->
+            if (request.isCancelled) return@loadConfiguration
             if (configuration != null) {
                 httpClient.post(
                     path = url,
                     data = data,
                     configuration = configuration,
                     authorization = merchantRepository.authorization,
-                    additionalHeaders = additionalHeaders
+                    additionalHeaders = additionalHeaders,
+                    cancellableRequest = request
                 ) { result ->
                     when (result) {
                         is NetworkResponseCallback.Result.Success -> {
                             try {
-                                sendAnalyticsTimingEvent(url, result.response.timing)
-                                responseCallback.onResult(result.response.body, null)
+                                recordLatency(url, result.response.timing)
+                                callback.onResult(result.response.body, null)
                             } catch (jsonException: JSONException) {
-                                responseCallback.onResult(null, jsonException)
+                                callback.onResult(null, jsonException)
                             }
                         }
 
                         is NetworkResponseCallback.Result.Failure -> {
-                            responseCallback.onResult(null, result.error)
+                            callback.onResult(null, result.error)
                         }
                     }
                 }
             } else {
-                responseCallback.onResult(null, configError)
+                callback.onResult(null, configError)
             }
         }
+        return request
     }
 
+    /**
+     * Sends a POST request that is cancelled when [lifecycleOwner] is destroyed.
+     *
+     * @suppress
+     */
+    @MainThread
+    @JvmOverloads
+    fun sendPOST(
+        lifecycleOwner: LifecycleOwner,
+        url: String,
+        data: String,
+        additionalHeaders: Map<String, String> = emptyMap(),
+        responseCallback: HttpResponseCallback,
+    ): CancellableRequest =
+        sendPOST(url, data, additionalHeaders, responseCallback).cancelOnDestroy(lifecycleOwner)
+
     /**
      * @suppress
      */
-    fun sendGraphQLPOST(json: JSONObject, responseCallback: HttpResponseCallback) {
-        getConfiguration { configuration, configError ->
+    fun sendGraphQLPOST(json: JSONObject, responseCallback: HttpResponseCallback): CancellableRequest {
+        val request = createCancellableRequest(GRAPHQL_ENDPOINT)
+        val callback = request.guard(responseCallback)
+        loadConfiguration { configuration, configError ->
+            if (request.isCancelled) return@loadConfiguration
             if (configuration != null) {
                 graphQLClient.post(
                     data = json.toString(),
                     configuration = configuration,
-                    authorization = merchantRepository.authorization
+                    authorization = merchantRepository.authorization,
+                    cancellableRequest = request
                 ) { result ->
                     when (result) {
                         is NetworkResponseCallback.Result.Success -> {
                             try {
                                 val query = json.optString(GraphQLConstants.Keys.QUERY)
-                                val queryDiscardHolder = query.replace(Regex("^[^\\(]*"), "")
-                                val finalQuery = query.replace(queryDiscardHolder, "")
-                                val params = AnalyticsEventParams(
-                                    startTime = result.response.timing.startTime,
-                                    endTime = result.response.timing.endTime,
-                                    endpoint = finalQuery
-                                )
-                                sendAnalyticsEvent(
-                                    eventName = CoreAnalytics.API_REQUEST_LATENCY,
-                                    params = params,
-                                    sendImmediately = false
+                                analyticsClient.recordLatency(
+                                    endpointNormalizer.graphQLOperation(query),
+                                    result.response.timing
                                 )
-                                responseCallback.onResult(result.response.body, null)
+                                callback.onResult(result.response.body, null)
                             } catch (jsonException: JSONException) {
-                                responseCallback.onResult(null, jsonException)
+                                callback.onResult(null, jsonException)
                             }
                         }
 
                         is NetworkResponseCallback.Result.Failure -> {
-                            responseCallback.onResult(null, result.error)
+                            callback.onResult(null, result.error)
                         }
                     }
                 }
             } else {
-                responseCallback.onResult(null, configError)
+                callback.onResult(null, configError)
             }
         }
+        return request
     }
 
+    /**
+     * Sends a GraphQL request that is cancelled when [lifecycleOwner] is destroyed.
+     *
+     * @suppress
+     */
+    @MainThread
+    fun sendGraphQLPOST(
+        lifecycleOwner: LifecycleOwner,
+        json: JSONObject,
+        responseCallback: HttpResponseCallback
+    ): CancellableRequest = sendGraphQLPOST(json, responseCallback).cancelOnDestroy(lifecycleOwner)
+
     /**
      * @suppress
      */
@@ -253,36 +345,43 @@ class BraintreeClient internal constructor(
     }
 
     /**
+     * Records a crash synchronously, to be reported in the next session.
+     *
      * @suppress
      */
-    internal fun reportCrash() =
-        getConfiguration { configuration, _ ->
-            analyticsClient.reportCrash(configuration)
-        }
+    internal fun reportCrash(cause: String? = null) = analyticsClient.reportCrash(cause)
 
     // TODO: Make launches browser switch as new task a property of `BraintreeOptions`
     fun launchesBrowserSwitchAsNewTask(): Boolean {
         return launchesBrowserSwitchAsNewTask
     }
 
-    private fun sendAnalyticsTimingEvent(endpoint: String, timing: HttpResponseTiming) {
-        var cleanedPath = endpoint.replace(Regex("/merchants/([A-Za-z0-9]+)/client_api"), "")
-        cleanedPath = cleanedPath.replace(
-            Regex("payment_methods/.*/three_d_secure"), "payment_methods/three_d_secure"
-        )
+    private fun recordLatency(endpoint: String, timing: HttpResponseTiming) {
+        analyticsClient.recordLatency(endpointNormalizer.normalize(endpoint), timing)
+    }
 
+    private fun createCancellableRequest(endpoint: String) = CancellableRequest {
         sendAnalyticsEvent(
-            eventName = CoreAnalytics.API_REQUEST_LATENCY,
-            params = AnalyticsEventParams(
-                startTime = timing.startTime,
-                endTime = timing.endTime,
-                endpoint = cleanedPath
-            ),
+            eventName = CoreAnalytics.API_REQUEST_CANCELLED,
+            params = AnalyticsEventParams(endpoint = endpointNormalizer.normalize(endpoint)),
             sendImmediately = false
         )
     }
 
+    /**
+     * Returns a callback that completes this request on [callbackExecutor] and is not forwarded to
+     * [responseCallback] once the request is cancelled.
+     */
+    private fun CancellableRequest.guard(responseCallback: HttpResponseCallback) =
+        HttpResponseCallback { responseBody, httpError ->
+            callbackExecutor.execute {
+                if (complete()) responseCallback.onResult(responseBody, httpError)
+            }
+        }
+
     companion object {
+        private const val GRAPHQL_ENDPOINT = "graphql"
+
         private fun getAppPackageNameWithoutUnderscores(context: Context): String {
             return context.applicationContext.packageName.replace("_", "")
         }
@@ -1,5 +1,6 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.Method
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
@@ -14,6 +15,7 @@ internal class BraintreeGraphQLClient(
         data: String,
         configuration: Configuration,
         authorization: Authorization,
+        cancellableRequest: CancellableRequest? = null,
         callback: NetworkResponseCallback
     ) {
         if (authorization is InvalidAuthorization) {
@@ -32,6 +34,6 @@ internal class BraintreeGraphQLClient(
             )
         )
 
-        httpClient.sendRequest(request, callback)
+        httpClient.sendRequest(request, callback, cancellableRequest)
     }
 }
@@ -1,6 +1,7 @@
 package com.braintreepayments.api.core
 
 import androidx.core.net.toUri
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.Method
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
@@ -23,6 +24,8 @@ internal class BraintreeHttpClient(
         path: String,
         configuration: Configuration?,
         authorization: Authorization?,
+        additionalHeaders: Map<String, String> = emptyMap(),
+        cancellableRequest: CancellableRequest? = null,
         callback: NetworkResponseCallback
     ) {
         if (!validateAuthorization(authorization, callback)) return
@@ -44,10 +47,10 @@ internal class BraintreeHttpClient(
         val request = OkHttpRequest(
             method = Method.Get,
             url = url,
-            headers = assembleHeaders(authorization)
+            headers = assembleHeaders(authorization, additionalHeaders)
         )
 
-        httpClient.sendRequest(request, callback)
+        httpClient.sendRequest(request, callback, cancellableRequest)
     }
 
     /**
@@ -60,6 +63,7 @@ internal class BraintreeHttpClient(
         configuration: Configuration?,
         authorization: Authorization?,
         additionalHeaders: Map<String, String> = emptyMap(),
+        cancellableRequest: CancellableRequest? = null,
         callback: NetworkResponseCallback?
     ) {
         if (!validateAuthorization(authorization, callback)) return
@@ -90,7 +94,7 @@ internal class BraintreeHttpClient(
             headers = assembleHeaders(authorization, additionalHeaders)
         )
 
-        httpClient.sendRequest(request, callback)
+        httpClient.sendRequest(request, callback, cancellableRequest)
     }
 
     private fun validateAuthorization(
@@ -0,0 +1,40 @@
+@file:JvmName("CancellableRequestLifecycle")
+
+package com.braintreepayments.api.core
+
+import androidx.annotation.MainThread
+import androidx.annotation.RestrictTo
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import com.braintreepayments.api.sharedutils.CancellableRequest
+import com.braintreepayments.api.sharedutils.MainThreadExecutor
+import java.util.concurrent.Executor
+
+/**
+ * Cancels this request when [lifecycleOwner] is destroyed, or right away if it already has been.
+ * The lifecycle observer is removed on the main thread once the request completes or is cancelled.
+ *
+ * @return this request
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+@MainThread
+@JvmOverloads
+fun CancellableRequest.cancelOnDestroy(
+    lifecycleOwner: LifecycleOwner,
+    mainThreadExecutor: Executor = MainThreadExecutor()
+): CancellableRequest {
+    val lifecycle = lifecycleOwner.lifecycle
+    if (lifecycle.currentState == Lifecycle.State.DESTROYED) {
+        cancel()
+        return this
+    }
+
+    val observer = LifecycleEventObserver { _, event ->
+        if (event == Lifecycle.Event.ON_DESTROY) cancel()
+    }
+    lifecycle.addObserver(observer)
+    doOnFinish { mainThreadExecutor.execute { lifecycle.removeObserver(observer) } }
+    return this
+}
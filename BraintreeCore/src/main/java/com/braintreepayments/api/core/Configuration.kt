@@ -4,6 +4,9 @@ import androidx.annotation.RestrictTo
 import com.braintreepayments.api.sharedutils.Json
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.IOException
 
 /**
  * Contains the remote configuration for the Braintree Android SDK.
@@ -34,12 +37,71 @@ import org.json.JSONObject
  * @property payPalUserAgreementUrl the PayPal app user agreement url.
  * @property supportedCardTypes a list of card types supported by the merchant.
  */
-class Configuration internal constructor(configurationString: String) {
+class Configuration private constructor(
+    private val json: ConfigurationJson,
+    val assetsUrl: String,
+    val cardinalAuthenticationJwt: String?,
+    val clientApiUrl: String,
+    val environment: String,
+    val isPayPalEnabled: Boolean,
+    val isThreeDSecureEnabled: Boolean,
+    val merchantAccountId: String?,
+    val merchantId: String,
+    graphQLUrl: String,
+    private val challengesSection: Lazy<Set<String>>,
+    private val analyticsSamplingSection: Lazy<AnalyticsSamplingConfiguration>,
+    private val braintreeApiSection: Lazy<BraintreeApiConfiguration>,
+    private val cardSection: Lazy<CardConfiguration>,
+    private val googlePaySection: Lazy<GooglePayConfiguration>,
+    private val graphQLSection: Lazy<GraphQLConfiguration>,
+    private val payPalSection: Lazy<PayPalConfiguration>,
+    private val venmoSection: Lazy<VenmoConfiguration>,
+    private val visaCheckoutSection: Lazy<VisaCheckoutConfiguration>,
+) {
+
+    internal constructor(configurationString: String) : this(ConfigurationJson(configurationString))
+
+    private constructor(json: ConfigurationJson) : this(json, json.values(*EAGER_KEYS))
+
+    // Only the values needed to make requests are read eagerly; each section is parsed from its own
+    // slice of the JSON the first time one of its values is accessed.
+    private constructor(json: ConfigurationJson, values: JSONObject) : this(
+        json = json,
+        assetsUrl = Json.optString(values, ASSETS_URL_KEY, ""),
+        cardinalAuthenticationJwt = Json.optString(values, CARDINAL_AUTHENTICATION_JWT, null),
+        clientApiUrl = values.getString(CLIENT_API_URL_KEY),
+        environment = values.getString(ENVIRONMENT_KEY),
+        isPayPalEnabled = values.optBoolean(PAYPAL_ENABLED_KEY, false),
+        isThreeDSecureEnabled = values.optBoolean(THREE_D_SECURE_ENABLED_KEY, false),
+        merchantAccountId = Json.optString(values, MERCHANT_ACCOUNT_ID_KEY, null),
+        merchantId = values.getString(MERCHANT_ID_KEY),
+        graphQLUrl = Json.optString(json.optJSONObject(GRAPHQL_KEY), GraphQLConstants.Keys.URL, ""),
+        challengesSection = json.section(::parseChallenges),
+        analyticsSamplingSection = json.section(::parseAnalyticsSampling),
+        braintreeApiSection = json.section(::parseBraintreeApi),
+        cardSection = json.section(::parseCard),
+        googlePaySection = json.section(::parseGooglePay),
+        graphQLSection = json.section(::parseGraphQL),
+        payPalSection = json.section(::parsePayPal),
+        venmoSection = json.section(::parseVenmo),
+        visaCheckoutSection = json.section(::parseVisaCheckout),
+    )
+
+    private val challenges by challengesSection
+    private val analyticsSamplingConfiguration by analyticsSamplingSection
+    private val braintreeApiConfiguration by braintreeApiSection
+    private val cardConfiguration by cardSection
+    private val googlePayConfiguration by googlePaySection
+    private val graphQLConfiguration by graphQLSection
+    private val payPalConfiguration by payPalSection
+    private val venmoConfiguration by venmoSection
+    private val visaCheckoutConfiguration by visaCheckoutSection
 
     /**
      * @suppress
      */
     companion object {
+        private const val ANALYTICS_KEY = "analytics"
         private const val ASSETS_URL_KEY = "assetsUrl"
         private const val BRAINTREE_API_KEY = "braintreeApi"
         private const val CARDINAL_AUTHENTICATION_JWT = "cardinalAuthenticationJWT"
@@ -57,257 +119,390 @@ class Configuration internal constructor(configurationString: String) {
         private const val THREE_D_SECURE_ENABLED_KEY = "threeDSecureEnabled"
         private const val VISA_CHECKOUT_KEY = "visaCheckout"
 
+        private val EAGER_KEYS = arrayOf(
+            ASSETS_URL_KEY,
+            CARDINAL_AUTHENTICATION_JWT,
+            CLIENT_API_URL_KEY,
+            ENVIRONMENT_KEY,
+            MERCHANT_ACCOUNT_ID_KEY,
+            MERCHANT_ID_KEY,
+            PAYPAL_ENABLED_KEY,
+            THREE_D_SECURE_ENABLED_KEY,
+        )
+
+        private const val NO_LIMIT = -1
+
         @JvmStatic
         @Throws(JSONException::class)
         @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
         fun fromJson(configurationString: String): Configuration {
             return Configuration(configurationString)
         }
+
+        @Throws(IOException::class)
+        private fun DataInput.readSamplingPolicies(): Map<String, AnalyticsSamplingPolicy> {
+            val eventNames = readStrings()
+            return eventNames.associateWith {
+                val sampleRate = readDouble()
+                val maxEventsPerMinute = readInt()
+                AnalyticsSamplingPolicy(sampleRate, maxEventsPerMinute.takeIf { it != NO_LIMIT })
+            }
+        }
+
+        @Throws(IOException::class)
+        private fun DataOutput.writeSamplingPolicies(policies: Map<String, AnalyticsSamplingPolicy>) {
+            writeStrings(policies.keys)
+            policies.values.forEach {
+                writeDouble(it.sampleRate)
+                writeInt(it.maxEventsPerMinute ?: NO_LIMIT)
+            }
+        }
+
+        private fun <T> ConfigurationJson.section(parse: (ConfigurationJson) -> T): Lazy<T> = lazy { parse(this) }
+
+        private fun parseChallenges(json: ConfigurationJson): Set<String> {
+            val challenges = mutableSetOf<String>()
+            json.optJSONArray(CHALLENGES_KEY)?.let {
+                for (i in 0 until it.length()) {
+                    challenges.add(it.optString(i, ""))
+                }
+            }
+            return challenges
+        }
+
+        private fun parseAnalyticsSampling(json: ConfigurationJson) =
+            AnalyticsSamplingConfiguration(json.optJSONObject(ANALYTICS_KEY))
+
+        private fun parseBraintreeApi(json: ConfigurationJson) =
+            BraintreeApiConfiguration(json.optJSONObject(BRAINTREE_API_KEY))
+
+        private fun parseCard(json: ConfigurationJson) = CardConfiguration(json.optJSONObject(CARD_KEY))
+
+        private fun parseGooglePay(json: ConfigurationJson) = GooglePayConfiguration(json.optJSONObject(GOOGLE_PAY_KEY))
+
+        private fun parseGraphQL(json: ConfigurationJson) = GraphQLConfiguration(json.optJSONObject(GRAPHQL_KEY))
+
+        private fun parsePayPal(json: ConfigurationJson) = PayPalConfiguration(json.optJSONObject(PAYPAL_KEY))
+
+        private fun parseVenmo(json: ConfigurationJson) = VenmoConfiguration(json.optJSONObject(PAY_WITH_VENMO_KEY))
+
+        private fun parseVisaCheckout(json: ConfigurationJson) =
+            VisaCheckoutConfiguration(json.optJSONObject(VISA_CHECKOUT_KEY))
+
+        /**
+         * Reads a section written by [writeSection]: its values if it had been parsed when the
+         * snapshot was written, or otherwise a [Lazy] that parses it from [json] when it is first
+         * accessed.
+         */
+        @Throws(IOException::class)
+        private fun <T> DataInput.readSection(
+            json: ConfigurationJson,
+            parse: (ConfigurationJson) -> T,
+            read: DataInput.() -> T
+        ): Lazy<T> = if (readBoolean()) lazyOf(read()) else json.section(parse)
+
+        @Throws(IOException::class)
+        private fun <T> DataOutput.writeSection(section: Lazy<T>, write: DataOutput.(T) -> Unit) {
+            writeBoolean(section.isInitialized())
+            if (section.isInitialized()) write(section.value)
+        }
+
+        /**
+         * Reads a [Configuration] written by [writeSnapshot]. The snapshot only has the parsed
+         * values, so [configurationString], the JSON the snapshot was written from, is only scanned
+         * if a section that is not in the snapshot is accessed, or by [toJson].
+         */
+        @Throws(IOException::class)
+        internal fun readSnapshot(input: DataInput, configurationString: String): Configuration {
+            val json = ConfigurationJson.deferred(configurationString)
+            return Configuration(
+                json = json,
+                assetsUrl = input.readUTF(),
+                cardinalAuthenticationJwt = input.readNullableString(),
+                clientApiUrl = input.readUTF(),
+                environment = input.readUTF(),
+                isPayPalEnabled = input.readBoolean(),
+                isThreeDSecureEnabled = input.readBoolean(),
+                merchantAccountId = input.readNullableString(),
+                merchantId = input.readUTF(),
+                graphQLUrl = input.readUTF(),
+                challengesSection = input.readSection(json, ::parseChallenges) { readStrings().toSet() },
+                analyticsSamplingSection = input.readSection(json, ::parseAnalyticsSampling) {
+                    AnalyticsSamplingConfiguration(policies = readSamplingPolicies())
+                },
+                braintreeApiSection = input.readSection(json, ::parseBraintreeApi) {
+                    BraintreeApiConfiguration(accessToken = readUTF(), url = readUTF())
+                },
+                cardSection = input.readSection(json, ::parseCard) {
+                    CardConfiguration(supportedCardTypes = readStrings(), isFraudDataCollectionEnabled = readBoolean())
+                },
+                googlePaySection = input.readSection(json, ::parseGooglePay) {
+                    GooglePayConfiguration(
+                        isEnabled = readBoolean(),
+                        googleAuthorizationFingerprint = readNullableString(),
+                        environment = readNullableString(),
+                        displayName = readUTF(),
+                        supportedNetworks = readStrings(),
+                        paypalClientId = readUTF()
+                    )
+                },
+                graphQLSection = input.readSection(json, ::parseGraphQL) {
+                    GraphQLConfiguration(url = readUTF(), features = readStrings().toSet())
+                },
+                payPalSection = input.readSection(json, ::parsePayPal) {
+                    PayPalConfiguration(
+                        directBaseUrl = readNullableString(),
+                        displayName = readNullableString(),
+                        clientId = readNullableString(),
+                        privacyUrl = readNullableString(),
+                        userAgreementUrl = readNullableString(),
+                        environment = readNullableString(),
+                        isTouchDisabled = readBoolean(),
+                        currencyIsoCode = readNullableString()
+                    )
+                },
+                venmoSection = input.readSection(json, ::parseVenmo) {
+                    VenmoConfiguration(
+                        accessToken = readUTF(),
+                        environment = readUTF(),
+                        merchantId = readUTF(),
+                        enrichedCustomerDataEnabled = readBoolean()
+                    )
+                },
+                visaCheckoutSection = input.readSection(json, ::parseVisaCheckout) {
+                    VisaCheckoutConfiguration(
+                        apiKey = readUTF(),
+                        externalClientId = readUTF(),
+                        acceptedCardBrands = readStrings()
+                    )
+                },
+            )
+        }
     }
 
     // region Public Properties
-    val assetsUrl: String
-    val cardinalAuthenticationJwt: String?
-    val clientApiUrl: String
-    val environment: String
     val isCvvChallengePresent: Boolean
+        get() = challenges.contains("cvv")
     val isGooglePayEnabled: Boolean
-    val isLocalPaymentEnabled: Boolean
-    val isPayPalEnabled: Boolean
+        get() = googlePayConfiguration.isEnabled
+    val isLocalPaymentEnabled: Boolean = isPayPalEnabled // Local Payments are enabled when PayPal is enabled
     val isPostalCodeChallengePresent: Boolean
-    val isThreeDSecureEnabled: Boolean
+        get() = challenges.contains("postal_code")
     val isVenmoEnabled: Boolean
+        get() = venmoConfiguration.isAccessTokenValid
     val isVisaCheckoutEnabled: Boolean
-    val merchantAccountId: String?
-    val merchantId: String
+        get() = visaCheckoutConfiguration.isEnabled
     val payPalDirectBaseUrl: String?
+        get() = payPalConfiguration.directBaseUrl
     val payPalPrivacyUrl: String?
+        get() = payPalConfiguration.privacyUrl
     val payPalUserAgreementUrl: String?
+        get() = payPalConfiguration.userAgreementUrl
     val supportedCardTypes: List<String>
+        get() = cardConfiguration.supportedCardTypes
     // endregion
 
     // region Internal Properties
 
+    /**
+     * The [AnalyticsSamplingPolicy] of each analytics event name that is sampled or rate limited
+     * remotely.
+     */
+    internal val analyticsSamplingPolicies: Map<String, AnalyticsSamplingPolicy>
+        get() = analyticsSamplingConfiguration.policies
+
     /**
      * @return The Access Token for Braintree API.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val braintreeApiAccessToken: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val braintreeApiAccessToken: String
+        get() = braintreeApiConfiguration.accessToken
 
     /**
      * @return the base url for accessing Braintree API.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val braintreeApiUrl: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val braintreeApiUrl: String
+        get() = braintreeApiConfiguration.url
 
     /**
      * @return the authorization fingerprint to use for Google Payment, only allows tokenizing
      * Google Payment cards.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val googlePayAuthorizationFingerprint: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val googlePayAuthorizationFingerprint: String?
+        get() = googlePayConfiguration.googleAuthorizationFingerprint
 
     /**
      * @return the Google Pay display name to show to the user.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val googlePayDisplayName: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val googlePayDisplayName: String
+        get() = googlePayConfiguration.displayName
 
     /**
      * @return the current Google Pay environment.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val googlePayEnvironment: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val googlePayEnvironment: String?
+        get() = googlePayConfiguration.environment
 
     /**
      * @return the PayPal Client ID used by Google Pay.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val googlePayPayPalClientId: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val googlePayPayPalClientId: String
+        get() = googlePayConfiguration.paypalClientId
 
     /**
      * @return a list of supported card networks for Google Pay.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val googlePaySupportedNetworks: List<String>
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val googlePaySupportedNetworks: List<String>
+        get() = googlePayConfiguration.supportedNetworks
 
     /**
      * @return the GraphQL url.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val graphQLUrl: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val graphQLUrl: String = graphQLUrl
 
     /**
      * @return a boolean indicating whether Braintree API is enabled for this merchant.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val isBraintreeApiEnabled: Boolean
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val isBraintreeApiEnabled: Boolean
+        get() = braintreeApiConfiguration.isEnabled
 
     /**
      * @return `true` if fraud device data collection should occur; `false` otherwise.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val isFraudDataCollectionEnabled: Boolean
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val isFraudDataCollectionEnabled: Boolean
+        get() = cardConfiguration.isFraudDataCollectionEnabled
 
     /**
      * @return `true` if GraphQL is enabled for the merchant account; `false` otherwise.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val isGraphQLEnabled: Boolean
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val isGraphQLEnabled: Boolean
+        get() = graphQLConfiguration.isEnabled
 
     /**
      * @return `true` if PayPal touch is currently disabled, `false` otherwise.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val isPayPalTouchDisabled: Boolean
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val isPayPalTouchDisabled: Boolean
+        get() = payPalConfiguration.isTouchDisabled
 
     /**
      * @return the PayPal app client id.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val payPalClientId: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val payPalClientId: String?
+        get() = payPalConfiguration.clientId
 
     /**
      * @return the PayPal currency code.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val payPalCurrencyIsoCode: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val payPalCurrencyIsoCode: String?
+        get() = payPalConfiguration.currencyIsoCode
 
     /**
      * @return the PayPal app display name.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val payPalDisplayName: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val payPalDisplayName: String?
+        get() = payPalConfiguration.displayName
 
     /**
      * @return the current environment for PayPal.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val payPalEnvironment: String?
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val payPalEnvironment: String?
+        get() = payPalConfiguration.environment
 
     /**
      * @return the Access Token used by the Venmo app to tokenize on behalf of the merchant.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val venmoAccessToken: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val venmoAccessToken: String
+        get() = venmoConfiguration.accessToken
 
     /**
      * @return the Venmo environment used to handle this payment.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val venmoEnvironment: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val venmoEnvironment: String
+        get() = venmoConfiguration.environment
 
     /**
      * @return the Venmo merchant id used by the Venmo app to authorize payment.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val venmoMerchantId: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val venmoMerchantId: String
+        get() = venmoConfiguration.merchantId
 
     /**
      * @return a boolean indicating whether ECD is enabled for this Venmo merchant.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val venmoEnrichedCustomerDataEnabled: Boolean
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val venmoEnrichedCustomerDataEnabled: Boolean
+        get() = venmoConfiguration.enrichedCustomerDataEnabled
 
     /**
      * @return the Visa Checkout API key configured in the Braintree Control Panel.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val visaCheckoutApiKey: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val visaCheckoutApiKey: String
+        get() = visaCheckoutConfiguration.apiKey
 
     /**
      * @return the Visa Checkout External Client ID configured in the Braintree Control Panel.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val visaCheckoutExternalClientId: String
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val visaCheckoutExternalClientId: String
+        get() = visaCheckoutConfiguration.externalClientId
 
     /**
      * @return the Visa Checkout supported networks enabled for the merchant account.
      * @suppress
      */
-    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) val visaCheckoutSupportedNetworks: List<String>
-
-    private val braintreeApiConfiguration: BraintreeApiConfiguration
-    private val cardConfiguration: CardConfiguration
-    private val challenges: MutableSet<String>
-    private val configurationString: String
-    private val googlePayConfiguration: GooglePayConfiguration
-    private val graphQLConfiguration: GraphQLConfiguration
-    private val payPalConfiguration: PayPalConfiguration
-    private val venmoConfiguration: VenmoConfiguration
-    private val visaCheckoutConfiguration: VisaCheckoutConfiguration
-    // endregion
-
-    init {
-        this.configurationString = configurationString
-        val json = JSONObject(configurationString)
-        assetsUrl = Json.optString(json, ASSETS_URL_KEY, "")
-        clientApiUrl = json.getString(CLIENT_API_URL_KEY)
-
-        // parse json challenges
-        challenges = mutableSetOf()
-        json.optJSONArray(CHALLENGES_KEY)?.let { challengesArray ->
-            for (i in 0 until challengesArray.length()) {
-                challenges.add(challengesArray.optString(i, ""))
-            }
-        }
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    val visaCheckoutSupportedNetworks: List<String>
+        get() = visaCheckoutConfiguration.acceptedCardBrands
 
-        braintreeApiConfiguration = BraintreeApiConfiguration(json.optJSONObject(BRAINTREE_API_KEY))
-        cardConfiguration = CardConfiguration(json.optJSONObject(CARD_KEY))
-        cardinalAuthenticationJwt = Json.optString(json, CARDINAL_AUTHENTICATION_JWT, null)
-        environment = json.getString(ENVIRONMENT_KEY)
-        googlePayConfiguration = GooglePayConfiguration(json.optJSONObject(GOOGLE_PAY_KEY))
-        graphQLConfiguration = GraphQLConfiguration(json.optJSONObject(GRAPHQL_KEY))
-        isPayPalEnabled = json.optBoolean(PAYPAL_ENABLED_KEY, false)
-        isThreeDSecureEnabled = json.optBoolean(THREE_D_SECURE_ENABLED_KEY, false)
-        merchantAccountId = Json.optString(json, MERCHANT_ACCOUNT_ID_KEY, null)
-        merchantId = json.getString(MERCHANT_ID_KEY)
-        payPalConfiguration = PayPalConfiguration(json.optJSONObject(PAYPAL_KEY))
-        venmoConfiguration = VenmoConfiguration(json.optJSONObject(PAY_WITH_VENMO_KEY))
-        visaCheckoutConfiguration = VisaCheckoutConfiguration(json.optJSONObject(VISA_CHECKOUT_KEY))
-
-        isCvvChallengePresent = challenges.contains("cvv")
-        isGooglePayEnabled = googlePayConfiguration.isEnabled
-        isLocalPaymentEnabled = isPayPalEnabled // Local Payments are enabled when PayPal is enabled
-        isPostalCodeChallengePresent = challenges.contains("postal_code")
-        isVenmoEnabled = venmoConfiguration.isAccessTokenValid
-        isVisaCheckoutEnabled = visaCheckoutConfiguration.isEnabled
-        payPalDirectBaseUrl = payPalConfiguration.directBaseUrl
-        payPalPrivacyUrl = payPalConfiguration.privacyUrl
-        payPalUserAgreementUrl = payPalConfiguration.userAgreementUrl
-
-        braintreeApiAccessToken = braintreeApiConfiguration.accessToken
-        braintreeApiUrl = braintreeApiConfiguration.url
-        googlePayAuthorizationFingerprint = googlePayConfiguration.googleAuthorizationFingerprint
-        googlePayDisplayName = googlePayConfiguration.displayName
-        googlePayEnvironment = googlePayConfiguration.environment
-        googlePayPayPalClientId = googlePayConfiguration.paypalClientId
-        googlePaySupportedNetworks = googlePayConfiguration.supportedNetworks
-        graphQLUrl = graphQLConfiguration.url
-        isBraintreeApiEnabled = braintreeApiConfiguration.isEnabled
-        isFraudDataCollectionEnabled = cardConfiguration.isFraudDataCollectionEnabled
-        isGraphQLEnabled = graphQLConfiguration.isEnabled
-        isPayPalTouchDisabled = payPalConfiguration.isTouchDisabled
-        payPalClientId = payPalConfiguration.clientId
-        payPalCurrencyIsoCode = payPalConfiguration.currencyIsoCode
-        payPalDisplayName = payPalConfiguration.displayName
-        payPalEnvironment = payPalConfiguration.environment
-        supportedCardTypes = cardConfiguration.supportedCardTypes
-        venmoAccessToken = venmoConfiguration.accessToken
-        venmoEnvironment = venmoConfiguration.environment
-        venmoMerchantId = venmoConfiguration.merchantId
-        venmoEnrichedCustomerDataEnabled = venmoConfiguration.enrichedCustomerDataEnabled
-        visaCheckoutApiKey = visaCheckoutConfiguration.apiKey
-        visaCheckoutExternalClientId = visaCheckoutConfiguration.externalClientId
-        visaCheckoutSupportedNetworks = visaCheckoutConfiguration.acceptedCardBrands
-    }
+    // endregion
 
     // region Public Methods
     /**
      * @return Configuration as a json [String].
      */
     fun toJson(): String {
-        return configurationString
+        return json.json
     }
     // endregion
 
@@ -321,5 +516,85 @@ class Configuration internal constructor(configurationString: String) {
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     fun isGraphQLFeatureEnabled(feature: String) = graphQLConfiguration.isFeatureEnabled(feature)
+
+    /**
+     * The number of sections that have been parsed, which is the number of sections that
+     * [writeSnapshot] writes.
+     */
+    internal val parsedSectionCount: Int
+        get() = listOf(
+            challengesSection,
+            analyticsSamplingSection,
+            braintreeApiSection,
+            cardSection,
+            googlePaySection,
+            graphQLSection,
+            payPalSection,
+            venmoSection,
+            visaCheckoutSection
+        ).count { it.isInitialized() }
+
+    /**
+     * Writes the parsed values of this [Configuration], without its JSON, so that it can be
+     * recreated with [readSnapshot]. Only the sections that have already been parsed are written, so
+     * writing a snapshot never parses a section. Values must be written in the order that
+     * [readSnapshot] reads them.
+     */
+    @Throws(IOException::class)
+    internal fun writeSnapshot(output: DataOutput) {
+        output.writeUTF(assetsUrl)
+        output.writeNullableString(cardinalAuthenticationJwt)
+        output.writeUTF(clientApiUrl)
+        output.writeUTF(environment)
+        output.writeBoolean(isPayPalEnabled)
+        output.writeBoolean(isThreeDSecureEnabled)
+        output.writeNullableString(merchantAccountId)
+        output.writeUTF(merchantId)
+        output.writeUTF(graphQLUrl)
+
+        output.writeSection(challengesSection) { writeStrings(it) }
+        output.writeSection(analyticsSamplingSection) { writeSamplingPolicies(it.policies) }
+        output.writeSection(braintreeApiSection) {
+            writeUTF(it.accessToken)
+            writeUTF(it.url)
+        }
+        output.writeSection(cardSection) {
+            writeStrings(it.supportedCardTypes)
+            writeBoolean(it.isFraudDataCollectionEnabled)
+        }
+        output.writeSection(googlePaySection) {
+            writeBoolean(it.isEnabled)
+            writeNullableString(it.googleAuthorizationFingerprint)
+            writeNullableString(it.environment)
+            writeUTF(it.displayName)
+            writeStrings(it.supportedNetworks)
+            writeUTF(it.paypalClientId)
+        }
+        output.writeSection(graphQLSection) {
+            writeUTF(it.url)
+            writeStrings(it.features)
+        }
+        output.writeSection(payPalSection) {
+            writeNullableString(it.directBaseUrl)
+            writeNullableString(it.displayName)
+            writeNullableString(it.clientId)
+            writeNullableString(it.privacyUrl)
+            writeNullableString(it.userAgreementUrl)
+            writeNullableString(it.environment)
+            writeBoolean(it.isTouchDisabled)
+            writeNullableString(it.currencyIsoCode)
+        }
+        output.writeSection(venmoSection) {
+            writeUTF(it.accessToken)
+            writeUTF(it.environment)
+            writeUTF(it.merchantId)
+            writeBoolean(it.enrichedCustomerDataEnabled)
+        }
+        output.writeSection(visaCheckoutSection) {
+            writeUTF(it.apiKey)
+            writeUTF(it.externalClientId)
+            writeStrings(it.acceptedCardBrands)
+        }
+    }
     // endregion
 }
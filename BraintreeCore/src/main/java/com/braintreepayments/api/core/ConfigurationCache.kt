@@ -2,12 +2,112 @@ package com.braintreepayments.api.core
 
 import android.content.Context
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import org.json.JSONException
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 
 internal class ConfigurationCache(
-    private val sharedPreferences: BraintreeSharedPreferences
+    private val sharedPreferences: BraintreeSharedPreferences,
+    private val snapshotStore: ConfigurationSnapshotStore? = null
 ) {
 
+    private class CachedConfiguration(val timestamp: Long, val configuration: Configuration)
+
+    // the configurations already read for each cache key, so that apps that switch between
+    // authorizations don't parse the cached JSON of each authorization again
+    private val cachedConfigurations = ConcurrentHashMap<String, CachedConfiguration>()
+
+    /**
+     * Calls [callback] once the cached values and snapshots are in memory, so that reading them
+     * doesn't wait on disk I/O. See [BraintreeSharedPreferences.whenLoaded].
+     */
+    fun whenLoaded(callback: Runnable) {
+        sharedPreferences.whenLoaded {
+            if (snapshotStore != null) snapshotStore.whenLoaded(callback) else callback.run()
+        }
+    }
+
+    /**
+     * Returns the cached [Configuration] for [cacheKey] if it has not expired. The configuration is
+     * returned from memory if it has already been read, recreated from its binary snapshot when the
+     * snapshot matches the cached JSON, and parsed from the cached JSON otherwise. Reading it from
+     * memory rewrites its snapshot if sections have been parsed since the snapshot was written.
+     */
+    fun getCachedConfiguration(
+        cacheKey: String,
+        currentTimeMillis: Long = System.currentTimeMillis()
+    ): Configuration? {
+        val timestampKey = "${cacheKey}_timestamp"
+        if (!sharedPreferences.containsKey(timestampKey)) return null
+        val timestamp = sharedPreferences.getLong(timestampKey)
+        if (currentTimeMillis - timestamp >= getTimeToLive(cacheKey)) return null
+        return readConfiguration(cacheKey, timestamp)
+    }
+
+    /**
+     * Returns the validators saved with the configuration cached for [cacheKey], whether or not it
+     * has expired, or `null` if there are none.
+     */
+    fun getValidators(cacheKey: String): ConfigurationValidators? {
+        if (!sharedPreferences.containsKey("${cacheKey}_timestamp")) return null
+        return decodeValidators(sharedPreferences.getString("${cacheKey}_validators", null))
+            ?.takeUnless { it.isEmpty }
+    }
+
+    /**
+     * Restarts the time to live of the configuration cached for [cacheKey], whether or not it has
+     * expired, after the server has answered that it has not changed.
+     *
+     * @param timeToLive how long the configuration is cached for from now, in milliseconds
+     * @return the cached configuration, or `null` if it can no longer be read
+     */
+    fun refreshConfiguration(
+        cacheKey: String,
+        currentTimeMillis: Long = System.currentTimeMillis(),
+        timeToLive: Long = TIME_TO_LIVE
+    ): Configuration? {
+        val timestampKey = "${cacheKey}_timestamp"
+        if (!sharedPreferences.containsKey(timestampKey)) return null
+        val configuration = readConfiguration(cacheKey, sharedPreferences.getLong(timestampKey)) ?: return null
+
+        val validatorsKey = "${cacheKey}_validators"
+        sharedPreferences.putStringAndLong(
+            validatorsKey,
+            sharedPreferences.getString(validatorsKey, null).orEmpty(),
+            timestampKey,
+            currentTimeMillis
+        )
+        sharedPreferences.putLong("${cacheKey}_time_to_live", timeToLive)
+        cachedConfigurations[cacheKey] = CachedConfiguration(currentTimeMillis, configuration)
+        snapshotStore?.put(cacheKey, currentTimeMillis, configuration)
+        return configuration
+    }
+
+    private fun readConfiguration(cacheKey: String, timestamp: Long): Configuration? {
+        cachedConfigurations[cacheKey]?.takeIf { it.timestamp == timestamp }?.let {
+            // the sections the app has read since the snapshot was written are only in memory
+            snapshotStore?.refresh(cacheKey, timestamp, it.configuration)
+            return it.configuration
+        }
+
+        val configurationString = sharedPreferences.getString(cacheKey, null) ?: return null
+        snapshotStore?.get(cacheKey, timestamp, configurationString)?.let {
+            cachedConfigurations[cacheKey] = CachedConfiguration(timestamp, it)
+            return it
+        }
+
+        return try {
+            Configuration.fromJson(configurationString).also {
+                cachedConfigurations[cacheKey] = CachedConfiguration(timestamp, it)
+                // replace a missing or outdated snapshot so the next cold start can use it
+                snapshotStore?.put(cacheKey, timestamp, it)
+            }
+        } catch (ignored: JSONException) {
+            null
+        }
+    }
+
     fun getConfiguration(cacheKey: String): String? {
         return getConfiguration(cacheKey, System.currentTimeMillis())
     }
@@ -16,40 +116,79 @@ internal class ConfigurationCache(
         val timestampKey = "${cacheKey}_timestamp"
         if (sharedPreferences.containsKey(timestampKey)) {
             val timeInCache = currentTimeMillis - sharedPreferences.getLong(timestampKey)
-            if (timeInCache < TIME_TO_LIVE) {
+            if (timeInCache < getTimeToLive(cacheKey)) {
                 return sharedPreferences.getString(cacheKey, "")
             }
         }
         return null
     }
 
-    fun saveConfiguration(configuration: Configuration, cacheKey: String) {
-        saveConfiguration(configuration, cacheKey, System.currentTimeMillis())
+    fun saveConfiguration(
+        configuration: Configuration,
+        cacheKey: String,
+        validators: ConfigurationValidators? = null,
+        timeToLive: Long = TIME_TO_LIVE
+    ) {
+        saveConfiguration(configuration, cacheKey, System.currentTimeMillis(), validators, timeToLive)
     }
 
+    /**
+     * Caches [configuration] for [cacheKey] for [timeToLive] milliseconds from [currentTimeMillis].
+     */
     fun saveConfiguration(
         configuration: Configuration,
         cacheKey: String,
-        currentTimeMillis: Long
+        currentTimeMillis: Long,
+        validators: ConfigurationValidators? = null,
+        timeToLive: Long = TIME_TO_LIVE
     ) {
         val timestampKey = "${cacheKey}_timestamp"
+        // always replace the validators, since those of the previous configuration no longer apply
+        sharedPreferences.putString("${cacheKey}_validators", encodeValidators(validators))
         sharedPreferences.putStringAndLong(
             cacheKey,
             configuration.toJson(),
             timestampKey,
             currentTimeMillis
         )
+        sharedPreferences.putLong("${cacheKey}_time_to_live", timeToLive)
+        cachedConfigurations[cacheKey] = CachedConfiguration(currentTimeMillis, configuration)
+        snapshotStore?.put(cacheKey, currentTimeMillis, configuration)
     }
 
+    // entries cached before the time to live was stored use the default
+    private fun getTimeToLive(cacheKey: String): Long =
+        sharedPreferences.getLong("${cacheKey}_time_to_live").takeIf { it > 0 } ?: TIME_TO_LIVE
+
     companion object {
-        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+        /**
+         * How long a configuration fetched in the foreground is cached for.
+         */
+        val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+        private const val SNAPSHOT_DIRECTORY_NAME = "com.braintreepayments.api.CONFIGURATION_SNAPSHOTS"
+
+        // header values can't contain line breaks
+        private const val VALIDATORS_SEPARATOR = "\n"
+
+        private fun encodeValidators(validators: ConfigurationValidators?): String =
+            "${validators?.eTag.orEmpty()}$VALIDATORS_SEPARATOR${validators?.lastModified.orEmpty()}"
+
+        private fun decodeValidators(value: String?): ConfigurationValidators? {
+            val parts = value?.split(VALIDATORS_SEPARATOR) ?: return null
+            if (parts.size != 2) return null
+            return ConfigurationValidators(
+                eTag = parts[0].ifEmpty { null },
+                lastModified = parts[1].ifEmpty { null }
+            )
+        }
 
         @Volatile
         private var INSTANCE: ConfigurationCache? = null
         fun getInstance(context: Context): ConfigurationCache =
             INSTANCE ?: synchronized(this) {
                 INSTANCE ?: ConfigurationCache(
-                    BraintreeSharedPreferences.getInstance(context)
+                    BraintreeSharedPreferences.getInstance(context),
+                    ConfigurationSnapshotStore({ File(context.noBackupFilesDir, SNAPSHOT_DIRECTORY_NAME) })
                 ).also { INSTANCE = it }
             }
     }
@@ -0,0 +1,164 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+import org.json.JSONTokener
+
+/**
+ * The JSON of a [Configuration], read one top-level value at a time.
+ *
+ * Creating it only finds where each top-level value starts and ends. A value is parsed from its own
+ * slice of the JSON when it is read, so no tree of the whole configuration is built or kept in
+ * memory.
+ *
+ * @throws JSONException if [json] is not a JSON object
+ */
+internal class ConfigurationJson private constructor(val json: String, slices: Lazy<Map<String, Slice>>) {
+
+    private class Slice(val start: Int, val end: Int)
+
+    constructor(json: String) : this(json, lazyOf(Scanner(json).scanObject()))
+
+    private val slices by slices
+
+    /**
+     * Returns a [JSONObject] with the values of [keys] that are present, to read with the usual
+     * [JSONObject] accessors.
+     */
+    fun values(vararg keys: String): JSONObject {
+        val values = JSONObject()
+        keys.forEach { key -> opt(key)?.let { values.put(key, it) } }
+        return values
+    }
+
+    fun optJSONObject(key: String): JSONObject? = opt(key) as? JSONObject
+
+    fun optJSONArray(key: String): JSONArray? = opt(key) as? JSONArray
+
+    @Suppress("SwallowedException")
+    private fun opt(key: String): Any? {
+        val slice = slices[key] ?: return null
+        return try {
+            JSONTokener(json.substring(slice.start, slice.end)).nextValue()
+        } catch (e: JSONException) {
+            null
+        }
+    }
+
+    companion object {
+
+        /**
+         * Returns the [ConfigurationJson] of JSON that has already been validated, e.g. when it was
+         * cached, without scanning it until one of its values is read. JSON that turns out not to be
+         * an object has no values.
+         */
+        @Suppress("SwallowedException")
+        fun deferred(json: String) = ConfigurationJson(
+            json,
+            lazy {
+                try {
+                    Scanner(json).scanObject()
+                } catch (e: JSONException) {
+                    emptyMap()
+                }
+            }
+        )
+    }
+
+    /**
+     * Finds the top-level values of a JSON object without parsing them.
+     */
+    private class Scanner(private val json: String) {
+
+        private var index = 0
+
+        fun scanObject(): Map<String, Slice> {
+            val slices = mutableMapOf<String, Slice>()
+            expect('{')
+            if (peek() == '}') return slices
+            var separator: Char?
+            do {
+                val key = readKey()
+                expect(':')
+                skipWhitespace()
+                val start = index
+                skipValue()
+                slices[key] = Slice(start, index)
+                separator = nextNonWhitespace()
+            } while (separator == ',')
+            if (separator != '}') throw syntaxError("Expected ',' or '}'")
+            return slices
+        }
+
+        private fun readKey(): String {
+            expect('"')
+            val start = index - 1
+            skipString()
+            val literal = json.substring(start, index)
+            // only keys with escape sequences need decoding
+            return if (literal.contains('\\')) {
+                JSONTokener(literal).nextValue() as String
+            } else {
+                literal.substring(1, literal.length - 1)
+            }
+        }
+
+        private fun skipValue() {
+            when (peek()) {
+                '"' -> {
+                    index++
+                    skipString()
+                }
+
+                '{', '[' -> skipContainer()
+                else -> while (index < json.length && json[index] !in LITERAL_TERMINATORS) index++
+            }
+            if (index >= json.length) throw syntaxError("Unterminated object")
+        }
+
+        private fun skipContainer() {
+            var depth = 0
+            do {
+                if (index >= json.length) throw syntaxError("Unterminated container")
+                when (json[index++]) {
+                    '{', '[' -> depth++
+                    '}', ']' -> depth--
+                    '"' -> skipString()
+                }
+            } while (depth > 0)
+        }
+
+        // skips the rest of a string whose opening quote has been read
+        private fun skipString() {
+            while (index < json.length) {
+                when (json[index++]) {
+                    '\\' -> index++
+                    '"' -> return
+                }
+            }
+            throw syntaxError("Unterminated string")
+        }
+
+        private fun expect(expected: Char) {
+            if (nextNonWhitespace() != expected) throw syntaxError("Expected '$expected'")
+        }
+
+        private fun peek(): Char? {
+            skipWhitespace()
+            return json.getOrNull(index)
+        }
+
+        private fun nextNonWhitespace(): Char? = peek()?.also { index++ }
+
+        private fun skipWhitespace() {
+            while (index < json.length && json[index].isWhitespace()) index++
+        }
+
+        private fun syntaxError(message: String) = JSONException("$message at character $index")
+
+        companion object {
+            private const val LITERAL_TERMINATORS = ",}] \t\r\n"
+        }
+    }
+}
@@ -22,40 +22,83 @@ internal class ConfigurationLoader(
     fun loadConfiguration(callback: ConfigurationLoaderCallback) {
         val authorization = merchantRepository.authorization
         if (authorization is InvalidAuthorization) {
-            val clientSDKSetupURL =
-                "https://developer.paypal.com/braintree/docs/guides/client-sdk/setup/android/v4#initialization"
-            val message = "Valid authorization required. See $clientSDKSetupURL for more info."
-
-            // NOTE: timing information is null when configuration comes from cache
-            callback.onResult(ConfigurationLoaderResult.Failure(BraintreeException(message)))
+            callback.onResult(invalidAuthorizationFailure())
             return
         }
-        val configUrl = Uri.parse(authorization.configUrl)
-            .buildUpon()
-            .appendQueryParameter("configVersion", "3")
-            .build()
-            .toString()
-        val cachedConfig = getCachedConfiguration(authorization, configUrl)
+        val configUrl = createConfigUrl(authorization)
+        // on a cold start the cache may still be loading from disk; continue once it has loaded
+        // rather than waiting for it on the calling thread
+        configurationCache.whenLoaded {
+            val cachedConfig = getCachedConfiguration(authorization, configUrl)
+
+            cachedConfig?.let {
+                callback.onResult(ConfigurationLoaderResult.Success(it))
+            } ?: run {
+                executeConfigurationApi(configUrl, authorization, callback)
+            }
+        }
+    }
 
-        cachedConfig?.let {
-            callback.onResult(ConfigurationLoaderResult.Success(it))
-        } ?: run {
-            executeConfigurationApi(configUrl, authorization, callback)
+    /**
+     * Fetches the configuration even if the cached configuration has not expired, and caches it
+     * for [timeToLive] milliseconds. The request is conditional if the cached configuration has
+     * validators.
+     */
+    fun refreshConfiguration(timeToLive: Long, callback: ConfigurationLoaderCallback) {
+        val authorization = merchantRepository.authorization
+        if (authorization is InvalidAuthorization) {
+            callback.onResult(invalidAuthorizationFailure())
+            return
+        }
+        val configUrl = createConfigUrl(authorization)
+        configurationCache.whenLoaded {
+            executeConfigurationApi(configUrl, authorization, callback, timeToLive = timeToLive)
         }
     }
 
+    /**
+     * Fetches the configuration. If an expired configuration is cached with validators, the
+     * request is conditional, and a 304 response restarts the time to live of the cached
+     * configuration instead of downloading and parsing it again.
+     */
     private fun executeConfigurationApi(
         configUrl: String,
         authorization: Authorization,
-        callback: ConfigurationLoaderCallback
+        callback: ConfigurationLoaderCallback,
+        isConditional: Boolean = true,
+        timeToLive: Long = ConfigurationCache.TIME_TO_LIVE
     ) {
+        val cacheKey = createCacheKey(authorization, configUrl)
+        val validators = if (isConditional) configurationCache.getValidators(cacheKey) else null
         httpClient.get(
             path = configUrl,
             configuration = null,
             authorization = authorization,
+            additionalHeaders = validators?.requestHeaders.orEmpty(),
         ) { result ->
             when (result) {
                 is NetworkResponseCallback.Result.Success -> {
+                    val timing = result.response.timing
+                    if (result.response.isNotModified) {
+                        val configuration = configurationCache.refreshConfiguration(
+                            cacheKey,
+                            timeToLive = timeToLive
+                        ) ?: run {
+                            // the cached configuration is gone, so ask for the whole configuration
+                            executeConfigurationApi(
+                                configUrl,
+                                authorization,
+                                callback,
+                                isConditional = false,
+                                timeToLive = timeToLive
+                            )
+                            return@get
+                        }
+                        callback.onResult(ConfigurationLoaderResult.Success(configuration, timing))
+                        analyticsClient.recordLatency(CONFIGURATION_ENDPOINT, timing)
+                        return@get
+                    }
+
                     val responseBody = result.response.body ?: run {
                         callback.onResult(
                             ConfigurationLoaderResult.Failure(
@@ -64,21 +107,17 @@ internal class ConfigurationLoader(
                         )
                         return@get
                     }
-                    val timing = result.response.timing
                     try {
                         val configuration = Configuration.fromJson(responseBody)
-                        saveConfigurationToCache(configuration, authorization, configUrl)
+                        configurationCache.saveConfiguration(
+                            configuration,
+                            cacheKey,
+                            ConfigurationValidators.fromResponse(result.response),
+                            timeToLive
+                        )
                         callback.onResult(ConfigurationLoaderResult.Success(configuration, timing))
 
-                        analyticsClient.sendEvent(
-                            eventName = CoreAnalytics.API_REQUEST_LATENCY,
-                            analyticsEventParams = AnalyticsEventParams(
-                                startTime = timing.startTime,
-                                endTime = timing.endTime,
-                                endpoint = "/v1/configuration"
-                            ),
-                            sendImmediately = false
-                        )
+                        analyticsClient.recordLatency(CONFIGURATION_ENDPOINT, timing)
                     } catch (jsonException: JSONException) {
                         callback.onResult(ConfigurationLoaderResult.Failure(jsonException))
                     }
@@ -94,29 +133,31 @@ internal class ConfigurationLoader(
         }
     }
 
-    private fun saveConfigurationToCache(
-        configuration: Configuration,
-        authorization: Authorization,
-        configUrl: String
-    ) {
-        val cacheKey = createCacheKey(authorization, configUrl)
-        configurationCache.saveConfiguration(configuration, cacheKey)
-    }
-
     private fun getCachedConfiguration(
         authorization: Authorization,
         configUrl: String
     ): Configuration? {
         val cacheKey = createCacheKey(authorization, configUrl)
-        val cachedConfigResponse = configurationCache.getConfiguration(cacheKey) ?: return null
-        return try {
-            Configuration.fromJson(cachedConfigResponse)
-        } catch (e: JSONException) {
-            null
-        }
+        return configurationCache.getCachedConfiguration(cacheKey)
     }
 
     companion object {
+        private const val CONFIGURATION_ENDPOINT = "/v1/configuration"
+
+        private fun invalidAuthorizationFailure(): ConfigurationLoaderResult {
+            val clientSDKSetupURL =
+                "https://developer.paypal.com/braintree/docs/guides/client-sdk/setup/android/v4#initialization"
+            val message = "Valid authorization required. See $clientSDKSetupURL for more info."
+            return ConfigurationLoaderResult.Failure(BraintreeException(message))
+        }
+
+        private fun createConfigUrl(authorization: Authorization): String =
+            Uri.parse(authorization.configUrl)
+                .buildUpon()
+                .appendQueryParameter("configVersion", "3")
+                .build()
+                .toString()
+
         private fun createCacheKey(authorization: Authorization, configUrl: String): String {
             return Base64.encodeToString("$configUrl${authorization.bearer}".toByteArray(), 0)
         }
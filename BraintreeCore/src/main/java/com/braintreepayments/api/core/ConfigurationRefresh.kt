@@ -0,0 +1,35 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+
+/**
+ * Opt-in background refresh of the Braintree configuration.
+ *
+ * Once enabled, the configuration of the last authorization used by the SDK is refreshed
+ * periodically in the background while the device is connected and its battery is not low, so
+ * that the first payment request after the app is launched usually doesn't have to wait for the
+ * configuration to be fetched. Background refresh stays enabled across app launches until
+ * [disable] is called.
+ */
+object ConfigurationRefresh {
+
+    /**
+     * Enables the periodic background refresh of the configuration.
+     *
+     * @param context Android Context
+     */
+    @JvmStatic
+    fun enable(context: Context) {
+        SdkComponent.create(context.applicationContext).configurationRefresher.enable()
+    }
+
+    /**
+     * Disables the periodic background refresh of the configuration.
+     *
+     * @param context Android Context
+     */
+    @JvmStatic
+    fun disable(context: Context) {
+        SdkComponent.create(context.applicationContext).configurationRefresher.disable()
+    }
+}
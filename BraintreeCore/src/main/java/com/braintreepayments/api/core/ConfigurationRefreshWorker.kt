@@ -0,0 +1,21 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.work.Worker
+import androidx.work.WorkerParameters
+
+/**
+ * Refreshes the cached configuration of the last authorization used by the SDK. Scheduled by
+ * [ConfigurationRefresher].
+ */
+internal class ConfigurationRefreshWorker(
+    context: Context,
+    params: WorkerParameters
+) : Worker(context, params) {
+
+    override fun doWork(): Result {
+        val configurationRefresher = SdkComponent.create(applicationContext).configurationRefresher
+        // a failed refresh is not retried, since the next one is only a period away
+        return if (configurationRefresher.refresh()) Result.success() else Result.failure()
+    }
+}
@@ -0,0 +1,160 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.work.Constraints
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequest
+import androidx.work.WorkManager
+import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import com.braintreepayments.api.sharedutils.Time
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Refreshes the cached configuration of the last authorization used by the SDK in the background,
+ * so that the first request after a cold start can usually use the cached configuration instead
+ * of waiting for it to be fetched.
+ *
+ * Refreshes are scheduled with [WorkManager] once enabled with [enable], and only run while the
+ * device is connected and its battery is not low. The refresh is a conditional request, so it
+ * rarely downloads the configuration again, and the refreshed configuration is cached until the
+ * next refresh is due.
+ *
+ * Only tokenization keys are refreshed, since client tokens expire, and the last tokenization key
+ * is only stored while background refresh is enabled.
+ */
+internal class ConfigurationRefresher(
+    private val applicationContext: Context,
+    private val sharedPreferences: BraintreeSharedPreferences,
+    private val workManagerProvider: () -> WorkManager = { WorkManager.getInstance(applicationContext) },
+    private val configurationLoaderProvider: (MerchantRepository) -> ConfigurationLoader = {
+        MerchantContext(merchantRepository = it).configurationLoader
+    },
+    private val time: Time = Time(),
+    private val timeoutSeconds: Long = TIMEOUT_SECONDS,
+) {
+
+    private val isEnabled: Boolean
+        get() = sharedPreferences.getBoolean(ENABLED_KEY)
+
+    @Volatile
+    private var lastAuthorization: TokenizationKey? = null
+
+    /**
+     * Remembers [authorization] as the one whose configuration is refreshed, if it is a
+     * tokenization key. It is only stored once background refresh is enabled.
+     */
+    fun setLastAuthorization(authorization: Authorization) {
+        if (authorization !is TokenizationKey) return
+        lastAuthorization = authorization
+        // don't wait on the preferences loading from disk on the calling thread
+        sharedPreferences.whenLoaded {
+            if (isEnabled) storeLastAuthorization(authorization)
+        }
+    }
+
+    fun enable() {
+        // written once loaded so that they are ordered with the writes of setLastAuthorization
+        sharedPreferences.whenLoaded {
+            sharedPreferences.putBoolean(ENABLED_KEY, true)
+            lastAuthorization?.let { storeLastAuthorization(it) }
+        }
+        val constraints = Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .setRequiresBatteryNotLow(true)
+            .build()
+        val request = PeriodicWorkRequest.Builder(
+            ConfigurationRefreshWorker::class.java,
+            REFRESH_INTERVAL_MINUTES,
+            TimeUnit.MINUTES
+        ).setConstraints(constraints).build()
+        workManagerProvider().enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request)
+    }
+
+    fun disable() {
+        sharedPreferences.whenLoaded {
+            sharedPreferences.putBoolean(ENABLED_KEY, false)
+            sharedPreferences.putString(LAST_AUTHORIZATION_KEY, "")
+        }
+        workManagerProvider().cancelUniqueWork(WORK_NAME)
+    }
+
+    private fun storeLastAuthorization(authorization: TokenizationKey) {
+        val value = authorization.toString()
+        if (sharedPreferences.getString(LAST_AUTHORIZATION_KEY, null) != value) {
+            sharedPreferences.putString(LAST_AUTHORIZATION_KEY, value)
+        }
+    }
+
+    /**
+     * Fetches the configuration of the last tokenization key, whether or not the cached
+     * configuration has expired, and caches it until the next refresh is due. Blocks until it has
+     * been fetched, so must not be called on the main thread.
+     *
+     * @return `false` if the configuration could not be fetched
+     */
+    fun refresh(): Boolean {
+        if (!isEnabled) return true
+        val value = sharedPreferences.getString(LAST_AUTHORIZATION_KEY, null)
+            ?.takeIf { it.isNotEmpty() }
+            ?: return true
+        val authorization = Authorization.fromString(value) as? TokenizationKey ?: run {
+            // drop a client token stored by an earlier version; it may have expired
+            sharedPreferences.putString(LAST_AUTHORIZATION_KEY, "")
+            return true
+        }
+
+        // a loader of its own, so that the worker thread does not change the authorization of the
+        // merchant context that clients in this process share
+        val merchantRepository = MerchantRepository().also {
+            it.applicationContext = applicationContext
+            it.authorization = authorization
+        }
+        val configurationLoader = configurationLoaderProvider(merchantRepository)
+
+        val result = AtomicReference<ConfigurationLoaderResult>()
+        val loaded = CountDownLatch(1)
+        configurationLoader.refreshConfiguration(REFRESHED_CONFIGURATION_TIME_TO_LIVE) {
+            result.set(it)
+            loaded.countDown()
+        }
+        if (!loaded.await(timeoutSeconds, TimeUnit.SECONDS)) return false
+
+        if (result.get() !is ConfigurationLoaderResult.Success) return false
+        sharedPreferences.putLong(LAST_REFRESH_TIME_KEY, time.currentTime)
+        return true
+    }
+
+    /**
+     * Calls back with the time since the configuration was last refreshed in the background, or
+     * `null` if background refreshes are disabled or have not run yet. Calls back right away if
+     * the preferences have loaded, otherwise on the thread that loads them.
+     */
+    fun getLastRefreshAgeMillis(callback: (Long?) -> Unit) {
+        sharedPreferences.whenLoaded {
+            val age = if (isEnabled && sharedPreferences.containsKey(LAST_REFRESH_TIME_KEY)) {
+                time.currentTime - sharedPreferences.getLong(LAST_REFRESH_TIME_KEY)
+            } else {
+                null
+            }
+            callback(age)
+        }
+    }
+
+    companion object {
+        // the shortest interval of periodic work
+        private const val REFRESH_INTERVAL_MINUTES = 15L
+        private const val TIMEOUT_SECONDS = 60L
+
+        // periodic work may run up to an interval late, so cache refreshed configurations for two
+        // intervals so that they have not expired when the app is launched between refreshes
+        private val REFRESHED_CONFIGURATION_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(REFRESH_INTERVAL_MINUTES * 2)
+
+        private const val WORK_NAME = "com.braintreepayments.api.CONFIGURATION_REFRESH"
+        private const val ENABLED_KEY = "com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED"
+        private const val LAST_AUTHORIZATION_KEY = "com.braintreepayments.api.CONFIGURATION_REFRESH_AUTHORIZATION"
+        private const val LAST_REFRESH_TIME_KEY = "com.braintreepayments.api.CONFIGURATION_REFRESH_TIME"
+    }
+}
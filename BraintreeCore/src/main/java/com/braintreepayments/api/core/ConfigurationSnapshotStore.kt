@@ -0,0 +1,250 @@
+package com.braintreepayments.api.core
+
+import android.util.AtomicFile
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInput
+import java.io.DataInputStream
+import java.io.DataOutput
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * Stores a compact binary snapshot of the parsed values of each cached [Configuration], so that it
+ * can be recreated on a cold start without parsing its JSON. Snapshots don't include the JSON
+ * itself, which stays in the configuration cache.
+ *
+ * A snapshot only includes the sections that had been parsed when it was written, and a
+ * configuration is cached right after it is fetched, before the app has read any section. [refresh]
+ * rewrites the snapshot once more sections have been parsed, so that the next cold start finds the
+ * sections the app uses.
+ *
+ * Each cache key has its own snapshot file, and only the [MAX_SNAPSHOTS] most recently written
+ * snapshots are kept. The files are read on a background thread as soon as the store is created;
+ * [get] never waits for them, so use [whenLoaded] to read snapshots once they are available. A
+ * snapshot that can't be decoded, or was written by a different snapshot format or SDK version, is
+ * ignored, in which case [ConfigurationCache] falls back to the cached JSON.
+ */
+internal class ConfigurationSnapshotStore(
+    private val snapshotDirectoryProvider: () -> File,
+    private val executor: Executor = snapshotExecutor
+) {
+
+    /**
+     * A snapshot read from disk, decoded when it is first used.
+     */
+    private class StoredSnapshot(val timestamp: Long, val values: ByteArray)
+
+    /**
+     * The configuration timestamp and number of parsed sections of the snapshot last written or
+     * read for a cache key.
+     */
+    private class SnapshotSections(val timestamp: Long, val parsedSectionCount: Int)
+
+    private val lock = Any()
+    private val snapshots = ConcurrentHashMap<String, StoredSnapshot>()
+    private val snapshotSections = ConcurrentHashMap<String, SnapshotSections>()
+    private val loadedCallbacks = mutableListOf<Runnable>()
+    private var isLoaded = false
+
+    // only accessed on the executor
+    private val snapshotDirectory: File by lazy { snapshotDirectoryProvider() }
+
+    init {
+        executor.execute { load() }
+    }
+
+    /**
+     * Calls [callback] once the snapshot files have been read; immediately on the calling thread if
+     * they already have been, and on a background thread otherwise.
+     */
+    fun whenLoaded(callback: Runnable) {
+        synchronized(lock) {
+            if (!isLoaded) {
+                loadedCallbacks.add(callback)
+                return
+            }
+        }
+        callback.run()
+    }
+
+    /**
+     * Returns the [Configuration] of the snapshot stored for [cacheKey] if it was written for the
+     * configuration cached at [timestamp], or `null` otherwise. Never waits for the snapshot files
+     * to be read.
+     *
+     * @param configurationString the cached JSON of the configuration, which is only parsed if a
+     * value that is not in the snapshot is accessed
+     */
+    @Suppress("TooGenericExceptionCaught", "SwallowedException")
+    fun get(cacheKey: String, timestamp: Long, configurationString: String): Configuration? {
+        val snapshot = snapshots[cacheKey]?.takeIf { it.timestamp == timestamp } ?: return null
+        return try {
+            Configuration.readSnapshot(
+                DataInputStream(ByteArrayInputStream(snapshot.values)),
+                configurationString
+            ).also { snapshotSections[cacheKey] = SnapshotSections(timestamp, it.parsedSectionCount) }
+        } catch (e: Exception) {
+            // a snapshot that can't be decoded must never fail loading the configuration
+            snapshots.remove(cacheKey, snapshot)
+            null
+        }
+    }
+
+    /**
+     * Writes a snapshot of [configuration] for [cacheKey] on a background thread. The snapshot
+     * includes the sections of [configuration] that have been parsed by the time it is written.
+     */
+    fun put(cacheKey: String, timestamp: Long, configuration: Configuration) {
+        // the configuration is kept in memory by ConfigurationCache; the snapshot is for the next launch
+        snapshots.remove(cacheKey)
+        snapshotSections[cacheKey] = SnapshotSections(timestamp, configuration.parsedSectionCount)
+        executor.execute { write(cacheKey, timestamp, configuration) }
+    }
+
+    /**
+     * Writes a new snapshot of [configuration] for [cacheKey] if sections of it have been parsed
+     * since the snapshot for [timestamp] was written or read, and does nothing otherwise.
+     */
+    fun refresh(cacheKey: String, timestamp: Long, configuration: Configuration) {
+        val sections = snapshotSections[cacheKey]
+        if (sections?.timestamp == timestamp &&
+            sections.parsedSectionCount >= configuration.parsedSectionCount
+        ) {
+            return
+        }
+        put(cacheKey, timestamp, configuration)
+    }
+
+    private fun load() {
+        try {
+            snapshotFiles()
+                .sortedByDescending { it.lastModified() }
+                .take(MAX_SNAPSHOTS)
+                .forEach { file ->
+                    val (cacheKey, snapshot) = read(file) ?: return@forEach
+                    snapshots.putIfAbsent(cacheKey, snapshot)
+                }
+        } finally {
+            val callbacks = synchronized(lock) {
+                isLoaded = true
+                loadedCallbacks.toList().also { loadedCallbacks.clear() }
+            }
+            callbacks.forEach { it.run() }
+        }
+    }
+
+    private fun snapshotFiles(): List<File> =
+        snapshotDirectory.listFiles { file -> file.name.endsWith(FILE_SUFFIX) }?.toList().orEmpty()
+
+    @Suppress("TooGenericExceptionCaught", "SwallowedException")
+    private fun read(file: File): Pair<String, StoredSnapshot>? {
+        return try {
+            val input = DataInputStream(ByteArrayInputStream(AtomicFile(file).readFully()))
+            if (input.readInt() != MAGIC ||
+                input.readInt() != FORMAT_VERSION ||
+                input.readUTF() != BuildConfig.VERSION_NAME
+            ) {
+                file.delete()
+                return null
+            }
+            val cacheKey = input.readUTF()
+            val timestamp = input.readLong()
+            cacheKey to StoredSnapshot(timestamp, input.readBytes())
+        } catch (e: Exception) {
+            file.delete()
+            null
+        }
+    }
+
+    @Suppress("TooGenericExceptionCaught", "SwallowedException")
+    private fun write(cacheKey: String, timestamp: Long, configuration: Configuration) {
+        val bytes = try {
+            ByteArrayOutputStream().also { buffer ->
+                DataOutputStream(buffer).use { output ->
+                    output.writeInt(MAGIC)
+                    output.writeInt(FORMAT_VERSION)
+                    output.writeUTF(BuildConfig.VERSION_NAME)
+                    output.writeUTF(cacheKey)
+                    output.writeLong(timestamp)
+                    configuration.writeSnapshot(output)
+                }
+            }.toByteArray()
+        } catch (e: Exception) {
+            return
+        }
+
+        if (!snapshotDirectory.isDirectory && !snapshotDirectory.mkdirs()) return
+        val snapshotFile = AtomicFile(File(snapshotDirectory, fileNameOf(cacheKey)))
+        val stream = try {
+            snapshotFile.startWrite()
+        } catch (e: IOException) {
+            return
+        }
+        try {
+            stream.write(bytes)
+            snapshotFile.finishWrite(stream)
+        } catch (e: IOException) {
+            snapshotFile.failWrite(stream)
+            return
+        }
+        evictOldSnapshots()
+    }
+
+    private fun evictOldSnapshots() {
+        snapshotFiles()
+            .sortedByDescending { it.lastModified() }
+            .drop(MAX_SNAPSHOTS)
+            .forEach { it.delete() }
+    }
+
+    companion object {
+        private const val MAGIC = 0x42544346 // "BTCF"
+
+        /**
+         * Increment when the values written by [Configuration.writeSnapshot] change.
+         */
+        private const val FORMAT_VERSION = 1
+
+        /**
+         * The number of snapshots kept, for apps that switch between a few authorizations.
+         */
+        const val MAX_SNAPSHOTS = 4
+
+        private const val FILE_SUFFIX = ".snapshot"
+
+        private val snapshotExecutor: Executor by lazy { Executors.newSingleThreadExecutor() }
+
+        // the cache key is stored in the snapshot, so a hash collision is only a missed snapshot
+        private fun fileNameOf(cacheKey: String) = Integer.toHexString(cacheKey.hashCode()) + FILE_SUFFIX
+    }
+}
+
+@Throws(IOException::class)
+internal fun DataOutput.writeNullableString(value: String?) {
+    writeBoolean(value != null)
+    if (value != null) writeUTF(value)
+}
+
+@Throws(IOException::class)
+internal fun DataInput.readNullableString(): String? = if (readBoolean()) readUTF() else null
+
+@Throws(IOException::class)
+internal fun DataOutput.writeStrings(values: Collection<String>) {
+    writeInt(values.size)
+    values.forEach { writeUTF(it) }
+}
+
+@Throws(IOException::class)
+internal fun DataInput.readStrings(): List<String> = List(readLength()) { readUTF() }
+
+@Throws(IOException::class)
+private fun DataInput.readLength(): Int =
+    readInt().also { if (it !in 0..MAX_LENGTH) throw IOException("Invalid length $it") }
+
+// no list in a configuration comes close to this, so a larger length means the snapshot is corrupt
+private const val MAX_LENGTH = 4096
@@ -0,0 +1,38 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.HttpResponse
+
+/**
+ * The validators that the server returned with a configuration, which are sent back once the
+ * cached configuration has expired so that the server can answer that it has not changed instead
+ * of returning it again.
+ */
+internal data class ConfigurationValidators(
+    val eTag: String? = null,
+    val lastModified: String? = null,
+) {
+
+    val isEmpty: Boolean
+        get() = eTag == null && lastModified == null
+
+    /**
+     * The headers that make a request for the configuration conditional.
+     */
+    val requestHeaders: Map<String, String>
+        get() = buildMap {
+            eTag?.let { put(IF_NONE_MATCH_HEADER, it) }
+            lastModified?.let { put(IF_MODIFIED_SINCE_HEADER, it) }
+        }
+
+    companion object {
+        private const val ETAG_HEADER = "ETag"
+        private const val LAST_MODIFIED_HEADER = "Last-Modified"
+        private const val IF_NONE_MATCH_HEADER = "If-None-Match"
+        private const val IF_MODIFIED_SINCE_HEADER = "If-Modified-Since"
+
+        fun fromResponse(response: HttpResponse) = ConfigurationValidators(
+            eTag = response.header(ETAG_HEADER),
+            lastModified = response.header(LAST_MODIFIED_HEADER)
+        )
+    }
+}
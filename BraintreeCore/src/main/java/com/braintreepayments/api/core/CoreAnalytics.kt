@@ -1,5 +1,6 @@
 package com.braintreepayments.api.core
 
 internal object CoreAnalytics {
-    const val API_REQUEST_LATENCY = "core:api-request-latency"
+    const val API_REQUEST_LATENCY_SUMMARY = "core:api-request-latency-summary"
+    const val API_REQUEST_CANCELLED = "core:api-request-cancelled"
 }
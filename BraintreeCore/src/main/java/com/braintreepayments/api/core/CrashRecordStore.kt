@@ -0,0 +1,196 @@
+package com.braintreepayments.api.core
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * A crash caused by the SDK, recorded while the process was dying.
+ *
+ * @property sessionId the analytics session that crashed
+ * @property cause [CAUSE_BRAINTREE] or [CAUSE_PAYPAL], depending on the code that crashed
+ */
+internal data class CrashRecord(
+    val timestamp: Long,
+    val sessionId: String? = null,
+    val cause: String? = null,
+) {
+    companion object {
+        const val CAUSE_BRAINTREE = "braintree"
+        const val CAUSE_PAYPAL = "paypal"
+    }
+}
+
+/**
+ * Keeps [CrashRecord]s on disk until they have been sent with the analytics of a later session.
+ *
+ * A record is appended to the file synchronously, because the process is about to die when it is
+ * written. The records left by earlier sessions are read on a background thread as soon as the
+ * store is created. [takePendingRecords] hands each of them out once, and they stay on disk until
+ * they are [remove]d after they have been sent, or are handed out again after a failed send is
+ * [release]d.
+ */
+internal class CrashRecordStore(
+    private val recordFileProvider: () -> File,
+    private val executor: Executor = crashRecordExecutor
+) {
+
+    private val lock = Any()
+    private val loaded = CountDownLatch(1)
+
+    // the records of earlier sessions that have not been handed out; only accessed while holding
+    // pendingLock
+    private val pendingLock = Any()
+    private var pendingRecords: List<CrashRecord> = emptyList()
+
+    // only accessed while holding the lock
+    private val recordFile: File by lazy { recordFileProvider() }
+
+    init {
+        executor.execute {
+            try {
+                val records = synchronized(lock) { read() }
+                synchronized(pendingLock) { pendingRecords = records }
+            } finally {
+                loaded.countDown()
+            }
+        }
+    }
+
+    /**
+     * Appends [record] to the record file on the calling thread.
+     */
+    @Suppress("SwallowedException")
+    fun write(record: CrashRecord) {
+        synchronized(lock) {
+            try {
+                DataOutputStream(BufferedOutputStream(FileOutputStream(recordFile, true))).use {
+                    it.writeRecord(record)
+                }
+            } catch (e: IOException) {
+                // the crash is not reported
+            }
+        }
+    }
+
+    /**
+     * Returns the records left by earlier sessions that have not been handed out yet. The records
+     * stay on disk until they are passed to [remove]; records written since the store was created
+     * are kept for the next session.
+     */
+    fun takePendingRecords(): List<CrashRecord> {
+        awaitLoaded()
+        return synchronized(pendingLock) {
+            pendingRecords.also { pendingRecords = emptyList() }
+        }
+    }
+
+    /**
+     * Removes [records] that have been sent from disk on a background thread.
+     */
+    fun remove(records: List<CrashRecord>) {
+        if (records.isEmpty()) return
+        executor.execute { synchronized(lock) { removeFromFile(records) } }
+    }
+
+    /**
+     * Hands [records] that could not be sent out again with the next [takePendingRecords].
+     */
+    fun release(records: List<CrashRecord>) {
+        if (records.isEmpty()) return
+        synchronized(pendingLock) { pendingRecords = records + pendingRecords }
+    }
+
+    private fun awaitLoaded() {
+        try {
+            loaded.await()
+        } catch (ignored: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    /**
+     * Reads every complete record in the file. A record that was cut short by the process dying,
+     * or that was written by a newer format, ends the list.
+     */
+    @Suppress("SwallowedException")
+    private fun read(): List<CrashRecord> {
+        val records = mutableListOf<CrashRecord>()
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(recordFile))).use { input ->
+                while (true) {
+                    records.add(input.readRecord() ?: break)
+                }
+            }
+        } catch (e: FileNotFoundException) {
+            // no crashes have been recorded
+        } catch (e: EOFException) {
+            // end of the records
+        } catch (e: IOException) {
+            // the records that could be read are returned
+        }
+        return records
+    }
+
+    @Suppress("SwallowedException")
+    private fun removeFromFile(records: List<CrashRecord>) {
+        // remove one stored record for each sent record
+        val remaining = read().toMutableList()
+        records.forEach { remaining.remove(it) }
+        if (remaining.isEmpty()) {
+            recordFile.delete()
+            return
+        }
+        val tempFile = File(recordFile.path + TEMP_FILE_SUFFIX)
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tempFile))).use { output ->
+                remaining.forEach { output.writeRecord(it) }
+            }
+            if (!tempFile.renameTo(recordFile)) tempFile.delete()
+        } catch (e: IOException) {
+            tempFile.delete()
+        }
+    }
+
+    private fun DataOutputStream.writeRecord(record: CrashRecord) {
+        writeByte(FORMAT_VERSION)
+        writeLong(record.timestamp)
+        writeUTF(record.sessionId.orEmpty())
+        writeUTF(record.cause.orEmpty())
+    }
+
+    // returns null for a record written by a newer format
+    private fun DataInputStream.readRecord(): CrashRecord? = when (readByte().toInt()) {
+        TIMESTAMP_FORMAT_VERSION -> CrashRecord(timestamp = readLong())
+        FORMAT_VERSION -> CrashRecord(
+            timestamp = readLong(),
+            sessionId = readUTF().ifEmpty { null },
+            cause = readUTF().ifEmpty { null }
+        )
+
+        else -> null
+    }
+
+    companion object {
+        /**
+         * Increment when the values written for a record change.
+         */
+        private const val FORMAT_VERSION = 2
+
+        // records of earlier versions, which only have a timestamp
+        private const val TIMESTAMP_FORMAT_VERSION = 1
+        private const val TEMP_FILE_SUFFIX = ".tmp"
+
+        private val crashRecordExecutor: Executor by lazy { Executors.newSingleThreadExecutor() }
+    }
+}
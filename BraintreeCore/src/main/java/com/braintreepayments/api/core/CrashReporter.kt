@@ -1,8 +1,6 @@
 package com.braintreepayments.api.core
 
 import androidx.annotation.IntDef
-import java.io.PrintWriter
-import java.io.StringWriter
 import java.lang.ref.WeakReference
 
 internal class CrashReporter(
@@ -28,17 +26,36 @@ internal class CrashReporter(
         defaultExceptionHandler = null
     }
 
+    /**
+     * Classifies [ex] by the class names of the exceptions in its cause chain, including suppressed
+     * exceptions, and of their stack frames. A Braintree class takes precedence over a PayPal class.
+     */
     @Cause
     private fun determineExceptionCause(ex: Throwable): Int {
-        val stringWriter = StringWriter()
-        ex.printStackTrace(PrintWriter(stringWriter))
-        return if (stringWriter.toString().contains("com.braintreepayments")) {
-            CAUSE_RELATED_TO_BRAINTREE
-        } else if (stringWriter.toString().contains("com.paypal")) {
-            CAUSE_RELATED_TO_PAYPAL
-        } else {
-            CAUSE_UNKNOWN
+        var cause = CAUSE_UNKNOWN
+        val pending = ArrayDeque<Throwable>().apply { add(ex) }
+        val visited = HashSet<Throwable>()
+        while (pending.isNotEmpty()) {
+            val throwable = pending.removeFirst()
+            if (!visited.add(throwable)) continue
+
+            cause = maxOf(cause, causeOf(throwable.javaClass.name))
+            for (element in throwable.stackTrace) {
+                cause = maxOf(cause, causeOf(element.className))
+            }
+            if (cause == CAUSE_RELATED_TO_BRAINTREE) return cause
+
+            throwable.cause?.let { pending.add(it) }
+            pending.addAll(throwable.suppressed)
         }
+        return cause
+    }
+
+    @Cause
+    private fun causeOf(className: String): Int = when {
+        className.startsWith(BRAINTREE_PACKAGE) -> CAUSE_RELATED_TO_BRAINTREE
+        className.startsWith(PAYPAL_PACKAGE) -> CAUSE_RELATED_TO_PAYPAL
+        else -> CAUSE_UNKNOWN
     }
 
     private fun handleExceptionWithDefaultBehavior(thread: Thread, ex: Throwable) {
@@ -56,9 +73,9 @@ internal class CrashReporter(
             restoreDefaultExceptionHandler()
             return
         }
-        @Cause val result = determineExceptionCause(exception)
-        if (result == CAUSE_RELATED_TO_BRAINTREE || result == CAUSE_RELATED_TO_PAYPAL) {
-            braintreeClient.reportCrash()
+        when (determineExceptionCause(exception)) {
+            CAUSE_RELATED_TO_BRAINTREE -> braintreeClient.reportCrash(CrashRecord.CAUSE_BRAINTREE)
+            CAUSE_RELATED_TO_PAYPAL -> braintreeClient.reportCrash(CrashRecord.CAUSE_PAYPAL)
         }
         handleExceptionWithDefaultBehavior(thread, exception)
     }
@@ -67,5 +84,8 @@ internal class CrashReporter(
         const val CAUSE_UNKNOWN = 0
         const val CAUSE_RELATED_TO_PAYPAL = 1
         const val CAUSE_RELATED_TO_BRAINTREE = 2
+
+        private const val BRAINTREE_PACKAGE = "com.braintreepayments"
+        private const val PAYPAL_PACKAGE = "com.paypal"
     }
 }
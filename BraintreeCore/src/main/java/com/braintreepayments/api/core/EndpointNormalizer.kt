@@ -0,0 +1,44 @@
+package com.braintreepayments.api.core
+
+/**
+ * Reduces request paths to the endpoint templates that latencies are aggregated under, by removing
+ * the merchant and payment method IDs they contain.
+ *
+ * The patterns are compiled once, and the template of each path is cached, since the SDK calls the
+ * same few paths over and over.
+ */
+internal class EndpointNormalizer {
+
+    private val cache = object : LinkedHashMap<String, String>(CACHE_SIZE, LOAD_FACTOR, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, String>?) =
+            size > CACHE_SIZE
+    }
+
+    fun normalize(endpoint: String): String {
+        synchronized(cache) { cache[endpoint] }?.let { return it }
+        val template = endpoint
+            .replace(MERCHANT_PATH_PATTERN, "")
+            .replace(THREE_D_SECURE_PATH_PATTERN, THREE_D_SECURE_TEMPLATE)
+        synchronized(cache) { cache[endpoint] = template }
+        return template
+    }
+
+    /**
+     * Returns the operation of a GraphQL [query], which is everything before its variables.
+     */
+    fun graphQLOperation(query: String): String = query.substringBefore('(')
+
+    companion object {
+        private const val CACHE_SIZE = 64
+        private const val LOAD_FACTOR = 0.75f
+
+        private val MERCHANT_PATH_PATTERN = Regex("/merchants/([A-Za-z0-9]+)/client_api")
+        private val THREE_D_SECURE_PATH_PATTERN = Regex("payment_methods/.*/three_d_secure")
+        private const val THREE_D_SECURE_TEMPLATE = "payment_methods/three_d_secure"
+
+        /**
+         * Singleton instance of the EndpointNormalizer.
+         */
+        val instance: EndpointNormalizer by lazy { EndpointNormalizer() }
+    }
+}
@@ -0,0 +1,82 @@
+package com.braintreepayments.api.core
+
+import kotlin.math.ceil
+
+/**
+ * A histogram of latencies in milliseconds with log-linear buckets, in the style of an HDR
+ * histogram: every power of two is split into [SUB_BUCKET_COUNT] equal buckets, so a recorded value
+ * is reported with a relative error of at most 1/[SUB_BUCKET_COUNT] whatever its magnitude, in a
+ * fixed amount of memory.
+ *
+ * This class is not thread-safe.
+ */
+internal class LatencyHistogram {
+
+    private val counts = IntArray(BUCKET_COUNT)
+
+    var count: Int = 0
+        private set
+
+    var maxMillis: Long = 0
+        private set
+
+    fun record(millis: Long) {
+        val value = millis.coerceIn(0, MAX_TRACKABLE_MILLIS)
+        counts[bucketIndex(value)]++
+        count++
+        if (value > maxMillis) maxMillis = value
+    }
+
+    /**
+     * Returns the highest value equivalent to the recorded value at [percentile], between 0 and
+     * 100, which is never more than [maxMillis].
+     */
+    fun valueAtPercentile(percentile: Double): Long {
+        if (count == 0) return 0
+        val rank = maxOf(1, ceil(percentile / PERCENT * count).toInt())
+        var seen = 0
+        for (index in counts.indices) {
+            seen += counts[index]
+            if (seen >= rank) return minOf(highestEquivalentValue(index), maxMillis)
+        }
+        return maxMillis
+    }
+
+    companion object {
+        private const val PERCENT = 100.0
+
+        /**
+         * Must be a power of two.
+         */
+        private const val SUB_BUCKET_COUNT = 16
+        private const val SUB_BUCKET_BITS = 4
+
+        /**
+         * Latencies are tracked up to 2^20 ms, about 17 minutes; longer ones are clamped.
+         */
+        private const val MAX_EXPONENT = 20
+        private const val MAX_TRACKABLE_MILLIS = (1L shl MAX_EXPONENT) - 1
+
+        private const val BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_EXPONENT - SUB_BUCKET_BITS + 1)
+
+        /**
+         * Values below [SUB_BUCKET_COUNT] have a bucket each. Above that, the bucket is found from the
+         * position of the highest set bit and the [SUB_BUCKET_BITS] bits below it.
+         */
+        private fun bucketIndex(value: Long): Int {
+            if (value < SUB_BUCKET_COUNT) return value.toInt()
+            val exponent = Long.SIZE_BITS - 1 - value.countLeadingZeroBits()
+            val shift = exponent - SUB_BUCKET_BITS
+            val subBucket = (value shr shift).toInt() - SUB_BUCKET_COUNT
+            return SUB_BUCKET_COUNT * (shift + 1) + subBucket
+        }
+
+        private fun highestEquivalentValue(index: Int): Long {
+            if (index < SUB_BUCKET_COUNT) return index.toLong()
+            val shift = index / SUB_BUCKET_COUNT - 1
+            val subBucket = index % SUB_BUCKET_COUNT
+            val lowestValue = (SUB_BUCKET_COUNT + subBucket).toLong() shl shift
+            return lowestValue + (1L shl shift) - 1
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.braintreepayments.api.core
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * The latencies of the requests to one endpoint template during an interval.
+ *
+ * @property startTime the time the first latency of the interval was recorded
+ * @property endTime the time the interval was closed
+ */
+internal data class LatencySummary(
+    val endpoint: String,
+    val startTime: Long,
+    val endTime: Long,
+    val count: Int,
+    val p50Millis: Long,
+    val p90Millis: Long,
+    val p99Millis: Long,
+    val maxMillis: Long,
+)
+
+/**
+ * Aggregates request latencies into a [LatencyHistogram] per endpoint template, so that a single
+ * [LatencySummary] per endpoint is sent for each interval instead of one analytics event per
+ * request.
+ *
+ * An interval starts when a latency is recorded and no interval is open, and is closed by the first
+ * call to [takeSummaries] at least [interval] milliseconds later.
+ */
+internal class LatencyRecorder(
+    val interval: Long = DEFAULT_INTERVAL
+) {
+
+    private val lock = Any()
+    private val histograms = mutableMapOf<String, LatencyHistogram>()
+    private var intervalStartTime: Long? = null
+
+    /**
+     * Records a request to [endpoint], which must already be normalized to its template, that took
+     * [durationMillis] and completed at [currentTime].
+     *
+     * @return `true` if the latency started a new interval
+     */
+    fun record(endpoint: String, durationMillis: Long, currentTime: Long): Boolean =
+        synchronized(lock) {
+            val isNewInterval = intervalStartTime == null
+            if (isNewInterval) intervalStartTime = currentTime
+            histograms.getOrPut(endpoint) { LatencyHistogram() }.record(durationMillis)
+            isNewInterval
+        }
+
+    /**
+     * Returns a summary per endpoint and starts a new interval if the current one has lasted at
+     * least [interval] at [currentTime], or an empty list otherwise.
+     */
+    fun takeSummaries(currentTime: Long): List<LatencySummary> {
+        val closedHistograms = synchronized(lock) {
+            val startTime = intervalStartTime
+            if (startTime == null || currentTime - startTime < interval) return emptyList()
+            intervalStartTime = null
+            histograms.toMap().also { histograms.clear() } to startTime
+        }
+        val (closed, startTime) = closedHistograms
+        return closed.map { (endpoint, histogram) ->
+            LatencySummary(
+                endpoint = endpoint,
+                startTime = startTime,
+                endTime = currentTime,
+                count = histogram.count,
+                p50Millis = histogram.valueAtPercentile(P50),
+                p90Millis = histogram.valueAtPercentile(P90),
+                p99Millis = histogram.valueAtPercentile(P99),
+                maxMillis = histogram.maxMillis
+            )
+        }
+    }
+
+    companion object {
+        private val DEFAULT_INTERVAL = TimeUnit.MINUTES.toMillis(1)
+        private const val P50 = 50.0
+        private const val P90 = 90.0
+        private const val P99 = 99.0
+
+        /**
+         * Singleton instance of the LatencyRecorder.
+         */
+        val instance: LatencyRecorder by lazy { LatencyRecorder() }
+    }
+}
@@ -0,0 +1,59 @@
+package com.braintreepayments.api.core
+
+/**
+ * The state that the SDK keeps for one authorization: the values set by the merchant, the
+ * analytics session, queued analytics events, recorded latencies and sampling budgets, and a
+ * [ConfigurationLoader] that reads the configuration of the authorization.
+ *
+ * Every [BraintreeClient] created with the same bearer shares one context, so that an app
+ * checking out against several merchant accounts at once keeps the authorization, session and
+ * configuration of each of them apart. Contexts share the configuration cache and the HTTP
+ * connection pool.
+ */
+internal class MerchantContext(
+    val merchantRepository: MerchantRepository = MerchantRepository(),
+    val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository(),
+    val analyticsEventRepository: AnalyticsEventRepository = AnalyticsEventRepository(),
+    val latencyRecorder: LatencyRecorder = LatencyRecorder(),
+    val analyticsSampler: AnalyticsSampler = AnalyticsSampler(),
+    configurationLoader: ConfigurationLoader? = null,
+) {
+
+    /**
+     * Sends analytics with the authorization and session of this context.
+     */
+    val analyticsClient: AnalyticsClient by lazy { AnalyticsClient(this) }
+
+    val configurationLoader: ConfigurationLoader = configurationLoader ?: ConfigurationLoader(
+        merchantRepository = merchantRepository,
+        lazyAnalyticsClient = lazy { analyticsClient }
+    )
+
+    companion object {
+        // the contexts of the authorizations used most recently; clients keep using the context
+        // they were created with after it is evicted
+        internal const val MAX_CONTEXTS = 8
+
+        private val contexts = object : LinkedHashMap<String, MerchantContext>(MAX_CONTEXTS, 1f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, MerchantContext>?) =
+                size > MAX_CONTEXTS
+        }
+
+        /**
+         * The context that was returned last by [forAuthorization], for components that are not
+         * created with an authorization, or `null` if no context has been created yet.
+         */
+        @Volatile
+        var lastUsed: MerchantContext? = null
+            private set
+
+        /**
+         * Returns the context of [authorization], creating it the first time. Authorizations with
+         * the same bearer share a context.
+         */
+        fun forAuthorization(authorization: Authorization): MerchantContext = synchronized(contexts) {
+            contexts.getOrPut(authorization.bearer ?: authorization.toString()) { MerchantContext() }
+                .also { lastUsed = it }
+        }
+    }
+}
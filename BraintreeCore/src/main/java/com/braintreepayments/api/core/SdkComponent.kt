@@ -2,6 +2,10 @@ package com.braintreepayments.api.core
 
 import android.content.Context
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.AppResolutionCache
+import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import com.braintreepayments.api.sharedutils.ConnectivityMonitor
+import java.io.File
 
 /**
  * Component class that is created when the BT SDK is launched. It contains dependencies that need to be injected that
@@ -12,8 +16,19 @@ internal class SdkComponent(
 ) {
     val configurationCache: ConfigurationCache = ConfigurationCache.getInstance(applicationContext)
     val deviceInspector: DeviceInspector = DeviceInspector(applicationContext)
+    val crashRecordStore: CrashRecordStore =
+        CrashRecordStore({ File(applicationContext.noBackupFilesDir, CRASH_RECORDS_FILE_NAME) })
+    val configurationRefresher: ConfigurationRefresher =
+        ConfigurationRefresher(applicationContext, BraintreeSharedPreferences.getInstance(applicationContext))
+
+    init {
+        AppResolutionCache.instance.startListening(applicationContext)
+        ConnectivityMonitor.instance.startListening(applicationContext)
+    }
 
     companion object {
+        private const val CRASH_RECORDS_FILE_NAME = "com.braintreepayments.api.CRASH_RECORDS"
+
         private var instance: SdkComponent? = null
 
         /**
@@ -39,6 +54,16 @@ internal class ConfigurationCacheProvider {
         get() = SdkComponent.getInstance().configurationCache
 }
 
+internal class ConfigurationRefresherProvider {
+    val configurationRefresher: ConfigurationRefresher
+        get() = SdkComponent.getInstance().configurationRefresher
+}
+
+internal class CrashRecordStoreProvider {
+    val crashRecordStore: CrashRecordStore
+        get() = SdkComponent.getInstance().crashRecordStore
+}
+
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class DeviceInspectorProvider {
     val deviceInspector: DeviceInspector
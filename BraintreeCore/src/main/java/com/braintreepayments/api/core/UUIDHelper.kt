@@ -1,9 +1,12 @@
 package com.braintreepayments.api.core
 
 import android.content.Context
+import androidx.annotation.AnyThread
 import androidx.annotation.RestrictTo
+import androidx.annotation.WorkerThread
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
 import java.util.*
+import java.util.concurrent.Executor
 
 /**
  * @suppress
@@ -14,10 +17,35 @@ class UUIDHelper {
     val formattedUUID: String
         get() = UUID.randomUUID().toString().replace("-", "")
 
+    /**
+     * Returns the installation GUID, creating it the first time. Waits for the SDK's preferences to
+     * load from disk, so use the overload that takes a callback on the main thread.
+     */
+    @WorkerThread
     fun getInstallationGUID(context: Context): String {
         return getInstallationGUID(BraintreeSharedPreferences.getInstance(context))
     }
 
+    /**
+     * Calls [callback] with the installation GUID, creating it the first time, once the SDK's
+     * preferences have loaded. [callback] is called right away on the calling thread if they already
+     * have, and on [executor] otherwise.
+     */
+    @AnyThread
+    fun getInstallationGUID(context: Context, executor: Executor, callback: (String) -> Unit) {
+        getInstallationGUID(BraintreeSharedPreferences.getInstance(context), executor, callback)
+    }
+
+    internal fun getInstallationGUID(
+        braintreeSharedPreferences: BraintreeSharedPreferences,
+        executor: Executor,
+        callback: (String) -> Unit
+    ) {
+        braintreeSharedPreferences.whenLoaded(executor) {
+            callback(getInstallationGUID(braintreeSharedPreferences))
+        }
+    }
+
     internal fun getInstallationGUID(braintreeSharedPreferences: BraintreeSharedPreferences): String {
         var installationGUID = braintreeSharedPreferences.getString(INSTALL_GUID, null)
         if (installationGUID == null) {
@@ -5,14 +5,21 @@ import android.content.pm.PackageManager
 import android.content.pm.ResolveInfo
 import android.net.Uri
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.AppResolutionCache
 
 /**
  * Use to get the package name of the default application that can handle the passed in URI.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class GetDefaultAppUseCase(private val packageManager: PackageManager) {
+class GetDefaultAppUseCase(
+    private val packageManager: PackageManager,
+    private val appResolutionCache: AppResolutionCache = AppResolutionCache.instance
+) {
 
-    operator fun invoke(uri: Uri?): String? {
+    operator fun invoke(uri: Uri?): String? =
+        appResolutionCache.getOrPut("default-app:$uri") { resolveDefaultApp(uri) }
+
+    private fun resolveDefaultApp(uri: Uri?): String? {
         val browserIntent = Intent(Intent.ACTION_VIEW, uri).apply {
             addCategory(Intent.CATEGORY_BROWSABLE)
         }
@@ -1,5 +1,6 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.verify
@@ -7,6 +8,7 @@ import org.json.JSONObject
 import org.junit.Before
 import org.junit.Test
 import kotlin.test.assertEquals
+import kotlin.test.assertFalse
 
 class AnalyticsApiUnitTest {
 
@@ -152,6 +154,84 @@ class AnalyticsApiUnitTest {
     }
 
     @Suppress("LongMethod")
+    @Test
+    fun `createPayload adds the percentiles of a latency summary event`() {
+        every { merchantRepository.authorization } returns tokenizationKey
+        val summary = LatencySummary(
+            endpoint = "/v1/payment_methods",
+            startTime = 100,
+            endTime = 200,
+            count = 12,
+            p50Millis = 40,
+            p90Millis = 90,
+            p99Millis = 150,
+            maxMillis = 152
+        )
+        val event = AnalyticsEvent(
+            name = "core:api-request-latency-summary",
+            timestamp = 200,
+            latencySummary = summary
+        )
+
+        val payload = sut.createPayload(listOf(event), deviceMetadata)
+
+        val eventJson = payload.getJSONArray("events").getJSONObject(0)
+            .getJSONArray("event_params").getJSONObject(0)
+        assertEquals(12, eventJson.getInt("latency_count"))
+        assertEquals(40L, eventJson.getLong("latency_p50_ms"))
+        assertEquals(90L, eventJson.getLong("latency_p90_ms"))
+        assertEquals(150L, eventJson.getLong("latency_p99_ms"))
+        assertEquals(152L, eventJson.getLong("latency_max_ms"))
+    }
+
+    @Test
+    fun `createPayload adds the session and cause of a crash event`() {
+        every { merchantRepository.authorization } returns tokenizationKey
+        val event = AnalyticsEvent(
+            name = "crash",
+            timestamp = 100,
+            crashSessionId = "crashed-session-id",
+            crashCause = CrashRecord.CAUSE_PAYPAL
+        )
+
+        val payload = sut.createPayload(listOf(event), deviceMetadata)
+
+        val eventJson = payload.getJSONArray("events").getJSONObject(0)
+            .getJSONArray("event_params").getJSONObject(0)
+        assertEquals("crashed-session-id", eventJson.getString("crash_session_id"))
+        assertEquals("paypal", eventJson.getString("crash_cause"))
+    }
+
+    @Test
+    fun `execute passes the callback to the request`() {
+        val callback = mockk<NetworkResponseCallback>()
+        every { merchantRepository.authorization } returns tokenizationKey
+
+        sut.execute(listOf(tokenizationKeyEvent), configuration, callback = callback)
+
+        verify { httpClient.post(any(), any(), null, tokenizationKey, callback = callback) }
+    }
+
+    @Test
+    fun `createPayload adds the age of the background configuration refresh to the batch params`() {
+        every { merchantRepository.authorization } returns tokenizationKey
+
+        val payload = sut.createPayload(listOf(tokenizationKeyEvent), deviceMetadata, 60_000L)
+
+        val batchParams = payload.getJSONArray("events").getJSONObject(0).getJSONObject("batch_params")
+        assertEquals(60_000L, batchParams.getLong("config_refresh_age_ms"))
+    }
+
+    @Test
+    fun `createPayload omits the background configuration refresh age when there is none`() {
+        every { merchantRepository.authorization } returns tokenizationKey
+
+        val payload = sut.createPayload(listOf(tokenizationKeyEvent), deviceMetadata)
+
+        val batchParams = payload.getJSONArray("events").getJSONObject(0).getJSONObject("batch_params")
+        assertFalse(batchParams.has("config_refresh_age_ms"))
+    }
+
     private fun getExpectedJson(authorization: Authorization): String {
         return when (authorization) {
             is TokenizationKey -> {
@@ -1,10 +1,16 @@
 package com.braintreepayments.api.core
 
+import android.os.Handler
 import com.braintreepayments.api.core.Configuration.Companion.fromJson
+import com.braintreepayments.api.sharedutils.ConnectivityMonitor
+import com.braintreepayments.api.sharedutils.HttpResponse
+import com.braintreepayments.api.sharedutils.HttpResponseTiming
+import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import com.braintreepayments.api.sharedutils.Time
 import com.braintreepayments.api.testutils.Fixtures
 import io.mockk.every
 import io.mockk.mockk
+import io.mockk.slot
 import io.mockk.verify
 import org.junit.Before
 import org.junit.Test
@@ -20,6 +26,12 @@ class AnalyticsClientUnitTest {
     private val analyticsEventRepository: AnalyticsEventRepository = mockk(relaxed = true)
     private val analyticsParamRepository: AnalyticsParamRepository = mockk(relaxed = true)
     private val time: Time = mockk()
+    private val crashRecordStore: CrashRecordStore = mockk(relaxed = true)
+    private val latencyRecorder: LatencyRecorder = mockk(relaxed = true)
+    private val analyticsSampler: AnalyticsSampler = mockk(relaxed = true)
+    private val connectivityMonitor: ConnectivityMonitor = mockk(relaxed = true)
+    private val configurationRefresher: ConfigurationRefresher = mockk(relaxed = true)
+    private val latencyFlushHandler: Handler = mockk(relaxed = true)
     private lateinit var configurationLoader: ConfigurationLoader
 
     private val configuration: Configuration = fromJson(Fixtures.CONFIGURATION_WITH_ENVIRONMENT)
@@ -71,6 +83,13 @@ class AnalyticsClientUnitTest {
         every { analyticsParamRepository.didEnablePayPalAppSwitch } returns true
         every { analyticsParamRepository.didPayPalServerAttemptAppSwitch } returns true
         every { analyticsParamRepository.didSdkAttemptAppSwitch } returns true
+        every { crashRecordStore.takePendingRecords() } returns emptyList()
+        every { latencyRecorder.takeSummaries(any()) } returns emptyList()
+        every { analyticsSampler.sample(any(), any(), any()) } returns 1.0
+        every { connectivityMonitor.isValidated } returns true
+        every { configurationRefresher.getLastRefreshAgeMillis(any()) } answers {
+            firstArg<(Long?) -> Unit>().invoke(null)
+        }
 
         configurationLoader = MockkConfigurationLoaderBuilder()
             .configuration(configuration)
@@ -82,6 +101,12 @@ class AnalyticsClientUnitTest {
             analyticsEventRepository = analyticsEventRepository,
             time = time,
             configurationLoader = configurationLoader,
+            crashRecordStore = crashRecordStore,
+            latencyRecorder = latencyRecorder,
+            analyticsSampler = analyticsSampler,
+            connectivityMonitor = connectivityMonitor,
+            configurationRefresher = configurationRefresher,
+            latencyFlushHandler = latencyFlushHandler,
         )
     }
 
@@ -133,19 +158,251 @@ class AnalyticsClientUnitTest {
     }
 
     @Test
-    fun `when reportCrash is called, the events api is executed`() {
+    fun `when reportCrash is called, a crash record is written and the events api is not executed`() {
+        every { analyticsParamRepository.sessionId } returns "session-id"
+
+        sut.reportCrash(CrashRecord.CAUSE_BRAINTREE)
+
+        verify {
+            crashRecordStore.write(
+                CrashRecord(timestamp = timestamp, sessionId = "session-id", cause = CrashRecord.CAUSE_BRAINTREE)
+            )
+        }
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+    }
+
+    @Test
+    fun `when sendEvent is called with sendImmediately as true, pending crash records are sent first`() {
+        val crashRecord = CrashRecord(timestamp = 100L, sessionId = "crashed-session-id", cause = "braintree")
+        every { crashRecordStore.takePendingRecords() } returns listOf(crashRecord)
+        every { analyticsEventRepository.flushAndReturnEvents() } returns listOf(expectedAnalyticsEvent)
+
+        sut.sendEvent(
+            eventName = "initial-event",
+            analyticsEventParams = analyticsEventParams,
+            sendImmediately = true
+        )
+
         val expectedCrashEvent = AnalyticsEvent(
             name = "crash",
-            timestamp = timestamp
+            timestamp = 100L,
+            crashSessionId = "crashed-session-id",
+            crashCause = "braintree"
+        )
+        val initialEvent = expectedAnalyticsEvent.copy(name = "initial-event")
+        verify {
+            analyticsApi.execute(
+                events = listOf(expectedCrashEvent, expectedAnalyticsEvent, initialEvent),
+                configuration = configuration,
+                configurationRefreshAgeMillis = null,
+                callback = any()
+            )
+        }
+    }
+
+    @Test
+    fun `when the events with crash records are sent, the crash records are removed`() {
+        val crashRecords = listOf(CrashRecord(timestamp = 100L))
+        every { crashRecordStore.takePendingRecords() } returns crashRecords
+        val callbackSlot = slot<NetworkResponseCallback>()
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+
+        verify { analyticsApi.execute(any(), any(), any(), capture(callbackSlot)) }
+        verify(exactly = 0) { crashRecordStore.remove(any()) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(HttpResponse(timing = HttpResponseTiming(0, 0)))
+        )
+        verify { crashRecordStore.remove(crashRecords) }
+    }
+
+    @Test
+    fun `when the events with crash records fail to send, the crash records are kept for the next batch`() {
+        val crashRecords = listOf(CrashRecord(timestamp = 100L))
+        every { crashRecordStore.takePendingRecords() } returns crashRecords
+        val callbackSlot = slot<NetworkResponseCallback>()
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+
+        verify { analyticsApi.execute(any(), any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(NetworkResponseCallback.Result.Failure(Exception("error")))
+        verify { crashRecordStore.release(crashRecords) }
+        verify(exactly = 0) { crashRecordStore.remove(any()) }
+    }
+
+    @Test
+    fun `when recordLatency is called, the duration is recorded and the events api is not executed`() {
+        sut.recordLatency("/v1/payment_methods", HttpResponseTiming(startTime = 100, endTime = 350))
+
+        verify { latencyRecorder.record("/v1/payment_methods", 250, timestamp) }
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+    }
+
+    @Test
+    fun `when recordLatency starts an interval, the latency summaries are sent once the interval has elapsed`() {
+        val summary = LatencySummary(
+            endpoint = "/v1/payment_methods",
+            startTime = 50,
+            endTime = timestamp,
+            count = 1,
+            p50Millis = 250,
+            p90Millis = 250,
+            p99Millis = 250,
+            maxMillis = 250
+        )
+        every { latencyRecorder.record(any(), any(), any()) } returns true
+        every { latencyRecorder.interval } returns 60_000
+        every { latencyRecorder.takeSummaries(timestamp) } returns listOf(summary)
+
+        sut.recordLatency("/v1/payment_methods", HttpResponseTiming(startTime = 100, endTime = 350))
+
+        val flushSlot = slot<Runnable>()
+        verify { latencyFlushHandler.postDelayed(capture(flushSlot), 61_000) }
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+
+        flushSlot.captured.run()
+
+        val expectedSummaryEvent = AnalyticsEvent(
+            name = "core:api-request-latency-summary",
+            timestamp = timestamp,
+            startTime = 50,
+            endTime = timestamp,
+            endpoint = "/v1/payment_methods",
+            latencySummary = summary
+        )
+        verify {
+            analyticsApi.execute(
+                events = listOf(expectedSummaryEvent),
+                configuration = configuration
+            )
+        }
+    }
+
+    @Test
+    fun `when recordLatency continues an interval, no flush is scheduled`() {
+        every { latencyRecorder.record(any(), any(), any()) } returns false
+
+        sut.recordLatency("/v1/payment_methods", HttpResponseTiming(startTime = 100, endTime = 350))
+
+        verify(exactly = 0) { latencyFlushHandler.postDelayed(any(), any()) }
+    }
+
+    @Test
+    fun `when sendEvent is called with sendImmediately as true, latency summaries are sent before the event`() {
+        val summary = LatencySummary(
+            endpoint = "/v1/payment_methods",
+            startTime = 50,
+            endTime = timestamp,
+            count = 3,
+            p50Millis = 200,
+            p90Millis = 300,
+            p99Millis = 300,
+            maxMillis = 300
+        )
+        every { latencyRecorder.takeSummaries(timestamp) } returns listOf(summary)
+
+        sut.sendEvent(
+            eventName = eventName,
+            analyticsEventParams = analyticsEventParams,
+            sendImmediately = true
+        )
+
+        val expectedSummaryEvent = AnalyticsEvent(
+            name = "core:api-request-latency-summary",
+            timestamp = timestamp,
+            startTime = 50,
+            endTime = timestamp,
+            endpoint = "/v1/payment_methods",
+            latencySummary = summary
         )
+        verify {
+            analyticsApi.execute(
+                events = listOf(expectedSummaryEvent, expectedAnalyticsEvent),
+                configuration = configuration
+            )
+        }
+    }
+
+    @Test
+    fun `when sendEvent is called for an event that is sampled out, the event is neither queued nor sent`() {
+        val policy = AnalyticsSamplingPolicy(sampleRate = 0.1)
+        every { analyticsSampler.sample(eventName, policy, timestamp) } returns null
+
+        sut.sendEvent(eventName, analyticsEventParams.copy(samplingPolicy = policy), sendImmediately = false)
+        sut.sendEvent(eventName, analyticsEventParams.copy(samplingPolicy = policy), sendImmediately = true)
+
+        verify(exactly = 0) { analyticsEventRepository.addEvent(any()) }
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+    }
+
+    @Test
+    fun `when sendEvent is called for a sampled event, the event carries its sampling weight`() {
+        val policy = AnalyticsSamplingPolicy(sampleRate = 0.1)
+        every { analyticsSampler.sample(eventName, policy, timestamp) } returns 10.0
 
-        sut.reportCrash(configuration)
+        sut.sendEvent(eventName, analyticsEventParams.copy(samplingPolicy = policy), sendImmediately = false)
+
+        verify { analyticsEventRepository.addEvent(expectedAnalyticsEvent.copy(samplingWeight = 10.0)) }
+    }
+
+    @Test
+    fun `when sendEvent is called with sendImmediately as true, the configuration sampling policies are applied`() {
+        sut.sendEvent(eventName, analyticsEventParams, sendImmediately = true)
+
+        verify { analyticsSampler.updatePolicies(configuration) }
+    }
+
+    @Test
+    fun `when sendEvent is called without a validated network, the event is queued and a flush is parked once`() {
+        every { connectivityMonitor.isValidated } returns false
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+
+        verify(exactly = 2) { analyticsEventRepository.addEvent(expectedAnalyticsEvent) }
+        verify(exactly = 1) { connectivityMonitor.runWhenValidated(true, any()) }
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+    }
+
+    @Test
+    fun `when a parked flush runs, the queued events are sent`() {
+        val parkedFlush = slot<Runnable>()
+        every { connectivityMonitor.isValidated } returns false
+        every { connectivityMonitor.runWhenValidated(true, capture(parkedFlush)) } returns Unit
+        every { analyticsEventRepository.flushAndReturnEvents() } returns listOf(expectedAnalyticsEvent)
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+        parkedFlush.captured.run()
 
         verify {
             analyticsApi.execute(
-                events = listOf(expectedCrashEvent),
+                events = listOf(expectedAnalyticsEvent),
                 configuration = configuration
             )
         }
     }
+
+    @Test
+    fun `when a parked flush runs and no events are queued, the events api is not executed`() {
+        val parkedFlush = slot<Runnable>()
+        every { connectivityMonitor.isValidated } returns false
+        every { connectivityMonitor.runWhenValidated(true, capture(parkedFlush)) } returns Unit
+        every { analyticsEventRepository.flushAndReturnEvents() } returns emptyList()
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+        parkedFlush.captured.run()
+
+        verify(exactly = 0) { analyticsApi.execute(any(), any()) }
+    }
+
+    @Test
+    fun `when sendEvent is called with sendImmediately as true, the age of the background refresh is sent`() {
+        every { configurationRefresher.getLastRefreshAgeMillis(any()) } answers {
+            firstArg<(Long?) -> Unit>().invoke(60_000L)
+        }
+
+        sut.sendEvent(eventName = eventName, analyticsEventParams = analyticsEventParams)
+
+        verify { analyticsApi.execute(listOf(expectedAnalyticsEvent), configuration, 60_000L) }
+    }
 }
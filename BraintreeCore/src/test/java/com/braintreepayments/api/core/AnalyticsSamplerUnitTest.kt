@@ -0,0 +1,78 @@
+package com.braintreepayments.api.core
+
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class AnalyticsSamplerUnitTest {
+
+    private val random: Random = mockk()
+    private val sut = AnalyticsSampler(random)
+
+    @Test
+    fun `sample without a policy keeps the event with a weight of 1`() {
+        assertEquals(1.0, sut.sample("event", null, 0))
+    }
+
+    @Test
+    fun `sample keeps an event within the sample rate with the inverse of the rate as its weight`() {
+        every { random.nextDouble() } returns 0.2
+
+        assertEquals(4.0, sut.sample("event", AnalyticsSamplingPolicy(sampleRate = 0.25), 0))
+    }
+
+    @Test
+    fun `sample drops an event outside the sample rate`() {
+        every { random.nextDouble() } returns 0.3
+
+        assertNull(sut.sample("event", AnalyticsSamplingPolicy(sampleRate = 0.25), 0))
+    }
+
+    @Test
+    fun `sample never drops the outcome of a payment flow`() {
+        every { random.nextDouble() } returns 0.99
+        val policy = AnalyticsSamplingPolicy(sampleRate = 0.0)
+
+        assertEquals(1.0, sut.sample("card:tokenize:succeeded", policy, 0))
+        assertEquals(1.0, sut.sample("paypal:tokenize:failed", policy, 0))
+        assertEquals(1.0, sut.sample("3ds:verify:succeeded", policy, 0))
+        assertNull(sut.sample("card:tokenize:started", policy, 0))
+    }
+
+    @Test
+    fun `sample drops events over the rate limit and adds their weight to the next kept event`() {
+        val policy = AnalyticsSamplingPolicy(maxEventsPerMinute = 2)
+
+        assertEquals(1.0, sut.sample("event", policy, 0))
+        assertEquals(1.0, sut.sample("event", policy, 0))
+        assertNull(sut.sample("event", policy, 0))
+        assertNull(sut.sample("event", policy, 1000))
+        assertEquals(3.0, sut.sample("event", policy, 31_000))
+        assertNull(sut.sample("event", policy, 31_000))
+    }
+
+    @Test
+    fun `sample limits each event name separately`() {
+        val policy = AnalyticsSamplingPolicy(maxEventsPerMinute = 1)
+
+        assertEquals(1.0, sut.sample("event-a", policy, 0))
+        assertEquals(1.0, sut.sample("event-b", policy, 0))
+        assertNull(sut.sample("event-a", policy, 0))
+    }
+
+    @Test
+    fun `sample uses the policy from the configuration over the local policy`() {
+        every { random.nextDouble() } returns 0.5
+        val configuration: Configuration = mockk()
+        every {
+            configuration.analyticsSamplingPolicies
+        } returns mapOf("event" to AnalyticsSamplingPolicy(sampleRate = 0.0))
+        sut.updatePolicies(configuration)
+
+        assertNull(sut.sample("event", AnalyticsSamplingPolicy(sampleRate = 1.0), 0))
+        assertEquals(1.0, sut.sample("other-event", null, 0))
+    }
+}
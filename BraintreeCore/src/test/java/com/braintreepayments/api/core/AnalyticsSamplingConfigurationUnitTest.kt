@@ -0,0 +1,41 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class AnalyticsSamplingConfigurationUnitTest {
+
+    @Test
+    fun fromJson_parsesPolicies() {
+        val input = JSONObject().put(
+            "eventSampling",
+            JSONObject()
+                .put("event-a", JSONObject().put("sampleRate", 0.1))
+                .put("event-b", JSONObject().put("maxEventsPerMinute", 5))
+        )
+
+        val sut = AnalyticsSamplingConfiguration(input)
+
+        val expected = mapOf(
+            "event-a" to AnalyticsSamplingPolicy(sampleRate = 0.1),
+            "event-b" to AnalyticsSamplingPolicy(sampleRate = 1.0, maxEventsPerMinute = 5)
+        )
+        assertEquals(expected, sut.policies)
+    }
+
+    @Test
+    fun fromJson_ignoresPoliciesThatAreNotObjects() {
+        val input = JSONObject().put("eventSampling", JSONObject().put("event-a", 0.1))
+
+        assertEquals(emptyMap<String, AnalyticsSamplingPolicy>(), AnalyticsSamplingConfiguration(input).policies)
+    }
+
+    @Test
+    fun fromJson_whenInputNull_returnsNoPolicies() {
+        assertEquals(emptyMap<String, AnalyticsSamplingPolicy>(), AnalyticsSamplingConfiguration(null).policies)
+    }
+}
@@ -1,6 +1,7 @@
 package com.braintreepayments.api.core
 
 import com.braintreepayments.api.card.Card
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import io.mockk.*
@@ -41,7 +42,7 @@ class ApiClientUnitTest {
 
         every { analyticsParamRepository.sessionId } returns "session-id"
         val bodySlot = slot<String>()
-        every { braintreeClient.sendPOST(any(), capture(bodySlot), any(), any()) } returns Unit
+        every { braintreeClient.sendPOST(any(), capture(bodySlot), any(), any()) } returns CancellableRequest()
 
         val sut = ApiClient(braintreeClient, analyticsParamRepository)
         val card = spyk(Card())
@@ -64,7 +65,7 @@ class ApiClientUnitTest {
             .build()
 
         val graphQLBodySlot = slot<JSONObject>()
-        every { braintreeClient.sendGraphQLPOST(capture(graphQLBodySlot), any()) } returns Unit
+        every { braintreeClient.sendGraphQLPOST(capture(graphQLBodySlot), any()) } returns CancellableRequest()
 
         val sut = ApiClient(braintreeClient)
         val card = Card()
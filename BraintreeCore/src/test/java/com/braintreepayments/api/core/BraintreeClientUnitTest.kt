@@ -4,10 +4,16 @@ import android.content.Context
 import android.content.pm.ActivityInfo
 import android.net.Uri
 import androidx.fragment.app.FragmentActivity
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import androidx.test.core.app.ApplicationProvider
 import androidx.work.testing.WorkManagerTestInitHelper
 import com.braintreepayments.api.BrowserSwitchClient
+import com.braintreepayments.api.sharedutils.HttpResponse
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
+import com.braintreepayments.api.sharedutils.HttpResponseTiming
+import com.braintreepayments.api.sharedutils.MainThreadExecutor
 import com.braintreepayments.api.sharedutils.ManifestValidator
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
 import com.braintreepayments.api.testutils.Fixtures
@@ -19,6 +25,7 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Executor
 
 @RunWith(RobolectricTestRunner::class)
 class BraintreeClientUnitTest {
@@ -119,6 +126,8 @@ class BraintreeClientUnitTest {
                 "sample-url",
                 configuration,
                 authorization,
+                any(),
+                any(),
                 capture(networkResponseCallbackSlot)
             )
         }
@@ -173,6 +182,7 @@ class BraintreeClientUnitTest {
                 data = "{}",
                 configuration = configuration,
                 authorization = authorization,
+                cancellableRequest = any(),
                 callback = capture(networkResponseCallbackSlot)
             )
         }
@@ -214,6 +224,7 @@ class BraintreeClientUnitTest {
                 configuration = any(),
                 authorization = any(),
                 additionalHeaders = emptyMap(),
+                cancellableRequest = any(),
                 callback = any()
             )
         }
@@ -241,6 +252,7 @@ class BraintreeClientUnitTest {
                 configuration = any(),
                 authorization = any(),
                 additionalHeaders = headers,
+                cancellableRequest = any(),
                 callback = any()
             )
         }
@@ -276,6 +288,8 @@ class BraintreeClientUnitTest {
                 "{}",
                 configuration,
                 authorization,
+                any(),
+                any(),
                 capture(networkResponseCallbackSlot)
             )
         }
@@ -310,6 +324,84 @@ class BraintreeClientUnitTest {
         assertEquals(expectedAuthException.message, authErrorSlot.captured.message)
     }
 
+    @Test
+    fun `sendPOST cancelled before configuration loads does not send the request`() {
+        val sut = createBraintreeClient(configurationLoader)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        val request = sut.sendPOST("sample-url", "{}", emptyMap(), httpResponseCallback)
+        request.cancel()
+
+        val callbackSlots = mutableListOf<ConfigurationLoaderCallback>()
+        verify { configurationLoader.loadConfiguration(capture(callbackSlots)) }
+        callbackSlots.last().onResult(ConfigurationLoaderResult.Success(mockk(relaxed = true)))
+
+        verify(exactly = 0) { braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), any()) }
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+        verify {
+            analyticsClient.sendEvent(
+                CoreAnalytics.API_REQUEST_CANCELLED,
+                AnalyticsEventParams(endpoint = "sample-url"),
+                false
+            )
+        }
+    }
+
+    @Test
+    fun `sendGET cancelled while in flight does not call back`() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val networkResponseCallbackSlot = slot<NetworkResponseCallback>()
+
+        val request = sut.sendGET("sample-url", httpResponseCallback)
+        verify { braintreeHttpClient.get(any(), any(), any(), any(), request, capture(networkResponseCallbackSlot)) }
+        request.cancel()
+        networkResponseCallbackSlot.captured.onResult(successResult())
+
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun `sendGET bound to a lifecycle is cancelled when the lifecycle is destroyed`() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val lifecycleOwner = createLifecycleOwner()
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val networkResponseCallbackSlot = slot<NetworkResponseCallback>()
+
+        val request = sut.sendGET(lifecycleOwner, "sample-url", httpResponseCallback)
+        verify { braintreeHttpClient.get(any(), any(), any(), any(), any(), capture(networkResponseCallbackSlot)) }
+        (lifecycleOwner.lifecycle as LifecycleRegistry).currentState = Lifecycle.State.DESTROYED
+        networkResponseCallbackSlot.captured.onResult(successResult())
+
+        assertTrue(request.isCancelled)
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun `sendGraphQLPOST bound to a lifecycle stops observing it when the request completes`() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val lifecycleOwner = createLifecycleOwner()
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val networkResponseCallbackSlot = slot<NetworkResponseCallback>()
+
+        sut.sendGraphQLPOST(lifecycleOwner, JSONObject(), httpResponseCallback)
+        verify { braintreeGraphQLClient.post(any(), any(), any(), any(), capture(networkResponseCallbackSlot)) }
+        assertEquals(1, (lifecycleOwner.lifecycle as LifecycleRegistry).observerCount)
+        networkResponseCallbackSlot.captured.onResult(successResult())
+
+        verify { httpResponseCallback.onResult("{}", null) }
+        assertEquals(0, (lifecycleOwner.lifecycle as LifecycleRegistry).observerCount)
+    }
+
     @Test
     @Throws(JSONException::class)
     fun sendAnalyticsEvent_sendsEventToAnalyticsClient() {
@@ -364,16 +456,9 @@ class BraintreeClientUnitTest {
             .configuration(configuration)
             .build()
         val sut = createBraintreeClient(configurationLoader)
-        sut.reportCrash()
-
-        val callbackSlots = mutableListOf<ConfigurationLoaderCallback>()
-        verify {
-            configurationLoader.loadConfiguration(capture(callbackSlots))
-        }
+        sut.reportCrash(CrashRecord.CAUSE_BRAINTREE)
 
-        callbackSlots[0].onResult(ConfigurationLoaderResult.Success(configuration))
-
-        verify { analyticsClient.reportCrash(any()) }
+        verify { analyticsClient.reportCrash(CrashRecord.CAUSE_BRAINTREE) }
     }
 
     @Test
@@ -402,10 +487,111 @@ class BraintreeClientUnitTest {
         verify(exactly = 0) { merchantRepository.appLinkReturnUri = null }
     }
 
+    @Test
+    fun `getConfiguration calls back on the callback executor`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ENVIRONMENT)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val callbackExecutor = QueueingExecutor()
+        val sut = createBraintreeClient(configurationLoader, callbackExecutor = callbackExecutor)
+        val callback = mockk<ConfigurationCallback>(relaxed = true)
+
+        sut.getConfiguration(callback)
+        verify(exactly = 0) { callback.onResult(any(), any()) }
+
+        callbackExecutor.runAll()
+        verify { callback.onResult(configuration, null) }
+    }
+
+    @Test
+    fun `sendPOST calls back on the callback executor only once the response is received`() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk<Configuration>(relaxed = true))
+            .build()
+        val callbackExecutor = QueueingExecutor()
+        val sut = createBraintreeClient(configurationLoader, callbackExecutor = callbackExecutor)
+        val networkResponseCallbackSlot = slot<NetworkResponseCallback>()
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), httpResponseCallback)
+
+        // the request is sent once the configuration has loaded, without going through the executor
+        verify {
+            braintreeHttpClient.post(
+                path = "sample-url",
+                data = "{}",
+                configuration = any(),
+                authorization = any(),
+                additionalHeaders = any(),
+                cancellableRequest = any(),
+                callback = capture(networkResponseCallbackSlot)
+            )
+        }
+        assertEquals(0, callbackExecutor.size)
+
+        networkResponseCallbackSlot.captured.onResult(successResult())
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+
+        callbackExecutor.runAll()
+        verify { httpResponseCallback.onResult("{}", null) }
+    }
+
+    @Test
+    fun `sendPOST does not call back when cancelled before the callback executor runs`() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk<Configuration>(relaxed = true))
+            .build()
+        val callbackExecutor = QueueingExecutor()
+        val sut = createBraintreeClient(configurationLoader, callbackExecutor = callbackExecutor)
+        val networkResponseCallbackSlot = slot<NetworkResponseCallback>()
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        val request = sut.sendPOST("sample-url", "{}", emptyMap(), httpResponseCallback)
+        verify {
+            braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), capture(networkResponseCallbackSlot))
+        }
+        networkResponseCallbackSlot.captured.onResult(successResult())
+        request.cancel()
+        callbackExecutor.runAll()
+
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+    }
+
+    /**
+     * Holds commands until [runAll] is called, to check which callbacks go through the executor.
+     */
+    private class QueueingExecutor : Executor {
+        private val commands = ArrayDeque<Runnable>()
+
+        val size: Int
+            get() = commands.size
+
+        override fun execute(command: Runnable) {
+            commands.addLast(command)
+        }
+
+        fun runAll() {
+            while (commands.isNotEmpty()) commands.removeFirst().run()
+        }
+    }
+
+    private fun createLifecycleOwner(): LifecycleOwner {
+        val lifecycleOwner = mockk<LifecycleOwner>()
+        val lifecycle = LifecycleRegistry.createUnsafe(lifecycleOwner)
+        every { lifecycleOwner.lifecycle } returns lifecycle
+        lifecycle.currentState = Lifecycle.State.RESUMED
+        return lifecycleOwner
+    }
+
+    private fun successResult() =
+        NetworkResponseCallback.Result.Success(HttpResponse("{}", HttpResponseTiming(0, 1)))
+
     private fun createBraintreeClient(
         configurationLoader: ConfigurationLoader = mockk(),
         appLinkReturnUri: Uri? = Uri.parse("https://example.com"),
-        merchantRepository: MerchantRepository = MerchantRepository.instance
+        merchantRepository: MerchantRepository = MerchantRepository.instance,
+        callbackExecutor: Executor = MainThreadExecutor()
     ) = BraintreeClient(
         applicationContext = applicationContext,
         integrationType = IntegrationType.CUSTOM,
@@ -418,5 +604,6 @@ class BraintreeClientUnitTest {
         manifestValidator = manifestValidator,
         configurationLoader = configurationLoader,
         merchantRepository = merchantRepository,
+        callbackExecutor = callbackExecutor,
     )
 }
@@ -46,7 +46,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, tokenizationKey, callback)
+        sut.get("v1/payment_methods", configuration, tokenizationKey, callback = callback)
 
         val request = requestSlot.captured
         assertEquals("https://api.braintreegateway.com/v1/payment_methods", request.url)
@@ -55,6 +55,26 @@ class BraintreeHttpClientUnitTest {
         assertEquals(Fixtures.TOKENIZATION_KEY, request.headers["Client-Key"])
     }
 
+    @Test
+    fun `when get is called with additional headers, they are added to the request`() {
+        val tokenizationKey = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val requestSlot = slot<OkHttpRequest>()
+        every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.get(
+            "v1/configuration",
+            configuration,
+            tokenizationKey,
+            additionalHeaders = mapOf("If-None-Match" to "\"v1\""),
+            callback = callback
+        )
+
+        val request = requestSlot.captured
+        assertEquals("\"v1\"", request.headers["If-None-Match"])
+        assertEquals(Fixtures.TOKENIZATION_KEY, request.headers["Client-Key"])
+    }
+
     @Test
     fun `when get is called with ClientToken, authorization fingerprint is appended to URL and header`() {
         val clientToken = Authorization.fromString(
@@ -64,7 +84,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, clientToken, callback)
+        sut.get("v1/payment_methods", configuration, clientToken, callback = callback)
 
         val request = requestSlot.captured
         val expectedUrl =
@@ -81,7 +101,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("https://example.com/custom/path", configuration, tokenizationKey, callback)
+        sut.get("https://example.com/custom/path", configuration, tokenizationKey, callback = callback)
 
         val request = requestSlot.captured
         assertEquals("https://example.com/custom/path", request.url)
@@ -97,7 +117,7 @@ class BraintreeHttpClientUnitTest {
         } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", null, tokenizationKey, callback)
+        sut.get("v1/payment_methods", null, tokenizationKey, callback = callback)
 
         verify {
             callback.onResult(match {
@@ -113,7 +133,7 @@ class BraintreeHttpClientUnitTest {
         val invalidAuth = InvalidAuthorization("invalid_token", "Invalid token")
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, invalidAuth, callback)
+        sut.get("v1/payment_methods", configuration, invalidAuth, callback = callback)
 
         verify {
             callback.onResult(match {
@@ -133,7 +153,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, clientToken, callback)
+        sut.get("v1/payment_methods", configuration, clientToken, callback = callback)
 
         val request = requestSlot.captured
         assertEquals("Bearer ${clientToken.bearer}", request.headers["Authorization"])
@@ -303,7 +323,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, tokenizationKey, callback)
+        sut.get("v1/payment_methods", configuration, tokenizationKey, callback = callback)
 
         val request = requestSlot.captured
         assertEquals("braintree/android/" + BuildConfig.VERSION_NAME, request.headers["User-Agent"])
@@ -317,7 +337,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("v1/payment_methods", configuration, authorization, callback)
+        sut.get("v1/payment_methods", configuration, authorization, callback = callback)
 
         val request = requestSlot.captured
         assertNull(request.headers["Authorization"])
@@ -331,7 +351,7 @@ class BraintreeHttpClientUnitTest {
         every { httpClient.sendRequest(capture(requestSlot), callback) } just runs
 
         val sut = BraintreeHttpClient(httpClient)
-        sut.get("https://example.com/custom/path", null, tokenizationKey, callback)
+        sut.get("https://example.com/custom/path", null, tokenizationKey, callback = callback)
 
         val request = requestSlot.captured
         assertEquals("https://example.com/custom/path", request.url)
@@ -6,7 +6,10 @@ import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
 import org.robolectric.RobolectricTestRunner
 import io.mockk.*
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
 import org.junit.Test
 import org.junit.runner.RunWith
 import java.util.concurrent.TimeUnit
@@ -59,4 +62,219 @@ class ConfigurationCacheUnitTest {
 
         assertNull(sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(20)))
     }
+
+    @Test
+    fun getCachedConfiguration_whenSnapshotMatchesCachedEntry_returnsSnapshotConfiguration() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 100L
+        every { braintreeSharedPreferences.getString("cacheKey", null) } returns "json"
+        every { snapshotStore.get("cacheKey", 100L, "json") } returns configuration
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+
+        assertSame(configuration, sut.getCachedConfiguration("cacheKey", 200L))
+        verify(exactly = 0) { snapshotStore.put(any(), any(), any()) }
+    }
+
+    @Test
+    fun getCachedConfiguration_whenNoSnapshotMatches_parsesCachedJsonAndReplacesSnapshot() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 100L
+        every { braintreeSharedPreferences.getString("cacheKey", null) } returns configuration.toJson()
+        every { snapshotStore.get("cacheKey", 100L, any()) } returns null
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+        val result = sut.getCachedConfiguration("cacheKey", 200L)
+
+        assertEquals(configuration.toJson(), result?.toJson())
+        verify { snapshotStore.put("cacheKey", 100L, result!!) }
+    }
+
+    @Test
+    fun whenLoaded_waitsForThePreferencesAndTheSnapshots() {
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        val preferencesLoaded = slot<Runnable>()
+        val snapshotsLoaded = slot<Runnable>()
+        every { braintreeSharedPreferences.whenLoaded(capture(preferencesLoaded)) } returns Unit
+        every { snapshotStore.whenLoaded(capture(snapshotsLoaded)) } returns Unit
+        var isLoaded = false
+
+        ConfigurationCache(braintreeSharedPreferences, snapshotStore).whenLoaded { isLoaded = true }
+        preferencesLoaded.captured.run()
+        assertFalse(isLoaded)
+        snapshotsLoaded.captured.run()
+
+        assertTrue(isLoaded)
+    }
+
+    @Test
+    fun getCachedConfiguration_whenCacheEntryExpires_returnsNull() {
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 0L
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+
+        assertNull(sut.getCachedConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(5)))
+        verify(exactly = 0) { snapshotStore.get(any(), any(), any()) }
+    }
+
+    @Test
+    fun saveConfiguration_writesSnapshot() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+        sut.saveConfiguration(configuration, "cacheKey", 123L)
+
+        verify { snapshotStore.put("cacheKey", 123L, configuration) }
+    }
+
+    @Test
+    fun getCachedConfiguration_fromMemory_refreshesSnapshot() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 123L
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+        sut.saveConfiguration(configuration, "cacheKey", 123L)
+        sut.getCachedConfiguration("cacheKey", 200L)
+
+        verify { snapshotStore.refresh("cacheKey", 123L, configuration) }
+    }
+
+    @Test
+    fun getCachedConfiguration_forEachCacheKey_returnsConfigurationFromMemoryAfterFirstRead() {
+        val configurationA = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val configurationB = fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        val snapshotStore: ConfigurationSnapshotStore = mockk(relaxed = true)
+        every { braintreeSharedPreferences.containsKey(any()) } returns true
+        every { braintreeSharedPreferences.getLong("keyA_timestamp") } returns 100L
+        every { braintreeSharedPreferences.getLong("keyB_timestamp") } returns 100L
+        every { braintreeSharedPreferences.getString("keyA", null) } returns configurationA.toJson()
+        every { braintreeSharedPreferences.getString("keyB", null) } returns configurationB.toJson()
+        every { snapshotStore.get(any(), any(), any()) } returns null
+
+        val sut = ConfigurationCache(braintreeSharedPreferences, snapshotStore)
+        val firstA = sut.getCachedConfiguration("keyA", 200L)
+        val firstB = sut.getCachedConfiguration("keyB", 200L)
+
+        assertSame(firstA, sut.getCachedConfiguration("keyA", 300L))
+        assertSame(firstB, sut.getCachedConfiguration("keyB", 300L))
+        verify(exactly = 1) { braintreeSharedPreferences.getString("keyA", null) }
+        verify(exactly = 1) { braintreeSharedPreferences.getString("keyB", null) }
+    }
+
+    @Test
+    fun getCachedConfiguration_afterSaveConfiguration_returnsSavedConfiguration() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 123L
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveConfiguration(configuration, "cacheKey", 123L)
+
+        assertSame(configuration, sut.getCachedConfiguration("cacheKey", 200L))
+        verify(exactly = 0) { braintreeSharedPreferences.getString("cacheKey", any()) }
+    }
+
+    @Test
+    fun saveConfiguration_savesTimeToLive() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveConfiguration(configuration, "cacheKey", 123L, null, TimeUnit.MINUTES.toMillis(30))
+
+        verify { braintreeSharedPreferences.putLong("cacheKey_time_to_live", TimeUnit.MINUTES.toMillis(30)) }
+    }
+
+    @Test
+    fun getCachedConfiguration_usesTheTimeToLiveSavedWithTheConfiguration() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 0L
+        every { braintreeSharedPreferences.getLong("cacheKey_time_to_live") } returns TimeUnit.MINUTES.toMillis(30)
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveConfiguration(configuration, "cacheKey", 0L, null, TimeUnit.MINUTES.toMillis(30))
+
+        assertSame(configuration, sut.getCachedConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(29)))
+        assertNull(sut.getCachedConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(30)))
+    }
+
+    @Test
+    fun saveConfiguration_savesValidators() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveConfiguration(configuration, "cacheKey", 123L, ConfigurationValidators(eTag = "\"v1\""))
+
+        verify { braintreeSharedPreferences.putString("cacheKey_validators", "\"v1\"\n") }
+    }
+
+    @Test
+    fun getValidators_returnsSavedValidatorsEvenIfTheConfigurationHasExpired() {
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 0L
+        every {
+            braintreeSharedPreferences.getString("cacheKey_validators", null)
+        } returns "\"v1\"\nMon, 19 Oct 2026 10:00:00 GMT"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertEquals(
+            ConfigurationValidators(eTag = "\"v1\"", lastModified = "Mon, 19 Oct 2026 10:00:00 GMT"),
+            sut.getValidators("cacheKey")
+        )
+    }
+
+    @Test
+    fun getValidators_whenNoValidatorsWereSaved_returnsNull() {
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getString("cacheKey_validators", null) } returns "\n"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertNull(sut.getValidators("cacheKey"))
+    }
+
+    @Test
+    fun refreshConfiguration_restartsTimeToLiveOfExpiredConfiguration() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val expiredTimestamp = 0L
+        val refreshTimestamp = TimeUnit.MINUTES.toMillis(10)
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns expiredTimestamp
+        every { braintreeSharedPreferences.getString("cacheKey", null) } returns configuration.toJson()
+        every { braintreeSharedPreferences.getString("cacheKey_validators", null) } returns "\"v1\"\n"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        val refreshedConfiguration = sut.refreshConfiguration("cacheKey", refreshTimestamp)
+
+        assertEquals(configuration.toJson(), refreshedConfiguration?.toJson())
+        verify {
+            braintreeSharedPreferences.putStringAndLong(
+                "cacheKey_validators",
+                "\"v1\"\n",
+                "cacheKey_timestamp",
+                refreshTimestamp
+            )
+        }
+
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns refreshTimestamp
+        assertSame(refreshedConfiguration, sut.getCachedConfiguration("cacheKey", refreshTimestamp + 1))
+    }
+
+    @Test
+    fun refreshConfiguration_whenNothingIsCached_returnsNull() {
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns false
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertNull(sut.refreshConfiguration("cacheKey", 100L))
+        verify(exactly = 0) { braintreeSharedPreferences.putStringAndLong(any(), any(), any(), any()) }
+    }
 }
@@ -0,0 +1,61 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONException
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigurationJsonUnitTest {
+
+    @Test
+    fun `reads each top-level value from its own slice`() {
+        val sut = ConfigurationJson(
+            """
+            {
+              "string": "a \"quoted\" value with } and ]",
+              "number": 1.5,
+              "boolean": true,
+              "null": null,
+              "object": {"nested": {"array": [1, "}", {"key": "value"}]}},
+              "array": ["first", "second"],
+              "esc\u0061ped": "key"
+            }
+            """.trimIndent()
+        )
+
+        val values = sut.values("string", "number", "boolean", "null", "escaped", "missing")
+        assertEquals("a \"quoted\" value with } and ]", values.getString("string"))
+        assertEquals(1.5, values.getDouble("number"))
+        assertEquals(true, values.getBoolean("boolean"))
+        assertEquals(true, values.isNull("null"))
+        assertEquals("key", values.getString("escaped"))
+        assertFalse(values.has("missing"))
+        assertEquals("value", sut.optJSONObject("object")?.getJSONObject("nested")?.getJSONArray("array")
+            ?.getJSONObject(2)?.getString("key"))
+        assertEquals("second", sut.optJSONArray("array")?.getString(1))
+        assertNull(sut.optJSONObject("array"))
+        assertNull(sut.optJSONArray("missing"))
+    }
+
+    @Test
+    fun `constructor for an empty object has no values`() {
+        assertFalse(ConfigurationJson(" { } ").values("key").has("key"))
+    }
+
+    @Test
+    fun `constructor throws for JSON that is not a complete object`() {
+        listOf(
+            "",
+            "[]",
+            "{\"key\": \"value\"",
+            "{\"key\": {\"nested\": 1}",
+            "{\"key\" \"value\"}",
+            "{\"key\": \"value}"
+        ).forEach { assertFailsWith<JSONException> { ConfigurationJson(it) } }
+    }
+}
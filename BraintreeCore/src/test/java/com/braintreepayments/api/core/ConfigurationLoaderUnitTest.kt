@@ -14,7 +14,9 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
 import kotlin.test.assertEquals
+import kotlin.test.assertSame
 import kotlin.test.assertTrue
 
 @RunWith(RobolectricTestRunner::class)
@@ -31,6 +33,9 @@ class ConfigurationLoaderUnitTest {
     @Before
     fun setUp() {
         every { merchantRepository.authorization } returns authorization
+        every { configurationCache.getCachedConfiguration(any(), any()) } returns null
+        every { configurationCache.getValidators(any()) } returns null
+        every { configurationCache.whenLoaded(any()) } answers { firstArg<Runnable>().run() }
 
         sut = ConfigurationLoader(
             httpClient = braintreeHttpClient,
@@ -54,6 +59,8 @@ class ConfigurationLoaderUnitTest {
                 expectedConfigUrl,
                 null,
                 authorization,
+                any(),
+                any(),
                 capture(callbackSlot)
             )
         }
@@ -71,6 +78,23 @@ class ConfigurationLoaderUnitTest {
         assertTrue(successSlot.captured is ConfigurationLoaderResult.Success)
     }
 
+    @Test
+    fun loadConfiguration_whenCacheIsStillLoading_readsTheCacheOnceItHasLoaded() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val loadedSlot = slot<Runnable>()
+        every { configurationCache.whenLoaded(capture(loadedSlot)) } returns Unit
+
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 0) { configurationCache.getCachedConfiguration(any(), any()) }
+        verify(exactly = 0) { braintreeHttpClient.get(any(), any(), any(), any(), any(), any()) }
+
+        loadedSlot.captured.run()
+
+        verify { configurationCache.getCachedConfiguration(any(), any()) }
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), any()) }
+    }
+
     @Test
     fun loadConfiguration_savesFetchedConfigurationToCache() {
         every { authorization.configUrl } returns "https://example.com/config"
@@ -85,6 +109,8 @@ class ConfigurationLoaderUnitTest {
                 expectedConfigUrl,
                 null,
                 authorization,
+                any(),
+                any(),
                 capture(callbackSlot)
             )
         }
@@ -101,7 +127,7 @@ class ConfigurationLoaderUnitTest {
         )
 
         verify {
-            configurationCache.saveConfiguration(ofType(Configuration::class), cacheKey)
+            configurationCache.saveConfiguration(ofType(Configuration::class), cacheKey, ConfigurationValidators())
         }
     }
 
@@ -117,6 +143,8 @@ class ConfigurationLoaderUnitTest {
                 ofType(String::class),
                 null,
                 authorization,
+                any(),
+                any(),
                 capture(callbackSlot)
             )
         }
@@ -144,6 +172,8 @@ class ConfigurationLoaderUnitTest {
                 ofType(String::class),
                 null,
                 authorization,
+                any(),
+                any(),
                 capture(callbackSlot)
             )
         }
@@ -185,7 +215,9 @@ class ConfigurationLoaderUnitTest {
         )
         every { authorization.configUrl } returns "https://example.com/config"
         every { authorization.bearer } returns "bearer"
-        every { configurationCache.getConfiguration(cacheKey) } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every {
+            configurationCache.getCachedConfiguration(cacheKey, any())
+        } returns Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
 
         sut.loadConfiguration(callback)
 
@@ -194,6 +226,8 @@ class ConfigurationLoaderUnitTest {
                 ofType(String::class),
                 null,
                 authorization,
+                any(),
+                any(),
                 ofType(NetworkResponseCallback::class)
             )
         }
@@ -218,6 +252,8 @@ class ConfigurationLoaderUnitTest {
                 expectedConfigUrl,
                 null,
                 authorization,
+                any(),
+                any(),
                 capture(callbackSlot)
             )
         }
@@ -229,17 +265,7 @@ class ConfigurationLoaderUnitTest {
             )
         )
 
-        verify {
-            analyticsClient.sendEvent(
-                eventName = CoreAnalytics.API_REQUEST_LATENCY,
-                analyticsEventParams = AnalyticsEventParams(
-                    startTime = 0,
-                    endTime = 10,
-                    endpoint = "/v1/configuration"
-                ),
-                sendImmediately = false
-            )
-        }
+        verify { analyticsClient.recordLatency("/v1/configuration", HttpResponseTiming(0, 10)) }
 
         val successSlot = slot<ConfigurationLoaderResult>()
         verify { callback.onResult(capture(successSlot)) }
@@ -275,4 +301,149 @@ class ConfigurationLoaderUnitTest {
         assertTrue(failure.error is ConfigurationException)
         assertEquals("Configuration responseBody is null", failure.error.message)
     }
+
+    @Test
+    fun `when the fetched configuration has validators, they are saved with it`() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(
+                HttpResponse(
+                    body = Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN,
+                    timing = HttpResponseTiming(0, 0),
+                    headers = mapOf("ETag" to "\"v1\"", "Last-Modified" to "Mon, 19 Oct 2026 10:00:00 GMT")
+                )
+            )
+        )
+
+        verify {
+            configurationCache.saveConfiguration(
+                ofType(Configuration::class),
+                createCacheKey(),
+                ConfigurationValidators(eTag = "\"v1\"", lastModified = "Mon, 19 Oct 2026 10:00:00 GMT")
+            )
+        }
+    }
+
+    @Test
+    fun `when an expired configuration has validators, the request is conditional`() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every {
+            configurationCache.getValidators(createCacheKey())
+        } returns ConfigurationValidators(eTag = "\"v1\"", lastModified = "Mon, 19 Oct 2026 10:00:00 GMT")
+
+        sut.loadConfiguration(callback)
+
+        val expectedHeaders = mapOf(
+            "If-None-Match" to "\"v1\"",
+            "If-Modified-Since" to "Mon, 19 Oct 2026 10:00:00 GMT"
+        )
+        verify { braintreeHttpClient.get(any(), null, authorization, expectedHeaders, any(), any()) }
+    }
+
+    @Test
+    fun `when the configuration has not been modified, the cached configuration is refreshed and returned`() {
+        val cachedConfiguration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getValidators(createCacheKey()) } returns ConfigurationValidators(eTag = "\"v1\"")
+        every { configurationCache.refreshConfiguration(createCacheKey(), any()) } returns cachedConfiguration
+
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(
+                HttpResponse(timing = HttpResponseTiming(0, 10), statusCode = 304)
+            )
+        )
+
+        val successSlot = slot<ConfigurationLoaderResult>()
+        verify { callback.onResult(capture(successSlot)) }
+        assertSame(cachedConfiguration, (successSlot.captured as ConfigurationLoaderResult.Success).configuration)
+        verify(exactly = 0) { configurationCache.saveConfiguration(any(), any(), any<ConfigurationValidators>()) }
+        verify { analyticsClient.recordLatency("/v1/configuration", HttpResponseTiming(0, 10)) }
+    }
+
+    @Test
+    fun `when the configuration has not been modified but is no longer cached, it is fetched unconditionally`() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getValidators(createCacheKey()) } returns ConfigurationValidators(eTag = "\"v1\"")
+        every { configurationCache.refreshConfiguration(createCacheKey(), any()) } returns null
+
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(
+                HttpResponse(timing = HttpResponseTiming(0, 10), statusCode = 304)
+            )
+        )
+
+        verify { braintreeHttpClient.get(any(), null, authorization, emptyMap(), any(), any()) }
+        verify(exactly = 0) { callback.onResult(any()) }
+    }
+
+    @Test
+    fun `refreshConfiguration fetches an unexpired configuration and caches it for the given time`() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getCachedConfiguration(any(), any()) } returns
+            Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+
+        sut.refreshConfiguration(TimeUnit.MINUTES.toMillis(30), callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(
+                HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 0))
+            )
+        )
+
+        verify {
+            configurationCache.saveConfiguration(
+                ofType(Configuration::class),
+                createCacheKey(),
+                ConfigurationValidators(),
+                TimeUnit.MINUTES.toMillis(30)
+            )
+        }
+    }
+
+    @Test
+    fun `refreshConfiguration when not modified restarts the cached configuration for the given time`() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { configurationCache.getValidators(createCacheKey()) } returns ConfigurationValidators(eTag = "\"v1\"")
+        every { configurationCache.refreshConfiguration(createCacheKey(), any(), any()) } returns
+            Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+
+        sut.refreshConfiguration(TimeUnit.MINUTES.toMillis(30), callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify { braintreeHttpClient.get(any(), null, authorization, any(), any(), capture(callbackSlot)) }
+        callbackSlot.captured.onResult(
+            NetworkResponseCallback.Result.Success(
+                HttpResponse(timing = HttpResponseTiming(0, 10), statusCode = 304)
+            )
+        )
+
+        verify { configurationCache.refreshConfiguration(createCacheKey(), any(), TimeUnit.MINUTES.toMillis(30)) }
+        verify { callback.onResult(ofType(ConfigurationLoaderResult.Success::class)) }
+    }
+
+    private fun createCacheKey() = Base64.encodeToString(
+        "https://example.com/config?configVersion=3bearer".toByteArray(),
+        0
+    )
 }
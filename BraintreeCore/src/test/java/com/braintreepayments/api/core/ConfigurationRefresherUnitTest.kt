@@ -0,0 +1,244 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequest
+import androidx.work.WorkManager
+import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import com.braintreepayments.api.sharedutils.Time
+import com.braintreepayments.api.testutils.Fixtures
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import io.mockk.verifyOrder
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigurationRefresherUnitTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val sharedPreferences: BraintreeSharedPreferences = mockk(relaxed = true)
+    private val workManager: WorkManager = mockk(relaxed = true)
+    private val time: Time = mockk()
+    private var loaderMerchantRepository: MerchantRepository? = null
+    private var timeoutSeconds = 60L
+
+    private lateinit var configurationLoader: ConfigurationLoader
+    private lateinit var sut: ConfigurationRefresher
+
+    @Before
+    fun beforeEach() {
+        every { time.currentTime } returns 1_000_000L
+        every { sharedPreferences.whenLoaded(any()) } answers { firstArg<Runnable>().run() }
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns true
+        configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ENVIRONMENT))
+            .build()
+
+        sut = createSut()
+    }
+
+    private fun createSut() = ConfigurationRefresher(
+        applicationContext = context,
+        sharedPreferences = sharedPreferences,
+        workManagerProvider = { workManager },
+        configurationLoaderProvider = { merchantRepository ->
+            loaderMerchantRepository = merchantRepository
+            configurationLoader
+        },
+        time = time,
+        timeoutSeconds = timeoutSeconds
+    )
+
+    @Test
+    fun `setLastAuthorization stores the tokenization key only when it changes`() {
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.TOKENIZATION_KEY
+
+        sut.setLastAuthorization(Authorization.fromString(Fixtures.TOKENIZATION_KEY))
+        sut.setLastAuthorization(Authorization.fromString("invalid"))
+
+        verify(exactly = 0) { sharedPreferences.putString(any(), any()) }
+    }
+
+    @Test
+    fun `setLastAuthorization stores the tokenization key when background refresh is enabled`() {
+        sut.setLastAuthorization(Authorization.fromString(Fixtures.TOKENIZATION_KEY))
+
+        verify { sharedPreferences.putString(AUTHORIZATION_KEY, Fixtures.TOKENIZATION_KEY) }
+    }
+
+    @Test
+    fun `setLastAuthorization does not store the authorization when background refresh is disabled`() {
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns false
+
+        sut.setLastAuthorization(Authorization.fromString(Fixtures.TOKENIZATION_KEY))
+
+        verify(exactly = 0) { sharedPreferences.putString(any(), any()) }
+    }
+
+    @Test
+    fun `setLastAuthorization does not store client tokens`() {
+        sut.setLastAuthorization(Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN))
+
+        verify(exactly = 0) { sharedPreferences.putString(any(), any()) }
+    }
+
+    @Test
+    fun `enable stores the last tokenization key`() {
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns false
+        sut.setLastAuthorization(Authorization.fromString(Fixtures.TOKENIZATION_KEY))
+
+        sut.enable()
+
+        verify { sharedPreferences.putString(AUTHORIZATION_KEY, Fixtures.TOKENIZATION_KEY) }
+    }
+
+    @Test
+    fun `enable schedules a periodic refresh that requires a network and a battery that is not low`() {
+        val requestSlot = slot<PeriodicWorkRequest>()
+
+        sut.enable()
+
+        verify { sharedPreferences.putBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED", true) }
+        verify {
+            workManager.enqueueUniquePeriodicWork(
+                "com.braintreepayments.api.CONFIGURATION_REFRESH",
+                ExistingPeriodicWorkPolicy.KEEP,
+                capture(requestSlot)
+            )
+        }
+        val constraints = requestSlot.captured.workSpec.constraints
+        assertEquals(NetworkType.CONNECTED, constraints.requiredNetworkType)
+        assertTrue(constraints.requiresBatteryNotLow())
+    }
+
+    @Test
+    fun `disable cancels the periodic refresh and clears the stored authorization`() {
+        sut.disable()
+
+        verify { sharedPreferences.putBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED", false) }
+        verify { sharedPreferences.putString(AUTHORIZATION_KEY, "") }
+        verify { workManager.cancelUniqueWork("com.braintreepayments.api.CONFIGURATION_REFRESH") }
+    }
+
+    @Test
+    fun `refresh fetches the configuration of the last tokenization key and records the refresh time`() {
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.TOKENIZATION_KEY
+
+        assertTrue(sut.refresh())
+
+        val merchantRepository = loaderMerchantRepository!!
+        assertEquals(Fixtures.TOKENIZATION_KEY, merchantRepository.authorization.toString())
+        assertSame(context, merchantRepository.applicationContext)
+        verify { configurationLoader.refreshConfiguration(TimeUnit.MINUTES.toMillis(30), any()) }
+        verify { sharedPreferences.putLong("com.braintreepayments.api.CONFIGURATION_REFRESH_TIME", 1_000_000L) }
+    }
+
+    @Test
+    fun `refresh returns false and does not record the refresh time when the configuration fails to load`() {
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.TOKENIZATION_KEY
+        configurationLoader = MockkConfigurationLoaderBuilder()
+            .configurationError(ConfigurationException("error"))
+            .build()
+
+        assertFalse(sut.refresh())
+
+        verify(exactly = 0) { sharedPreferences.putLong(any(), any()) }
+    }
+
+    @Test
+    fun `refresh returns false when the configuration does not load before the timeout`() {
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.TOKENIZATION_KEY
+        configurationLoader = mockk(relaxed = true)
+        timeoutSeconds = 0
+        sut = createSut()
+
+        assertFalse(sut.refresh())
+
+        verify(exactly = 0) { sharedPreferences.putLong(any(), any()) }
+    }
+
+    @Test
+    fun `refresh does nothing when no authorization has been stored`() {
+        every { sharedPreferences.getString(any(), null) } returns ""
+
+        assertTrue(sut.refresh())
+
+        verify(exactly = 0) { configurationLoader.refreshConfiguration(any(), any()) }
+    }
+
+    @Test
+    fun `refresh does nothing when background refresh is disabled`() {
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns false
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.TOKENIZATION_KEY
+
+        assertTrue(sut.refresh())
+
+        verify(exactly = 0) { configurationLoader.refreshConfiguration(any(), any()) }
+    }
+
+    @Test
+    fun `refresh drops a stored client token instead of refreshing it`() {
+        every { sharedPreferences.getString(AUTHORIZATION_KEY, null) } returns Fixtures.BASE64_CLIENT_TOKEN
+
+        assertTrue(sut.refresh())
+
+        verify { sharedPreferences.putString(AUTHORIZATION_KEY, "") }
+        verify(exactly = 0) { configurationLoader.refreshConfiguration(any(), any()) }
+    }
+
+    @Test
+    fun `getLastRefreshAgeMillis returns the time since the last refresh when enabled`() {
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns true
+        every { sharedPreferences.containsKey("com.braintreepayments.api.CONFIGURATION_REFRESH_TIME") } returns true
+        every { sharedPreferences.getLong("com.braintreepayments.api.CONFIGURATION_REFRESH_TIME") } returns 940_000L
+
+        var age: Long? = null
+        sut.getLastRefreshAgeMillis { age = it }
+
+        assertEquals(60_000L, age)
+    }
+
+    @Test
+    fun `getLastRefreshAgeMillis returns null when background refresh is disabled`() {
+        every { sharedPreferences.getBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED") } returns false
+        every { sharedPreferences.containsKey("com.braintreepayments.api.CONFIGURATION_REFRESH_TIME") } returns true
+
+        var age: Long? = 0L
+        sut.getLastRefreshAgeMillis { age = it }
+
+        assertNull(age)
+    }
+
+    @Test
+    fun `enable and disable write the preferences only once they have loaded`() {
+        val pending = mutableListOf<Runnable>()
+        every { sharedPreferences.whenLoaded(any()) } answers { pending.add(firstArg()) }
+
+        sut.enable()
+        sut.disable()
+
+        verify(exactly = 0) { sharedPreferences.putBoolean(any(), any()) }
+        pending.forEach { it.run() }
+        verifyOrder {
+            sharedPreferences.putBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED", true)
+            sharedPreferences.putBoolean("com.braintreepayments.api.CONFIGURATION_REFRESH_ENABLED", false)
+        }
+    }
+
+    companion object {
+        private const val AUTHORIZATION_KEY = "com.braintreepayments.api.CONFIGURATION_REFRESH_AUTHORIZATION"
+    }
+}
@@ -0,0 +1,248 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.testutils.Fixtures
+import org.json.JSONObject
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.DataOutputStream
+import java.io.File
+import java.util.concurrent.Executor
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class ConfigurationSnapshotStoreUnitTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val executor = Executor { it.run() }
+    private lateinit var snapshotDirectory: File
+
+    @Before
+    fun beforeEach() {
+        snapshotDirectory = File(temporaryFolder.root, "snapshots")
+    }
+
+    private fun createSut() = ConfigurationSnapshotStore({ snapshotDirectory }, executor)
+
+    private fun snapshotFiles() = snapshotDirectory.listFiles().orEmpty().toList()
+
+    @Test
+    fun `get when no snapshot has been written returns null`() {
+        assertNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+    }
+
+    @Test
+    fun `put writes a snapshot that is read back by a new store`() {
+        val fixtures = listOf(
+            Fixtures.CONFIGURATION_WITH_GOOGLE_PAY,
+            Fixtures.CONFIGURATION_WITH_GRAPHQL,
+            Fixtures.CONFIGURATION_WITH_LIVE_PAYPAL,
+            Fixtures.CONFIGURATION_WITH_VISA_CHECKOUT,
+            Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        )
+
+        fixtures.forEach { fixture ->
+            val configuration = Configuration.fromJson(fixture)
+            // only some sections have been read when the snapshot is written
+            configuration.supportedCardTypes
+            configuration.isGraphQLEnabled
+            createSut().put("cacheKey", 123L, configuration)
+
+            val restored = assertNotNull(createSut().get("cacheKey", 123L, fixture))
+            assertEquals(configuration.toJson(), restored.toJson())
+            assertEquals(configuration.clientApiUrl, restored.clientApiUrl)
+            assertEquals(configuration.environment, restored.environment)
+            assertEquals(configuration.merchantId, restored.merchantId)
+            assertEquals(configuration.isGooglePayEnabled, restored.isGooglePayEnabled)
+            assertEquals(configuration.googlePaySupportedNetworks, restored.googlePaySupportedNetworks)
+            assertEquals(configuration.graphQLUrl, restored.graphQLUrl)
+            assertEquals(configuration.isGraphQLEnabled, restored.isGraphQLEnabled)
+            assertEquals(
+                configuration.isGraphQLFeatureEnabled("tokenize_credit_cards"),
+                restored.isGraphQLFeatureEnabled("tokenize_credit_cards")
+            )
+            assertEquals(configuration.payPalClientId, restored.payPalClientId)
+            assertEquals(configuration.isPayPalEnabled, restored.isPayPalEnabled)
+            assertEquals(configuration.visaCheckoutSupportedNetworks, restored.visaCheckoutSupportedNetworks)
+            assertEquals(configuration.supportedCardTypes, restored.supportedCardTypes)
+            assertEquals(configuration.isCvvChallengePresent, restored.isCvvChallengePresent)
+        }
+    }
+
+    @Test
+    fun `put does not write the JSON of the configuration`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        createSut().put("cacheKey", 123L, configuration)
+
+        val snapshot = snapshotFiles().single().readText(Charsets.ISO_8859_1)
+        assertFalse(snapshot.contains(configuration.toJson()))
+        assertTrue(snapshot.length < configuration.toJson().length)
+    }
+
+    @Test
+    fun `put writes the analytics sampling policies of the configuration`() {
+        val json = JSONObject(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY).put(
+            "analytics",
+            JSONObject().put(
+                "eventSampling",
+                JSONObject()
+                    .put("event-a", JSONObject().put("sampleRate", 0.25))
+                    .put("event-b", JSONObject().put("sampleRate", 0.5).put("maxEventsPerMinute", 10))
+            )
+        ).toString()
+        val configuration = Configuration.fromJson(json)
+        configuration.analyticsSamplingPolicies
+        createSut().put("cacheKey", 123L, configuration)
+
+        val restored = assertNotNull(createSut().get("cacheKey", 123L, json))
+
+        assertEquals(
+            mapOf(
+                "event-a" to AnalyticsSamplingPolicy(sampleRate = 0.25),
+                "event-b" to AnalyticsSamplingPolicy(sampleRate = 0.5, maxEventsPerMinute = 10)
+            ),
+            restored.analyticsSamplingPolicies
+        )
+    }
+
+    @Test
+    fun `refresh after sections have been parsed writes them to the snapshot`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        val sut = createSut()
+        sut.put("cacheKey", 123L, configuration)
+
+        configuration.googlePaySupportedNetworks
+        configuration.supportedCardTypes
+        sut.refresh("cacheKey", 123L, configuration)
+
+        val restored = assertNotNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        assertEquals(configuration.parsedSectionCount, restored.parsedSectionCount)
+        assertEquals(configuration.googlePaySupportedNetworks, restored.googlePaySupportedNetworks)
+    }
+
+    @Test
+    fun `refresh when no section has been parsed since the snapshot does not write it again`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        configuration.supportedCardTypes
+        val pendingTasks = mutableListOf<Runnable>()
+        val sut = ConfigurationSnapshotStore({ snapshotDirectory }, { pendingTasks.add(it) })
+        sut.put("cacheKey", 123L, configuration)
+        pendingTasks.clear()
+
+        sut.refresh("cacheKey", 123L, configuration)
+
+        assertTrue(pendingTasks.isEmpty())
+    }
+
+    @Test
+    fun `refresh of a configuration read from its snapshot does not write it again`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        configuration.supportedCardTypes
+        createSut().put("cacheKey", 123L, configuration)
+        val pendingTasks = mutableListOf<Runnable>()
+        val sut = ConfigurationSnapshotStore({ snapshotDirectory }, { pendingTasks.add(it) })
+        pendingTasks.forEach { it.run() }
+        pendingTasks.clear()
+        val restored = assertNotNull(sut.get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+
+        sut.refresh("cacheKey", 123L, restored)
+
+        assertTrue(pendingTasks.isEmpty())
+    }
+
+    @Test
+    fun `put keeps a snapshot per cache key up to the maximum`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        val sut = createSut()
+        val cacheKeys = (0..ConfigurationSnapshotStore.MAX_SNAPSHOTS).map { "cacheKey$it" }
+        cacheKeys.forEach { cacheKey ->
+            sut.put(cacheKey, 123L, configuration)
+            snapshotFiles().forEach { it.setLastModified(it.lastModified() - 1000) }
+        }
+
+        val restoredStore = createSut()
+        assertEquals(ConfigurationSnapshotStore.MAX_SNAPSHOTS, snapshotFiles().size)
+        assertNull(restoredStore.get(cacheKeys.first(), 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        cacheKeys.drop(1).forEach {
+            assertNotNull(restoredStore.get(it, 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        }
+    }
+
+    @Test
+    fun `get for a different cache key or timestamp returns null`() {
+        createSut().put("cacheKey", 123L, Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        val sut = createSut()
+
+        assertNull(sut.get("otherCacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        assertNull(sut.get("cacheKey", 456L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+    }
+
+    @Test
+    fun `get before the snapshots have been read returns null without waiting`() {
+        createSut().put("cacheKey", 123L, Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        val pendingTasks = mutableListOf<Runnable>()
+        val sut = ConfigurationSnapshotStore({ snapshotDirectory }, { pendingTasks.add(it) })
+        var isLoaded = false
+        sut.whenLoaded { isLoaded = true }
+
+        assertNull(sut.get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        assertFalse(isLoaded)
+
+        pendingTasks.forEach { it.run() }
+        assertTrue(isLoaded)
+        assertNotNull(sut.get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+    }
+
+    @Test
+    fun `get when the snapshot was written by a different format version returns null`() {
+        snapshotDirectory.mkdirs()
+        DataOutputStream(File(snapshotDirectory, "snapshot.snapshot").outputStream()).use { output ->
+            output.writeInt(0x42544346)
+            output.writeInt(Int.MAX_VALUE)
+            output.writeUTF(BuildConfig.VERSION_NAME)
+            output.writeUTF("cacheKey")
+            output.writeLong(123L)
+        }
+
+        assertNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        assertTrue(snapshotFiles().isEmpty())
+    }
+
+    @Test
+    fun `get when the snapshot was written by a different SDK version returns null`() {
+        createSut().put("cacheKey", 123L, Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+        val snapshotFile = snapshotFiles().single()
+        val bytes = snapshotFile.readBytes()
+        DataOutputStream(snapshotFile.outputStream()).use { output ->
+            output.write(bytes, 0, 8)
+            output.writeUTF("0.0.0")
+        }
+
+        assertNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+    }
+
+    @Test
+    fun `get when the snapshot is truncated or corrupt returns null`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        configuration.googlePaySupportedNetworks
+        createSut().put("cacheKey", 123L, configuration)
+        val snapshotFile = snapshotFiles().single()
+        val bytes = snapshotFile.readBytes()
+
+        snapshotFile.writeBytes(bytes.copyOf(bytes.size - 4))
+        assertNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+
+        // values that can't be decoded
+        snapshotFile.writeBytes(bytes.copyOf().also { it.fill(0x7f, fromIndex = bytes.size - 32) })
+        assertNull(createSut().get("cacheKey", 123L, Fixtures.CONFIGURATION_WITH_GOOGLE_PAY))
+    }
+}
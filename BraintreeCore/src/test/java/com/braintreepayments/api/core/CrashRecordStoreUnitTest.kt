@@ -0,0 +1,115 @@
+package com.braintreepayments.api.core
+
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.DataOutputStream
+import java.io.File
+import java.util.concurrent.Executor
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CrashRecordStoreUnitTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val executor = Executor { it.run() }
+    private lateinit var recordFile: File
+
+    @Before
+    fun beforeEach() {
+        recordFile = File(temporaryFolder.root, "crash_records")
+    }
+
+    private fun createSut() = CrashRecordStore({ recordFile }, executor)
+
+    @Test
+    fun `takePendingRecords when no crash has been recorded returns an empty list`() {
+        assertEquals(emptyList(), createSut().takePendingRecords())
+    }
+
+    @Test
+    fun `write records crashes that are returned by a new store`() {
+        val previousSession = createSut()
+        previousSession.write(CrashRecord(timestamp = 123L, sessionId = "session-id", cause = CrashRecord.CAUSE_PAYPAL))
+        previousSession.write(CrashRecord(timestamp = 456L))
+
+        val records = createSut().takePendingRecords()
+
+        assertEquals(listOf(CrashRecord(123L, "session-id", CrashRecord.CAUSE_PAYPAL), CrashRecord(456L)), records)
+    }
+
+    @Test
+    fun `records written by earlier versions are read with their timestamp`() {
+        DataOutputStream(recordFile.outputStream()).use {
+            it.writeByte(1)
+            it.writeLong(123L)
+        }
+
+        assertEquals(listOf(CrashRecord(123L)), createSut().takePendingRecords())
+    }
+
+    @Test
+    fun `write does not add to the records pending in the current session`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+        val sut = createSut()
+
+        sut.write(CrashRecord(timestamp = 456L))
+
+        assertEquals(listOf(CrashRecord(123L)), sut.takePendingRecords())
+    }
+
+    @Test
+    fun `takePendingRecords returns the pending records only once`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+        val sut = createSut()
+
+        sut.takePendingRecords()
+
+        assertEquals(emptyList(), sut.takePendingRecords())
+    }
+
+    @Test
+    fun `takePendingRecords keeps the taken records on disk until they are removed`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+
+        val records = createSut().takePendingRecords()
+
+        assertTrue(recordFile.exists())
+        createSut().remove(records)
+        assertFalse(recordFile.exists())
+        assertEquals(emptyList(), createSut().takePendingRecords())
+    }
+
+    @Test
+    fun `release hands the records out again`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+        val sut = createSut()
+
+        sut.release(sut.takePendingRecords())
+
+        assertEquals(listOf(CrashRecord(123L)), sut.takePendingRecords())
+    }
+
+    @Test
+    fun `remove keeps records written in the current session for the next session`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+        val sut = createSut()
+        sut.write(CrashRecord(timestamp = 456L))
+
+        sut.remove(sut.takePendingRecords())
+
+        assertEquals(listOf(CrashRecord(456L)), createSut().takePendingRecords())
+    }
+
+    @Test
+    fun `a record cut short by the process dying is ignored`() {
+        createSut().write(CrashRecord(timestamp = 123L))
+        recordFile.appendBytes(byteArrayOf(1, 0, 0))
+
+        assertEquals(listOf(CrashRecord(123L)), createSut().takePendingRecords())
+    }
+}
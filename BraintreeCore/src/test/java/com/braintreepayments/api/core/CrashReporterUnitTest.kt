@@ -81,7 +81,7 @@ class CrashReporterUnitTest {
         sut.start()
         sut.uncaughtException(thread, exception)
 
-        verify { braintreeClient.reportCrash() }
+        verify { braintreeClient.reportCrash(CrashRecord.CAUSE_BRAINTREE) }
         verify { defaultExceptionHandler.uncaughtException(thread, exception) }
     }
 
@@ -100,7 +100,33 @@ class CrashReporterUnitTest {
         sut.start()
         sut.uncaughtException(thread, exception)
 
-        verify { braintreeClient.reportCrash() }
+        verify { braintreeClient.reportCrash(CrashRecord.CAUSE_PAYPAL) }
         verify { defaultExceptionHandler.uncaughtException(thread, exception) }
     }
+
+    @Test
+    fun uncaughtExceptionHandler_whenCauseUnknown_doesNotReportCrash() {
+        Thread.setDefaultUncaughtExceptionHandler(defaultExceptionHandler)
+        val exception = Exception("com.braintreepayments in a message is ignored")
+        exception.stackTrace = arrayOf(StackTraceElement("com.example.App", "test", "test", 1))
+        val sut = CrashReporter(braintreeClient)
+        sut.start()
+        sut.uncaughtException(mockk(), exception)
+
+        verify(exactly = 0) { braintreeClient.reportCrash(any()) }
+    }
+
+    @Test
+    fun uncaughtExceptionHandler_whenBraintreeInCauseStackTrace_reportsCrash() {
+        Thread.setDefaultUncaughtExceptionHandler(defaultExceptionHandler)
+        val cause = IllegalStateException()
+        cause.stackTrace = arrayOf(StackTraceElement("com.braintreepayments.api.Card", "test", "test", 1))
+        val exception = RuntimeException(cause)
+        exception.stackTrace = arrayOf(StackTraceElement("com.example.App", "test", "test", 1))
+        val sut = CrashReporter(braintreeClient)
+        sut.start()
+        sut.uncaughtException(mockk(), exception)
+
+        verify { braintreeClient.reportCrash(CrashRecord.CAUSE_BRAINTREE) }
+    }
 }
@@ -0,0 +1,46 @@
+package com.braintreepayments.api.core
+
+import org.junit.Test
+import kotlin.test.assertEquals
+
+class EndpointNormalizerUnitTest {
+
+    private val sut = EndpointNormalizer()
+
+    @Test
+    fun `normalize removes the merchant path`() {
+        assertEquals(
+            "/v1/payment_methods/credit_cards",
+            sut.normalize("/merchants/abc123/client_api/v1/payment_methods/credit_cards")
+        )
+    }
+
+    @Test
+    fun `normalize removes the payment method nonce from 3DS paths`() {
+        assertEquals(
+            "/v1/payment_methods/three_d_secure/lookup",
+            sut.normalize("/merchants/abc123/client_api/v1/payment_methods/nonce-123/three_d_secure/lookup")
+        )
+    }
+
+    @Test
+    fun `normalize returns the same template when called again`() {
+        val endpoint = "/merchants/abc123/client_api/v1/configuration"
+
+        assertEquals(sut.normalize(endpoint), sut.normalize(endpoint))
+        assertEquals("/v1/configuration", sut.normalize(endpoint))
+    }
+
+    @Test
+    fun `graphQLOperation returns the query up to its variables`() {
+        assertEquals(
+            "mutation TokenizeCreditCard",
+            sut.graphQLOperation("mutation TokenizeCreditCard(\$input: TokenizeCreditCardInput!) { }")
+        )
+    }
+
+    @Test
+    fun `graphQLOperation returns a query without variables unchanged`() {
+        assertEquals("query ClientConfiguration { }", sut.graphQLOperation("query ClientConfiguration { }"))
+    }
+}
@@ -0,0 +1,56 @@
+package com.braintreepayments.api.core
+
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class LatencyHistogramUnitTest {
+
+    @Test
+    fun `valueAtPercentile when nothing has been recorded returns 0`() {
+        assertEquals(0L, LatencyHistogram().valueAtPercentile(50.0))
+    }
+
+    @Test
+    fun `small values are recorded exactly`() {
+        val sut = LatencyHistogram()
+        (1L..10L).forEach { sut.record(it) }
+
+        assertEquals(10, sut.count)
+        assertEquals(5L, sut.valueAtPercentile(50.0))
+        assertEquals(9L, sut.valueAtPercentile(90.0))
+        assertEquals(10L, sut.valueAtPercentile(100.0))
+    }
+
+    @Test
+    fun `large values are reported within the bucket precision`() {
+        val sut = LatencyHistogram()
+        (1L..1000L).forEach { sut.record(it) }
+
+        assertWithinPrecision(500L, sut.valueAtPercentile(50.0))
+        assertWithinPrecision(990L, sut.valueAtPercentile(99.0))
+        assertEquals(1000L, sut.maxMillis)
+    }
+
+    @Test
+    fun `valueAtPercentile never exceeds the largest recorded value`() {
+        val sut = LatencyHistogram()
+        sut.record(1001L)
+
+        assertEquals(1001L, sut.valueAtPercentile(99.0))
+    }
+
+    @Test
+    fun `record clamps negative and very large values`() {
+        val sut = LatencyHistogram()
+        sut.record(-5L)
+        sut.record(Long.MAX_VALUE)
+
+        assertEquals(0L, sut.valueAtPercentile(50.0))
+        assertEquals((1L shl 20) - 1, sut.maxMillis)
+    }
+
+    private fun assertWithinPrecision(expected: Long, actual: Long) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16, "$actual is not close to $expected")
+    }
+}
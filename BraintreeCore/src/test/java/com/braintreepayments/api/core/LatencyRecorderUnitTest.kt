@@ -0,0 +1,64 @@
+package com.braintreepayments.api.core
+
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class LatencyRecorderUnitTest {
+
+    private val sut = LatencyRecorder(interval = 1000)
+
+    @Test
+    fun `takeSummaries when nothing has been recorded returns an empty list`() {
+        assertEquals(emptyList(), sut.takeSummaries(currentTime = 5000))
+    }
+
+    @Test
+    fun `takeSummaries before the interval has elapsed returns an empty list`() {
+        sut.record("/v1/payment_methods", durationMillis = 100, currentTime = 1000)
+
+        assertEquals(emptyList(), sut.takeSummaries(currentTime = 1999))
+    }
+
+    @Test
+    fun `takeSummaries after the interval has elapsed returns a summary per endpoint`() {
+        sut.record("/v1/payment_methods", durationMillis = 100, currentTime = 1000)
+        sut.record("/v1/payment_methods", durationMillis = 12, currentTime = 1200)
+        sut.record("/v1/configuration", durationMillis = 7, currentTime = 1500)
+
+        val summaries = sut.takeSummaries(currentTime = 2000).sortedBy { it.endpoint }
+
+        assertEquals(
+            listOf(
+                LatencySummary("/v1/configuration", 1000, 2000, 1, 7, 7, 7, 7),
+                LatencySummary("/v1/payment_methods", 1000, 2000, 2, 12, 100, 100, 100),
+            ),
+            summaries
+        )
+    }
+
+    @Test
+    fun `takeSummaries starts a new interval at the next recorded latency`() {
+        sut.record("/v1/payment_methods", durationMillis = 100, currentTime = 1000)
+        sut.takeSummaries(currentTime = 2000)
+
+        sut.record("/v1/payment_methods", durationMillis = 10, currentTime = 5000)
+
+        assertEquals(emptyList(), sut.takeSummaries(currentTime = 5500))
+        assertEquals(
+            listOf(LatencySummary("/v1/payment_methods", 5000, 6000, 1, 10, 10, 10, 10)),
+            sut.takeSummaries(currentTime = 6000)
+        )
+    }
+
+    @Test
+    fun `record returns whether the latency started a new interval`() {
+        assertTrue(sut.record("/v1/payment_methods", durationMillis = 100, currentTime = 1000))
+        assertFalse(sut.record("/v1/configuration", durationMillis = 7, currentTime = 1500))
+
+        sut.takeSummaries(currentTime = 2000)
+
+        assertTrue(sut.record("/v1/payment_methods", durationMillis = 10, currentTime = 5000))
+    }
+}
@@ -0,0 +1,64 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.testutils.Fixtures
+import org.junit.Test
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class MerchantContextUnitTest {
+
+    @Test
+    fun `forAuthorization returns the same context for the same authorization`() {
+        val authorization = Authorization.fromString("sandbox_tk_merchant_a")
+
+        assertSame(
+            MerchantContext.forAuthorization(authorization),
+            MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_merchant_a"))
+        )
+    }
+
+    @Test
+    fun `forAuthorization returns separate contexts for different authorizations`() {
+        val contextA = MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_merchant_b"))
+        val contextB = MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_merchant_c"))
+
+        assertNotSame(contextA, contextB)
+        assertNotSame(contextA.merchantRepository, contextB.merchantRepository)
+        assertNotSame(contextA.analyticsParamRepository, contextB.analyticsParamRepository)
+        assertNotSame(contextA.analyticsEventRepository, contextB.analyticsEventRepository)
+        assertNotSame(contextA.latencyRecorder, contextB.latencyRecorder)
+        assertNotSame(contextA.analyticsSampler, contextB.analyticsSampler)
+        assertNotSame(contextA.configurationLoader, contextB.configurationLoader)
+    }
+
+    @Test
+    fun `forAuthorization returns the same context for client tokens with the same bearer`() {
+        val clientToken = Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN)
+
+        assertSame(
+            MerchantContext.forAuthorization(clientToken),
+            MerchantContext.forAuthorization(Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN))
+        )
+    }
+
+    @Test
+    fun `forAuthorization keeps only the contexts of the authorizations used most recently`() {
+        val first = MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_evicted"))
+        repeat(MerchantContext.MAX_CONTEXTS) {
+            MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_merchant_$it"))
+        }
+
+        assertNotSame(first, MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_evicted")))
+    }
+
+    @Test
+    fun `forAuthorization does not reuse the process-wide singletons`() {
+        val context = MerchantContext.forAuthorization(Authorization.fromString("sandbox_tk_merchant_d"))
+
+        assertSame(context, MerchantContext.lastUsed)
+        assertNotSame(MerchantRepository.instance, context.merchantRepository)
+        assertNotSame(AnalyticsParamRepository.instance, context.analyticsParamRepository)
+        assertNotSame(LatencyRecorder.instance, context.latencyRecorder)
+        assertNotSame(AnalyticsSampler.instance, context.analyticsSampler)
+    }
+}
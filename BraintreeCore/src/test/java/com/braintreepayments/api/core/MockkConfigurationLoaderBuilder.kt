@@ -21,13 +21,19 @@ internal class MockkConfigurationLoaderBuilder {
     fun build(): ConfigurationLoader {
         val configurationLoader = mockk<ConfigurationLoader>(relaxed = true)
         every { configurationLoader.loadConfiguration(any()) } answers {
-            val callback = firstArg<ConfigurationLoaderCallback>()
-            configuration?.let {
-                callback.onResult(ConfigurationLoaderResult.Success(it))
-            } ?: run {
-                callback.onResult(ConfigurationLoaderResult.Failure(configurationError))
-            }
+            deliver(firstArg())
+        }
+        every { configurationLoader.refreshConfiguration(any(), any()) } answers {
+            deliver(secondArg())
         }
         return configurationLoader
     }
+
+    private fun deliver(callback: ConfigurationLoaderCallback) {
+        configuration?.let {
+            callback.onResult(ConfigurationLoaderResult.Success(it))
+        } ?: run {
+            callback.onResult(ConfigurationLoaderResult.Failure(configurationError))
+        }
+    }
 }
@@ -3,12 +3,15 @@ package com.braintreepayments.api.core
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
 import io.mockk.every
 import io.mockk.mockk
+import io.mockk.slot
 import io.mockk.verify
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
 
 import org.junit.Test
 import java.util.*
+import java.util.concurrent.Executor
 
 class UUIDHelperUnitTest {
     private var braintreeSharedPreferences: BraintreeSharedPreferences = mockk(relaxed = true)
@@ -34,4 +37,21 @@ class UUIDHelperUnitTest {
         val sut = UUIDHelper()
         assertEquals(uuid, sut.getInstallationGUID(braintreeSharedPreferences))
     }
+
+    @Test
+    fun getInstallationGUID_withCallback_readsGUIDOnceThePreferencesHaveLoaded() {
+        val uuid = UUID.randomUUID().toString()
+        val executor = Executor { it.run() }
+        val loaded = slot<Runnable>()
+        every { braintreeSharedPreferences.getString("InstallationGUID", null) } returns uuid
+        every { braintreeSharedPreferences.whenLoaded(executor, capture(loaded)) } returns Unit
+        var result: String? = null
+
+        UUIDHelper().getInstallationGUID(braintreeSharedPreferences, executor) { result = it }
+        assertNull(result)
+        verify(exactly = 0) { braintreeSharedPreferences.getString(any(), any()) }
+
+        loaded.captured.run()
+        assertEquals(uuid, result)
+    }
 }
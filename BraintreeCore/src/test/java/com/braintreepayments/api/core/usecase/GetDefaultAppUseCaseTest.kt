@@ -5,6 +5,7 @@ import android.content.pm.ActivityInfo
 import android.content.pm.PackageManager
 import android.content.pm.ResolveInfo
 import android.net.Uri
+import com.braintreepayments.api.sharedutils.AppResolutionCache
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.slot
@@ -23,7 +24,7 @@ class GetDefaultAppUseCaseTest {
 
     @Before
     fun setUp() {
-        sut = GetDefaultAppUseCase(packageManager)
+        sut = GetDefaultAppUseCase(packageManager, AppResolutionCache())
     }
 
     @Test
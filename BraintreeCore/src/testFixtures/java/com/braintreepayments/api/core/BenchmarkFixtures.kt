@@ -0,0 +1,84 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import org.json.JSONObject
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+/**
+ * Builds the FPTI payload of a batch of [eventCount] card tokenization events, so that the
+ * Benchmark module can measure payload creation without sending the events.
+ */
+@VisibleForTesting
+class AnalyticsPayloadFixture(context: Context, eventCount: Int) {
+
+    private val analyticsApi = AnalyticsApi(
+        deviceInspector = DeviceInspector(context),
+        merchantRepository = MerchantRepository().apply {
+            applicationContext = context
+            integrationType = IntegrationType.CUSTOM
+        }
+    )
+
+    private val metadata = DeviceMetadata(
+        appId = "com.braintreepayments.benchmark",
+        appName = "Benchmark",
+        clientSDKVersion = "5.0.0",
+        clientOs = "Android API 34",
+        component = "braintreeclientsdk",
+        deviceManufacturer = "Google",
+        deviceModel = "Pixel",
+        environment = "sandbox",
+        eventSource = "mobile-native",
+        integrationType = IntegrationType.CUSTOM,
+        merchantId = "merchant-id",
+        platform = "Android",
+        sessionId = "session-id"
+    )
+
+    private val events = List(eventCount) { index ->
+        AnalyticsEvent(
+            name = "card:tokenize:succeeded",
+            timestamp = 1_700_000_000_000L + index,
+            contextId = "context-id",
+            startTime = 1_700_000_000_000L,
+            endTime = 1_700_000_000_250L,
+            endpoint = "/v1/payment_methods/credit_cards"
+        )
+    }
+
+    fun createPayload(): JSONObject = analyticsApi.createPayload(events, metadata)
+}
+
+/**
+ * Holds the binary snapshot of [configurationString] written after [readValues] has read the
+ * sections it needs, so that the Benchmark module can measure restoring it on a cold start.
+ */
+@VisibleForTesting
+class ConfigurationSnapshotFixture(
+    private val configurationString: String,
+    readValues: (Configuration) -> Unit = {}
+) {
+
+    private val snapshot: ByteArray = ByteArrayOutputStream().also { output ->
+        Configuration.fromJson(configurationString).also(readValues)
+            .writeSnapshot(DataOutputStream(output))
+    }.toByteArray()
+
+    fun readSnapshot(): Configuration =
+        Configuration.readSnapshot(DataInputStream(ByteArrayInputStream(snapshot)), configurationString)
+
+    companion object {
+
+        /**
+         * Reads the analytics sampling policies of [configuration], which a card tokenization reads
+         * before sending its analytics.
+         */
+        fun readAnalyticsSamplingPolicies(configuration: Configuration) {
+            configuration.analyticsSamplingPolicies
+        }
+    }
+}
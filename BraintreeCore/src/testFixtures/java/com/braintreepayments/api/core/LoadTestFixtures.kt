@@ -0,0 +1,74 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import com.braintreepayments.api.sharedutils.HttpClient
+
+/**
+ * Creates [BraintreeClient]s that run the SDK's network stack against a stub gateway, so that the
+ * LoadTest module can drive a real client without a factory in the published API.
+ */
+@VisibleForTesting
+object BraintreeClientFixture {
+
+    /**
+     * Creates a client that sends every request, including configuration and analytics requests,
+     * with [httpClient], and that caches configurations in [configurationPreferences] instead of
+     * the SDK's shared preferences. The client does not share merchant values or an analytics
+     * session with other clients.
+     */
+    @JvmStatic
+    fun createWithHttpClient(
+        context: Context,
+        authorization: String,
+        httpClient: HttpClient,
+        configurationPreferences: BraintreeSharedPreferences,
+    ): BraintreeClient {
+        val merchantRepository = MerchantRepository()
+        val analyticsParamRepository = AnalyticsParamRepository()
+        val sdkComponent = SdkComponent.create(context)
+        val braintreeHttpClient = BraintreeHttpClient(httpClient)
+
+        // AnalyticsClient and ConfigurationLoader depend on each other
+        lateinit var analyticsClient: AnalyticsClient
+        val configurationLoader = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = ConfigurationCache(configurationPreferences),
+            lazyAnalyticsClient = lazy { analyticsClient }
+        )
+        val merchantContext = MerchantContext(
+            merchantRepository = merchantRepository,
+            analyticsParamRepository = analyticsParamRepository,
+            configurationLoader = configurationLoader
+        )
+        analyticsClient = AnalyticsClient(
+            analyticsApi = AnalyticsApi(
+                httpClient = braintreeHttpClient,
+                deviceInspector = sdkComponent.deviceInspector,
+                analyticsParamRepository = analyticsParamRepository,
+                merchantRepository = merchantRepository
+            ),
+            analyticsParamRepository = analyticsParamRepository,
+            analyticsEventRepository = merchantContext.analyticsEventRepository,
+            configurationLoader = configurationLoader,
+            latencyRecorder = merchantContext.latencyRecorder,
+            analyticsSampler = merchantContext.analyticsSampler
+        )
+
+        return BraintreeClient(
+            applicationContext = context.applicationContext,
+            integrationType = IntegrationType.CUSTOM,
+            authorization = Authorization.fromString(authorization),
+            returnUrlScheme = "${context.applicationContext.packageName.replace("_", "")}.braintree",
+            appLinkReturnUri = null,
+            sdkComponent = sdkComponent,
+            merchantContext = merchantContext,
+            httpClient = braintreeHttpClient,
+            graphQLClient = BraintreeGraphQLClient(httpClient),
+            configurationLoader = configurationLoader,
+            analyticsClient = analyticsClient
+        )
+    }
+}
@@ -1,6 +1,9 @@
 package com.braintreepayments.api.card
 
 import android.content.Context
+import androidx.annotation.MainThread
+import androidx.annotation.RestrictTo
+import androidx.lifecycle.LifecycleOwner
 import com.braintreepayments.api.card.CardNonce.Companion.fromJSON
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.AnalyticsParamRepository
@@ -9,6 +12,9 @@ import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.GraphQLConstants
+import com.braintreepayments.api.core.cancelOnDestroy
+import com.braintreepayments.api.sharedutils.CancellableRequest
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -16,10 +22,10 @@ import org.json.JSONObject
  * Used to tokenize credit or debit cards using a [Card]. For more information see the
  * [documentation](https://developer.paypal.com/braintree/docs/guides/credit-cards/overview)
  */
-class CardClient internal constructor(
+class CardClient @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
     private val braintreeClient: BraintreeClient,
     private val apiClient: ApiClient = ApiClient(braintreeClient),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository
 ) {
 
     /**
@@ -27,11 +33,14 @@ class CardClient internal constructor(
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String) : this(
+    @JvmOverloads
+    constructor(context: Context, authorization: String, callbackExecutor: Executor? = null) : this(
         BraintreeClient(
             context,
-            authorization
+            authorization,
+            callbackExecutor = callbackExecutor
         )
     )
 
@@ -62,11 +71,29 @@ class CardClient internal constructor(
      * @param callback [CardTokenizeCallback]
      */
     fun tokenize(card: Card, callback: CardTokenizeCallback) {
+        tokenizeCancellable(card, callback)
+    }
+
+    /**
+     * Create a [CardNonce], as [tokenize] does, and return a handle that cancels the tokenization,
+     * e.g. when the user leaves the checkout screen while the card is being tokenized.
+     *
+     * @param card     [Card]
+     * @param callback [CardTokenizeCallback]
+     * @return a [CancellableRequest] that stops the tokenization; [callback] is not called once it
+     * has been cancelled
+     */
+    fun tokenizeCancellable(card: Card, callback: CardTokenizeCallback): CancellableRequest {
+        val request = CancellableRequest()
+        val requestCallback = CardTokenizeCallback { cardResult ->
+            if (request.complete()) callback.onCardResult(cardResult)
+        }
         analyticsParamRepository.reset()
         braintreeClient.sendAnalyticsEvent(CardAnalytics.CARD_TOKENIZE_STARTED)
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
+            if (request.isCancelled) return@getConfiguration
             if (error != null) {
-                callbackFailure(callback, CardResult.Failure(error))
+                callbackFailure(requestCallback, CardResult.Failure(error))
                 return@getConfiguration
             }
             val shouldTokenizeViaGraphQL =
@@ -79,30 +106,50 @@ class CardClient internal constructor(
                 card.sessionId = analyticsParamRepository.sessionId
                 try {
                     val tokenizePayload = card.buildJSONForGraphQL()
-                    apiClient.tokenizeGraphQL(
+                    val tokenizeRequest = apiClient.tokenizeGraphQL(
                         tokenizePayload
                     ) { tokenizationResponse: JSONObject?, exception: Exception? ->
                         handleTokenizeResponse(
-                            tokenizationResponse, exception, callback
+                            tokenizationResponse, exception, requestCallback
                         )
                     }
+                    request.attach(tokenizeRequest)
                 } catch (e: BraintreeException) {
-                    callbackFailure(callback, CardResult.Failure(e))
+                    callbackFailure(requestCallback, CardResult.Failure(e))
                 } catch (e: JSONException) {
-                    callbackFailure(callback, CardResult.Failure(e))
+                    callbackFailure(requestCallback, CardResult.Failure(e))
                 }
             } else {
-                apiClient.tokenizeREST(
+                val tokenizeRequest = apiClient.tokenizeREST(
                     card
                 ) { tokenizationResponse: JSONObject?, exception: Exception? ->
                     handleTokenizeResponse(
-                        tokenizationResponse, exception, callback
+                        tokenizationResponse, exception, requestCallback
                     )
                 }
+                request.attach(tokenizeRequest)
             }
         }
+        return request
     }
 
+    /**
+     * Create a [CardNonce], as [tokenize] does, and cancel the tokenization when [lifecycleOwner]
+     * is destroyed, e.g. when the user leaves the checkout screen while the card is being tokenized.
+     *
+     * @param lifecycleOwner the [LifecycleOwner] whose destruction cancels the tokenization
+     * @param card     [Card]
+     * @param callback [CardTokenizeCallback]
+     * @return a [CancellableRequest] that stops the tokenization; [callback] is not called once it
+     * has been cancelled
+     */
+    @MainThread
+    fun tokenize(
+        lifecycleOwner: LifecycleOwner,
+        card: Card,
+        callback: CardTokenizeCallback
+    ): CancellableRequest = tokenizeCancellable(card, callback).cancelOnDestroy(lifecycleOwner)
+
     private fun handleTokenizeResponse(
         tokenizationResponse: JSONObject?, exception: Exception?,
         callback: CardTokenizeCallback
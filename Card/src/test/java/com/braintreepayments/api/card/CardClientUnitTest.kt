@@ -1,10 +1,14 @@
 package com.braintreepayments.api.card
 
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.ApiClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkApiClientBuilder
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
@@ -321,4 +325,41 @@ class CardClientUnitTest {
         val result = captor.captured
         assertTrue(result is CardResult.Success)
     }
+
+    @Test
+    fun tokenizeCancellable_whenCancelled_cancelsTokenizationAndDoesNotCallBack() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(graphQLDisabledConfig)
+            .build()
+        val tokenizeRequest = CancellableRequest()
+        every { apiClient.tokenizeREST(any(), any()) } returns tokenizeRequest
+
+        val sut = CardClient(braintreeClient, apiClient, analyticsParamRepository)
+        sut.tokenizeCancellable(card, cardTokenizeCallback).cancel()
+
+        assertTrue(tokenizeRequest.isCancelled)
+        verify(exactly = 0) { cardTokenizeCallback.onCardResult(any()) }
+    }
+
+    @Test
+    fun tokenize_withLifecycleOwner_cancelsTokenizationWhenLifecycleIsDestroyed() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(graphQLDisabledConfig)
+            .build()
+        val tokenizeRequest = CancellableRequest()
+        every { apiClient.tokenizeREST(any(), any()) } returns tokenizeRequest
+        val lifecycleOwner = mockk<LifecycleOwner>()
+        val lifecycle = LifecycleRegistry.createUnsafe(lifecycleOwner)
+        every { lifecycleOwner.lifecycle } returns lifecycle
+        lifecycle.currentState = Lifecycle.State.RESUMED
+
+        val sut = CardClient(braintreeClient, apiClient, analyticsParamRepository)
+        val request = sut.tokenize(lifecycleOwner, card, cardTokenizeCallback)
+        lifecycle.currentState = Lifecycle.State.DESTROYED
+
+        assertTrue(request.isCancelled)
+        assertTrue(tokenizeRequest.isCancelled)
+        assertEquals(0, lifecycle.observerCount)
+        verify(exactly = 0) { cardTokenizeCallback.onCardResult(any()) }
+    }
 }
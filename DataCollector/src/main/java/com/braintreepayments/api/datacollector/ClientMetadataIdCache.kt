@@ -0,0 +1,75 @@
+package com.braintreepayments.api.datacollector
+
+import com.braintreepayments.api.sharedutils.Time
+import java.util.concurrent.TimeUnit
+
+/**
+ * In-memory cache of client metadata IDs returned by Magnes. An ID is reused for requests made in
+ * the same analytics session with identical Magnes settings and pairing ID, until it is older than
+ * [TIME_TO_LIVE]. Only collections without a pairing ID are shared across a session; a paired
+ * collection, such as one for a PayPal checkout's context ID, is only reused for that same pairing ID
+ * so that Magnes has always submitted device data for it. This is safe to access from any thread.
+ */
+internal class ClientMetadataIdCache(
+    private val time: Time = Time()
+) {
+
+    private val entries = mutableMapOf<Key, Entry>()
+
+    /**
+     * Identifies the inputs that Magnes collected device data for.
+     */
+    data class Key(
+        val sessionId: String,
+        val environment: String?,
+        val applicationGuid: String?,
+        val hasUserLocationConsent: Boolean,
+        val isDisableBeacon: Boolean,
+        val requestedClientMetadataId: String?,
+        val additionalData: Map<String, String>?,
+    ) {
+        constructor(
+            sessionId: String,
+            environment: String?,
+            request: DataCollectorInternalRequest
+        ) : this(
+            sessionId = sessionId,
+            environment = environment,
+            applicationGuid = request.applicationGuid,
+            hasUserLocationConsent = request.hasUserLocationConsent,
+            isDisableBeacon = request.isDisableBeacon,
+            requestedClientMetadataId = request.clientMetadataId,
+            additionalData = request.additionalData?.toMap(),
+        )
+    }
+
+    private class Entry(val clientMetadataId: String, val createdAt: Long)
+
+    fun getClientMetadataId(key: Key): String? = synchronized(entries) {
+        val entry = entries[key] ?: return null
+        if (time.currentTime - entry.createdAt < TIME_TO_LIVE) {
+            entry.clientMetadataId
+        } else {
+            entries.remove(key)
+            null
+        }
+    }
+
+    fun putClientMetadataId(key: Key, clientMetadataId: String) {
+        if (clientMetadataId.isEmpty()) return
+        synchronized(entries) {
+            // entries from a previous analytics session can never be hit again
+            entries.keys.removeAll { it.sessionId != key.sessionId }
+            entries[key] = Entry(clientMetadataId, time.currentTime)
+        }
+    }
+
+    companion object {
+        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(15)
+
+        /**
+         * Singleton instance of the ClientMetadataIdCache.
+         */
+        val instance: ClientMetadataIdCache by lazy { ClientMetadataIdCache() }
+    }
+}
@@ -0,0 +1,22 @@
+package com.braintreepayments.api.datacollector
+
+import androidx.annotation.AnyThread
+import androidx.annotation.RestrictTo
+
+/**
+ * Callback for receiving the result of an asynchronous client metadata ID collection. It is called
+ * on the callback executor of the [com.braintreepayments.api.core.BraintreeClient] that started the
+ * collection.
+ *
+ * @suppress
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+fun interface ClientMetadataIdCallback {
+
+    /**
+     * @param clientMetadataId the client metadata ID, or an empty string if it could not be
+     * collected
+     */
+    @AnyThread
+    fun onResult(clientMetadataId: String)
+}
@@ -2,11 +2,13 @@ package com.braintreepayments.api.datacollector
 
 import android.content.Context
 import android.text.TextUtils
+import androidx.annotation.AnyThread
 import androidx.annotation.MainThread
 import androidx.annotation.RestrictTo
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.UUIDHelper
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -15,7 +17,8 @@ import org.json.JSONObject
  */
 class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
     private val braintreeClient: BraintreeClient,
-    private val magnesInternalClient: MagnesInternalClient = MagnesInternalClient(),
+    private val magnesInternalClient: MagnesInternalClient =
+        MagnesInternalClient(analyticsParamRepository = braintreeClient.analyticsParamRepository),
     private val uuidHelper: UUIDHelper = UUIDHelper()
 ) {
     /**
@@ -23,15 +26,21 @@ class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String) : this(
+    @JvmOverloads
+    constructor(context: Context, authorization: String, callbackExecutor: Executor? = null) : this(
         BraintreeClient(
             context,
-            authorization
+            authorization,
+            callbackExecutor = callbackExecutor
         )
     )
 
     /**
+     * Waits for the SDK's preferences to load from disk; on the main thread, use the overload that
+     * takes a callback.
+     *
      * @suppress
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
@@ -39,6 +48,19 @@ class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
         return uuidHelper.getInstallationGUID(context)
     }
 
+    /**
+     * Calls [callback] with the installation GUID once the SDK's preferences have loaded: right
+     * away on the calling thread if they already have, and on the callback executor of the
+     * [BraintreeClient] otherwise.
+     *
+     * @suppress
+     */
+    @AnyThread
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun getPayPalInstallationGUID(context: Context, callback: (String) -> Unit) {
+        uuidHelper.getInstallationGUID(context, braintreeClient.callbackExecutor, callback)
+    }
+
     /**
      * @suppress
      */
@@ -55,6 +77,29 @@ class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
         return getClientMetadataId(context, request, configuration)
     }
 
+    /**
+     * Like [getClientMetadataId], but reads the installation GUID once the SDK's preferences have
+     * loaded, and calls [callback] right away on the calling thread if they already have, and on
+     * the callback executor of the [BraintreeClient] otherwise.
+     *
+     * @suppress
+     */
+    @MainThread
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun getClientMetadataId(
+        context: Context,
+        configuration: Configuration?,
+        hasUserLocationConsent: Boolean,
+        callback: (String) -> Unit
+    ) {
+        getPayPalInstallationGUID(context) { installationGuid ->
+            val request = DataCollectorInternalRequest(hasUserLocationConsent).apply {
+                applicationGuid = installationGuid
+            }
+            callback(getClientMetadataId(context, request, configuration))
+        }
+    }
+
     /**
      * @suppress
      */
@@ -68,12 +113,37 @@ class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
         return magnesInternalClient.getClientMetadataId(context, configuration, request)
     }
 
+    /**
+     * Collects the client metadata ID on a background thread and delivers it to [callback] on the
+     * callback executor of the [BraintreeClient]. A client metadata ID collected earlier in the same
+     * session for the same request is delivered immediately.
+     *
+     * @suppress
+     */
+    @AnyThread
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun getClientMetadataId(
+        context: Context?,
+        request: DataCollectorInternalRequest?,
+        configuration: Configuration?,
+        callback: ClientMetadataIdCallback
+    ) {
+        magnesInternalClient.getClientMetadataId(
+            context,
+            configuration,
+            request,
+            braintreeClient.callbackExecutor,
+            callback
+        )
+    }
+
     /**
      * Collects device data for PayPal APIs.
      *
      *
      * We recommend that you call this method as early as possible, e.g. at app launch. If that's too early,
-     * call it at the beginning of customer checkout.
+     * call it at the beginning of customer checkout. Device data is collected on a background thread, and
+     * subsequent calls in the same session reuse the collected data.
      *
      *
      * Use the return value on your server, e.g. with `Transaction.sale`.
@@ -89,27 +159,30 @@ class DataCollector @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
     ) {
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
             if (configuration != null) {
-                val deviceData = JSONObject()
-                try {
+                getPayPalInstallationGUID(context) { installationGuid ->
                     val internalRequest =
                         DataCollectorInternalRequest(request.hasUserLocationConsent).apply {
-                            applicationGuid = getPayPalInstallationGUID(context)
+                            applicationGuid = installationGuid
                         }
                     if (request.riskCorrelationId != null) {
                         internalRequest.clientMetadataId = request.riskCorrelationId
                     }
-                    val correlationId =
-                        magnesInternalClient.getClientMetadataId(
-                            context,
-                            configuration,
-                            internalRequest
-                        )
-                    if (!TextUtils.isEmpty(correlationId)) {
-                        deviceData.put(CORRELATION_ID_KEY, correlationId)
+                    magnesInternalClient.getClientMetadataId(
+                        context,
+                        configuration,
+                        internalRequest,
+                        braintreeClient.callbackExecutor
+                    ) { correlationId ->
+                        val deviceData = JSONObject()
+                        try {
+                            if (!TextUtils.isEmpty(correlationId)) {
+                                deviceData.put(CORRELATION_ID_KEY, correlationId)
+                            }
+                        } catch (ignored: JSONException) {
+                        }
+                        callback.onDataCollectorResult(DataCollectorResult.Success(deviceData.toString()))
                     }
-                } catch (ignored: JSONException) {
                 }
-                callback.onDataCollectorResult(DataCollectorResult.Success(deviceData.toString()))
             } else if (error != null) {
                 callback.onDataCollectorResult(DataCollectorResult.Failure(error))
             }
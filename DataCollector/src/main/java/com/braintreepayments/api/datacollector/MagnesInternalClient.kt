@@ -2,21 +2,44 @@ package com.braintreepayments.api.datacollector
 
 import android.content.Context
 import android.util.Log
-import androidx.annotation.MainThread
+import androidx.annotation.AnyThread
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.Scheduler
+import com.braintreepayments.api.sharedutils.ThreadScheduler
 import lib.android.paypal.com.magnessdk.Environment
 import lib.android.paypal.com.magnessdk.InvalidInputException
 import lib.android.paypal.com.magnessdk.MagnesSDK
 import lib.android.paypal.com.magnessdk.MagnesSettings
 import lib.android.paypal.com.magnessdk.MagnesSource
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class MagnesInternalClient(
-    private val magnesSDK: MagnesSDK = MagnesSDK.getInstance()
+class MagnesInternalClient internal constructor(
+    private val magnesSDK: MagnesSDK,
+    private val clientMetadataIdCache: ClientMetadataIdCache,
+    private val analyticsParamRepository: AnalyticsParamRepository,
+    private val scheduler: Scheduler,
 ) {
 
-    @MainThread
+    constructor(
+        magnesSDK: MagnesSDK = MagnesSDK.getInstance(),
+        analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
+    ) : this(
+        magnesSDK = magnesSDK,
+        clientMetadataIdCache = ClientMetadataIdCache.instance,
+        analyticsParamRepository = analyticsParamRepository,
+        scheduler = magnesScheduler
+    )
+
+    /**
+     * Collects device data with Magnes and returns the client metadata ID, blocking the calling
+     * thread until collection is finished. A client metadata ID collected for the same session and
+     * request within the cache window is returned without calling Magnes.
+     */
+    @AnyThread
     internal fun getClientMetadataId(
         context: Context?,
         configuration: Configuration?,
@@ -26,6 +49,13 @@ class MagnesInternalClient(
             return ""
         }
 
+        val cacheKey = ClientMetadataIdCache.Key(
+            analyticsParamRepository.sessionId,
+            configuration.environment,
+            request
+        )
+        clientMetadataIdCache.getClientMetadataId(cacheKey)?.let { return it }
+
         val btEnvironment = configuration.environment
         val magnesEnvironment =
             if (btEnvironment.equals("sandbox", ignoreCase = true)) {
@@ -49,7 +79,9 @@ class MagnesInternalClient(
                 request.clientMetadataId,
                 request.additionalData
             )
-            return result.paypalClientMetaDataId
+            return result.paypalClientMetaDataId.also {
+                clientMetadataIdCache.putClientMetadataId(cacheKey, it)
+            }
         } catch (e: InvalidInputException) {
             // Either clientMetadataId or appGuid exceeds their character limit
             Log.e(
@@ -60,4 +92,50 @@ class MagnesInternalClient(
             return ""
         }
     }
+
+    /**
+     * Collects device data with Magnes on a background thread and delivers the client metadata ID
+     * to [callback] on [callbackExecutor]. A cached client metadata ID is delivered synchronously.
+     */
+    @AnyThread
+    internal fun getClientMetadataId(
+        context: Context?,
+        configuration: Configuration?,
+        request: DataCollectorInternalRequest?,
+        callbackExecutor: Executor,
+        callback: ClientMetadataIdCallback
+    ) {
+        if (context == null || configuration == null || request == null) {
+            callback.onResult("")
+            return
+        }
+
+        val cacheKey = ClientMetadataIdCache.Key(
+            analyticsParamRepository.sessionId,
+            configuration.environment,
+            request
+        )
+        val cachedClientMetadataId = clientMetadataIdCache.getClientMetadataId(cacheKey)
+        if (cachedClientMetadataId != null) {
+            callback.onResult(cachedClientMetadataId)
+            return
+        }
+
+        // copy the request so that later changes by the caller don't race with collection
+        val requestCopy = request.copy().also { it.clientMetadataId = request.clientMetadataId }
+        scheduler.runOnBackground {
+            val clientMetadataId = getClientMetadataId(context, configuration, requestCopy)
+            callbackExecutor.execute { callback.onResult(clientMetadataId) }
+        }
+    }
+
+    companion object {
+        /**
+         * Magnes keeps its settings in a process-wide singleton, so collection is serialized on a
+         * single background thread.
+         */
+        private val magnesScheduler: Scheduler by lazy {
+            ThreadScheduler(backgroundThreadService = Executors.newSingleThreadExecutor())
+        }
+    }
 }
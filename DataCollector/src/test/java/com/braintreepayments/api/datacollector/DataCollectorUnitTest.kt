@@ -10,6 +10,7 @@ import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import io.mockk.MockKAnnotations
 import io.mockk.every
 import io.mockk.impl.annotations.MockK
+import io.mockk.mockk
 import io.mockk.slot
 import io.mockk.verify
 import org.json.JSONObject
@@ -54,11 +55,24 @@ class DataCollectorUnitTest {
 
         every { configuration.environment } returns "sandbox"
         every { uuidHelper.getInstallationGUID(context) } returns sampleInstallationGUID
+        every { uuidHelper.getInstallationGUID(context, any(), any()) } answers {
+            thirdArg<(String) -> Unit>().invoke(sampleInstallationGUID)
+        }
         every { magnesInternalClient.getClientMetadataId(
             context,
             configuration,
             any()
         ) } returns "paypal-clientmetadata-id"
+        every { magnesInternalClient.getClientMetadataId(
+            context,
+            configuration,
+            any(),
+            any(),
+            any()
+        ) } answers { call ->
+            val callback = call.invocation.args[4] as ClientMetadataIdCallback
+            callback.onResult("paypal-clientmetadata-id")
+        }
     }
 
     @Test
@@ -69,6 +83,18 @@ class DataCollectorUnitTest {
         Assert.assertEquals(sampleInstallationGUID, sut.getPayPalInstallationGUID(context))
     }
 
+    @Test
+    fun payPalInstallationGUID_withCallback_readsInstallationIdentifierOnCallbackExecutor() {
+        val sut = DataCollector(braintreeClient, magnesInternalClient, uuidHelper)
+        var result: String? = null
+
+        sut.getPayPalInstallationGUID(context) { result = it }
+
+        Assert.assertEquals(sampleInstallationGUID, result)
+        verify { uuidHelper.getInstallationGUID(context, braintreeClient.callbackExecutor, any()) }
+        verify(exactly = 0) { uuidHelper.getInstallationGUID(context) }
+    }
+
     @Test
     fun getClientMetadataId_configuresMagnesWithDefaultRequest() {
         val hasUserLocationConsent = true
@@ -124,6 +150,21 @@ class DataCollectorUnitTest {
         Assert.assertEquals("paypal-clientmetadata-id", result)
     }
 
+    @Test
+    fun getClientMetadataId_withCallback_readsInstallationGUIDWithoutWaitingOnPreferences() {
+        val sut = DataCollector(braintreeClient, magnesInternalClient, uuidHelper)
+        var result: String? = null
+
+        sut.getClientMetadataId(context, configuration, true) { result = it }
+
+        val captor = slot<DataCollectorInternalRequest>()
+        verify { magnesInternalClient.getClientMetadataId(context, configuration, capture(captor)) }
+        verify(exactly = 0) { uuidHelper.getInstallationGUID(context) }
+        Assert.assertEquals(sampleInstallationGUID, captor.captured.applicationGuid)
+        Assert.assertTrue(captor.captured.hasUserLocationConsent)
+        Assert.assertEquals("paypal-clientmetadata-id", result)
+    }
+
     @Test
     fun collectDeviceData_forwardsConfigurationFetchErrors() {
         val configError = Exception("configuration error")
@@ -156,7 +197,9 @@ class DataCollectorUnitTest {
             magnesInternalClient.getClientMetadataId(
                 context,
                 configuration,
-                capture(captor)
+                capture(captor),
+                any(),
+                any()
             )
         }
 
@@ -179,7 +222,9 @@ class DataCollectorUnitTest {
             magnesInternalClient.getClientMetadataId(
                 context,
                 configuration,
-                capture(captor)
+                capture(captor),
+                any(),
+                any()
             )
         }
 
@@ -203,7 +248,9 @@ class DataCollectorUnitTest {
             magnesInternalClient.getClientMetadataId(
                 context,
                 configuration,
-                capture(captor)
+                capture(captor),
+                any(),
+                any()
             )
         }
 
@@ -250,7 +297,9 @@ class DataCollectorUnitTest {
             magnesInternalClient.getClientMetadataId(
                 context,
                 configuration,
-                capture(captor)
+                capture(captor),
+                any(),
+                any()
             )
         }
         Assert.assertFalse(captor.captured.hasUserLocationConsent)
@@ -274,7 +323,9 @@ class DataCollectorUnitTest {
             magnesInternalClient.getClientMetadataId(
                 context,
                 configuration,
-                capture(captor)
+                capture(captor),
+                any(),
+                any()
             )
         }
         Assert.assertTrue(captor.captured.hasUserLocationConsent)
@@ -2,10 +2,14 @@ package com.braintreepayments.api.datacollector
 
 import android.content.Context
 import androidx.test.core.app.ApplicationProvider
+import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.Scheduler
+import com.braintreepayments.api.sharedutils.Time
 import io.mockk.MockKAnnotations
 import io.mockk.every
 import io.mockk.impl.annotations.MockK
+import io.mockk.mockk
 import io.mockk.slot
 import io.mockk.verify
 import lib.android.paypal.com.magnessdk.Environment
@@ -19,6 +23,8 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 class MagnesInternalClientUnitTest {
@@ -38,7 +44,15 @@ class MagnesInternalClientUnitTest {
     @MockK
     lateinit var mapData: HashMap<String, String>
 
+    @MockK
+    lateinit var analyticsParamRepository: AnalyticsParamRepository
+
+    @MockK
+    lateinit var time: Time
+
     private lateinit var context: Context
+    private lateinit var scheduler: Scheduler
+    private lateinit var callbackExecutor: Executor
     private lateinit var dataCollectorInternalRequest: DataCollectorInternalRequest
 
     // NOTE: this uuid has no actual meaning; Magnes requires a valid guid for tests
@@ -52,6 +66,13 @@ class MagnesInternalClientUnitTest {
 
         MockKAnnotations.init(this, relaxed = true)
 
+        every { analyticsParamRepository.sessionId } returns "session-id"
+        every { time.currentTime } returns 0L
+        scheduler = mockk<Scheduler>()
+        every { scheduler.runOnBackground(any()) } answers { firstArg<Runnable>().run() }
+        callbackExecutor = mockk<Executor>()
+        every { callbackExecutor.execute(any()) } answers { firstArg<Runnable>().run() }
+
         every { prodConfiguration.environment } returns "production"
         every { sandboxConfiguration.environment } returns "sandbox"
         every { magnesResult.paypalClientMetaDataId } returns "magnes-client-metadata-id"
@@ -73,7 +94,7 @@ class MagnesInternalClientUnitTest {
 
     @Test
     fun getClientMetaDataId_returnsEmptyStringWhenContextIsNull() {
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         val result = sut.getClientMetadataId(
             null, sandboxConfiguration,
             dataCollectorInternalRequest
@@ -86,7 +107,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_configuresMagnesSourceAsBraintree() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, sandboxConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -103,7 +124,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_whenBraintreeEnvironmentIsSandbox_configuresMagnesEnvironmentToSandbox() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, sandboxConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -117,7 +138,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_whenBraintreeEnvironmentIsProd_configuresMagnesEnvironmentToLive() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -131,7 +152,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_forwardsDisableBeaconOptionToMagnes() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -145,7 +166,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_forwardsApplicationGUIDOptionToMagnes() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -159,7 +180,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_setsHasUserLocationConsent() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
 
         val captor = slot<MagnesSettings>()
@@ -176,7 +197,7 @@ class MagnesInternalClientUnitTest {
             DataCollectorInternalRequest(hasUserLocationConsent, null, null, false)
         requestWithInvalidGUID.applicationGuid = "invalid guid"
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         val result = sut.getClientMetadataId(context, prodConfiguration, requestWithInvalidGUID)
 
         Assert.assertTrue(result.isEmpty())
@@ -186,7 +207,7 @@ class MagnesInternalClientUnitTest {
     @Test
     fun getClientMetaDataId_forwardsClientMetadataIdFromMagnesStart() {
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         val result = sut.getClientMetadataId(
             context, prodConfiguration,
             dataCollectorInternalRequest
@@ -206,7 +227,7 @@ class MagnesInternalClientUnitTest {
                 mapData
         ) } throws InvalidInputException("invalid input")
 
-        val sut = MagnesInternalClient(magnesSDK)
+        val sut = createSut()
         val result = sut.getClientMetadataId(
             context, prodConfiguration,
             dataCollectorInternalRequest
@@ -214,4 +235,91 @@ class MagnesInternalClientUnitTest {
 
         Assert.assertTrue(result.isEmpty())
     }
+
+    @Test
+    fun getClientMetaDataId_whenCalledAgainForSameSessionAndRequest_returnsCachedClientMetadataId() {
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+        val result = sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        Assert.assertEquals("magnes-client-metadata-id", result)
+        verify(exactly = 1) { magnesSDK.setUp(any()) }
+        verify(exactly = 1) { magnesSDK.collectAndSubmit(any(), any(), any()) }
+    }
+
+    @Test
+    fun getClientMetaDataId_whenPairingIdDiffers_collectsForEachPairingId() {
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        val otherRequest = dataCollectorInternalRequest.copy().apply { clientMetadataId = "other-context-id" }
+        sut.getClientMetadataId(context, prodConfiguration, otherRequest)
+
+        verify { magnesSDK.collectAndSubmit(any(), "sample-client-metadata-id", any()) }
+        verify { magnesSDK.collectAndSubmit(any(), "other-context-id", any()) }
+    }
+
+    @Test
+    fun getClientMetaDataId_whenSessionChanges_collectsAgain() {
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        every { analyticsParamRepository.sessionId } returns "new-session-id"
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        verify(exactly = 2) { magnesSDK.collectAndSubmit(any(), any(), any()) }
+    }
+
+    @Test
+    fun getClientMetaDataId_whenCachedClientMetadataIdExpired_collectsAgain() {
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        every { time.currentTime } returns TimeUnit.MINUTES.toMillis(15)
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+
+        verify(exactly = 2) { magnesSDK.collectAndSubmit(any(), any(), any()) }
+    }
+
+    @Test
+    fun getClientMetaDataId_withCallback_collectsOnBackgroundThreadAndCallsBackOnCallbackExecutor() {
+        val callback = mockk<ClientMetadataIdCallback>(relaxed = true)
+
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest, callbackExecutor, callback)
+
+        verify { scheduler.runOnBackground(any()) }
+        verify { callbackExecutor.execute(any()) }
+        verify(exactly = 0) { scheduler.runOnMain(any()) }
+        verify { callback.onResult("magnes-client-metadata-id") }
+    }
+
+    @Test
+    fun getClientMetaDataId_withCallback_whenClientMetadataIdCached_callsBackWithoutScheduling() {
+        val callback = mockk<ClientMetadataIdCallback>(relaxed = true)
+
+        val sut = createSut()
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest)
+        sut.getClientMetadataId(context, prodConfiguration, dataCollectorInternalRequest, callbackExecutor, callback)
+
+        verify(exactly = 0) { scheduler.runOnBackground(any()) }
+        verify { callback.onResult("magnes-client-metadata-id") }
+    }
+
+    @Test
+    fun getClientMetaDataId_withCallback_whenContextIsNull_callsBackWithEmptyString() {
+        val callback = mockk<ClientMetadataIdCallback>(relaxed = true)
+
+        val sut = createSut()
+        sut.getClientMetadataId(null, prodConfiguration, dataCollectorInternalRequest, callbackExecutor, callback)
+
+        verify { callback.onResult("") }
+    }
+
+    private fun createSut() = MagnesInternalClient(
+        magnesSDK,
+        ClientMetadataIdCache(time),
+        analyticsParamRepository,
+        scheduler
+    )
 }
@@ -1,7 +1,9 @@
 package com.braintreepayments.demo;
 
 import android.app.ProgressDialog;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Trace;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -57,6 +59,9 @@ public class CardFragment extends BaseFragment implements OnCardFormSubmitListen
 
     private static final String EXTRA_THREE_D_SECURE_REQUESTED =
             "com.braintreepayments.demo.EXTRA_THREE_D_SECURE_REQUESTED";
+    private static final String CARD_TOKENIZE_TRACE_SECTION = "DemoCardTokenize";
+
+    private static int tokenizeTraceCookie;
 
     private String deviceData;
     private boolean threeDSecureRequested;
@@ -204,7 +209,15 @@ public class CardFragment extends BaseFragment implements OnCardFormSubmitListen
         card.setShouldValidate(false);
         card.setPostalCode(cardForm.getPostalCode());
 
+        // measured by StartupBenchmark in the :BaselineProfile module
+        int traceCookie = ++tokenizeTraceCookie;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(CARD_TOKENIZE_TRACE_SECTION, traceCookie);
+        }
         cardClient.tokenize(card, (cardResult) -> {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(CARD_TOKENIZE_TRACE_SECTION, traceCookie);
+            }
             if (cardResult instanceof CardResult.Success) {
                 handlePaymentMethodNonceCreated(((CardResult.Success) cardResult).getNonce());
             } else if (cardResult instanceof CardResult.Failure) {
@@ -22,6 +22,7 @@ import com.google.android.gms.wallet.PaymentDataRequest
 import com.google.android.gms.wallet.PaymentMethodTokenizationParameters
 import com.google.android.gms.wallet.PaymentsClient
 import com.google.android.gms.wallet.WalletConstants
+import java.util.concurrent.Executor
 import org.json.JSONArray
 import org.json.JSONException
 import org.json.JSONObject
@@ -32,20 +33,38 @@ import org.json.JSONObject
 @SuppressWarnings("TooManyFunctions")
 class GooglePayClient internal constructor(
     private val braintreeClient: BraintreeClient,
-    private val internalGooglePayClient: GooglePayInternalClient = GooglePayInternalClient(),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val internalGooglePayClient: GooglePayInternalClient = GooglePayInternalClient.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
 ) {
+
+    private class CachedIsReadyToPayRequest(
+        val configuration: Configuration,
+        val isExistingPaymentMethodRequired: Boolean?,
+        val request: IsReadyToPayRequest
+    )
+
+    // Both are immutable and replaced as a whole from whichever thread the configuration is
+    // delivered on, so publishing them through volatile fields is enough; a race only rebuilds one.
+    @Volatile
+    private var lastIsReadyToPayRequest: CachedIsReadyToPayRequest? = null
+
+    @Volatile
+    private var requestTemplates: GooglePayRequestTemplates? = null
+
     /**
      * Initializes a new [GooglePayClient] instance
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String) : this(
+    @JvmOverloads
+    constructor(context: Context, authorization: String, callbackExecutor: Executor? = null) : this(
         BraintreeClient(
             context,
-            authorization
+            authorization,
+            callbackExecutor = callbackExecutor
         )
     )
 
@@ -79,12 +98,7 @@ class GooglePayClient internal constructor(
         request: ReadyForGooglePayRequest?,
         callback: GooglePayIsReadyToPayCallback
     ) {
-        try {
-            Class.forName(PaymentsClient::class.java.name)
-        } catch (e: ClassNotFoundException) {
-            callback.onGooglePayReadinessResult(NotReadyToPay(null))
-            return
-        } catch (e: NoClassDefFoundError) {
+        if (!isPaymentsClientAvailable) {
             callback.onGooglePayReadinessResult(NotReadyToPay(null))
             return
         }
@@ -99,38 +113,63 @@ class GooglePayClient internal constructor(
                 return@getConfiguration
             }
 
-            val json = JSONObject()
-            val allowedCardNetworks = buildCardNetworks(configuration)
+            val readyToPayRequest =
+                getIsReadyToPayRequest(configuration, request?.isExistingPaymentMethodRequired)
+            internalGooglePayClient.isReadyToPay(
+                context,
+                configuration,
+                readyToPayRequest,
+                callback
+            )
+        }
+    }
+
+    /**
+     * Returns the [IsReadyToPayRequest] for [configuration], reusing the last one built if neither
+     * the configuration instance nor [isExistingPaymentMethodRequired] have changed.
+     */
+    @SuppressWarnings("SwallowedException")
+    private fun getIsReadyToPayRequest(
+        configuration: Configuration,
+        isExistingPaymentMethodRequired: Boolean?
+    ): IsReadyToPayRequest {
+        lastIsReadyToPayRequest?.let {
+            // the configuration cache returns the same instance until the configuration changes
+            if (it.configuration === configuration &&
+                it.isExistingPaymentMethodRequired == isExistingPaymentMethodRequired
+            ) {
+                return it.request
+            }
+        }
 
-            try {
-                json.put("apiVersion", 2).put("apiVersionMinor", 0).put(
-                    "allowedPaymentMethods",
-                    JSONArray().put(
-                        JSONObject().put("type", "CARD")
-                            .put(
-                                "parameters", JSONObject().put(
-                                    "allowedAuthMethods",
-                                    JSONArray().put("PAN_ONLY").put("CRYPTOGRAM_3DS")
-                                )
-                                    .put("allowedCardNetworks", allowedCardNetworks)
+        val json = JSONObject()
+        val allowedCardNetworks = GooglePayRequestTemplates.buildCardNetworks(configuration)
+
+        try {
+            json.put("apiVersion", 2).put("apiVersionMinor", 0).put(
+                "allowedPaymentMethods",
+                JSONArray().put(
+                    JSONObject().put("type", "CARD")
+                        .put(
+                            "parameters", JSONObject().put(
+                                "allowedAuthMethods",
+                                JSONArray().put("PAN_ONLY").put("CRYPTOGRAM_3DS")
                             )
-                    )
+                                .put("allowedCardNetworks", allowedCardNetworks)
+                        )
                 )
+            )
 
-                if (request != null) {
-                    json.put(
-                        "existingPaymentMethodRequired",
-                        request.isExistingPaymentMethodRequired
-                    )
-                }
-            } catch (ignored: JSONException) {
+            if (isExistingPaymentMethodRequired != null) {
+                json.put("existingPaymentMethodRequired", isExistingPaymentMethodRequired)
             }
-            val readyToPayRequest = IsReadyToPayRequest.fromJson(json.toString())
-            internalGooglePayClient.isReadyToPay(
-                context,
+        } catch (ignored: JSONException) {
+        }
+        return IsReadyToPayRequest.fromJson(json.toString()).also {
+            lastIsReadyToPayRequest = CachedIsReadyToPayRequest(
                 configuration,
-                readyToPayRequest,
-                callback
+                isExistingPaymentMethodRequired,
+                it
             )
         }
     }
@@ -350,50 +389,18 @@ class GooglePayClient internal constructor(
     }
 
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-    fun getAllowedCardNetworks(configuration: Configuration): ArrayList<Int> {
-        val allowedNetworks = ArrayList<Int>()
-        for (network in configuration.googlePaySupportedNetworks) {
-            when (network) {
-                VISA_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_VISA)
-                MASTERCARD_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_MASTERCARD)
-                AMEX_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_AMEX)
-                DISCOVER_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_DISCOVER)
-                ELO_NETWORK -> allowedNetworks.add(BraintreeGooglePayWalletConstants.CARD_NETWORK_ELO)
-                else -> {}
-            }
-        }
-
-        return allowedNetworks
-    }
-
-    private fun buildCardNetworks(configuration: Configuration): JSONArray {
-        val cardNetworkStrings = JSONArray()
-
-        for (network in getAllowedCardNetworks(configuration)) {
-            when (network) {
-                WalletConstants.CARD_NETWORK_AMEX -> cardNetworkStrings.put("AMEX")
-                WalletConstants.CARD_NETWORK_DISCOVER -> cardNetworkStrings.put("DISCOVER")
-                WalletConstants.CARD_NETWORK_JCB -> cardNetworkStrings.put("JCB")
-                WalletConstants.CARD_NETWORK_MASTERCARD -> cardNetworkStrings.put("MASTERCARD")
-                WalletConstants.CARD_NETWORK_VISA -> cardNetworkStrings.put("VISA")
-                BraintreeGooglePayWalletConstants.CARD_NETWORK_ELO -> {
-                    cardNetworkStrings.put("ELO")
-                    cardNetworkStrings.put("ELO_DEBIT")
-                }
-            }
-        }
-        return cardNetworkStrings
-    }
+    fun getAllowedCardNetworks(configuration: Configuration): ArrayList<Int> =
+        GooglePayRequestTemplates.getAllowedCardNetworks(configuration)
 
     private fun buildCardPaymentMethodParameters(
-        configuration: Configuration,
+        templates: GooglePayRequestTemplates,
         request: GooglePayRequest
     ): JSONObject {
         val defaultParameters = JSONObject()
 
         try {
             if (request.getAllowedCardNetworksForType(CARD_PAYMENT_TYPE) == null) {
-                val cardNetworkStrings = buildCardNetworks(configuration)
+                val cardNetworkStrings = templates.cardNetworks()
 
                 request.getAllowedAuthMethodsForType(CARD_PAYMENT_TYPE)?.let { jsonArray ->
                     request.setAllowedAuthMethods(
@@ -433,93 +440,31 @@ class GooglePayClient internal constructor(
         return defaultParameters
     }
 
-    private fun buildPayPalPaymentMethodParameters(configuration: Configuration): JSONObject {
-        val defaultParameters = JSONObject()
-
-        try {
-            val purchaseContext = JSONObject().put(
-                "purchase_units", JSONArray().put(
-                    JSONObject().put(
-                        "payee", JSONObject().put(
-                            "client_id",
-                            configuration.googlePayPayPalClientId
-                        )
-                    )
-                        .put("recurring_payment", "true")
-                )
-            )
-
-            defaultParameters.put("purchase_context", purchaseContext)
-        } catch (ignored: JSONException) {
-        }
-
-        return defaultParameters
-    }
-
-    private fun buildCardTokenizationSpecification(
+    /**
+     * Returns the request templates for [configuration] and [authorization], building them only
+     * when either has changed since the last request.
+     */
+    private fun getRequestTemplates(
         configuration: Configuration,
         authorization: Authorization
-    ): JSONObject {
-        val cardJson = JSONObject()
-        val parameters = JSONObject()
-        val googlePayVersion = BuildConfig.VERSION_NAME
-
-        try {
-            parameters.put("gateway", "braintree").put("braintree:apiVersion", "v1")
-                .put("braintree:sdkVersion", googlePayVersion)
-                .put("braintree:merchantId", configuration.merchantId)
-                .put(
-                    "braintree:metadata", JSONObject().put("source", "client")
-                        .put("integration", merchantRepository.integrationType)
-                        .put("sessionId", analyticsParamRepository.sessionId)
-                        .put("version", googlePayVersion)
-                        .put("platform", "android").toString()
-                )
-
-            if (authorization is TokenizationKey) {
-                parameters.put("braintree:clientKey", authorization.toString())
-            } else {
-                val googlePayAuthFingerprint =
-                    configuration.googlePayAuthorizationFingerprint
-                parameters.put("braintree:authorizationFingerprint", googlePayAuthFingerprint)
+    ): GooglePayRequestTemplates =
+        requestTemplates?.takeIf { it.matches(configuration, authorization) }
+            ?: GooglePayRequestTemplates.create(configuration, authorization).also {
+                requestTemplates = it
             }
-        } catch (ignored: JSONException) {
-        }
-
-        try {
-            cardJson.put("type", "PAYMENT_GATEWAY").put("parameters", parameters)
-        } catch (ignored: JSONException) {
-        }
-
-        return cardJson
-    }
 
-    private fun buildPayPalTokenizationSpecification(configuration: Configuration): JSONObject {
-        val json = JSONObject()
+    @SuppressWarnings("SwallowedException")
+    private fun buildTokenizationMetadata(): String {
         val googlePayVersion = BuildConfig.VERSION_NAME
-
-        try {
-            json.put("type", "PAYMENT_GATEWAY").put(
-                "parameters",
-                JSONObject().put("gateway", "braintree").put("braintree:apiVersion", "v1")
-                    .put("braintree:sdkVersion", googlePayVersion)
-                    .put("braintree:merchantId", configuration.merchantId)
-                    .put(
-                        "braintree:paypalClientId",
-                        configuration.googlePayPayPalClientId
-                    )
-                    .put(
-                        "braintree:metadata", JSONObject().put("source", "client")
-                            .put("integration", merchantRepository.integrationType)
-                            .put("sessionId", analyticsParamRepository.sessionId)
-                            .put("version", googlePayVersion)
-                            .put("platform", "android").toString()
-                    )
-            )
+        return try {
+            JSONObject().put("source", "client")
+                .put("integration", merchantRepository.integrationType)
+                .put("sessionId", analyticsParamRepository.sessionId)
+                .put("version", googlePayVersion)
+                .put("platform", "android").toString()
         } catch (ignored: JSONException) {
+            JSONObject().toString()
         }
-
-        return json
     }
 
     private fun setGooglePayRequestDefaults(
@@ -527,17 +472,20 @@ class GooglePayClient internal constructor(
         authorization: Authorization,
         request: GooglePayRequest
     ) {
+        val templates = getRequestTemplates(configuration, authorization)
+        val metadata by lazy { buildTokenizationMetadata() }
+
         if (request.getAllowedPaymentMethod(CARD_PAYMENT_TYPE) == null) {
             request.setAllowedPaymentMethod(
                 CARD_PAYMENT_TYPE,
-                buildCardPaymentMethodParameters(configuration, request)
+                buildCardPaymentMethodParameters(templates, request)
             )
         }
 
         if (request.getTokenizationSpecificationForType(CARD_PAYMENT_TYPE) == null) {
             request.setTokenizationSpecificationForType(
                 "CARD",
-                buildCardTokenizationSpecification(configuration, authorization)
+                templates.cardTokenizationSpecification(metadata)
             )
         }
 
@@ -548,14 +496,14 @@ class GooglePayClient internal constructor(
             if (request.getAllowedPaymentMethod("PAYPAL") == null) {
                 request.setAllowedPaymentMethod(
                     PAYPAL_PAYMENT_TYPE,
-                    buildPayPalPaymentMethodParameters(configuration)
+                    templates.payPalPaymentMethodParameters()
                 )
             }
 
             if (request.getTokenizationSpecificationForType(PAYPAL_PAYMENT_TYPE) == null) {
                 request.setTokenizationSpecificationForType(
                     "PAYPAL",
-                    buildPayPalTokenizationSpecification(configuration)
+                    templates.payPalTokenizationSpecification(metadata)
                 )
             }
         }
@@ -618,13 +566,22 @@ class GooglePayClient internal constructor(
         const val EXTRA_PAYMENT_DATA_REQUEST: String =
             "com.braintreepayments.api.EXTRA_PAYMENT_DATA_REQUEST"
 
-        private const val VISA_NETWORK = "visa"
-        private const val MASTERCARD_NETWORK = "mastercard"
-        private const val AMEX_NETWORK = "amex"
-        private const val DISCOVER_NETWORK = "discover"
-        private const val ELO_NETWORK = "elo"
-
         private const val CARD_PAYMENT_TYPE = "CARD"
+
+        /**
+         * Whether Google Play Services Wallet is on the classpath; looked up once per process.
+         */
+        @SuppressWarnings("SwallowedException")
+        private val isPaymentsClientAvailable: Boolean by lazy {
+            try {
+                Class.forName(PaymentsClient::class.java.name)
+                true
+            } catch (e: ClassNotFoundException) {
+                false
+            } catch (e: NoClassDefFoundError) {
+                false
+            }
+        }
         private const val PAYPAL_PAYMENT_TYPE = "PAYPAL"
     }
 }
@@ -3,41 +3,99 @@ package com.braintreepayments.api.googlepay
 import android.content.Context
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.googlepay.GooglePayReadinessResult.NotReadyToPay
+import com.braintreepayments.api.sharedutils.Time
 import com.google.android.gms.common.api.ApiException
 import com.google.android.gms.tasks.Task
 import com.google.android.gms.wallet.IsReadyToPayRequest
+import com.google.android.gms.wallet.PaymentsClient
 import com.google.android.gms.wallet.Wallet
 import com.google.android.gms.wallet.Wallet.WalletOptions
 import com.google.android.gms.wallet.WalletConstants
+import java.util.concurrent.TimeUnit
+
+/**
+ * Queries Google Play Services for Google Pay readiness. One [PaymentsClient] is kept per Google
+ * Pay environment, readiness results are cached for [READINESS_TIME_TO_LIVE], and concurrent
+ * queries for the same request are coalesced into a single call to Google Play Services.
+ */
+internal class GooglePayInternalClient(
+    private val time: Time = Time()
+) {
+
+    private val lock = Any()
+    private val paymentsClients = mutableMapOf<Int, PaymentsClient>()
+    private val readinessResults = mutableMapOf<ReadinessKey, ReadinessEntry>()
+    private val pendingCallbacks = mutableMapOf<ReadinessKey, MutableList<GooglePayIsReadyToPayCallback>>()
+
+    /**
+     * The Google Pay environment and the [IsReadyToPayRequest] JSON, which is derived from the
+     * configuration's supported card networks and the merchant's `existingPaymentMethodRequired`.
+     */
+    private data class ReadinessKey(val environment: Int, val isReadyToPayRequestJson: String)
+
+    private class ReadinessEntry(val result: GooglePayReadinessResult, val createdAt: Long)
 
-internal class GooglePayInternalClient {
     fun isReadyToPay(
         context: Context,
         configuration: Configuration,
         isReadyToPayRequest: IsReadyToPayRequest,
         callback: GooglePayIsReadyToPayCallback
     ) {
-        val paymentsClient = Wallet.getPaymentsClient(
-            context,
-            WalletOptions.Builder()
-                .setEnvironment(getGooglePayEnvironment(configuration))
-                .build()
-        )
-        paymentsClient.isReadyToPay(isReadyToPayRequest)
+        val environment = getGooglePayEnvironment(configuration)
+        val key = ReadinessKey(environment, isReadyToPayRequest.toJson().orEmpty())
+
+        val cachedResult = synchronized(lock) {
+            val entry = readinessResults[key]
+            if (entry != null && time.currentTime - entry.createdAt < READINESS_TIME_TO_LIVE) {
+                entry.result
+            } else {
+                readinessResults.remove(key)
+                val callbacks = pendingCallbacks[key]
+                if (callbacks != null) {
+                    // a query for the same request is in flight; wait for its result
+                    callbacks.add(callback)
+                    return
+                }
+                pendingCallbacks[key] = mutableListOf(callback)
+                null
+            }
+        }
+        if (cachedResult != null) {
+            callback.onGooglePayReadinessResult(cachedResult)
+            return
+        }
+
+        getPaymentsClient(context, environment).isReadyToPay(isReadyToPayRequest)
             .addOnCompleteListener { task: Task<Boolean> ->
-                try {
+                val result = try {
                     val isReady = task.getResult(ApiException::class.java)
-                    if (isReady) {
-                        callback.onGooglePayReadinessResult(GooglePayReadinessResult.ReadyToPay)
-                    } else {
-                        callback.onGooglePayReadinessResult(NotReadyToPay(null))
-                    }
+                    if (isReady) GooglePayReadinessResult.ReadyToPay else NotReadyToPay(null)
                 } catch (e: ApiException) {
-                    callback.onGooglePayReadinessResult(NotReadyToPay(e))
+                    NotReadyToPay(e)
+                }
+                val callbacks = synchronized(lock) {
+                    // errors are not cached so that the next query retries
+                    if (result !is NotReadyToPay || result.error == null) {
+                        readinessResults[key] = ReadinessEntry(result, time.currentTime)
+                    }
+                    pendingCallbacks.remove(key).orEmpty()
                 }
+                callbacks.forEach { it.onGooglePayReadinessResult(result) }
             }
     }
 
+    private fun getPaymentsClient(context: Context, environment: Int): PaymentsClient =
+        synchronized(lock) {
+            paymentsClients.getOrPut(environment) {
+                Wallet.getPaymentsClient(
+                    context.applicationContext ?: context,
+                    WalletOptions.Builder()
+                        .setEnvironment(environment)
+                        .build()
+                )
+            }
+        }
+
     private fun getGooglePayEnvironment(configuration: Configuration): Int {
         return if ("production" == configuration.googlePayEnvironment) {
             WalletConstants.ENVIRONMENT_PRODUCTION
@@ -45,4 +103,14 @@ internal class GooglePayInternalClient {
             WalletConstants.ENVIRONMENT_TEST
         }
     }
+
+    companion object {
+        private val READINESS_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+
+        /**
+         * Singleton instance of the GooglePayInternalClient, shared so that readiness results and
+         * [PaymentsClient]s are reused across [GooglePayClient] instances.
+         */
+        val instance: GooglePayInternalClient by lazy { GooglePayInternalClient() }
+    }
 }
@@ -0,0 +1,157 @@
+package com.braintreepayments.api.googlepay
+
+import androidx.annotation.RestrictTo
+import com.braintreepayments.api.core.Authorization
+import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.core.TokenizationKey
+import com.google.android.gms.wallet.WalletConstants
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * The parts of a Google Pay [com.google.android.gms.wallet.PaymentDataRequest] that only depend on
+ * the [Configuration] and [Authorization], precomputed once and kept as immutable values.
+ *
+ * Each accessor builds a new JSON object from these values without parsing, so that callers can
+ * splice in transaction-specific values, such as the `braintree:metadata` that carries the current
+ * analytics session ID.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class GooglePayRequestTemplates private constructor(
+    private val configuration: Configuration,
+    private val authorization: Authorization,
+    private val cardNetworks: List<String>,
+    private val cardTokenizationParameters: Map<String, String?>,
+    private val payPalClientId: String?,
+    private val payPalTokenizationParameters: Map<String, String?>,
+) {
+
+    /**
+     * Returns true if these templates were built from [configuration] and [authorization]. A
+     * configuration is only matched by identity, since the cached configuration is reused until it
+     * is reloaded.
+     */
+    fun matches(configuration: Configuration, authorization: Authorization): Boolean =
+        this.configuration === configuration && this.authorization.toString() == authorization.toString()
+
+    fun cardNetworks(): JSONArray = JSONArray(cardNetworks)
+
+    fun cardTokenizationSpecification(metadata: String): JSONObject =
+        tokenizationSpecification(cardTokenizationParameters, metadata)
+
+    @SuppressWarnings("SwallowedException")
+    fun payPalPaymentMethodParameters(): JSONObject {
+        val defaultParameters = JSONObject()
+        try {
+            val purchaseContext = JSONObject().put(
+                "purchase_units", JSONArray().put(
+                    JSONObject().put("payee", JSONObject().put("client_id", payPalClientId))
+                        .put("recurring_payment", "true")
+                )
+            )
+            defaultParameters.put("purchase_context", purchaseContext)
+        } catch (ignored: JSONException) {
+        }
+        return defaultParameters
+    }
+
+    fun payPalTokenizationSpecification(metadata: String): JSONObject =
+        tokenizationSpecification(payPalTokenizationParameters, metadata)
+
+    @SuppressWarnings("SwallowedException")
+    private fun tokenizationSpecification(parameters: Map<String, String?>, metadata: String): JSONObject {
+        val json = JSONObject()
+        try {
+            val parametersJson = JSONObject()
+            parameters.forEach { (name, value) -> parametersJson.putOpt(name, value) }
+            json.put("type", "PAYMENT_GATEWAY")
+                .put("parameters", parametersJson.put("braintree:metadata", metadata))
+        } catch (ignored: JSONException) {
+        }
+        return json
+    }
+
+    companion object {
+
+        fun create(configuration: Configuration, authorization: Authorization): GooglePayRequestTemplates =
+            GooglePayRequestTemplates(
+                configuration = configuration,
+                authorization = authorization,
+                cardNetworks = getCardNetworkNames(configuration),
+                cardTokenizationParameters = buildCardTokenizationParameters(configuration, authorization),
+                payPalClientId = configuration.googlePayPayPalClientId,
+                payPalTokenizationParameters = buildPayPalTokenizationParameters(configuration),
+            )
+
+        internal fun buildCardNetworks(configuration: Configuration): JSONArray =
+            JSONArray(getCardNetworkNames(configuration))
+
+        private fun getCardNetworkNames(configuration: Configuration): List<String> {
+            val cardNetworkStrings = mutableListOf<String>()
+
+            for (network in getAllowedCardNetworks(configuration)) {
+                when (network) {
+                    WalletConstants.CARD_NETWORK_AMEX -> cardNetworkStrings.add("AMEX")
+                    WalletConstants.CARD_NETWORK_DISCOVER -> cardNetworkStrings.add("DISCOVER")
+                    WalletConstants.CARD_NETWORK_JCB -> cardNetworkStrings.add("JCB")
+                    WalletConstants.CARD_NETWORK_MASTERCARD -> cardNetworkStrings.add("MASTERCARD")
+                    WalletConstants.CARD_NETWORK_VISA -> cardNetworkStrings.add("VISA")
+                    BraintreeGooglePayWalletConstants.CARD_NETWORK_ELO -> {
+                        cardNetworkStrings.add("ELO")
+                        cardNetworkStrings.add("ELO_DEBIT")
+                    }
+                }
+            }
+            return cardNetworkStrings.toList()
+        }
+
+        internal fun getAllowedCardNetworks(configuration: Configuration): ArrayList<Int> {
+            val allowedNetworks = ArrayList<Int>()
+            for (network in configuration.googlePaySupportedNetworks) {
+                when (network) {
+                    VISA_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_VISA)
+                    MASTERCARD_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_MASTERCARD)
+                    AMEX_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_AMEX)
+                    DISCOVER_NETWORK -> allowedNetworks.add(WalletConstants.CARD_NETWORK_DISCOVER)
+                    ELO_NETWORK -> allowedNetworks.add(BraintreeGooglePayWalletConstants.CARD_NETWORK_ELO)
+                    else -> {}
+                }
+            }
+
+            return allowedNetworks
+        }
+
+        private fun buildCardTokenizationParameters(
+            configuration: Configuration,
+            authorization: Authorization
+        ): Map<String, String?> {
+            val parameters = linkedMapOf<String, String?>(
+                "gateway" to "braintree",
+                "braintree:apiVersion" to "v1",
+                "braintree:sdkVersion" to BuildConfig.VERSION_NAME,
+                "braintree:merchantId" to configuration.merchantId,
+            )
+            if (authorization is TokenizationKey) {
+                parameters["braintree:clientKey"] = authorization.toString()
+            } else {
+                parameters["braintree:authorizationFingerprint"] = configuration.googlePayAuthorizationFingerprint
+            }
+            return parameters.toMap()
+        }
+
+        private fun buildPayPalTokenizationParameters(configuration: Configuration): Map<String, String?> = mapOf(
+            "gateway" to "braintree",
+            "braintree:apiVersion" to "v1",
+            "braintree:sdkVersion" to BuildConfig.VERSION_NAME,
+            "braintree:merchantId" to configuration.merchantId,
+            "braintree:paypalClientId" to configuration.googlePayPayPalClientId,
+        )
+
+        private const val VISA_NETWORK = "visa"
+        private const val MASTERCARD_NETWORK = "mastercard"
+        private const val AMEX_NETWORK = "amex"
+        private const val DISCOVER_NETWORK = "discover"
+        private const val ELO_NETWORK = "elo"
+    }
+}
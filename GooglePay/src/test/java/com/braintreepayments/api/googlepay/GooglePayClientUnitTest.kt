@@ -7,6 +7,7 @@ import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.Authorization
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.core.ConfigurationCallback
 import com.braintreepayments.api.core.IntegrationType
 import com.braintreepayments.api.core.MerchantRepository
 import com.braintreepayments.api.core.UserCanceledException
@@ -31,7 +32,9 @@ import kotlin.test.Test
 import kotlin.test.assertEquals
 import kotlin.test.assertFalse
 import kotlin.test.assertNotNull
+import kotlin.test.assertNotSame
 import kotlin.test.assertNull
+import kotlin.test.assertSame
 import kotlin.test.assertTrue
 
 @SuppressWarnings("LongMethod")
@@ -103,6 +106,45 @@ class GooglePayClientUnitTest {
         )
     }
 
+    @Test
+    fun isReadyToPay_reusesTheRequestOnlyForTheSameConfigurationInstance() {
+        val json = TestConfigurationBuilder()
+            .googlePay(
+                TestConfigurationBuilder.TestGooglePayConfigurationBuilder()
+                    .supportedNetworks(arrayOf("amex", "visa"))
+                    .enabled(true)
+            )
+            .build()
+        val configuration = Configuration.fromJson(json)
+        val equalConfiguration = Configuration.fromJson(json)
+        val internalGooglePayClient = MockkGooglePayInternalClientBuilder().build()
+        val requests = mutableListOf<IsReadyToPayRequest>()
+        every {
+            internalGooglePayClient.isReadyToPay(any(), any(), capture(requests), any())
+        } returns Unit
+
+        val braintreeClient = MockkBraintreeClientBuilder().build()
+        val configurations = ArrayDeque(
+            listOf(configuration, configuration, equalConfiguration, equalConfiguration)
+        )
+        every { braintreeClient.getConfiguration(any()) } answers {
+            firstArg<ConfigurationCallback>().onResult(configurations.removeFirst(), null)
+        }
+        val sut = GooglePayClient(
+            braintreeClient,
+            internalGooglePayClient,
+            analyticsParamRepository,
+            merchantRepository
+        )
+
+        repeat(4) { sut.isReadyToPay(activity, null, readyToPayCallback) }
+
+        assertEquals(4, requests.size)
+        assertSame(requests[0], requests[1])
+        assertNotSame(requests[1], requests[2])
+        assertSame(requests[2], requests[3])
+    }
+
     @Test
     fun isReadyToPay_whenExistingPaymentMethodRequired_sendsIsReadyToPayRequestWithExistingPaymentRequired() {
         val readyForGooglePayRequest = ReadyForGooglePayRequest().apply {
@@ -3,6 +3,7 @@ package com.braintreepayments.api.googlepay
 import android.app.Activity
 import android.content.Context
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.Time
 import com.braintreepayments.api.testutils.Fixtures
 import com.google.android.gms.common.api.ApiException
 import com.google.android.gms.common.api.Status
@@ -15,12 +16,14 @@ import io.mockk.every
 import io.mockk.mockk
 import io.mockk.mockkStatic
 import io.mockk.slot
+import io.mockk.verify
 import junit.framework.TestCase.*
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
 import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 class GooglePayInternalClientUnitTest {
@@ -66,6 +69,25 @@ class GooglePayInternalClientUnitTest {
         }
     }
 
+    class PendingBooleanTask : MockBooleanTask() {
+        private val listeners = mutableListOf<OnCompleteListener<Boolean>>()
+        private var result = false
+
+        override fun getResult(): Boolean = result
+        override fun <X : Throwable?> getResult(p0: Class<X>): Boolean = result
+
+        override fun addOnCompleteListener(p0: OnCompleteListener<Boolean>): Task<Boolean> {
+            listeners.add(p0)
+            return this
+        }
+
+        fun complete(result: Boolean) {
+            this.result = result
+            listeners.forEach { it.onComplete(this) }
+        }
+    }
+
+    private val time: Time = mockk()
     private lateinit var context: Context
     private lateinit var isReadyToPayCallback: GooglePayIsReadyToPayCallback
     private lateinit var paymentsClient: PaymentsClient
@@ -78,6 +100,7 @@ class GooglePayInternalClientUnitTest {
         isReadyToPayCallback = mockk(relaxed = true)
         paymentsClient = mockk()
         isReadyToPayRequest = IsReadyToPayRequest.fromJson("{}")
+        every { time.currentTime } returns 0
     }
 
     @Test
@@ -139,4 +162,82 @@ class GooglePayInternalClientUnitTest {
             assertSame((googlePayReadinessResult as GooglePayReadinessResult.NotReadyToPay).error, expectedError)
         }
     }
+
+    @Test
+    fun `isReadyToPay reuses PaymentsClient for the same environment`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        var paymentsClientCount = 0
+        every { Wallet.getPaymentsClient(any<Context>(), any()) } answers {
+            paymentsClientCount++
+            paymentsClient
+        }
+        every { paymentsClient.isReadyToPay(any()) } returns FailingBooleanTask(
+            ApiException(Status.RESULT_INTERNAL_ERROR)
+        )
+
+        val sut = GooglePayInternalClient(time)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+
+        assertEquals(1, paymentsClientCount)
+        // errors are not cached
+        verify(exactly = 2) { paymentsClient.isReadyToPay(any()) }
+    }
+
+    @Test
+    fun `isReadyToPay returns cached result until it expires`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        every { Wallet.getPaymentsClient(any<Context>(), any()) } returns paymentsClient
+        every { paymentsClient.isReadyToPay(any()) } returns SuccessfulBooleanTask(true)
+
+        val sut = GooglePayInternalClient(time)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+
+        verify(exactly = 1) { paymentsClient.isReadyToPay(any()) }
+        verify(exactly = 2) {
+            isReadyToPayCallback.onGooglePayReadinessResult(GooglePayReadinessResult.ReadyToPay)
+        }
+
+        every { time.currentTime } returns TimeUnit.MINUTES.toMillis(5)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+
+        verify(exactly = 2) { paymentsClient.isReadyToPay(any()) }
+    }
+
+    @Test
+    fun `isReadyToPay does not share cached result between different requests`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        every { Wallet.getPaymentsClient(any<Context>(), any()) } returns paymentsClient
+        every { paymentsClient.isReadyToPay(any()) } returns SuccessfulBooleanTask(true)
+
+        val sut = GooglePayInternalClient(time)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+        sut.isReadyToPay(
+            context,
+            configuration,
+            IsReadyToPayRequest.fromJson("{\"existingPaymentMethodRequired\":true}"),
+            isReadyToPayCallback
+        )
+
+        verify(exactly = 2) { paymentsClient.isReadyToPay(any()) }
+    }
+
+    @Test
+    fun `isReadyToPay coalesces concurrent queries for the same request`() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+        val pendingTask = PendingBooleanTask()
+        every { Wallet.getPaymentsClient(any<Context>(), any()) } returns paymentsClient
+        every { paymentsClient.isReadyToPay(any()) } returns pendingTask
+        val otherCallback = mockk<GooglePayIsReadyToPayCallback>(relaxed = true)
+
+        val sut = GooglePayInternalClient(time)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, isReadyToPayCallback)
+        sut.isReadyToPay(context, configuration, isReadyToPayRequest, otherCallback)
+        pendingTask.complete(false)
+
+        verify(exactly = 1) { paymentsClient.isReadyToPay(any()) }
+        verify { isReadyToPayCallback.onGooglePayReadinessResult(ofType<GooglePayReadinessResult.NotReadyToPay>()) }
+        verify { otherCallback.onGooglePayReadinessResult(ofType<GooglePayReadinessResult.NotReadyToPay>()) }
+    }
 }
@@ -0,0 +1,56 @@
+package com.braintreepayments.api.googlepay
+
+import com.braintreepayments.api.core.Authorization
+import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.testutils.Fixtures
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class GooglePayRequestTemplatesUnitTest {
+
+    private val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY)
+    private val tokenizationKey = Authorization.fromString(Fixtures.TOKENIZATION_KEY)
+
+    @Test
+    fun `cardTokenizationSpecification splices in metadata`() {
+        val sut = GooglePayRequestTemplates.create(configuration, tokenizationKey)
+
+        val parameters = sut.cardTokenizationSpecification("metadata-1").getJSONObject("parameters")
+
+        assertEquals("braintree", parameters.getString("gateway"))
+        assertEquals(configuration.merchantId, parameters.getString("braintree:merchantId"))
+        assertEquals(tokenizationKey.toString(), parameters.getString("braintree:clientKey"))
+        assertEquals("metadata-1", parameters.getString("braintree:metadata"))
+    }
+
+    @Test
+    fun `accessors return independent copies`() {
+        val sut = GooglePayRequestTemplates.create(configuration, tokenizationKey)
+
+        sut.cardTokenizationSpecification("metadata-1").getJSONObject("parameters").put("gateway", "other")
+        sut.cardNetworks().put("OTHER")
+
+        val parameters = sut.cardTokenizationSpecification("metadata-2").getJSONObject("parameters")
+        assertEquals("braintree", parameters.getString("gateway"))
+        assertEquals("metadata-2", parameters.getString("braintree:metadata"))
+        assertEquals("PAYMENT_GATEWAY", sut.cardTokenizationSpecification("metadata-2").getString("type"))
+        assertEquals(GooglePayRequestTemplates.buildCardNetworks(configuration).toString(), sut.cardNetworks().toString())
+    }
+
+    @Test
+    fun `matches only the configuration and authorization used to build the templates`() {
+        val sut = GooglePayRequestTemplates.create(configuration, tokenizationKey)
+
+        assertTrue(sut.matches(configuration, Authorization.fromString(Fixtures.TOKENIZATION_KEY)))
+        assertFalse(sut.matches(Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY), tokenizationKey))
+        assertFalse(
+            sut.matches(Configuration.fromJson(Fixtures.CONFIGURATION_WITH_GOOGLE_PAY_PRODUCTION), tokenizationKey)
+        )
+        assertFalse(sut.matches(configuration, Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN)))
+    }
+}
@@ -0,0 +1,139 @@
+package com.braintreepayments.loadtest
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.braintreepayments.api.card.Card
+import com.braintreepayments.api.card.CardClient
+import com.braintreepayments.api.card.CardResult
+import com.braintreepayments.api.testutils.Fixtures
+import com.braintreepayments.loadtest.StubGateway.Behavior
+import com.braintreepayments.loadtest.StubGateway.Endpoint
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+/**
+ * Load scenarios for the SDK's network stack. Each scenario writes a [LoadReport] to
+ * `LoadTest/build/reports/load-test`; run them with
+ * `./gradlew :LoadTest:loadTest -PloadTestOperations=10000 -PloadTestConcurrency=64`.
+ *
+ * The assertions only check that every operation completed as expected, so the scenarios do not
+ * fail on a slow machine.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ConcurrencyLoadTest {
+
+    private val operations = System.getProperty("loadTest.operations")?.toInt() ?: DEFAULT_OPERATIONS
+    private val concurrency = System.getProperty("loadTest.concurrency")?.toInt() ?: DEFAULT_CONCURRENCY
+    private val reportDirectory = System.getProperty("loadTest.reportDirectory")?.let { File(it) }
+
+    private lateinit var gateway: StubGateway
+    private lateinit var harness: LoadHarness
+    private lateinit var cardClient: CardClient
+
+    @Before
+    fun beforeEach() {
+        gateway = StubGateway().apply {
+            setBehavior(Endpoint.CONFIGURATION, Behavior(latencyMillis = CONFIGURATION_LATENCY_MILLIS))
+            setBehavior(Endpoint.TOKENIZE, Behavior(latencyMillis = TOKENIZE_LATENCY_MILLIS))
+            setBehavior(Endpoint.GRAPHQL, Behavior(latencyMillis = TOKENIZE_LATENCY_MILLIS))
+            start()
+        }
+    }
+
+    @After
+    fun afterEach() {
+        gateway.shutdown()
+    }
+
+    private fun createHarness(configuration: String = Fixtures.SANDBOX_CONFIGURATION_WITHOUT_GRAPHQL) {
+        gateway.configurationJson = configuration
+        harness = LoadHarness(
+            context = ApplicationProvider.getApplicationContext<Context>(),
+            gateway = gateway,
+            authorization = Fixtures.TOKENIZATION_KEY,
+            reportDirectory = reportDirectory
+        )
+        cardClient = CardClient(harness.braintreeClient)
+        harness.warmUp()
+    }
+
+    private fun tokenizeCard(onComplete: (Boolean) -> Unit) {
+        val card = Card(number = "4111111111111111", expirationMonth = "12", expirationYear = "2030")
+        cardClient.tokenize(card) { result -> onComplete(result is CardResult.Success) }
+    }
+
+    @Test
+    fun `concurrent REST tokenizes`() {
+        createHarness()
+
+        val report = harness.run("REST tokenize", operations, concurrency) { tokenizeCard(it) }
+
+        assertEquals(0, report.failures)
+        assertEquals(operations, gateway.requestCount(Endpoint.TOKENIZE))
+    }
+
+    @Test
+    fun `concurrent GraphQL tokenizes`() {
+        createHarness(Fixtures.SANDBOX_CONFIGURATION_WITH_GRAPHQL)
+
+        val report = harness.run("GraphQL tokenize", operations, concurrency) { tokenizeCard(it) }
+
+        assertEquals(0, report.failures)
+        assertEquals(operations, gateway.requestCount(Endpoint.GRAPHQL))
+    }
+
+    @Test
+    fun `analytics burst`() {
+        createHarness()
+
+        val report = harness.run("analytics burst", operations, concurrency) { onComplete ->
+            harness.braintreeClient.sendAnalyticsEvent("load-test:event")
+            onComplete(true)
+        }
+        harness.awaitRequests(Endpoint.ANALYTICS, operations)
+
+        assertEquals(0, report.failures)
+    }
+
+    @Test
+    fun `configuration expiry mid-burst`() {
+        createHarness()
+
+        val report = harness.run(
+            name = "REST tokenize with configuration expiry",
+            operations = operations,
+            concurrency = concurrency,
+            beforeOperation = { index -> if (index == operations / 2) harness.expireConfiguration() }
+        ) { tokenizeCard(it) }
+
+        assertEquals(0, report.failures)
+        assertTrue(gateway.requestCount(Endpoint.CONFIGURATION) >= 1)
+    }
+
+    @Test
+    fun `tokenize errors are reported to every caller`() {
+        createHarness()
+        gateway.setBehavior(
+            Endpoint.TOKENIZE,
+            Behavior(latencyMillis = TOKENIZE_LATENCY_MILLIS, errorRate = TOKENIZE_ERROR_RATE)
+        )
+
+        val report = harness.run("REST tokenize with errors", operations, concurrency) { tokenizeCard(it) }
+
+        assertEquals(gateway.errorCount(Endpoint.TOKENIZE), report.failures)
+    }
+
+    companion object {
+        private const val DEFAULT_OPERATIONS = 200
+        private const val DEFAULT_CONCURRENCY = 16
+        private const val CONFIGURATION_LATENCY_MILLIS = 50L
+        private const val TOKENIZE_LATENCY_MILLIS = 20L
+        private const val TOKENIZE_ERROR_RATE = 0.1
+    }
+}
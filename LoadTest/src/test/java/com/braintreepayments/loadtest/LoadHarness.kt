@@ -0,0 +1,185 @@
+package com.braintreepayments.loadtest
+
+import android.content.Context
+import android.os.Looper
+import com.braintreepayments.api.core.BraintreeClient
+import com.braintreepayments.api.core.BraintreeClientFixture
+import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import com.braintreepayments.api.sharedutils.HttpClient
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import org.robolectric.Shadows.shadowOf
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Drives a real [BraintreeClient] and its HTTP stack against a [StubGateway].
+ *
+ * Only the OkHttp client is replaced: it sends every request to the stub gateway over plain HTTP,
+ * whatever the host in the configuration or in the SDK. Callbacks are delivered on the Robolectric
+ * main looper, which the harness runs while it waits, so scenarios must be started on the test
+ * thread.
+ *
+ * @param reportDirectory the directory that the [LoadReport] of each scenario is written to as
+ * JSON, or `null` to not write reports
+ */
+class LoadHarness(
+    context: Context,
+    val gateway: StubGateway,
+    authorization: String,
+    private val reportDirectory: File? = null,
+) {
+
+    private val configurationPreferences = BraintreeSharedPreferences(
+        context.getSharedPreferences(CONFIGURATION_PREFERENCES, Context.MODE_PRIVATE)
+    )
+
+    private val threadMXBean = ManagementFactory.getThreadMXBean()
+
+    val braintreeClient: BraintreeClient
+
+    init {
+        val okHttpClient = OkHttpClient.Builder()
+            .addInterceptor(redirectToGateway())
+            .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build()
+        braintreeClient = BraintreeClientFixture.createWithHttpClient(
+            context = context,
+            authorization = authorization,
+            httpClient = HttpClient(okHttpClient),
+            configurationPreferences = configurationPreferences
+        )
+    }
+
+    private fun redirectToGateway() = Interceptor { chain ->
+        val request = chain.request()
+        val url = request.url.newBuilder()
+            .scheme("http")
+            .host(gateway.hostName)
+            .port(gateway.port)
+            .build()
+        chain.proceed(request.newBuilder().url(url).build())
+    }
+
+    /**
+     * Expires the cached configuration, so that the next request fetches it again.
+     */
+    fun expireConfiguration() {
+        configurationPreferences.clearSharedPreferences()
+    }
+
+    /**
+     * Fetches the configuration, so that a scenario does not measure the first fetch.
+     */
+    fun warmUp() {
+        var isLoaded = false
+        braintreeClient.getConfiguration { _, _ -> isLoaded = true }
+        runMainLooperUntil("configuration warm-up") { isLoaded }
+    }
+
+    /**
+     * Runs [operations] operations, keeping [concurrency] of them in flight until all have been
+     * started. Each [operation] must call its completion callback, with `false` if it failed, on
+     * the main thread. [beforeOperation] is called with the index of each operation before it starts.
+     */
+    fun run(
+        name: String,
+        operations: Int,
+        concurrency: Int,
+        beforeOperation: (index: Int) -> Unit = {},
+        operation: (onComplete: (isSuccess: Boolean) -> Unit) -> Unit,
+    ): LoadReport {
+        val latencies = LongArray(operations)
+        var started = 0
+        var completed = 0
+        var failures = 0
+
+        gateway.resetCounts()
+        val threadsBefore = threadMXBean.totalStartedThreadCount
+        val allocatedBefore = allocatedBytesByThread()
+        val startNanos = System.nanoTime()
+
+        runMainLooperUntil(name, beforeEachPass = {
+            while (started < operations && started - completed < concurrency) {
+                val index = started++
+                beforeOperation(index)
+                val operationStartNanos = System.nanoTime()
+                operation { isSuccess ->
+                    latencies[index] = System.nanoTime() - operationStartNanos
+                    if (!isSuccess) failures++
+                    completed++
+                }
+            }
+        }) { completed == operations }
+
+        val durationNanos = System.nanoTime() - startNanos
+        return LoadReport(
+            name = name,
+            concurrency = concurrency,
+            failures = failures,
+            durationNanos = durationNanos,
+            latenciesNanos = latencies,
+            threadsCreated = threadMXBean.totalStartedThreadCount - threadsBefore,
+            allocatedBytes = allocatedBytesSince(allocatedBefore),
+            requestCounts = gateway.requestCounts()
+        ).also { writeReport(it) }
+    }
+
+    private fun writeReport(report: LoadReport) {
+        val directory = reportDirectory ?: return
+        directory.mkdirs()
+        val fileName = report.name.lowercase().replace(Regex("[^a-z0-9]+"), "-") + ".json"
+        File(directory, fileName).writeText(report.toJson().toString(JSON_INDENT))
+    }
+
+    /**
+     * Runs the main looper until the gateway has received [count] requests to [endpoint], for
+     * requests that have no callback, such as analytics.
+     */
+    fun awaitRequests(endpoint: StubGateway.Endpoint, count: Int) {
+        runMainLooperUntil("$count requests to $endpoint") { gateway.requestCount(endpoint) >= count }
+    }
+
+    private fun runMainLooperUntil(
+        description: String,
+        beforeEachPass: () -> Unit = {},
+        condition: () -> Boolean
+    ) {
+        val mainLooper = shadowOf(Looper.getMainLooper())
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS)
+        while (true) {
+            beforeEachPass()
+            mainLooper.idle()
+            if (condition()) return
+            check(System.nanoTime() < deadline) { "Timed out waiting for $description" }
+            LockSupport.parkNanos(POLL_INTERVAL_NANOS)
+        }
+    }
+
+    private fun allocatedBytesByThread(): Map<Long, Long> {
+        val bean = threadMXBean as? com.sun.management.ThreadMXBean ?: return emptyMap()
+        if (!bean.isThreadAllocatedMemorySupported || !bean.isThreadAllocatedMemoryEnabled) return emptyMap()
+        val ids = bean.allThreadIds
+        val allocated = bean.getThreadAllocatedBytes(ids)
+        return ids.indices.filter { allocated[it] >= 0 }.associate { ids[it] to allocated[it] }
+    }
+
+    /**
+     * Threads that finished during the scenario are not included, so this is a lower bound.
+     */
+    private fun allocatedBytesSince(before: Map<Long, Long>): Long {
+        val after = allocatedBytesByThread()
+        if (after.isEmpty()) return -1
+        return after.entries.sumOf { (id, bytes) -> bytes - (before[id] ?: 0) }
+    }
+
+    companion object {
+        private const val CONFIGURATION_PREFERENCES = "com.braintreepayments.loadtest.CONFIGURATION"
+        private const val TIMEOUT_SECONDS = 60L
+        private const val JSON_INDENT = 2
+        private val POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100)
+    }
+}
@@ -0,0 +1,82 @@
+package com.braintreepayments.loadtest
+
+import org.json.JSONObject
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import kotlin.math.ceil
+
+/**
+ * Measurements of a single [LoadHarness.run].
+ *
+ * @property latenciesNanos time from starting each operation until its callback, in nanoseconds
+ * @property threadsCreated threads started by the JVM while the scenario ran
+ * @property allocatedBytes bytes allocated by the threads still alive at the end of the scenario
+ * @property requestCounts requests received by the [StubGateway] while the scenario ran
+ */
+class LoadReport(
+    val name: String,
+    val concurrency: Int,
+    val failures: Int,
+    val durationNanos: Long,
+    latenciesNanos: LongArray,
+    val threadsCreated: Long,
+    val allocatedBytes: Long,
+    val requestCounts: Map<StubGateway.Endpoint, Int>,
+) {
+
+    private val sortedLatencies = latenciesNanos.sortedArray()
+
+    val operations: Int
+        get() = sortedLatencies.size
+
+    val throughputPerSecond: Double
+        get() = operations / (durationNanos.toDouble() / TimeUnit.SECONDS.toNanos(1))
+
+    val p50Millis: Double
+        get() = percentileMillis(0.50)
+
+    val p99Millis: Double
+        get() = percentileMillis(0.99)
+
+    private fun percentileMillis(percentile: Double): Double {
+        if (sortedLatencies.isEmpty()) return 0.0
+        val rank = ceil(percentile * sortedLatencies.size).toInt().coerceIn(1, sortedLatencies.size)
+        return sortedLatencies[rank - 1].toDouble() / TimeUnit.MILLISECONDS.toNanos(1)
+    }
+
+    /**
+     * The report as JSON, for tools that compare runs.
+     */
+    fun toJson(): JSONObject = JSONObject()
+        .put("name", name)
+        .put("operations", operations)
+        .put("failures", failures)
+        .put("concurrency", concurrency)
+        .put("durationMillis", TimeUnit.NANOSECONDS.toMillis(durationNanos))
+        .put("throughputPerSecond", throughputPerSecond)
+        .put("p50Millis", p50Millis)
+        .put("p99Millis", p99Millis)
+        .put("threadsCreated", threadsCreated)
+        .put("allocatedBytes", allocatedBytes)
+        .put("requestCounts", JSONObject(requestCounts.filterValues { it > 0 }.mapKeys { it.key.name }))
+
+    override fun toString(): String = String.format(
+        Locale.US,
+        "%s: %d operations (%d failed), concurrency %d, %.1f ops/s, p50 %.2f ms, p99 %.2f ms, " +
+            "%d threads created, %s allocated, requests %s",
+        name,
+        operations,
+        failures,
+        concurrency,
+        throughputPerSecond,
+        p50Millis,
+        p99Millis,
+        threadsCreated,
+        if (allocatedBytes < 0) "unknown" else "${allocatedBytes / BYTES_PER_KB} KB",
+        requestCounts.filterValues { it > 0 }
+    )
+
+    companion object {
+        private const val BYTES_PER_KB = 1024
+    }
+}
@@ -0,0 +1,121 @@
+package com.braintreepayments.loadtest
+
+import com.braintreepayments.api.testutils.Fixtures
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.random.Random
+
+/**
+ * A local stand-in for the Braintree gateway, GraphQL API and FPTI, served by a [MockWebServer].
+ *
+ * Requests are routed by path, so any host can be redirected to the server (see [LoadHarness]).
+ * The latency and error rate of each [Endpoint] can be changed while a scenario is running.
+ */
+class StubGateway(seed: Long = 0) {
+
+    enum class Endpoint(val pathPattern: Regex) {
+        CONFIGURATION(Regex(".*/client_api/v1/configuration")),
+        TOKENIZE(Regex(".*/client_api/v1/payment_methods/.+")),
+        GRAPHQL(Regex("/graphql")),
+        ANALYTICS(Regex("/v1/tracking/batch/events")),
+    }
+
+    /**
+     * @property latencyMillis time the server waits before sending the response headers
+     * @property errorRate fraction of requests, between 0 and 1, that fail with [errorStatus]
+     * @property errorStatus HTTP status of an injected error, or `null` to drop the connection
+     */
+    data class Behavior(
+        val latencyMillis: Long = 0,
+        val errorRate: Double = 0.0,
+        val errorStatus: Int? = HTTP_SERVER_ERROR,
+    )
+
+    private val server = MockWebServer()
+    private val random = Random(seed)
+    private val behaviors = ConcurrentHashMap<Endpoint, Behavior>()
+    private val requestCounts = ConcurrentHashMap<Endpoint, AtomicInteger>()
+    private val errorCounts = ConcurrentHashMap<Endpoint, AtomicInteger>()
+
+    @Volatile
+    var configurationJson: String = Fixtures.SANDBOX_CONFIGURATION_WITHOUT_GRAPHQL
+
+    val hostName: String
+        get() = server.hostName
+
+    val port: Int
+        get() = server.port
+
+    init {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse = respond(request)
+        }
+    }
+
+    fun start() {
+        server.start()
+    }
+
+    fun shutdown() {
+        server.shutdown()
+    }
+
+    fun setBehavior(endpoint: Endpoint, behavior: Behavior) {
+        behaviors[endpoint] = behavior
+    }
+
+    fun requestCount(endpoint: Endpoint): Int = requestCounts[endpoint]?.get() ?: 0
+
+    fun requestCounts(): Map<Endpoint, Int> = Endpoint.entries.associateWith { requestCount(it) }
+
+    /**
+     * Returns the number of requests to [endpoint] that were answered with an injected error.
+     */
+    fun errorCount(endpoint: Endpoint): Int = errorCounts[endpoint]?.get() ?: 0
+
+    fun resetCounts() {
+        requestCounts.clear()
+        errorCounts.clear()
+    }
+
+    private fun respond(request: RecordedRequest): MockResponse {
+        val path = request.requestUrl?.encodedPath.orEmpty()
+        val endpoint = Endpoint.entries.firstOrNull { it.pathPattern.matches(path) }
+            ?: return MockResponse().setResponseCode(HTTP_NOT_FOUND)
+        requestCounts.getOrPut(endpoint) { AtomicInteger() }.incrementAndGet()
+
+        val behavior = behaviors[endpoint] ?: Behavior()
+        val response = if (synchronized(random) { random.nextDouble() } < behavior.errorRate) {
+            errorCounts.getOrPut(endpoint) { AtomicInteger() }.incrementAndGet()
+            behavior.errorStatus?.let { MockResponse().setResponseCode(it).setBody(ERROR_BODY) }
+                ?: MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST)
+        } else {
+            MockResponse().setResponseCode(HTTP_OK).setBody(bodyFor(endpoint))
+        }
+        return response
+            .setHeader("Content-Type", "application/json")
+            .setHeadersDelay(behavior.latencyMillis, TimeUnit.MILLISECONDS)
+    }
+
+    private fun bodyFor(endpoint: Endpoint): String = when (endpoint) {
+        Endpoint.CONFIGURATION -> configurationJson
+        Endpoint.TOKENIZE -> Fixtures.PAYMENT_METHODS_RESPONSE_VISA_CREDIT_CARD
+        Endpoint.GRAPHQL -> Fixtures.GRAPHQL_RESPONSE_CREDIT_CARD
+        Endpoint.ANALYTICS -> "{}"
+    }
+
+    companion object {
+        private const val HTTP_OK = 200
+        private const val HTTP_NOT_FOUND = 404
+        private const val HTTP_SERVER_ERROR = 500
+
+        // language=JSON
+        private const val ERROR_BODY = """{"error": {"message": "Injected error"}}"""
+    }
+}
@@ -9,8 +9,8 @@ import org.json.JSONObject
 
 internal class LocalPaymentApi(
     private val braintreeClient: BraintreeClient,
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
 ) {
 
     fun createPaymentMethod(
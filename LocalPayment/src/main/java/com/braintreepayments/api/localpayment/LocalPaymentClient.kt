@@ -15,6 +15,7 @@ import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.ConfigurationException
 import com.braintreepayments.api.datacollector.DataCollector
 import com.braintreepayments.api.sharedutils.Json
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 import java.util.Locale
@@ -26,7 +27,7 @@ class LocalPaymentClient internal constructor(
     private val braintreeClient: BraintreeClient,
     private val dataCollector: DataCollector = DataCollector(braintreeClient),
     private val localPaymentApi: LocalPaymentApi = LocalPaymentApi(braintreeClient),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository
 ) {
     /**
      * Used for linking events from the client to server side request
@@ -40,12 +41,15 @@ class LocalPaymentClient internal constructor(
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
      * @param returnUrlScheme a custom return url to use for browser and app switching
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
+    @JvmOverloads
     constructor(
         context: Context,
         authorization: String,
-        returnUrlScheme: String?
-    ) : this(BraintreeClient(context, authorization, returnUrlScheme))
+        returnUrlScheme: String?,
+        callbackExecutor: Executor? = null
+    ) : this(BraintreeClient(context, authorization, returnUrlScheme, callbackExecutor = callbackExecutor))
 
     /**
      * Starts the payment flow for a [LocalPaymentRequest] and calls back a
@@ -182,19 +186,20 @@ class LocalPaymentClient internal constructor(
         }
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
             if (configuration != null) {
-                localPaymentApi.tokenize(
-                    merchantAccountId, responseString,
-                    dataCollector.getClientMetadataId(
-                        context,
-                        configuration,
-                        hasUserLocationConsent
-                    )
-                ) { localPaymentNonce: LocalPaymentNonce?, localPaymentError: Exception? ->
-                    if (localPaymentNonce != null) {
-                        sendAnalyticsEvent(LocalPaymentAnalytics.PAYMENT_SUCCEEDED)
-                        callback.onLocalPaymentResult(LocalPaymentResult.Success(localPaymentNonce))
-                    } else if (localPaymentError != null) {
-                        tokenizeFailure(localPaymentError, callback)
+                dataCollector.getClientMetadataId(
+                    context,
+                    configuration,
+                    hasUserLocationConsent
+                ) { clientMetadataId ->
+                    localPaymentApi.tokenize(
+                        merchantAccountId, responseString, clientMetadataId
+                    ) { localPaymentNonce: LocalPaymentNonce?, localPaymentError: Exception? ->
+                        if (localPaymentNonce != null) {
+                            sendAnalyticsEvent(LocalPaymentAnalytics.PAYMENT_SUCCEEDED)
+                            callback.onLocalPaymentResult(LocalPaymentResult.Success(localPaymentNonce))
+                        } else if (localPaymentError != null) {
+                            tokenizeFailure(localPaymentError, callback)
+                        }
                     }
                 }
             } else if (error != null) {
@@ -87,6 +87,9 @@ class LocalPaymentClientUnitTest {
             .configurationSuccess(fromJson(Fixtures.CONFIGURATION_WITH_LIVE_PAYPAL))
             .build()
         dataCollector = mockk<DataCollector>(relaxed = true)
+        every { dataCollector.getClientMetadataId(any(), any(), any(), any()) } answers {
+            lastArg<(String) -> Unit>().invoke("sample-correlation-id")
+        }
         localPaymentApi = mockk<LocalPaymentApi>(relaxed = true)
         analyticsParamRepository = mockk<AnalyticsParamRepository>(relaxed = true)
         localPaymentAuthRequestParams = mockk<LocalPaymentAuthRequestParams>(relaxed = true)
@@ -539,9 +542,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
-                false
+                false,
+                any()
             )
-        } returns "sample-correlation-id"
+        } answers { lastArg<(String) -> Unit>().invoke("sample-correlation-id") }
 
         sut = LocalPaymentClient(
             braintreeClient, dataCollector,
@@ -591,9 +595,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
-                false
+                false,
+                any()
             )
-        } returns "sample-correlation-id"
+        } answers { lastArg<(String) -> Unit>().invoke("sample-correlation-id") }
 
         sut = LocalPaymentClient(
             braintreeClient, dataCollector,
@@ -627,9 +632,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
-                false
+                false,
+                any()
             )
-        } returns "client-metadata-id"
+        } answers { lastArg<(String) -> Unit>().invoke("client-metadata-id") }
 
         val successNonce = fromJSON(
             JSONObject(Fixtures.PAYMENT_METHODS_LOCAL_PAYMENT_RESPONSE)
@@ -669,9 +675,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
-                false
+                false,
+                any()
             )
-        } returns "client-metadata-id"
+        } answers { lastArg<(String) -> Unit>().invoke("client-metadata-id") }
 
         val localPaymentApi = MockkLocalPaymentApiBuilder()
             .tokenizeSuccess(
@@ -719,9 +726,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any<FragmentActivity>(),
                 any<Configuration>(),
-                any<Boolean>()
+                any<Boolean>(),
+                any()
             )
-        } returns "sample-correlation-id"
+        } answers { lastArg<(String) -> Unit>().invoke("sample-correlation-id") }
 
         val localPaymentAuthResult = LocalPaymentAuthResult.Success(browserSwitchResult)
         sut = LocalPaymentClient(
@@ -791,9 +799,10 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
+                any(),
                 any()
             )
-        } returns "client-metadata-id"
+        } answers { lastArg<(String) -> Unit>().invoke("client-metadata-id") }
 
         val request = createLocalPaymentRequest()
         sut = LocalPaymentClient(
@@ -815,7 +824,8 @@ class LocalPaymentClientUnitTest {
             dataCollector.getClientMetadataId(
                 any(),
                 payPalEnabledConfig,
-                eq(true)
+                eq(true),
+                any()
             )
         }
     }
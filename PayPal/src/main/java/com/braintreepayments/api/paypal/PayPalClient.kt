@@ -23,6 +23,10 @@ import com.braintreepayments.api.core.UserCanceledException
 import com.braintreepayments.api.core.usecase.GetDefaultAppUseCase
 import com.braintreepayments.api.paypal.PayPalPaymentIntent.Companion.fromString
 import com.braintreepayments.api.sharedutils.Json
+import com.braintreepayments.api.sharedutils.SpeculativeRequestCache
+import com.braintreepayments.api.sharedutils.Time
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -32,7 +36,7 @@ import org.json.JSONObject
 class PayPalClient internal constructor(
     private val braintreeClient: BraintreeClient,
     private val internalPayPalClient: PayPalInternalClient = PayPalInternalClient(braintreeClient),
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
     getDefaultAppUseCase: GetDefaultAppUseCase =
         GetDefaultAppUseCase(merchantRepository.applicationContext.packageManager),
     getAppLinksCompatibleBrowserUseCase: GetAppLinksCompatibleBrowserUseCase =
@@ -43,7 +47,10 @@ class PayPalClient internal constructor(
         getAppLinksCompatibleBrowserUseCase
     ),
     private val getReturnLinkUseCase: GetReturnLinkUseCase = GetReturnLinkUseCase(merchantRepository),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
+    private val preparedRequestCache: SpeculativeRequestCache<PayPalRequest, PayPalPaymentAuthRequestParams> =
+        SpeculativeRequestCache(PayPalRequest::class.java, PREPARED_REQUEST_TIME_TO_LIVE),
+    private val time: Time = Time()
 ) {
 
     /**
@@ -65,18 +72,22 @@ class PayPalClient internal constructor(
      * your application to be used to return to your app from the PayPal payment flows.
      * @param deepLinkFallbackUrlScheme A return url scheme that will be used as a deep link fallback when returning to
      * your app via App Link is not available (buyer unchecks the "Open supported links" setting).
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
+    @JvmOverloads
     constructor(
         context: Context,
         authorization: String,
         appLinkReturnUrl: Uri,
-        deepLinkFallbackUrlScheme: String? = null
+        deepLinkFallbackUrlScheme: String? = null,
+        callbackExecutor: Executor? = null
     ) : this(
         BraintreeClient(
             context = context,
             authorization = authorization,
             deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme,
-            appLinkReturnUri = appLinkReturnUrl
+            appLinkReturnUri = appLinkReturnUrl,
+            callbackExecutor = callbackExecutor
         )
     )
 
@@ -87,6 +98,40 @@ class PayPalClient internal constructor(
         }
     }
 
+    /**
+     * Speculatively creates the PayPal payment resource for a [PayPalRequest], e.g. while the buyer
+     * is still reviewing their cart. When [createPaymentAuthRequest] is later called with a request
+     * that has the same values, the prepared payment resource is used instead of creating a new one,
+     * which removes a network round trip before the PayPal flow can be launched.
+     *
+     * A prepared payment resource is used at most once and expires after a few minutes. Changing any
+     * value of the request, such as its amount or line items, invalidates it, so call this method
+     * again whenever the cart changes. Errors are not reported; [createPaymentAuthRequest] creates
+     * the payment resource as usual if preparation failed.
+     *
+     * @param context       Android Context
+     * @param payPalRequest a [PayPalRequest] that will be passed to [createPaymentAuthRequest].
+     */
+    fun prepare(context: Context, payPalRequest: PayPalRequest) {
+        if (preparedRequestCache.contains(payPalRequest)) return
+
+        val preparation = preparedRequestCache.begin(payPalRequest)
+        braintreeClient.getConfiguration { configuration: Configuration?, _: Exception? ->
+            if (configuration == null || !configuration.isPayPalEnabled) {
+                preparedRequestCache.complete(preparation, null)
+                return@getConfiguration
+            }
+
+            internalPayPalClient.sendRequest(
+                context,
+                preparation.request,
+                configuration
+            ) { payPalResponse: PayPalPaymentAuthRequestParams?, _: Exception? ->
+                preparedRequestCache.complete(preparation, payPalResponse)
+            }
+        }
+    }
+
     /**
      * Starts the PayPal payment flow by creating a [PayPalPaymentAuthRequestParams] to be
      * used to launch the PayPal web authentication flow in
@@ -140,12 +185,18 @@ class PayPalClient internal constructor(
                     )
                 }
 
-                else -> sendPayPalRequest(context, payPalRequest, configuration, callback)
+                else -> preparedRequestCache.consume(payPalRequest) { preparedResponse ->
+                    if (preparedResponse != null) {
+                        stampSwitchInitiatedTime(preparedResponse)
+                        onPayPalResponse(preparedResponse, null, callback)
+                    } else {
+                        sendPayPalRequest(context, payPalRequest, configuration, callback)
+                    }
+                }
             }
         }
     }
 
-    @Suppress("TooGenericExceptionCaught")
     private fun sendPayPalRequest(
         context: Context,
         payPalRequest: PayPalRequest,
@@ -158,41 +209,68 @@ class PayPalClient internal constructor(
             configuration,
         ) { payPalResponse: PayPalPaymentAuthRequestParams?,
             error: Exception? ->
-            if (payPalResponse != null) {
-                val contextId = payPalResponse.contextId
-
-                try {
-                    payPalResponse.browserSwitchOptions = buildBrowserSwitchOptions(payPalResponse)
-                    callback.onPayPalPaymentAuthRequest(PayPalPaymentAuthRequest.ReadyToLaunch(payPalResponse))
-                } catch (exception: Exception) {
-                    when (exception) {
-                        is JSONException,
-                        is BraintreeException -> {
-                            callbackCreatePaymentAuthFailure(
-                                callback,
-                                PayPalPaymentAuthRequest.Failure(exception),
-                                AnalyticsEventParams(
-                                    contextId = contextId,
-                                    isVaultRequest = isVaultRequest,
-                                    shopperSessionId = shopperSessionId
-                                )
-                            )
-                        }
+            onPayPalResponse(payPalResponse, error, callback)
+        }
+    }
 
-                        else -> throw exception
+    /**
+     * The app switch URL of a prepared payment resource was built when it was prepared, so its
+     * `switch_initiated_time` is replaced with the time the prepared resource is used.
+     */
+    private fun stampSwitchInitiatedTime(payPalResponse: PayPalPaymentAuthRequestParams) {
+        val approvalUri = payPalResponse.approvalUrl?.toUri() ?: return
+        if (approvalUri.getQueryParameter(SWITCH_INITIATED_TIME_KEY) == null) return
+
+        val builder = approvalUri.buildUpon().clearQuery()
+        approvalUri.queryParameterNames.forEach { name ->
+            approvalUri.getQueryParameters(name).forEach { value ->
+                val stampedValue = if (name == SWITCH_INITIATED_TIME_KEY) time.currentTime.toString() else value
+                builder.appendQueryParameter(name, stampedValue)
+            }
+        }
+        payPalResponse.approvalUrl = builder.build().toString()
+    }
+
+    @Suppress("TooGenericExceptionCaught")
+    private fun onPayPalResponse(
+        payPalResponse: PayPalPaymentAuthRequestParams?,
+        error: Exception?,
+        callback: PayPalPaymentAuthCallback
+    ) {
+        if (payPalResponse != null) {
+            val contextId = payPalResponse.contextId
+
+            try {
+                payPalResponse.browserSwitchOptions = buildBrowserSwitchOptions(payPalResponse)
+                callback.onPayPalPaymentAuthRequest(PayPalPaymentAuthRequest.ReadyToLaunch(payPalResponse))
+            } catch (exception: Exception) {
+                when (exception) {
+                    is JSONException,
+                    is BraintreeException -> {
+                        callbackCreatePaymentAuthFailure(
+                            callback,
+                            PayPalPaymentAuthRequest.Failure(exception),
+                            AnalyticsEventParams(
+                                contextId = contextId,
+                                isVaultRequest = isVaultRequest,
+                                shopperSessionId = shopperSessionId
+                            )
+                        )
                     }
+
+                    else -> throw exception
                 }
-            } else {
-                callbackCreatePaymentAuthFailure(
-                    callback,
-                    PayPalPaymentAuthRequest.Failure(error ?: BraintreeException("Error is null")),
-                    AnalyticsEventParams(
-                        contextId = null,
-                        isVaultRequest = isVaultRequest,
-                        shopperSessionId = shopperSessionId
-                    )
-                )
             }
+        } else {
+            callbackCreatePaymentAuthFailure(
+                callback,
+                PayPalPaymentAuthRequest.Failure(error ?: BraintreeException("Error is null")),
+                AnalyticsEventParams(
+                    contextId = null,
+                    isVaultRequest = isVaultRequest,
+                    shopperSessionId = shopperSessionId
+                )
+            )
         }
     }
 
@@ -263,7 +341,7 @@ class PayPalClient internal constructor(
         val paymentType = Json.optString(metadata, "payment-type", "unknown")
         val isBillingAgreement = paymentType.equals("billing-agreement", ignoreCase = true)
         val tokenKey = if (isBillingAgreement) "ba_token" else "token"
-        val switchInitiatedTime = approvalUrl?.toUri()?.getQueryParameter("switch_initiated_time")
+        val switchInitiatedTime = approvalUrl?.toUri()?.getQueryParameter(SWITCH_INITIATED_TIME_KEY)
         val isAppSwitchFlow = !switchInitiatedTime.isNullOrEmpty()
 
         val contextId = approvalUrl?.toUri()?.getQueryParameter(tokenKey)?.takeIf { it.isNotEmpty() }
@@ -406,5 +484,9 @@ class PayPalClient internal constructor(
             "for more information."
 
         internal const val BROWSER_SWITCH_EXCEPTION_MESSAGE = "The response contained inconsistent data."
+
+        private val PREPARED_REQUEST_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(3)
+
+        private const val SWITCH_INITIATED_TIME_KEY = "switch_initiated_time"
     }
 }
@@ -24,12 +24,12 @@ internal class PayPalInternalClient(
     private val dataCollector: DataCollector = DataCollector(braintreeClient),
     private val apiClient: ApiClient = ApiClient(braintreeClient),
     private val deviceInspector: DeviceInspector = DeviceInspectorProvider().deviceInspector,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
     private val getReturnLinkUseCase: GetReturnLinkUseCase = GetReturnLinkUseCase(merchantRepository),
     private val setAppSwitchUseCase: SetAppSwitchUseCase = SetAppSwitchUseCase(AppSwitchRepository.instance),
     private val getAppSwitchUseCase: GetAppSwitchUseCase = GetAppSwitchUseCase(AppSwitchRepository.instance),
     private val resolvePayPalUseCase: ResolvePayPalUseCase = ResolvePayPalUseCase(merchantRepository),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
 ) {
 
     fun sendRequest(
@@ -132,49 +132,79 @@ internal class PayPalInternalClient(
                 )
 
                 val contextId = extractContextId(parsedRedirectUri)
-                val clientMetadataId = payPalRequest.riskCorrelationId ?: run {
-                    val dataCollectorRequest = DataCollectorInternalRequest(
-                        payPalRequest.hasUserLocationConsent
-                    ).apply {
-                        applicationGuid = dataCollector.getPayPalInstallationGUID(context)
-                        clientMetadataId = contextId
-                    }
-                    dataCollector.getClientMetadataId(context, dataCollectorRequest, configuration)
-                }
-
-                val returnLink: String = when (val returnLinkResult = getReturnLinkUseCase(parsedRedirectUri)) {
-                    is GetReturnLinkUseCase.ReturnLinkResult.AppLink -> returnLinkResult.appLinkReturnUri.toString()
-                    is GetReturnLinkUseCase.ReturnLinkResult.DeepLink -> returnLinkResult.deepLinkFallbackUrlScheme
-                    is GetReturnLinkUseCase.ReturnLinkResult.Failure -> {
-                        callback.onResult(null, returnLinkResult.exception)
-                        return@sendPOST
-                    }
-                }
-                val paymentAuthRequest = PayPalPaymentAuthRequestParams(
-                    payPalRequest = payPalRequest,
-                    browserSwitchOptions = null,
-                    clientMetadataId = clientMetadataId,
-                    contextId = contextId,
-                    successUrl = "$returnLink://onetouch/v1/success"
-                )
-                if (getAppSwitchUseCase()) {
-                    if (!contextId.isNullOrEmpty()) {
-                        val flowType = if (payPalRequest.isBillingAgreement()) "va" else "ecs"
-                        val uri = createAppSwitchUri(parsedRedirectUri, configuration.merchantId, flowType)
-                        paymentAuthRequest.approvalUrl = uri.toString()
-                    } else {
-                        callback.onResult(null, BraintreeException("Missing Token for PayPal App Switch."))
-                    }
+                val riskCorrelationId = payPalRequest.riskCorrelationId
+                if (riskCorrelationId != null) {
+                    createPaymentAuthRequestParams(
+                        payPalRequest, configuration, parsedRedirectUri, contextId, riskCorrelationId, callback
+                    )
                 } else {
-                    paymentAuthRequest.approvalUrl = parsedRedirectUri.toString()
+                    // the installation GUID is read once the SDK's preferences have loaded, without
+                    // waiting for them on the calling thread
+                    dataCollector.getPayPalInstallationGUID(context) { installationGuid ->
+                        val dataCollectorRequest = DataCollectorInternalRequest(
+                            payPalRequest.hasUserLocationConsent
+                        ).apply {
+                            applicationGuid = installationGuid
+                            clientMetadataId = contextId
+                        }
+                        // Magnes collection runs on the data collector's background thread; the
+                        // callback runs on the client's callback executor, or right away when the ID
+                        // is cached
+                        dataCollector.getClientMetadataId(
+                            context,
+                            dataCollectorRequest,
+                            configuration
+                        ) { clientMetadataId ->
+                            createPaymentAuthRequestParams(
+                                payPalRequest, configuration, parsedRedirectUri, contextId, clientMetadataId, callback
+                            )
+                        }
+                    }
                 }
-                callback.onResult(paymentAuthRequest, null)
             } catch (exception: JSONException) {
                 callback.onResult(null, exception)
             }
         }
     }
 
+    @Suppress("LongParameterList")
+    private fun createPaymentAuthRequestParams(
+        payPalRequest: PayPalRequest,
+        configuration: Configuration,
+        parsedRedirectUri: Uri,
+        contextId: String?,
+        clientMetadataId: String,
+        callback: PayPalInternalClientCallback
+    ) {
+        val returnLink: String = when (val returnLinkResult = getReturnLinkUseCase(parsedRedirectUri)) {
+            is GetReturnLinkUseCase.ReturnLinkResult.AppLink -> returnLinkResult.appLinkReturnUri.toString()
+            is GetReturnLinkUseCase.ReturnLinkResult.DeepLink -> returnLinkResult.deepLinkFallbackUrlScheme
+            is GetReturnLinkUseCase.ReturnLinkResult.Failure -> {
+                callback.onResult(null, returnLinkResult.exception)
+                return
+            }
+        }
+        val paymentAuthRequest = PayPalPaymentAuthRequestParams(
+            payPalRequest = payPalRequest,
+            browserSwitchOptions = null,
+            clientMetadataId = clientMetadataId,
+            contextId = contextId,
+            successUrl = "$returnLink://onetouch/v1/success"
+        ).also { it.braintreeClient = braintreeClient }
+        if (getAppSwitchUseCase()) {
+            if (!contextId.isNullOrEmpty()) {
+                val flowType = if (payPalRequest.isBillingAgreement()) "va" else "ecs"
+                val uri = createAppSwitchUri(parsedRedirectUri, configuration.merchantId, flowType)
+                paymentAuthRequest.approvalUrl = uri.toString()
+            } else {
+                callback.onResult(null, BraintreeException("Missing Token for PayPal App Switch."))
+            }
+        } else {
+            paymentAuthRequest.approvalUrl = parsedRedirectUri.toString()
+        }
+        callback.onResult(paymentAuthRequest, null)
+    }
+
     /**
      * Builds an app switch [Uri] with required observability parameters.
      *
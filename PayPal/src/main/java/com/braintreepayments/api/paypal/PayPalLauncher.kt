@@ -8,8 +8,8 @@ import com.braintreepayments.api.BrowserSwitchFinalResult
 import com.braintreepayments.api.BrowserSwitchStartResult
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
-import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.AppSwitchRepository
+import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.usecase.GetAppSwitchUseCase
 import com.braintreepayments.api.core.MerchantRepository
@@ -20,10 +20,10 @@ import com.braintreepayments.api.core.MerchantRepository
 class PayPalLauncher internal constructor(
     private val browserSwitchClient: BrowserSwitchClient,
     private val getAppSwitchUseCase: GetAppSwitchUseCase = GetAppSwitchUseCase(AppSwitchRepository.instance),
-    private val resolvePayPalUseCase: ResolvePayPalUseCase =
-        ResolvePayPalUseCase(MerchantRepository.instance),
+    private val createResolvePayPalUseCase: (MerchantRepository) -> ResolvePayPalUseCase = {
+        ResolvePayPalUseCase(it)
+    },
     lazyAnalyticsClient: Lazy<AnalyticsClient>,
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance
 ) {
     /**
      * Used to launch the PayPal flow in a web browser and deliver results to your Activity
@@ -33,7 +33,17 @@ class PayPalLauncher internal constructor(
         lazyAnalyticsClient = AnalyticsClient.lazyInstance
     )
 
-    private val analyticsClient: AnalyticsClient by lazyAnalyticsClient
+    // used when the launcher has not launched a request of a client, e.g. when the app was
+    // restarted during the browser switch
+    private val defaultAnalyticsClient: AnalyticsClient by lazyAnalyticsClient
+
+    // the client that created the request launched last, whose authorization and session the
+    // launch and the return to the app are reported under
+    @Volatile
+    private var launchingClient: BraintreeClient? = null
+
+    private val analyticsClient: AnalyticsClient
+        get() = launchingClient?.analyticsClient ?: defaultAnalyticsClient
 
     /**
      * Launches the PayPal flow by switching to a web browser for user authentication
@@ -51,6 +61,7 @@ class PayPalLauncher internal constructor(
         activity: ComponentActivity,
         paymentAuthRequest: PayPalPaymentAuthRequest.ReadyToLaunch
     ): PayPalPendingRequest {
+        launchingClient = paymentAuthRequest.requestParams.braintreeClient
         val contextId = paymentAuthRequest.requestParams.contextId
         val analyticsEventParams = AnalyticsEventParams(
             contextId = contextId,
@@ -196,8 +207,10 @@ class PayPalLauncher internal constructor(
     }
 
     private fun processAppSwitchAttempt(analyticsEventParams: AnalyticsEventParams): Boolean {
-        val attemptAppSwitch = getAppSwitchUseCase() && resolvePayPalUseCase()
-        analyticsParamRepository.didSdkAttemptAppSwitch = attemptAppSwitch
+        val client = launchingClient
+        val attemptAppSwitch = client != null && getAppSwitchUseCase() &&
+            createResolvePayPalUseCase(client.merchantRepository)()
+        client?.analyticsParamRepository?.didSdkAttemptAppSwitch = attemptAppSwitch
 
         if (attemptAppSwitch) {
             analyticsClient.sendEvent(PayPalAnalytics.APP_SWITCH_STARTED, analyticsEventParams)
@@ -2,6 +2,7 @@ package com.braintreepayments.api.paypal
 
 import androidx.annotation.RestrictTo
 import com.braintreepayments.api.BrowserSwitchOptions
+import com.braintreepayments.api.core.BraintreeClient
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 data class PayPalPaymentAuthRequestParams @JvmOverloads internal constructor(
@@ -24,4 +25,10 @@ data class PayPalPaymentAuthRequestParams @JvmOverloads internal constructor(
     @get:RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     val merchantAccountId: String?
         get() = payPalRequest.merchantAccountId
+
+    /**
+     * The client that created the request, so that [PayPalLauncher] reports under its
+     * authorization and session.
+     */
+    internal var braintreeClient: BraintreeClient? = null
 }
@@ -5,6 +5,7 @@ import android.content.pm.PackageManager
 import android.net.Uri
 import com.braintreepayments.api.core.DeviceInspector
 import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.sharedutils.AppResolutionCache
 
 /**
  * Use case that determines whether the PayPal app can resolve app-switch URIs.
@@ -13,7 +14,8 @@ import com.braintreepayments.api.core.MerchantRepository
  * If this setting is unchecked, this use case will return false.
  */
 internal class ResolvePayPalUseCase(
-    private val merchantRepository: MerchantRepository
+    private val merchantRepository: MerchantRepository,
+    private val appResolutionCache: AppResolutionCache = AppResolutionCache.instance
 ) {
 
     /**
@@ -23,7 +25,9 @@ internal class ResolvePayPalUseCase(
      */
     operator fun invoke(
         uri: Uri = Uri.parse(PAYPAL_APP_SWITCH_URL)
-    ): Boolean {
+    ): Boolean = appResolutionCache.getOrPut("resolves-to-paypal:$uri") { resolvesToPayPal(uri) }
+
+    private fun resolvesToPayPal(uri: Uri): Boolean {
         val context = merchantRepository.applicationContext
         val intent = Intent(Intent.ACTION_VIEW, uri).apply {
             addCategory(Intent.CATEGORY_BROWSABLE)
@@ -23,6 +23,7 @@ import com.braintreepayments.api.core.usecase.GetReturnLinkUseCase.ReturnLinkRes
 import com.braintreepayments.api.core.LinkType
 import com.braintreepayments.api.core.MerchantRepository
 import com.braintreepayments.api.core.usecase.GetDefaultAppUseCase
+import com.braintreepayments.api.sharedutils.Time
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import io.mockk.every
@@ -33,6 +34,7 @@ import junit.framework.TestCase
 import org.json.JSONException
 import org.json.JSONObject
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
@@ -516,6 +518,139 @@ class PayPalClientUnitTest {
         }
     }
 
+    @Test
+    fun prepare_sendsCopyOfPayPalRequestViaInternalClient() {
+        val payPalInternalClient = MockkPayPalInternalClientBuilder().build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalEnabledConfig).build()
+        val payPalRequest = PayPalCheckoutRequest("1.00", true)
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient)
+        sut.prepare(activity, payPalRequest)
+
+        val requestSlot = slot<PayPalRequest>()
+        verify {
+            payPalInternalClient.sendRequest(activity, capture(requestSlot), payPalEnabledConfig, any())
+        }
+        assertTrue(requestSlot.captured is PayPalCheckoutRequest)
+        assertNotSame(payPalRequest, requestSlot.captured)
+        assertEquals("1.00", (requestSlot.captured as PayPalCheckoutRequest).amount)
+    }
+
+    @Test
+    fun prepare_whenPayPalNotEnabled_doesNotSendRequest() {
+        val payPalInternalClient = MockkPayPalInternalClientBuilder().build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalDisabledConfig).build()
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient)
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+
+        verify(exactly = 0) { payPalInternalClient.sendRequest(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun prepare_whenAlreadyPrepared_doesNotSendRequestAgain() {
+        val paymentAuthRequest = PayPalPaymentAuthRequestParams(
+            PayPalCheckoutRequest("1.00", true),
+            null,
+            "https://example.com/approval/url"
+        )
+        val payPalInternalClient =
+            MockkPayPalInternalClientBuilder().sendRequestSuccess(paymentAuthRequest).build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalEnabledConfig).build()
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient)
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+
+        verify(exactly = 1) { payPalInternalClient.sendRequest(any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_whenRequestWasPrepared_usesPreparedPaymentResource() {
+        val paymentAuthRequest = PayPalPaymentAuthRequestParams(
+            PayPalCheckoutRequest("1.00", true),
+            null,
+            "https://example.com/approval/url",
+            "sample-client-metadata-id",
+            null,
+            "https://example.com/success/url"
+        )
+        val payPalInternalClient =
+            MockkPayPalInternalClientBuilder().sendRequestSuccess(paymentAuthRequest).build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalEnabledConfig).build()
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient)
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+        sut.createPaymentAuthRequest(activity, PayPalCheckoutRequest("1.00", true), paymentAuthCallback)
+
+        verify(exactly = 1) { payPalInternalClient.sendRequest(any(), any(), any(), any()) }
+        val slot = slot<PayPalPaymentAuthRequest>()
+        verify { paymentAuthCallback.onPayPalPaymentAuthRequest(capture(slot)) }
+        val requestParams = (slot.captured as PayPalPaymentAuthRequest.ReadyToLaunch).requestParams
+        assertEquals(paymentAuthRequest, requestParams)
+        assertEquals(
+            Uri.parse("https://example.com/approval/url"),
+            requestParams.browserSwitchOptions!!.url
+        )
+    }
+
+    @Test
+    fun createPaymentAuthRequest_whenRequestWasPrepared_stampsSwitchInitiatedTimeWhenItIsUsed() {
+        val paymentAuthRequest = PayPalPaymentAuthRequestParams(
+            PayPalCheckoutRequest("1.00", true),
+            null,
+            "https://paypal.com/app-switch?token=EC-TOKEN&source=braintree_sdk" +
+                "&switch_initiated_time=1000&merchant=merchant-id&flow_type=ecs",
+            "sample-client-metadata-id",
+            "EC-TOKEN",
+            "https://example.com/success/url"
+        )
+        val payPalInternalClient =
+            MockkPayPalInternalClientBuilder().sendRequestSuccess(paymentAuthRequest).build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalEnabledConfig).build()
+        val time = mockk<Time>()
+        every { time.currentTime } returns 5000L
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient, time)
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+        sut.createPaymentAuthRequest(activity, PayPalCheckoutRequest("1.00", true), paymentAuthCallback)
+
+        val slot = slot<PayPalPaymentAuthRequest>()
+        verify { paymentAuthCallback.onPayPalPaymentAuthRequest(capture(slot)) }
+        val requestParams = (slot.captured as PayPalPaymentAuthRequest.ReadyToLaunch).requestParams
+        assertEquals(
+            "https://paypal.com/app-switch?token=EC-TOKEN&source=braintree_sdk" +
+                "&switch_initiated_time=5000&merchant=merchant-id&flow_type=ecs",
+            requestParams.approvalUrl
+        )
+    }
+
+    @Test
+    fun createPaymentAuthRequest_whenAmountChangedSincePrepare_createsNewPaymentResource() {
+        val paymentAuthRequest = PayPalPaymentAuthRequestParams(
+            PayPalCheckoutRequest("1.00", true),
+            null,
+            "https://example.com/approval/url"
+        )
+        val payPalInternalClient =
+            MockkPayPalInternalClientBuilder().sendRequestSuccess(paymentAuthRequest).build()
+        val braintreeClient =
+            MockkBraintreeClientBuilder().configurationSuccess(payPalEnabledConfig).build()
+        val payPalRequest = PayPalCheckoutRequest("2.00", true)
+
+        val sut = testPaypalClient(braintreeClient, payPalInternalClient)
+        sut.prepare(activity, PayPalCheckoutRequest("1.00", true))
+        sut.createPaymentAuthRequest(activity, payPalRequest, paymentAuthCallback)
+
+        verify(exactly = 2) { payPalInternalClient.sendRequest(any(), any(), any(), any()) }
+        verify { payPalInternalClient.sendRequest(activity, payPalRequest, payPalEnabledConfig, any()) }
+    }
+
     @Test
     @Throws(JSONException::class)
     fun tokenize_withBillingAgreement_tokenizesResponseOnSuccess() {
@@ -799,7 +934,8 @@ class PayPalClientUnitTest {
 
     private fun testPaypalClient(
         braintreeClient: BraintreeClient,
-        payPalInternalClient: PayPalInternalClient
+        payPalInternalClient: PayPalInternalClient,
+        time: Time = Time()
     ): PayPalClient = PayPalClient(
         braintreeClient,
         payPalInternalClient,
@@ -808,6 +944,7 @@ class PayPalClientUnitTest {
         getAppLinksCompatibleBrowserUseCase,
         getReturnLinkTypeUseCase,
         getReturnLinkUseCase,
-        analyticsParamRepository
+        analyticsParamRepository,
+        time = time
     )
 }
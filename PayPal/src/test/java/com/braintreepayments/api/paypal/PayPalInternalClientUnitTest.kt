@@ -8,6 +8,7 @@ import com.braintreepayments.api.core.usecase.GetReturnLinkUseCase.ReturnLinkRes
 import com.braintreepayments.api.core.usecase.GetReturnLinkUseCase.ReturnLinkResult.DeepLink
 import com.braintreepayments.api.core.usecase.GetAppSwitchUseCase
 import com.braintreepayments.api.core.usecase.GetReturnLinkUseCase
+import com.braintreepayments.api.datacollector.ClientMetadataIdCallback
 import com.braintreepayments.api.datacollector.DataCollector
 import com.braintreepayments.api.datacollector.DataCollectorInternalRequest
 import com.braintreepayments.api.paypal.PayPalAccountNonce.Companion.fromJSON
@@ -62,6 +63,15 @@ class PayPalInternalClientUnitTest {
         configuration = fromJson(Fixtures.CONFIGURATION_WITH_LIVE_PAYPAL)
 
         dataCollector = mockk(relaxed = true)
+        every { dataCollector.getPayPalInstallationGUID(any(), any()) } answers {
+            secondArg<(String) -> Unit>().invoke("installation-guid")
+        }
+        every {
+            dataCollector.getClientMetadataId(any(), any<DataCollectorInternalRequest>(), any(), any())
+        } answers { call ->
+            val callback = call.invocation.args[3] as ClientMetadataIdCallback
+            callback.onResult("")
+        }
         apiClient = mockk(relaxed = true)
         deviceInspector = mockk(relaxed = true)
         payPalInternalClientCallback = mockk(relaxed = true)
@@ -229,6 +239,7 @@ class PayPalInternalClientUnitTest {
         assertEquals("fake-token", params.contextId)
         assertEquals("sample-client-metadata-id", params.clientMetadataId)
         assertEquals(expectedUrl, params.approvalUrl)
+        assertNotNull(params.braintreeClient)
     }
 
     private fun createVaultRequest(): PayPalVaultRequest {
@@ -245,6 +256,7 @@ class PayPalInternalClientUnitTest {
         assertEquals("fake-ba-token", params.contextId)
         assertEquals("sample-client-metadata-id", params.clientMetadataId)
         assertEquals(expectedUrl, params.approvalUrl)
+        assertNotNull(params.braintreeClient)
     }
 
     @Test
@@ -653,10 +665,14 @@ class PayPalInternalClientUnitTest {
         every {
             dataCollector.getClientMetadataId(
                 eq(context),
-                any(),
-                eq(configuration)
+                any<DataCollectorInternalRequest>(),
+                eq(configuration),
+                any()
             )
-        } returns "sample-client-metadata-id"
+        } answers { call ->
+            val callback = call.invocation.args[3] as ClientMetadataIdCallback
+            callback.onResult("sample-client-metadata-id")
+        }
 
         every { merchantRepository.authorization } returns clientToken
         val (sut, braintreeClient) = createSutWithMocks()
@@ -952,7 +968,8 @@ class PayPalInternalClientUnitTest {
             dataCollector.getClientMetadataId(
                 context,
                 capture(slot),
-                configuration
+                configuration,
+                any()
             )
         }
 
@@ -11,6 +11,7 @@ import com.braintreepayments.api.BrowserSwitchStartResult
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.AnalyticsParamRepository
+import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.usecase.GetAppSwitchUseCase
 import com.google.testing.junit.testparameterinjector.TestParameter
 import io.mockk.CapturingSlot
@@ -38,6 +39,7 @@ class PayPalLauncherUnitTest {
     private val getAppSwitchUseCase = mockk<GetAppSwitchUseCase>(relaxed = true)
     private val resolvePayPalUseCase = mockk<ResolvePayPalUseCase>(relaxed = true)
     private val analyticsParamRepository = mockk<AnalyticsParamRepository>(relaxed = true)
+    private val braintreeClient: BraintreeClient = mockk(relaxed = true)
     private val paymentToken = "paymentToken"
     private val approvalUrl = "https://return.url?ba_token=$paymentToken"
 
@@ -47,6 +49,9 @@ class PayPalLauncherUnitTest {
     fun setup() {
         every { resolvePayPalUseCase() } returns false
 
+        every { braintreeClient.analyticsClient } returns analyticsClient
+        every { braintreeClient.analyticsParamRepository } returns analyticsParamRepository
+        every { paymentAuthRequestParams.braintreeClient } returns braintreeClient
         every { paymentAuthRequestParams.browserSwitchOptions } returns options
         every { paymentAuthRequestParams.contextId } returns paymentToken
         every { paymentAuthRequestParams.approvalUrl } returns approvalUrl
@@ -56,9 +61,8 @@ class PayPalLauncherUnitTest {
         sut = PayPalLauncher(
             browserSwitchClient = browserSwitchClient,
             getAppSwitchUseCase = getAppSwitchUseCase,
-            resolvePayPalUseCase = resolvePayPalUseCase,
-            lazyAnalyticsClient = lazy { analyticsClient },
-            analyticsParamRepository = analyticsParamRepository
+            createResolvePayPalUseCase = { resolvePayPalUseCase },
+            lazyAnalyticsClient = lazy { analyticsClient }
         )
     }
 
@@ -79,6 +83,9 @@ class PayPalLauncherUnitTest {
 
     @Test
     fun `launch on error returns pending request failure`() {
+        every { braintreeClient.analyticsClient } returns analyticsClient
+        every { braintreeClient.analyticsParamRepository } returns analyticsParamRepository
+        every { paymentAuthRequestParams.braintreeClient } returns braintreeClient
         every { paymentAuthRequestParams.browserSwitchOptions } returns options
         val exception = BrowserSwitchException("error")
         every { browserSwitchClient.start(eq(activity), eq(options)) } returns
@@ -94,6 +101,9 @@ class PayPalLauncherUnitTest {
     @Test
     @Throws(BrowserSwitchException::class)
     fun `launch when device cant perform browser switch returns pending request failure`() {
+        every { braintreeClient.analyticsClient } returns analyticsClient
+        every { braintreeClient.analyticsParamRepository } returns analyticsParamRepository
+        every { paymentAuthRequestParams.braintreeClient } returns braintreeClient
         every { paymentAuthRequestParams.browserSwitchOptions } returns options
         val exception = BrowserSwitchException("browser switch error")
         every {
@@ -430,4 +440,28 @@ class PayPalLauncherUnitTest {
         assertSame(PayPalAnalytics.HANDLE_RETURN_NO_RESULT, slot1.captured)
         assertEquals(paymentToken, slot2.captured.contextId)
     }
+
+    @Test
+    fun `launch and handleReturnToApp report under the client that created the request`() {
+        val defaultAnalyticsClient: AnalyticsClient = mockk(relaxed = true)
+        sut = PayPalLauncher(
+            browserSwitchClient = browserSwitchClient,
+            getAppSwitchUseCase = getAppSwitchUseCase,
+            createResolvePayPalUseCase = { resolvePayPalUseCase },
+            lazyAnalyticsClient = lazy { defaultAnalyticsClient }
+        )
+        every {
+            browserSwitchClient.start(activity, options)
+        } returns BrowserSwitchStartResult.Started(pendingRequestString)
+        every {
+            browserSwitchClient.completeRequest(intent, pendingRequestString)
+        } returns BrowserSwitchFinalResult.NoResult
+
+        sut.launch(activity, PayPalPaymentAuthRequest.ReadyToLaunch(paymentAuthRequestParams))
+        sut.handleReturnToApp(PayPalPendingRequest.Started(pendingRequestString), intent)
+
+        verify { analyticsClient.sendEvent(PayPalAnalytics.BROWSER_PRESENTATION_SUCCEEDED, any()) }
+        verify { analyticsClient.sendEvent(PayPalAnalytics.HANDLE_RETURN_NO_RESULT, any()) }
+        verify(exactly = 0) { defaultAnalyticsClient.sendEvent(any(), any()) }
+    }
 }
@@ -7,6 +7,7 @@ import android.content.pm.ResolveInfo
 import android.net.Uri
 import com.braintreepayments.api.core.DeviceInspector
 import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.sharedutils.AppResolutionCache
 import io.mockk.every
 import io.mockk.mockk
 import org.junit.Before
@@ -37,7 +38,7 @@ class ResolvePayPalUseCaseUnitTest {
         every { merchantRepository.applicationContext } returns context
         resolveInfo.activityInfo = activityInfo
 
-        subject = ResolvePayPalUseCase(merchantRepository)
+        subject = ResolvePayPalUseCase(merchantRepository, AppResolutionCache())
     }
 
     @Test
@@ -1,7 +1,12 @@
 package com.braintreepayments.api.paypalmessaging
 
+import com.braintreepayments.api.core.AnalyticsSamplingPolicy
+
 internal object PayPalMessagingAnalytics {
     const val STARTED = "paypal-messaging:create-view:started"
     const val FAILED = "paypal-messaging:create-view:failed"
     const val SUCCEEDED = "paypal-messaging:create-view:succeeded"
+
+    // a message view is created for every view it is shown in, such as each item of a list
+    val CREATE_VIEW_SAMPLING_POLICY = AnalyticsSamplingPolicy(maxEventsPerMinute = 10)
 }
@@ -3,6 +3,7 @@ package com.braintreepayments.api.paypalmessaging
 import android.content.Context
 import android.view.ViewGroup
 import android.widget.FrameLayout
+import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
@@ -36,6 +37,9 @@ class PayPalMessagingView internal constructor(
 
     private var messageView: PayPalMessageView? = null
 
+    private val createViewAnalyticsParams =
+        AnalyticsEventParams(samplingPolicy = PayPalMessagingAnalytics.CREATE_VIEW_SAMPLING_POLICY)
+
     /**
      * Add a {@link PayPalMessagingListener} to your client to receive results or errors from the PayPal Messaging flow.
      *
@@ -56,7 +60,7 @@ class PayPalMessagingView internal constructor(
             integrationVersion = BuildConfig.VERSION_NAME
         )
 
-        braintreeClient.sendAnalyticsEvent(PayPalMessagingAnalytics.STARTED)
+        braintreeClient.sendAnalyticsEvent(PayPalMessagingAnalytics.STARTED, createViewAnalyticsParams)
 
         braintreeClient.getConfiguration { configuration, configError ->
             if (configError != null) {
@@ -144,7 +148,7 @@ class PayPalMessagingView internal constructor(
     }
 
     private fun notifySuccess() {
-        braintreeClient.sendAnalyticsEvent(PayPalMessagingAnalytics.SUCCEEDED)
+        braintreeClient.sendAnalyticsEvent(PayPalMessagingAnalytics.SUCCEEDED, createViewAnalyticsParams)
         listener?.onPayPalMessagingSuccess()
     }
 
@@ -2,6 +2,8 @@ package com.braintreepayments.api.paypalmessaging
 
 import android.content.Context
 import androidx.test.core.app.ApplicationProvider
+import com.braintreepayments.api.core.AnalyticsEventParams
+import com.braintreepayments.api.core.AnalyticsSamplingPolicy
 import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.Configuration.Companion.fromJson
@@ -25,6 +27,9 @@ class PayPalMessagingViewUnitTest {
     private lateinit var context: Context
     private lateinit var listener: PayPalMessagingListener
 
+    private val createViewParams =
+        AnalyticsEventParams(samplingPolicy = AnalyticsSamplingPolicy(maxEventsPerMinute = 10))
+
     @Before
     fun beforeEach() {
         context = ApplicationProvider.getApplicationContext()
@@ -63,7 +68,7 @@ class PayPalMessagingViewUnitTest {
         verify { listener.onPayPalMessagingFailure(capture(exceptionSlot)) }
         val capturedException = exceptionSlot.captured
         assertEquals("Could not find PayPal client ID in Braintree configuration.", capturedException.message)
-        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started") }
+        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started", createViewParams) }
         verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:failed") }
     }
 
@@ -83,7 +88,7 @@ class PayPalMessagingViewUnitTest {
         payPalMessageView.start()
 
         verify { listener.onPayPalMessagingLoading() }
-        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started") }
+        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started", createViewParams) }
         verify { PayPalMessageConfig.setGlobalAnalytics(
                 integrationName = "BT_SDK",
                 integrationVersion = BuildConfig.VERSION_NAME
@@ -109,7 +114,7 @@ class PayPalMessagingViewUnitTest {
 
         assertEquals(payPalMessageView.childCount, 1)
         verify { listener.onPayPalMessagingLoading() }
-        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started") }
+        verify { braintreeClient.sendAnalyticsEvent("paypal-messaging:create-view:started", createViewParams) }
         verify { PayPalMessageConfig.setGlobalAnalytics(
                 integrationName = "BT_SDK",
                 integrationVersion = BuildConfig.VERSION_NAME
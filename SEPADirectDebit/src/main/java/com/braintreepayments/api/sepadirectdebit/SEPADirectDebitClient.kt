@@ -9,6 +9,7 @@ import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.BraintreeRequestCodes
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -25,12 +26,15 @@ class SEPADirectDebitClient internal constructor(
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
      * @param returnUrlScheme a custom return url to use for browser and app switching
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
+    @JvmOverloads
     constructor(
         context: Context,
         authorization: String,
-        returnUrlScheme: String?
-    ) : this(BraintreeClient(context, authorization, returnUrlScheme))
+        returnUrlScheme: String?,
+        callbackExecutor: Executor? = null
+    ) : this(BraintreeClient(context, authorization, returnUrlScheme, callbackExecutor = callbackExecutor))
 
     /**
      * Starts the SEPA tokenization process by creating a [SEPADirectDebitPaymentAuthRequestParams] to be used
@@ -6,9 +6,14 @@ import static org.junit.Assert.assertFalse;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.StrictMode;
 
 import androidx.test.core.app.ApplicationProvider;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences;
 
@@ -17,6 +22,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 @RunWith(AndroidJUnit4ClassRunner.class)
 public class BraintreeSharedPreferencesTest {
 
@@ -31,7 +44,8 @@ public class BraintreeSharedPreferencesTest {
 
     @After
     public void afterEach() {
-        workingSharedPreferences.edit().clear().apply();
+        BraintreeSharedPreferences.awaitPendingWrites();
+        workingSharedPreferences.edit().clear().commit();
     }
 
     @Test
@@ -105,4 +119,85 @@ public class BraintreeSharedPreferencesTest {
         assertFalse(sut.containsKey("stringKey2"));
         assertFalse(sut.containsKey("longKey"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @SdkSuppress(minSdkVersion = 28)
+    public void whenLoaded_readsColdPreferencesOnMainThreadWithoutDiskIO() throws InterruptedException {
+        workingSharedPreferences.edit().putString("strictModeKey", "strictModeValue").commit();
+        List<String> violations = new ArrayList<>();
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        BraintreeSharedPreferences[] sut = new BraintreeSharedPreferences[1];
+
+        // hold the load from disk so that the read on the main thread is made while it is cold
+        ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        Executor mainExecutor =
+            command -> mainHandler.post(() -> runWithStrictMode(violations, command));
+
+        CountDownLatch read = new CountDownLatch(1);
+        String[] value = new String[1];
+        boolean[] readOnMainThread = new boolean[1];
+        runOnMainThreadWithStrictMode(violations, () -> {
+            sut[0] = new BraintreeSharedPreferences(() -> {
+                awaitUninterruptibly(releaseLoad);
+                return workingSharedPreferences;
+            }, null, loadExecutor);
+            sut[0].whenLoaded(mainExecutor, () -> {
+                value[0] = sut[0].getString("strictModeKey", null);
+                readOnMainThread[0] = Looper.myLooper() == Looper.getMainLooper();
+                read.countDown();
+            });
+        });
+
+        assertEquals(1, read.getCount());
+        releaseLoad.countDown();
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        assertEquals("strictModeValue", value[0]);
+        assertTrue(readOnMainThread[0]);
+
+        runOnMainThreadWithStrictMode(violations, () -> {
+            sut[0].putString("strictModeKey", "updatedValue");
+            sut[0].putStringAndLong("strictModeKey2", "strictModeValue2", "strictModeLongKey", 123L);
+            assertEquals("updatedValue", sut[0].getString("strictModeKey", null));
+            assertEquals(123L, sut[0].getLong("strictModeLongKey"));
+            assertTrue(sut[0].containsKey("strictModeKey2"));
+        });
+
+        // let the writes reach disk before the file is cleared
+        loadExecutor.shutdown();
+        assertTrue(loadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(violations.toString(), violations.isEmpty());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runOnMainThreadWithStrictMode(List<String> violations, Runnable block) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+            () -> runWithStrictMode(violations, block));
+    }
+
+    private static void runWithStrictMode(List<String> violations, Runnable block) {
+        Executor directExecutor = Runnable::run;
+        StrictMode.ThreadPolicy originalPolicy = StrictMode.getThreadPolicy();
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+            .detectDiskReads()
+            .detectDiskWrites()
+            .penaltyListener(directExecutor, violation -> {
+                synchronized (violations) {
+                    violations.add(violation.toString());
+                }
+            })
+            .build());
+        try {
+            block.run();
+        } finally {
+            StrictMode.setThreadPolicy(originalPolicy);
+        }
+    }
+}
@@ -6,23 +6,27 @@ import android.content.pm.PackageManager
 import androidx.annotation.RestrictTo
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class AppHelper {
+class AppHelper(
+    private val appResolutionCache: AppResolutionCache = AppResolutionCache.instance
+) {
 
     companion object {
         const val NO_FLAGS = 0
     }
 
-    fun isIntentAvailable(context: Context, intent: Intent): Boolean {
-        val activities = context.packageManager.queryIntentActivities(intent, NO_FLAGS)
-        return activities.size == 1
-    }
+    fun isIntentAvailable(context: Context, intent: Intent): Boolean =
+        appResolutionCache.getOrPut("intent-available:${intent.toUri(Intent.URI_INTENT_SCHEME)}") {
+            val activities = context.packageManager.queryIntentActivities(intent, NO_FLAGS)
+            activities.size == 1
+        }
 
-    fun isAppInstalled(context: Context, packageName: String): Boolean {
-        return try {
-            context.packageManager.getApplicationInfo(packageName, NO_FLAGS)
-            true
-        } catch (_: PackageManager.NameNotFoundException) {
-            false
+    fun isAppInstalled(context: Context, packageName: String): Boolean =
+        appResolutionCache.getOrPut("app-installed:$packageName") {
+            try {
+                context.packageManager.getApplicationInfo(packageName, NO_FLAGS)
+                true
+            } catch (_: PackageManager.NameNotFoundException) {
+                false
+            }
         }
-    }
 }
@@ -0,0 +1,129 @@
+package com.braintreepayments.api.sharedutils
+
+import android.app.Activity
+import android.app.Application
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.Build
+import android.os.Bundle
+import androidx.annotation.RestrictTo
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Process-wide cache of results derived from the [android.content.pm.PackageManager], such as
+ * whether an app is installed, which app resolves an intent, or whether an app's signature is valid.
+ *
+ * Results are only cached once [startListening] has been called. From then on the cache is cleared
+ * whenever a package is added, removed or changed, and whenever the app returns to the foreground,
+ * since settings that affect intent resolution (e.g. the default browser) can only be changed while
+ * the app is in the background. This is safe to access from any thread.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class AppResolutionCache {
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+    private val generation = AtomicInteger()
+
+    @Volatile
+    private var isListening = false
+
+    private class Entry(val value: Any?)
+
+    /**
+     * Starts listening for package changes so that results can be cached. Calling this more than
+     * once has no effect.
+     *
+     * @param context Android Context
+     */
+    @Synchronized
+    fun startListening(context: Context) {
+        if (isListening) return
+
+        val applicationContext = context.applicationContext ?: context
+        val filter = IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addAction(Intent.ACTION_PACKAGE_CHANGED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addDataScheme("package")
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // package broadcasts are protected and can only be sent by the system
+            applicationContext.registerReceiver(PackageChangeReceiver(), filter, Context.RECEIVER_EXPORTED)
+        } else {
+            applicationContext.registerReceiver(PackageChangeReceiver(), filter)
+        }
+        (applicationContext as? Application)?.registerActivityLifecycleCallbacks(
+            ForegroundCallbacks()
+        )
+
+        invalidate()
+        isListening = true
+    }
+
+    /**
+     * Returns the cached result for [key], or calls [resolve] and caches its result.
+     *
+     * @param key    a key that uniquely identifies the package manager query
+     * @param resolve queries the package manager
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> getOrPut(key: String, resolve: () -> T): T {
+        if (!isListening) return resolve()
+
+        entries[key]?.let { return it.value as T }
+
+        val generationBeforeResolve = generation.get()
+        val value = resolve()
+        val entry = Entry(value)
+        entries[key] = entry
+        // don't keep a result that may have been resolved before a package change
+        if (generation.get() != generationBeforeResolve) {
+            entries.remove(key, entry)
+        }
+        return value
+    }
+
+    /**
+     * Clears all cached results.
+     */
+    fun invalidate() {
+        generation.incrementAndGet()
+        entries.clear()
+    }
+
+    private inner class PackageChangeReceiver : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            invalidate()
+        }
+    }
+
+    private inner class ForegroundCallbacks : Application.ActivityLifecycleCallbacks {
+        private var startedActivityCount = 0
+
+        override fun onActivityStarted(activity: Activity) {
+            if (startedActivityCount++ == 0) invalidate()
+        }
+
+        override fun onActivityStopped(activity: Activity) {
+            startedActivityCount = (startedActivityCount - 1).coerceAtLeast(0)
+        }
+
+        override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) = Unit
+        override fun onActivityResumed(activity: Activity) = Unit
+        override fun onActivityPaused(activity: Activity) = Unit
+        override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) = Unit
+        override fun onActivityDestroyed(activity: Activity) = Unit
+    }
+
+    companion object {
+
+        /**
+         * Singleton instance of the AppResolutionCache.
+         */
+        val instance: AppResolutionCache by lazy { AppResolutionCache() }
+    }
+}
@@ -2,47 +2,119 @@ package com.braintreepayments.api.sharedutils
 
 import android.content.Context
 import android.content.SharedPreferences
+import android.os.Build
+import android.util.Xml
 import androidx.annotation.RestrictTo
+import androidx.annotation.VisibleForTesting
+import org.xmlpull.v1.XmlPullParser
+import org.xmlpull.v1.XmlPullParserException
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
+/**
+ * Key-value storage for the SDK backed by a [SharedPreferences] file.
+ *
+ * The file is loaded on a background thread as soon as an instance is created, and all reads are
+ * served from an in-memory copy of its values. Writes update the in-memory copy immediately and are
+ * written to disk on the background thread, where writes made in quick succession are coalesced into
+ * a single commit. Writes never wait for the initial load; values loaded from disk never replace
+ * values written in the meantime.
+ *
+ * A read made before the initial load has completed has to wait for it, since answering from an
+ * incomplete copy could, for example, replace a stored installation ID. Callers on the main thread
+ * must use [whenLoaded] to defer reads, and writes that depend on stored values, until the values
+ * are in memory.
+ *
+ * When created with [getInstance], writes hold an exclusive lock on a file shared by all of the
+ * app's processes, and the preferences file is re-read before each write so that values written by
+ * another process are merged rather than overwritten.
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class BraintreeSharedPreferences(
-    private val sharedPreferences: SharedPreferences
+class BraintreeSharedPreferences internal constructor(
+    private val sharedPreferencesProvider: () -> SharedPreferences,
+    private val multiProcessFiles: MultiProcessFiles? = null,
+    private val executor: Executor = diskExecutor
 ) {
 
-    companion object {
-        private const val PREFERENCES_FILE_KEY = "com.braintreepayments.api.SHARED_PREFERENCES"
+    /**
+     * The files used to coordinate writes between the app's processes.
+     *
+     * @property preferencesFile the file the [SharedPreferences] are stored in
+     * @property lockFile the file locked while writing
+     */
+    internal class MultiProcessFiles(val preferencesFile: File, val lockFile: File)
 
-        @Volatile
-        private var INSTANCE: BraintreeSharedPreferences? = null
+    constructor(sharedPreferences: SharedPreferences) : this({ sharedPreferences })
 
-        @JvmStatic
-        fun getInstance(context: Context): BraintreeSharedPreferences {
-            return INSTANCE ?: synchronized(this) {
-                INSTANCE ?: BraintreeSharedPreferences(createSharedPreferencesInstance(context))
-                    .also { INSTANCE = it }
+    private val lock = Any()
+    private val loaded = CountDownLatch(1)
+    private val values = mutableMapOf<String, Any?>()
+    private val pendingValues = mutableMapOf<String, Any?>()
+    private val loadedCallbacks = mutableListOf<Runnable>()
+    private var isLoaded = false
+    private var isClearPending = false
+    private var isFlushScheduled = false
+
+    // only accessed on the executor
+    private var sharedPreferences: SharedPreferences? = null
+
+    init {
+        executor.execute { load() }
+    }
+
+    /**
+     * Calls [callback] once the stored values are in memory, so that reads made from it never wait
+     * on disk I/O. [callback] is called immediately on the calling thread if the values are already
+     * loaded, and on a background thread otherwise.
+     */
+    fun whenLoaded(callback: Runnable) {
+        synchronized(lock) {
+            if (!isLoaded) {
+                loadedCallbacks.add(callback)
+                return
             }
         }
+        callback.run()
+    }
 
-        private fun createSharedPreferencesInstance(context: Context): SharedPreferences {
-            return context.getSharedPreferences(PREFERENCES_FILE_KEY, Context.MODE_PRIVATE)
+    /**
+     * Like [whenLoaded], but calls [callback] on [executor] if the values are not loaded yet, so that
+     * it runs either right away on the calling thread or on a thread chosen by the caller.
+     */
+    fun whenLoaded(executor: Executor, callback: Runnable) {
+        synchronized(lock) {
+            if (!isLoaded) {
+                loadedCallbacks.add(Runnable { executor.execute(callback) })
+                return
+            }
         }
+        callback.run()
     }
 
-    fun getString(key: String, fallback: String?): String? = sharedPreferences.getString(key, fallback)
+    fun getString(key: String, fallback: String?): String? = read { values[key] as? String } ?: fallback
 
     fun putString(key: String, value: String) {
-        sharedPreferences.edit().putString(key, value).apply()
+        write { it[key] = value }
     }
 
-    fun getBoolean(key: String): Boolean = sharedPreferences.getBoolean(key, false)
+    fun getBoolean(key: String): Boolean = read { values[key] as? Boolean } ?: false
 
     fun putBoolean(key: String, value: Boolean) {
-        sharedPreferences.edit().putBoolean(key, value).apply()
+        write { it[key] = value }
     }
 
-    fun containsKey(key: String): Boolean = sharedPreferences.contains(key)
+    fun containsKey(key: String): Boolean = read { values.containsKey(key) }
 
-    fun getLong(key: String): Long = sharedPreferences.getLong(key, 0)
+    fun getLong(key: String): Long = read { values[key] as? Long } ?: 0
+
+    fun putLong(key: String, value: Long) {
+        write { it[key] = value }
+    }
 
     fun putStringAndLong(
         stringKey: String,
@@ -50,14 +122,248 @@ class BraintreeSharedPreferences(
         longKey: String,
         longValue: Long
     ) {
-        sharedPreferences
-            .edit()
-            .putString(stringKey, stringValue)
-            .putLong(longKey, longValue)
-            .apply()
+        write {
+            it[stringKey] = stringValue
+            it[longKey] = longValue
+        }
     }
 
     fun clearSharedPreferences() {
-        sharedPreferences.edit().clear().apply()
+        synchronized(lock) {
+            values.clear()
+            pendingValues.clear()
+            isClearPending = true
+        }
+        scheduleFlush()
+    }
+
+    private fun load() {
+        try {
+            val preferences = sharedPreferencesProvider().also { sharedPreferences = it }
+            val storedValues = preferences.all
+            synchronized(lock) {
+                // a clear or a write made before the load completed takes precedence over the file
+                if (!isClearPending) {
+                    storedValues.forEach { (key, value) ->
+                        if (!pendingValues.containsKey(key)) values[key] = value
+                    }
+                }
+            }
+        } finally {
+            val callbacks = synchronized(lock) {
+                isLoaded = true
+                loadedCallbacks.toList().also { loadedCallbacks.clear() }
+            }
+            loaded.countDown()
+            callbacks.forEach { it.run() }
+        }
+    }
+
+    private fun <T> read(block: () -> T): T {
+        awaitLoaded()
+        return synchronized(lock, block)
+    }
+
+    private fun write(edit: (MutableMap<String, Any?>) -> Unit) {
+        synchronized(lock) {
+            edit(values)
+            edit(pendingValues)
+        }
+        scheduleFlush()
+    }
+
+    private fun awaitLoaded() {
+        var isInterrupted = false
+        while (true) {
+            try {
+                loaded.await()
+                break
+            } catch (ignored: InterruptedException) {
+                isInterrupted = true
+            }
+        }
+        if (isInterrupted) Thread.currentThread().interrupt()
+    }
+
+    private fun scheduleFlush() {
+        synchronized(lock) {
+            if (isFlushScheduled) return
+            isFlushScheduled = true
+        }
+        executor.execute { flush() }
+    }
+
+    private fun flush() {
+        // the executor runs the initial load before any flush
+        val preferences = sharedPreferences ?: return
+        val (shouldClear, edits) = synchronized(lock) {
+            isFlushScheduled = false
+            val edits = pendingValues.toMap()
+            pendingValues.clear()
+            (isClearPending to edits).also { isClearPending = false }
+        }
+
+        withProcessLock { preferencesFile ->
+            val editor = preferences.edit()
+            val storedValues = preferencesFile?.let { readPreferencesFile(it) }
+            if (shouldClear) {
+                editor.clear()
+            } else if (storedValues != null) {
+                // carry over the values other processes have written since this process loaded the
+                // file, so that this commit doesn't overwrite them
+                mergeInto(editor, preferences.all, storedValues, edits.keys)
+            }
+            edits.forEach { (key, value) ->
+                when (value) {
+                    is String -> editor.putString(key, value)
+                    is Boolean -> editor.putBoolean(key, value)
+                    is Long -> editor.putLong(key, value)
+                }
+            }
+            editor.commit()
+
+            if (storedValues != null && !shouldClear) mergeValuesFromOtherProcesses(storedValues)
+        }
+    }
+
+    private fun mergeInto(
+        editor: SharedPreferences.Editor,
+        loadedValues: Map<String, Any?>,
+        storedValues: Map<String, Any?>,
+        editedKeys: Set<String>
+    ) {
+        loadedValues.keys
+            .filter { it !in storedValues && it !in editedKeys && loadedValues[it].isSupported() }
+            .forEach { editor.remove(it) }
+        storedValues.forEach { (key, value) ->
+            if (key in editedKeys || loadedValues[key] == value) return@forEach
+            when (value) {
+                is String -> editor.putString(key, value)
+                is Boolean -> editor.putBoolean(key, value)
+                is Long -> editor.putLong(key, value)
+            }
+        }
+    }
+
+    private fun mergeValuesFromOtherProcesses(storedValues: Map<String, Any?>) {
+        synchronized(lock) {
+            if (isClearPending) return
+            values.keys.removeAll {
+                it !in storedValues && !pendingValues.containsKey(it) && values[it].isSupported()
+            }
+            storedValues.forEach { (key, value) ->
+                if (!pendingValues.containsKey(key)) values[key] = value
+            }
+        }
+    }
+
+    /**
+     * Runs [block] while holding the lock shared by the app's processes, passing it the preferences
+     * file to merge with. If the lock can't be taken, [block] still runs, without the file, so the
+     * write isn't lost; it may then overwrite a value written concurrently by another process.
+     */
+    private inline fun withProcessLock(block: (preferencesFile: File?) -> Unit) {
+        val files = multiProcessFiles ?: return block(null)
+        val channel = try {
+            RandomAccessFile(files.lockFile, "rw").channel
+        } catch (ignored: IOException) {
+            return block(null)
+        }
+        channel.use {
+            val processLock = try {
+                it.lock()
+            } catch (ignored: IOException) {
+                return block(null)
+            }
+            try {
+                block(files.preferencesFile)
+            } finally {
+                try {
+                    processLock.release()
+                } catch (ignored: IOException) {
+                    // closing the channel releases the lock
+                }
+            }
+        }
+    }
+
+    private fun Any?.isSupported(): Boolean = this is String || this is Boolean || this is Long
+
+    companion object {
+        private const val PREFERENCES_FILE_KEY = "com.braintreepayments.api.SHARED_PREFERENCES"
+
+        private val diskExecutor: ExecutorService by lazy { Executors.newSingleThreadExecutor() }
+
+        @Volatile
+        private var INSTANCE: BraintreeSharedPreferences? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): BraintreeSharedPreferences {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: create(context.applicationContext ?: context).also { INSTANCE = it }
+            }
+        }
+
+        private fun create(context: Context): BraintreeSharedPreferences {
+            // getSharedPreferences stores the file in the shared_prefs directory of the data
+            // directory of the context
+            val dataDirectory = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                context.dataDir
+            } else {
+                File(context.applicationInfo.dataDir)
+            }
+            val preferencesDirectory = File(dataDirectory, "shared_prefs")
+            return BraintreeSharedPreferences(
+                sharedPreferencesProvider = {
+                    context.getSharedPreferences(PREFERENCES_FILE_KEY, Context.MODE_PRIVATE)
+                },
+                multiProcessFiles = MultiProcessFiles(
+                    preferencesFile = File(preferencesDirectory, "$PREFERENCES_FILE_KEY.xml"),
+                    lockFile = File(context.noBackupFilesDir, "$PREFERENCES_FILE_KEY.lock")
+                )
+            )
+        }
+
+        /**
+         * Reads the String, Boolean and Long values of a [SharedPreferences] XML file, or returns
+         * `null` if the file can't be read. A missing file has no values.
+         */
+        @VisibleForTesting
+        internal fun readPreferencesFile(file: File): Map<String, Any?>? {
+            if (!file.exists()) return emptyMap()
+            return try {
+                file.inputStream().use { input ->
+                    val parser = Xml.newPullParser()
+                    parser.setInput(input, null)
+                    val storedValues = mutableMapOf<String, Any?>()
+                    while (parser.next() != XmlPullParser.END_DOCUMENT) {
+                        if (parser.eventType != XmlPullParser.START_TAG) continue
+                        val name = parser.getAttributeValue(null, "name") ?: continue
+                        when (parser.name) {
+                            "string" -> storedValues[name] = parser.nextText()
+                            "boolean" -> storedValues[name] = parser.getAttributeValue(null, "value").toBoolean()
+                            "long" -> parser.getAttributeValue(null, "value")?.toLongOrNull()
+                                ?.let { storedValues[name] = it }
+                        }
+                    }
+                    storedValues
+                }
+            } catch (ignored: IOException) {
+                null
+            } catch (ignored: XmlPullParserException) {
+                null
+            }
+        }
+
+        /**
+         * Blocks until all writes made before this call have been written to disk.
+         */
+        @JvmStatic
+        @VisibleForTesting
+        fun awaitPendingWrites() {
+            val idle = CountDownLatch(1)
+            diskExecutor.execute { idle.countDown() }
+            idle.await()
+        }
     }
 }
@@ -0,0 +1,109 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+import okhttp3.Call
+
+/**
+ * A handle to a request that can be cancelled until its callback has been called.
+ *
+ * Cancelling a request cancels the network call it is waiting on, which releases its socket and
+ * background thread, and guarantees that its callback is not called. Cancelling a request that has
+ * already completed has no effect.
+ *
+ * @param onCancel called once, on the cancelling thread, when the request is cancelled
+ */
+class CancellableRequest @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
+    private val onCancel: () -> Unit = {}
+) {
+
+    private enum class State { PENDING, COMPLETED, CANCELLED }
+
+    private val lock = Any()
+    private var state = State.PENDING
+    private var cancelInFlight: (() -> Unit)? = null
+    private val finishActions = mutableListOf<() -> Unit>()
+
+    /**
+     * `true` if the request was cancelled before its callback was called.
+     */
+    val isCancelled: Boolean
+        get() = synchronized(lock) { state == State.CANCELLED }
+
+    /**
+     * Cancels the request, unless its callback has already been called.
+     */
+    fun cancel() {
+        val inFlight = synchronized(lock) {
+            if (state != State.PENDING) return
+            state = State.CANCELLED
+            cancelInFlight.also { cancelInFlight = null }
+        }
+        inFlight?.invoke()
+        onCancel()
+        runFinishActions()
+    }
+
+    /**
+     * Marks the request as completed, after which it can no longer be cancelled.
+     *
+     * @return `false` if the request was cancelled, in which case its callback must not be called
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun complete(): Boolean {
+        synchronized(lock) {
+            if (state == State.CANCELLED) return false
+            if (state == State.COMPLETED) return true
+            state = State.COMPLETED
+            cancelInFlight = null
+        }
+        runFinishActions()
+        return true
+    }
+
+    /**
+     * Cancels [request], which this request is waiting on, when this request is cancelled. [request]
+     * is cancelled right away if this request has already been cancelled.
+     *
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun attach(request: CancellableRequest) {
+        if (!attachCancellation { request.cancel() }) request.cancel()
+    }
+
+    /**
+     * Runs [action] once the request has completed or been cancelled, or right away if it already
+     * has. [action] runs on the thread that completes or cancels the request.
+     *
+     * @suppress
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun doOnFinish(action: () -> Unit) {
+        synchronized(lock) {
+            if (state == State.PENDING) {
+                finishActions.add(action)
+                return
+            }
+        }
+        action()
+    }
+
+    /**
+     * Associates the OkHttp [call] that executes the request with this handle.
+     *
+     * @return `false` if the request was cancelled, in which case [call] must not be executed
+     */
+    internal fun attach(call: Call): Boolean = attachCancellation { call.cancel() }
+
+    private fun attachCancellation(cancel: () -> Unit): Boolean = synchronized(lock) {
+        if (state == State.CANCELLED) return false
+        if (state == State.PENDING) cancelInFlight = cancel
+        true
+    }
+
+    private fun runFinishActions() {
+        val actions = synchronized(lock) { finishActions.toList().also { finishActions.clear() } }
+        actions.forEach { it() }
+    }
+}
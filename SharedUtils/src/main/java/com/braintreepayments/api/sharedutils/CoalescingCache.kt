@@ -0,0 +1,109 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Caches values by key for [timeToLive] and coalesces concurrent fetches for the same key into a
+ * single load. Errors are never cached.
+ *
+ * A load that has not completed within [timeToLive] is considered abandoned: the next fetch for its
+ * key starts a new load instead of waiting on it. This is safe to access from any thread; callbacks
+ * are called on the thread that completes the load, or on the calling thread for cached values.
+ *
+ * @param K the type of the keys, compared by value
+ * @param T the type of the cached values
+ * @param timeToLive how long a value is cached for, in milliseconds
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class CoalescingCache<K : Any, T : Any>(
+    private val timeToLive: Long,
+    private val time: Time = Time()
+) {
+
+    private val lock = Any()
+    private val entries = mutableMapOf<K, Entry<T>>()
+    private val inFlight = mutableMapOf<K, InFlight<T>>()
+
+    private class Entry<T>(val value: T, val createdAt: Long)
+
+    private class InFlight<T>(val startedAt: Long) {
+        val callbacks = mutableListOf<(T?, Exception?) -> Unit>()
+    }
+
+    /**
+     * Returns the value cached for [key] to [callback], or calls [load] to fetch it. [load] must
+     * call its callback exactly once, with either a value or an error.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun fetch(
+        key: K,
+        load: (callback: (T?, Exception?) -> Unit) -> Unit,
+        callback: (T?, Exception?) -> Unit
+    ) {
+        val now = time.currentTime
+        val flight = InFlight<T>(now)
+        val cachedValue = synchronized(lock) {
+            val entry = entries[key]
+            if (entry != null && now - entry.createdAt < timeToLive) {
+                entry.value
+            } else {
+                entries.remove(key)
+                val pending = inFlight[key]
+                if (pending != null && now - pending.startedAt < timeToLive) {
+                    // the same value is being loaded; wait for it
+                    pending.callbacks.add(callback)
+                    return
+                }
+                flight.callbacks.add(callback)
+                inFlight[key] = flight
+                null
+            }
+        }
+        if (cachedValue != null) {
+            callback(cachedValue, null)
+            return
+        }
+
+        try {
+            load { value, error -> complete(key, flight, value, error) }
+        } catch (e: RuntimeException) {
+            // don't leave callers waiting on a load that never started
+            complete(key, flight, null, e)
+            throw e
+        }
+    }
+
+    /**
+     * Caches [value] for [key], e.g. when it was fetched together with another request.
+     */
+    fun put(key: K, value: T) {
+        synchronized(lock) {
+            entries[key] = Entry(value, time.currentTime)
+        }
+    }
+
+    /**
+     * Discards the values cached for the keys matching [predicate]. Loads in flight for those keys
+     * still deliver their result to their callers, but the result is not cached.
+     */
+    fun invalidate(predicate: (K) -> Boolean) {
+        synchronized(lock) {
+            entries.keys.removeAll(predicate)
+            inFlight.keys.removeAll(predicate)
+        }
+    }
+
+    private fun complete(key: K, flight: InFlight<T>, value: T?, error: Exception?) {
+        val callbacks = synchronized(lock) {
+            // a load that was detached by invalidate() or abandoned must not repopulate the cache
+            if (inFlight[key] === flight) {
+                inFlight.remove(key)
+                if (value != null && error == null) {
+                    entries[key] = Entry(value, time.currentTime)
+                }
+            }
+            flight.callbacks.toList().also { flight.callbacks.clear() }
+        }
+        callbacks.forEach { it(value, error) }
+    }
+}
@@ -0,0 +1,202 @@
+package com.braintreepayments.api.sharedutils
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.os.Build
+import android.os.Handler
+import android.os.Looper
+import androidx.annotation.RestrictTo
+import androidx.annotation.VisibleForTesting
+import java.util.concurrent.TimeUnit
+
+/**
+ * Process-wide view of the device's default network, used to fail requests fast while the device
+ * is offline and to hold back work that can wait until a validated network is available.
+ *
+ * Until [startListening] has been called, or if the network can't be monitored, the device is
+ * assumed to be online so that requests are sent as they were before. This is safe to access from
+ * any thread.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class ConnectivityMonitor internal constructor(
+    private val scheduler: Scheduler = ThreadScheduler(),
+    private val handler: Handler = Handler(Looper.getMainLooper()),
+    private val unmeteredWaitMillis: Long = DEFAULT_UNMETERED_WAIT_MILLIS,
+) {
+
+    constructor() : this(
+        scheduler = ThreadScheduler(),
+        handler = Handler(Looper.getMainLooper()),
+        unmeteredWaitMillis = DEFAULT_UNMETERED_WAIT_MILLIS
+    )
+
+    internal enum class NetworkState { UNKNOWN, OFFLINE, UNVALIDATED, METERED, UNMETERED }
+
+    private class ParkedTask(val preferUnmetered: Boolean, val task: Runnable)
+
+    private val lock = Any()
+    private val parkedTasks = mutableListOf<ParkedTask>()
+    private var isUnmeteredWaitScheduled = false
+
+    @Volatile
+    private var networkState = NetworkState.UNKNOWN
+
+    @Volatile
+    private var isListening = false
+
+    /**
+     * `true` if the device is known to have no network, in which case requests can't succeed.
+     */
+    val isOffline: Boolean
+        get() = networkState == NetworkState.OFFLINE
+
+    /**
+     * `true` if the default network has been validated as having internet access, or if the network
+     * is not monitored.
+     */
+    val isValidated: Boolean
+        get() = networkState.isValidated
+
+    /**
+     * Starts monitoring the default network. Calling this more than once has no effect.
+     *
+     * @param context Android Context
+     */
+    @Synchronized
+    @Suppress("TooGenericExceptionCaught")
+    fun startListening(context: Context) {
+        if (isListening) return
+
+        val connectivityManager = context.applicationContext
+            ?.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager ?: return
+        val callback = DefaultNetworkCallback(connectivityManager)
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                connectivityManager.registerDefaultNetworkCallback(callback)
+            } else {
+                val request = NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build()
+                connectivityManager.registerNetworkCallback(request, callback)
+            }
+        } catch (e: RuntimeException) {
+            // some devices throw when registering a callback; keep assuming the device is online
+            return
+        }
+        isListening = true
+        callback.updateFromActiveNetwork()
+    }
+
+    /**
+     * Runs [task] on the calling thread if a validated network is available, or parks it and runs
+     * it on a background thread once one is.
+     *
+     * @param preferUnmetered if `true`, a task that becomes runnable on a metered network waits up
+     * to a few minutes for an unmetered network before it is run. Use this for bulk uploads.
+     */
+    fun runWhenValidated(preferUnmetered: Boolean = false, task: Runnable) {
+        synchronized(lock) {
+            if (!canRun(preferUnmetered, networkState)) {
+                parkedTasks.add(ParkedTask(preferUnmetered, task))
+                if (parkedTasks.size > MAX_PARKED_TASKS) parkedTasks.removeAt(0)
+                if (networkState == NetworkState.METERED) scheduleUnmeteredWait()
+                return
+            }
+        }
+        task.run()
+    }
+
+    @VisibleForTesting
+    internal fun updateNetworkState(state: NetworkState) {
+        val tasksToRun = synchronized(lock) {
+            networkState = state
+            if (state == NetworkState.METERED && parkedTasks.any { it.preferUnmetered }) {
+                scheduleUnmeteredWait()
+            }
+            takeParkedTasks { canRun(it.preferUnmetered, state) }
+        }
+        tasksToRun.forEach { scheduler.runOnBackground(it.task) }
+    }
+
+    // only called while holding the lock
+    private fun scheduleUnmeteredWait() {
+        if (isUnmeteredWaitScheduled) return
+        isUnmeteredWaitScheduled = true
+        handler.postDelayed({
+            val tasksToRun = synchronized(lock) {
+                isUnmeteredWaitScheduled = false
+                if (networkState.isValidated) takeParkedTasks { true } else emptyList()
+            }
+            tasksToRun.forEach { scheduler.runOnBackground(it.task) }
+        }, unmeteredWaitMillis)
+    }
+
+    // only called while holding the lock
+    private fun takeParkedTasks(predicate: (ParkedTask) -> Boolean): List<ParkedTask> {
+        val tasks = parkedTasks.filter(predicate)
+        parkedTasks.removeAll(tasks)
+        return tasks
+    }
+
+    private fun canRun(preferUnmetered: Boolean, state: NetworkState): Boolean =
+        if (preferUnmetered) state == NetworkState.UNMETERED || state == NetworkState.UNKNOWN else state.isValidated
+
+    private val NetworkState.isValidated: Boolean
+        get() = this == NetworkState.UNKNOWN || this == NetworkState.METERED || this == NetworkState.UNMETERED
+
+    private inner class DefaultNetworkCallback(
+        private val connectivityManager: ConnectivityManager
+    ) : ConnectivityManager.NetworkCallback() {
+
+        override fun onAvailable(network: Network) {
+            updateFromActiveNetwork()
+        }
+
+        override fun onCapabilitiesChanged(network: Network, networkCapabilities: NetworkCapabilities) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                updateNetworkState(networkCapabilities.toNetworkState())
+            } else {
+                updateFromActiveNetwork()
+            }
+        }
+
+        override fun onLost(network: Network) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                updateNetworkState(NetworkState.OFFLINE)
+            } else {
+                updateFromActiveNetwork()
+            }
+        }
+
+        fun updateFromActiveNetwork() {
+            val capabilities = connectivityManager.activeNetwork
+                ?.let { connectivityManager.getNetworkCapabilities(it) }
+            updateNetworkState(capabilities?.toNetworkState() ?: NetworkState.OFFLINE)
+        }
+
+        private fun NetworkCapabilities.toNetworkState(): NetworkState = when {
+            !hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET) -> NetworkState.OFFLINE
+            !hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED) -> NetworkState.UNVALIDATED
+            hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED) -> NetworkState.UNMETERED
+            else -> NetworkState.METERED
+        }
+    }
+
+    companion object {
+        private val DEFAULT_UNMETERED_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(5)
+
+        /**
+         * Parked tasks beyond this number are dropped, oldest first, so that a device that stays
+         * offline does not accumulate work.
+         */
+        private const val MAX_PARKED_TASKS = 50
+
+        /**
+         * Singleton instance of the ConnectivityMonitor.
+         */
+        val instance: ConnectivityMonitor by lazy { ConnectivityMonitor() }
+    }
+}
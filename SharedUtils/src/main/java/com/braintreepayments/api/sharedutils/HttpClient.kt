@@ -1,38 +1,63 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
+import okhttp3.OkHttpClient
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class HttpClient internal constructor(
     private val okHttpSynchronousHttpClient: OkHttpSynchronousHttpClient = OkHttpSynchronousHttpClient(),
-    private val scheduler: Scheduler = ThreadScheduler()
+    private val scheduler: Scheduler = ThreadScheduler(),
+    private val connectivityMonitor: ConnectivityMonitor = ConnectivityMonitor.instance,
 ) {
 
     constructor() : this(
         okHttpSynchronousHttpClient = OkHttpSynchronousHttpClient(),
-        scheduler = ThreadScheduler()
+        scheduler = ThreadScheduler(),
+        connectivityMonitor = ConnectivityMonitor.instance
     )
 
+    /**
+     * Sends requests with [okHttpClient] instead of the client shared by the SDK, e.g. to send them
+     * to a stub server in load tests.
+     */
+    constructor(okHttpClient: OkHttpClient) : this(
+        okHttpSynchronousHttpClient = OkHttpSynchronousHttpClient(okHttpClient),
+        scheduler = ThreadScheduler(),
+        connectivityMonitor = ConnectivityMonitor.instance
+    )
+
+    /**
+     * Sends [request] on a background thread and calls [callback] on that same thread. Callers that
+     * need the result on a particular thread are responsible for dispatching it. Once
+     * [cancellableRequest] is cancelled, the request is not sent, or its call is cancelled if it is in
+     * flight, and [callback] is not called. While the device is offline the request fails with a
+     * [NetworkUnavailableException] instead of waiting for a connection timeout.
+     */
     @Suppress("TooGenericExceptionCaught")
     fun sendRequest(
         request: OkHttpRequest,
         callback: NetworkResponseCallback?,
+        cancellableRequest: CancellableRequest? = null,
     ) {
         scheduler.runOnBackground {
-            try {
-                val httpResponse = okHttpSynchronousHttpClient.executeRequest(request)
-                callback?.let {
-                    scheduler.runOnMain { callback.onResult(NetworkResponseCallback.Result.Success(httpResponse)) }
+            if (cancellableRequest?.isCancelled == true) return@runOnBackground
+            val result = if (connectivityMonitor.isOffline) {
+                NetworkResponseCallback.Result.Failure(NetworkUnavailableException(OFFLINE_MESSAGE))
+            } else {
+                try {
+                    val httpResponse = okHttpSynchronousHttpClient.executeRequest(request, cancellableRequest)
+                    NetworkResponseCallback.Result.Success(httpResponse)
+                } catch (e: Exception) {
+                    NetworkResponseCallback.Result.Failure(e)
                 }
-            } catch (e: Exception) {
-                notifyErrorOnMainThread(callback, e)
+            }
+            if (callback != null && cancellableRequest?.isCancelled != true) {
+                callback.onResult(result)
             }
         }
     }
 
-    private fun notifyErrorOnMainThread(callback: NetworkResponseCallback?, e: Exception) {
-        if (callback != null) {
-            scheduler.runOnMain { callback.onResult(NetworkResponseCallback.Result.Failure(e)) }
-        }
+    companion object {
+        private const val OFFLINE_MESSAGE = "The device is not connected to a network."
     }
 }
@@ -1,9 +1,27 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
+import java.net.HttpURLConnection
 
+/**
+ * @property headers the response headers; use [header] to look one up regardless of its case
+ * @property statusCode the HTTP status code, which is either a 2xx code or
+ * [HttpURLConnection.HTTP_NOT_MODIFIED] for a conditional request whose content has not changed
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 data class HttpResponse(
     val body: String? = null,
-    val timing: HttpResponseTiming
-)
+    val timing: HttpResponseTiming,
+    val headers: Map<String, String> = emptyMap(),
+    val statusCode: Int = HttpURLConnection.HTTP_OK,
+) {
+
+    val isNotModified: Boolean
+        get() = statusCode == HttpURLConnection.HTTP_NOT_MODIFIED
+
+    /**
+     * Returns the value of the header called [name], ignoring case, or `null` if there is none.
+     */
+    fun header(name: String): String? =
+        headers.entries.firstOrNull { it.key.equals(name, ignoreCase = true) }?.value
+}
@@ -0,0 +1,25 @@
+package com.braintreepayments.api.sharedutils
+
+import android.os.Handler
+import android.os.Looper
+import androidx.annotation.RestrictTo
+import java.util.concurrent.Executor
+
+/**
+ * An [Executor] that runs commands on the main thread. A command submitted from the main thread is
+ * run immediately instead of being posted, so a result that is already available on the main thread
+ * is delivered synchronously.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class MainThreadExecutor(
+    private val mainThreadHandler: Handler = Handler(Looper.getMainLooper())
+) : Executor {
+
+    override fun execute(command: Runnable) {
+        if (Looper.myLooper() == mainThreadHandler.looper) {
+            command.run()
+        } else {
+            mainThreadHandler.post(command)
+        }
+    }
+}
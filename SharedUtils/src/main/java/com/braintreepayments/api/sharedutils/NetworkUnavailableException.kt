@@ -0,0 +1,8 @@
+package com.braintreepayments.api.sharedutils
+
+import java.io.IOException
+
+/**
+ * Exception returned without sending a request when the device is not connected to a network.
+ */
+class NetworkUnavailableException(message: String) : IOException(message)
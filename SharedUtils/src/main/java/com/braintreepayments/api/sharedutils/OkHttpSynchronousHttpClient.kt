@@ -6,6 +6,7 @@ import okhttp3.OkHttpClient
 import okhttp3.Request
 import okhttp3.RequestBody.Companion.toRequestBody
 import java.io.IOException
+import java.net.HttpURLConnection
 import java.util.concurrent.TimeUnit
 
 /**
@@ -14,16 +15,11 @@ import java.util.concurrent.TimeUnit
  * This client is intended for internal use and provides synchronous HTTP operations
  * with certificate pinning support. It wraps OkHttp and exposes a blocking request method.
  *
- * @property socketFactory TLSSocketFactory used for SSL connections
- * @property okHttpClient OkHttpClient instance
+ * @property okHttpClient OkHttpClient instance, which by default is shared by every client in the
+ * process so that all requests use one connection pool and dispatcher
  */
 internal class OkHttpSynchronousHttpClient(
-    private val socketFactory: TLSSocketFactory = TLSSocketFactory(),
-    private val okHttpClient: OkHttpClient = OkHttpClient.Builder()
-        .connectTimeout(THIRTY, TimeUnit.SECONDS)
-        .readTimeout(THIRTY, TimeUnit.SECONDS)
-        .sslSocketFactory(socketFactory, socketFactory.trustManager)
-        .build(),
+    private val okHttpClient: OkHttpClient = sharedOkHttpClient,
 ) {
 
     /**
@@ -33,21 +29,32 @@ internal class OkHttpSynchronousHttpClient(
      * executes it synchronously, and returns the response as an [HttpResponse].
      *
      * @param okHttpRequest The request data to execute.
-     * @return The HTTP response containing the body and timing information.
-     * @throws Exception if the request fails or the response is unsuccessful.
+     * @param cancellableRequest Handle used to cancel the call while it is in flight.
+     * @return The HTTP response containing the body, headers and timing information.
+     * @throws Exception if the request fails, is cancelled or the response is unsuccessful. A 304
+     * response to a conditional request is not considered unsuccessful.
      */
     @Throws(Exception::class)
-    fun executeRequest(okHttpRequest: OkHttpRequest): HttpResponse {
+    fun executeRequest(
+        okHttpRequest: OkHttpRequest,
+        cancellableRequest: CancellableRequest? = null
+    ): HttpResponse {
         val startTime = System.currentTimeMillis()
         val request = okHttpRequest.toRequest()
 
-        okHttpClient.newCall(request).execute().use { response ->
+        val call = okHttpClient.newCall(request)
+        if (cancellableRequest?.attach(call) == false) throw IOException("Canceled")
+        call.execute().use { response ->
             val responseBody = response.body?.string()
-            if (!response.isSuccessful) throw IOException("Unexpected code $response with body $responseBody")
+            if (!response.isSuccessful && response.code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                throw IOException("Unexpected code $response with body $responseBody")
+            }
             val endTime = System.currentTimeMillis()
             return HttpResponse(
                 body = responseBody,
-                timing = HttpResponseTiming(startTime, endTime)
+                timing = HttpResponseTiming(startTime, endTime),
+                headers = response.headers.toMap(),
+                statusCode = response.code
             )
         }
     }
@@ -81,5 +88,14 @@ internal class OkHttpSynchronousHttpClient(
 
     companion object {
         private const val THIRTY = 30L
+
+        private val sharedOkHttpClient: OkHttpClient by lazy {
+            val socketFactory = TLSSocketFactory()
+            OkHttpClient.Builder()
+                .connectTimeout(THIRTY, TimeUnit.SECONDS)
+                .readTimeout(THIRTY, TimeUnit.SECONDS)
+                .sslSocketFactory(socketFactory, socketFactory.trustManager)
+                .build()
+        }
     }
 }
@@ -1,6 +1,9 @@
 package com.braintreepayments.api.sharedutils
 
-internal interface Scheduler {
+import androidx.annotation.RestrictTo
+
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+interface Scheduler {
     fun runOnMain(runnable: Runnable)
     fun runOnBackground(runnable: Runnable)
 }
@@ -11,7 +11,8 @@ import java.security.cert.CertificateException
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class SignatureVerifier(
-    private val certificateHelper: CertificateHelper = CertificateHelper()
+    private val certificateHelper: CertificateHelper = CertificateHelper(),
+    private val appResolutionCache: AppResolutionCache = AppResolutionCache.instance
 ) {
 
     /**
@@ -23,11 +24,19 @@ class SignatureVerifier(
      * @param base64EncodedSignature the base64 encoded signature to verify.
      * @return true is signature is valid or signature verification has been disabled.
      */
-    @Suppress("SwallowedException", "ReturnCount")
     fun isSignatureValid(
         context: Context,
         packageName: String,
         base64EncodedSignature: String
+    ): Boolean = appResolutionCache.getOrPut("signature-valid:$packageName:$base64EncodedSignature") {
+        verifySignature(context, packageName, base64EncodedSignature)
+    }
+
+    @Suppress("SwallowedException", "ReturnCount")
+    private fun verifySignature(
+        context: Context,
+        packageName: String,
+        base64EncodedSignature: String
     ): Boolean {
         val signatures = try {
             context.packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNATURES).signatures
@@ -0,0 +1,174 @@
+package com.braintreepayments.api.sharedutils
+
+import android.os.Build
+import android.os.Parcel
+import android.os.Parcelable
+import androidx.annotation.RestrictTo
+
+/**
+ * Holds the result of a request made speculatively, e.g. while the buyer is still reviewing their
+ * cart, until it is handed out to the real request.
+ *
+ * A speculative request is matched against the real request by a snapshot of all of the request's
+ * parcelled values, so any change to the request (e.g. its amount or line items) invalidates it. A
+ * result is handed out at most once and expires after [timeToLive]. Only a single speculative
+ * request is held at a time. This is safe to access from any thread; callbacks are called on the
+ * thread that settles the speculative request.
+ *
+ * @param requestClass the class of the requests, used to copy them
+ * @param timeToLive how long a result can be handed out for, in milliseconds
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class SpeculativeRequestCache<R : Parcelable, T : Any>(
+    private val requestClass: Class<R>,
+    private val timeToLive: Long,
+    private val time: Time = Time()
+) {
+
+    private val lock = Any()
+    private var speculation: Speculation<R, T>? = null
+
+    /**
+     * A single speculative request.
+     *
+     * @property request a copy of the speculative request, so that the result is created from the
+     * values the request had when the speculative request was started
+     */
+    class Speculation<R, T> internal constructor(
+        internal val fingerprint: ByteArray,
+        val request: R
+    ) {
+        internal var result: T? = null
+        internal var completedAt: Long = 0
+        internal var isComplete: Boolean = false
+        internal val pendingCallbacks = mutableListOf<(T?) -> Unit>()
+    }
+
+    /**
+     * Returns true if a speculative request for [request] is in flight, or has completed and has
+     * not expired.
+     */
+    fun contains(request: R): Boolean {
+        val fingerprint = fingerprintOf(request)
+        return synchronized(lock) {
+            val current = speculation ?: return false
+            current.fingerprint.contentEquals(fingerprint) && (!current.isComplete || !isExpired(current))
+        }
+    }
+
+    /**
+     * Starts a new speculative request for [request], replacing any previous one.
+     */
+    fun begin(request: R): Speculation<R, T> {
+        val parcel = Parcel.obtain()
+        val started = try {
+            parcel.writeParcelable(request, 0)
+            val fingerprint = parcel.marshall()
+            parcel.setDataPosition(0)
+            Speculation<R, T>(fingerprint, requireNotNull(readRequest(parcel)))
+        } finally {
+            parcel.recycle()
+        }
+
+        val waiting = synchronized(lock) {
+            val replaced = speculation
+            speculation = started
+            replaced?.takePendingCallbacks().orEmpty()
+        }
+        waiting.forEach { it(null) }
+        return started
+    }
+
+    /**
+     * Completes [speculation] with its [result], or with `null` if it failed. A caller waiting in
+     * [consume] receives the result immediately; otherwise it is kept until it is consumed or
+     * expires. Results of a speculative request that has since been replaced are ignored.
+     */
+    fun complete(speculation: Speculation<R, T>, result: T?) {
+        val waiting = synchronized(lock) {
+            if (this.speculation !== speculation) return
+
+            val waiting = speculation.takePendingCallbacks()
+            if (result == null || waiting.isNotEmpty()) {
+                this.speculation = null
+            } else {
+                speculation.result = result
+                speculation.completedAt = time.currentTime
+                speculation.isComplete = true
+            }
+            waiting
+        }
+        // a result can only be used once, so only the first waiting caller receives it
+        waiting.forEachIndexed { index, callback -> callback(if (index == 0) result else null) }
+    }
+
+    /**
+     * Hands the result of the speculative request for [request] to [callback], waiting for it to
+     * complete if it is still in flight. [callback] receives `null` if there is no valid result for
+     * [request], in which case the request must be made as usual.
+     */
+    fun consume(request: R, callback: (T?) -> Unit) {
+        val fingerprint = fingerprintOf(request)
+        val (result, waiting) = synchronized(lock) {
+            val current = speculation
+            when {
+                current == null || !current.fingerprint.contentEquals(fingerprint) -> {
+                    speculation = null
+                    null to current?.takePendingCallbacks().orEmpty()
+                }
+
+                !current.isComplete -> {
+                    current.pendingCallbacks.add(callback)
+                    return
+                }
+
+                else -> {
+                    speculation = null
+                    (if (isExpired(current)) null else current.result) to emptyList()
+                }
+            }
+        }
+        waiting.forEach { it(null) }
+        callback(result)
+    }
+
+    /**
+     * Discards the current speculative request. Callers waiting on it make the request as usual.
+     */
+    fun invalidate() {
+        val waiting = synchronized(lock) {
+            val current = speculation ?: return
+            speculation = null
+            current.takePendingCallbacks()
+        }
+        waiting.forEach { it(null) }
+    }
+
+    // only called while holding the lock
+    private fun Speculation<R, T>.takePendingCallbacks(): List<(T?) -> Unit> {
+        val callbacks = pendingCallbacks.toList()
+        pendingCallbacks.clear()
+        return callbacks
+    }
+
+    // only called while holding the lock
+    private fun isExpired(speculation: Speculation<R, T>): Boolean =
+        time.currentTime - speculation.completedAt >= timeToLive
+
+    private fun readRequest(parcel: Parcel): R? = when {
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE ->
+            parcel.readParcelable(requestClass.classLoader, requestClass)
+
+        else -> @Suppress("DEPRECATION") requestClass.cast(parcel.readParcelable<Parcelable>(requestClass.classLoader))
+    }
+
+    private fun fingerprintOf(request: R): ByteArray {
+        val parcel = Parcel.obtain()
+        return try {
+            parcel.writeParcelable(request, 0)
+            parcel.marshall()
+        } finally {
+            parcel.recycle()
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.braintreepayments.api.sharedutils
 
 import android.os.Handler
 import android.os.Looper
+import androidx.annotation.RestrictTo
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
 
-internal class ThreadScheduler(
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class ThreadScheduler(
     private val mainThreadHandler: Handler = Handler(Looper.getMainLooper()),
     private val backgroundThreadService: ExecutorService = Executors.newCachedThreadPool()
 ) : Scheduler {
@@ -27,7 +27,7 @@ class AppHelperUnitTest {
         every { context.packageManager } returns packageManager
         every { packageManager.getApplicationInfo("package.name", 0) } returns mockk<ApplicationInfo>()
 
-        val sut = AppHelper()
+        val sut = AppHelper(AppResolutionCache())
         assertTrue(sut.isAppInstalled(context, "package.name"))
     }
 
@@ -36,7 +36,7 @@ class AppHelperUnitTest {
         every { context.packageManager } returns packageManager
         every { packageManager.getApplicationInfo("package.name", 0) } throws NameNotFoundException()
 
-        val sut = AppHelper()
+        val sut = AppHelper(AppResolutionCache())
         assertFalse(sut.isAppInstalled(context, "package.name"))
     }
 }
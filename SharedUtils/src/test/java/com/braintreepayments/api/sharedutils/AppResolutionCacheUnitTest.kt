@@ -0,0 +1,85 @@
+package com.braintreepayments.api.sharedutils
+
+import android.app.Application
+import android.content.Intent
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.shadows.ShadowLooper
+import kotlin.test.assertEquals
+
+@RunWith(RobolectricTestRunner::class)
+class AppResolutionCacheUnitTest {
+
+    private lateinit var application: Application
+    private lateinit var sut: AppResolutionCache
+    private var resolveCount = 0
+
+    @Before
+    fun beforeEach() {
+        application = ApplicationProvider.getApplicationContext()
+        sut = AppResolutionCache()
+        resolveCount = 0
+    }
+
+    private fun resolve(): Int = ++resolveCount
+
+    @Test
+    fun `getOrPut before startListening does not cache results`() {
+        assertEquals(1, sut.getOrPut("key", ::resolve))
+        assertEquals(2, sut.getOrPut("key", ::resolve))
+    }
+
+    @Test
+    fun `getOrPut after startListening returns cached result`() {
+        sut.startListening(application)
+
+        assertEquals(1, sut.getOrPut("key", ::resolve))
+        assertEquals(1, sut.getOrPut("key", ::resolve))
+        assertEquals(2, sut.getOrPut("other-key", ::resolve))
+    }
+
+    @Test
+    fun `getOrPut caches null results`() {
+        sut.startListening(application)
+
+        sut.getOrPut<String?>("key") {
+            resolveCount++
+            null
+        }
+        sut.getOrPut<String?>("key") {
+            resolveCount++
+            null
+        }
+
+        assertEquals(1, resolveCount)
+    }
+
+    @Test
+    fun `package change broadcast invalidates cached results`() {
+        sut.startListening(application)
+        sut.getOrPut("key", ::resolve)
+
+        application.sendBroadcast(
+            Intent(Intent.ACTION_PACKAGE_ADDED, Uri.parse("package:com.example"))
+        )
+        ShadowLooper.idleMainLooper()
+
+        assertEquals(2, sut.getOrPut("key", ::resolve))
+    }
+
+    @Test
+    fun `invalidate while resolving does not cache stale result`() {
+        sut.startListening(application)
+
+        sut.getOrPut("key") {
+            sut.invalidate()
+            resolve()
+        }
+
+        assertEquals(2, sut.getOrPut("key", ::resolve))
+    }
+}
@@ -0,0 +1,241 @@
+package com.braintreepayments.api.sharedutils
+
+import android.content.Context
+import android.content.SharedPreferences
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.util.concurrent.Executor
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class BraintreeSharedPreferencesUnitTest {
+
+    private class QueueExecutor : Executor {
+        val tasks = ArrayDeque<Runnable>()
+
+        override fun execute(command: Runnable) {
+            tasks.add(command)
+        }
+
+        fun runAll() {
+            while (tasks.isNotEmpty()) tasks.removeFirst().run()
+        }
+    }
+
+    private lateinit var sharedPreferences: SharedPreferences
+    private lateinit var executor: QueueExecutor
+    private var providerCallCount = 0
+
+    @Before
+    fun beforeEach() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        sharedPreferences = context.getSharedPreferences("test-preferences", Context.MODE_PRIVATE)
+        sharedPreferences.edit().clear().commit()
+        executor = QueueExecutor()
+        providerCallCount = 0
+    }
+
+    private fun createSut(
+        multiProcessFiles: BraintreeSharedPreferences.MultiProcessFiles? = null
+    ) = BraintreeSharedPreferences(
+        sharedPreferencesProvider = {
+            providerCallCount++
+            sharedPreferences
+        },
+        multiProcessFiles = multiProcessFiles,
+        executor = executor
+    )
+
+    @Test
+    fun `constructor loads the preferences on the executor`() {
+        sharedPreferences.edit().putString("stringKey", "stringValue").commit()
+
+        val sut = createSut()
+        assertEquals(0, providerCallCount)
+        executor.runAll()
+
+        assertEquals(1, providerCallCount)
+        assertEquals("stringValue", sut.getString("stringKey", null))
+    }
+
+    @Test
+    fun `writes are visible immediately and written to disk on the executor`() {
+        val sut = createSut()
+        executor.runAll()
+
+        sut.putString("stringKey", "stringValue")
+
+        assertEquals("stringValue", sut.getString("stringKey", null))
+        assertNull(sharedPreferences.getString("stringKey", null))
+
+        executor.runAll()
+        assertEquals("stringValue", sharedPreferences.getString("stringKey", null))
+    }
+
+    @Test
+    fun `writes made before a flush runs are coalesced into one flush`() {
+        val sut = createSut()
+        executor.runAll()
+
+        sut.putString("stringKey", "stringValue")
+        sut.putBoolean("booleanKey", true)
+        sut.putStringAndLong("stringKey2", "stringValue2", "longKey", 123L)
+        sut.putLong("longKey2", 456L)
+
+        assertEquals(1, executor.tasks.size)
+        executor.runAll()
+        assertEquals("stringValue", sharedPreferences.getString("stringKey", null))
+        assertTrue(sharedPreferences.getBoolean("booleanKey", false))
+        assertEquals("stringValue2", sharedPreferences.getString("stringKey2", null))
+        assertEquals(123L, sharedPreferences.getLong("longKey", 0))
+        assertEquals(456L, sharedPreferences.getLong("longKey2", 0))
+    }
+
+    @Test
+    fun `clearSharedPreferences clears the values in memory and on disk`() {
+        sharedPreferences.edit().putString("stringKey", "stringValue").commit()
+        val sut = createSut()
+        executor.runAll()
+
+        sut.clearSharedPreferences()
+        sut.putBoolean("booleanKey", true)
+
+        assertFalse(sut.containsKey("stringKey"))
+        assertTrue(sut.getBoolean("booleanKey"))
+        executor.runAll()
+        assertFalse(sharedPreferences.contains("stringKey"))
+        assertTrue(sharedPreferences.getBoolean("booleanKey", false))
+    }
+
+    @Test
+    fun `reads return defaults for values of a different type`() {
+        sharedPreferences.edit().putString("key", "value").commit()
+        val sut = createSut()
+        executor.runAll()
+
+        assertFalse(sut.getBoolean("key"))
+        assertEquals(0L, sut.getLong("key"))
+        assertEquals("fallback", sut.getString("otherKey", "fallback"))
+    }
+
+    @Test
+    fun `writes made before the load completes do not wait and take precedence over stored values`() {
+        sharedPreferences.edit().putString("stringKey", "storedValue").putBoolean("booleanKey", true).commit()
+        val sut = createSut()
+
+        sut.putString("stringKey", "newValue")
+        executor.runAll()
+
+        assertEquals("newValue", sut.getString("stringKey", null))
+        assertTrue(sut.getBoolean("booleanKey"))
+        assertEquals("newValue", sharedPreferences.getString("stringKey", null))
+    }
+
+    @Test
+    fun `clear made before the load completes discards stored values`() {
+        sharedPreferences.edit().putString("stringKey", "storedValue").commit()
+        val sut = createSut()
+
+        sut.clearSharedPreferences()
+        executor.runAll()
+
+        assertFalse(sut.containsKey("stringKey"))
+        assertFalse(sharedPreferences.contains("stringKey"))
+    }
+
+    @Test
+    fun `whenLoaded calls back once the values are in memory`() {
+        sharedPreferences.edit().putString("stringKey", "storedValue").commit()
+        val sut = createSut()
+        var value: String? = null
+
+        sut.whenLoaded { value = sut.getString("stringKey", null) }
+        assertNull(value)
+        executor.runAll()
+        assertEquals("storedValue", value)
+
+        value = null
+        sut.whenLoaded { value = sut.getString("stringKey", null) }
+        assertEquals("storedValue", value)
+    }
+
+    @Test
+    fun `whenLoaded with an executor calls back on it only if the values are not loaded yet`() {
+        sharedPreferences.edit().putString("stringKey", "storedValue").commit()
+        val sut = createSut()
+        val callbackExecutor = QueueExecutor()
+        var value: String? = null
+
+        sut.whenLoaded(callbackExecutor) { value = sut.getString("stringKey", null) }
+        executor.runAll()
+        assertNull(value)
+        callbackExecutor.runAll()
+        assertEquals("storedValue", value)
+
+        value = null
+        sut.whenLoaded(callbackExecutor) { value = sut.getString("stringKey", null) }
+        assertEquals("storedValue", value)
+        assertTrue(callbackExecutor.tasks.isEmpty())
+    }
+
+    @Test
+    fun `flush merges values written to the preferences file by another process`() {
+        val preferencesFile = File.createTempFile("preferences", ".xml")
+        val lockFile = File.createTempFile("preferences", ".lock")
+        sharedPreferences.edit().putString("removedKey", "value").commit()
+        val sut = createSut(BraintreeSharedPreferences.MultiProcessFiles(preferencesFile, lockFile))
+        executor.runAll()
+        preferencesFile.writeText(
+            """
+            <?xml version='1.0' encoding='utf-8' standalone='yes' ?>
+            <map>
+                <string name="otherProcessKey">other &amp; value</string>
+                <long name="otherProcessLong" value="42" />
+            </map>
+            """.trimIndent()
+        )
+
+        sut.putBoolean("booleanKey", true)
+        executor.runAll()
+
+        assertEquals("other & value", sut.getString("otherProcessKey", null))
+        assertEquals(42L, sut.getLong("otherProcessLong"))
+        assertFalse(sut.containsKey("removedKey"))
+        assertTrue(sut.getBoolean("booleanKey"))
+        assertEquals("other & value", sharedPreferences.getString("otherProcessKey", null))
+        assertFalse(sharedPreferences.contains("removedKey"))
+        assertTrue(sharedPreferences.getBoolean("booleanKey", false))
+    }
+
+    @Test
+    fun `flush when the process lock can not be taken still writes the values`() {
+        val directory = File.createTempFile("preferences", "").apply { delete() }
+        val unreachableLockFile = File(directory, "missing/preferences.lock")
+        val sut = createSut(
+            BraintreeSharedPreferences.MultiProcessFiles(File(directory, "preferences.xml"), unreachableLockFile)
+        )
+        executor.runAll()
+
+        sut.putString("stringKey", "stringValue")
+        executor.runAll()
+
+        assertEquals("stringValue", sharedPreferences.getString("stringKey", null))
+    }
+
+    @Test
+    fun `readPreferencesFile returns null for a file that can not be parsed and no values for a missing file`() {
+        val file = File.createTempFile("preferences", ".xml")
+        file.writeText("<map><string name=")
+
+        assertNull(BraintreeSharedPreferences.readPreferencesFile(file))
+        file.delete()
+        assertEquals(emptyMap(), BraintreeSharedPreferences.readPreferencesFile(file))
+    }
+}
@@ -0,0 +1,100 @@
+package com.braintreepayments.api.sharedutils
+
+import io.mockk.mockk
+import io.mockk.verify
+import okhttp3.Call
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CancellableRequestUnitTest {
+
+    @Test
+    fun `cancel cancels the attached call and notifies once`() {
+        var cancelCount = 0
+        val call = mockk<Call>(relaxed = true)
+        val sut = CancellableRequest { cancelCount++ }
+
+        assertTrue(sut.attach(call))
+        sut.cancel()
+        sut.cancel()
+
+        assertTrue(sut.isCancelled)
+        assertEquals(1, cancelCount)
+        verify(exactly = 1) { call.cancel() }
+    }
+
+    @Test
+    fun `cancel after complete has no effect`() {
+        var cancelCount = 0
+        val call = mockk<Call>(relaxed = true)
+        val sut = CancellableRequest { cancelCount++ }
+        sut.attach(call)
+
+        assertTrue(sut.complete())
+        sut.cancel()
+
+        assertFalse(sut.isCancelled)
+        assertEquals(0, cancelCount)
+        verify(exactly = 0) { call.cancel() }
+    }
+
+    @Test
+    fun `complete and attach after cancel return false`() {
+        val sut = CancellableRequest()
+        sut.cancel()
+
+        assertFalse(sut.complete())
+        assertFalse(sut.attach(mockk(relaxed = true)))
+    }
+
+    @Test
+    fun `cancel cancels the attached request`() {
+        val child = CancellableRequest()
+        val sut = CancellableRequest()
+
+        sut.attach(child)
+        sut.cancel()
+
+        assertTrue(child.isCancelled)
+    }
+
+    @Test
+    fun `attach after cancel cancels the request right away`() {
+        val child = CancellableRequest()
+        val sut = CancellableRequest()
+        sut.cancel()
+
+        sut.attach(child)
+
+        assertTrue(child.isCancelled)
+    }
+
+    @Test
+    fun `doOnFinish runs once the request completes or is cancelled`() {
+        var finishCount = 0
+        val completed = CancellableRequest()
+        val cancelled = CancellableRequest()
+
+        completed.doOnFinish { finishCount++ }
+        cancelled.doOnFinish { finishCount++ }
+        assertEquals(0, finishCount)
+
+        completed.complete()
+        cancelled.cancel()
+        cancelled.cancel()
+        assertEquals(2, finishCount)
+    }
+
+    @Test
+    fun `doOnFinish after the request has finished runs right away`() {
+        var finishCount = 0
+        val sut = CancellableRequest()
+        sut.complete()
+
+        sut.doOnFinish { finishCount++ }
+
+        assertEquals(1, finishCount)
+    }
+}
@@ -0,0 +1,104 @@
+package com.braintreepayments.api.sharedutils
+
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class CoalescingCacheUnitTest {
+
+    private val time: Time = mockk()
+    private val loadCallbacks = mutableListOf<(String?, Exception?) -> Unit>()
+    private val load: (callback: (String?, Exception?) -> Unit) -> Unit = { loadCallbacks.add(it) }
+    private lateinit var sut: CoalescingCache<String, String>
+
+    @Before
+    fun beforeEach() {
+        every { time.currentTime } returns 0
+        sut = CoalescingCache(TIME_TO_LIVE, time)
+    }
+
+    @Test
+    fun `fetch reuses the value for the same key until it expires`() {
+        var result: String? = null
+        sut.fetch("key", load) { value, _ -> result = value }
+        loadCallbacks[0]("value", null)
+
+        sut.fetch("key", load) { value, _ -> result = value }
+        assertEquals("value", result)
+        assertEquals(1, loadCallbacks.size)
+
+        every { time.currentTime } returns TIME_TO_LIVE
+        sut.fetch("key", load) { _, _ -> }
+        assertEquals(2, loadCallbacks.size)
+    }
+
+    @Test
+    fun `fetch coalesces concurrent fetches and does not cache errors`() {
+        val error = Exception("error")
+        val errors = mutableListOf<Exception?>()
+        sut.fetch("key", load) { _, e -> errors.add(e) }
+        sut.fetch("key", load) { _, e -> errors.add(e) }
+        loadCallbacks[0](null, error)
+
+        assertEquals(listOf<Exception?>(error, error), errors)
+        sut.fetch("key", load) { _, _ -> }
+        assertEquals(2, loadCallbacks.size)
+    }
+
+    @Test
+    fun `fetch does not wait on a load that was abandoned`() {
+        sut.fetch("key", load) { _, _ -> }
+
+        every { time.currentTime } returns TIME_TO_LIVE
+        var result: String? = null
+        sut.fetch("key", load) { value, _ -> result = value }
+        assertEquals(2, loadCallbacks.size)
+
+        loadCallbacks[1]("value", null)
+        assertEquals("value", result)
+
+        // the abandoned load completing late does not replace the newer value
+        loadCallbacks[0]("stale", null)
+        sut.fetch("key", load) { value, _ -> result = value }
+        assertEquals("value", result)
+    }
+
+    @Test
+    fun `fetch when load throws settles waiting callers with the error`() {
+        val error = IllegalStateException("error")
+        var result: Exception? = null
+
+        val thrown = assertFailsWith<IllegalStateException> {
+            sut.fetch("key", { throw error }) { _, e -> result = e }
+        }
+
+        assertSame(error, thrown)
+        assertSame(error, result)
+        sut.fetch("key", load) { _, _ -> }
+        assertEquals(1, loadCallbacks.size)
+    }
+
+    @Test
+    fun `invalidate while load in flight delivers the value without caching it`() {
+        var result: String? = null
+        sut.fetch("key", load) { value, _ -> result = value }
+        sut.invalidate { it == "key" }
+        loadCallbacks[0]("value", null)
+
+        assertEquals("value", result)
+        result = null
+        sut.fetch("key", load) { value, _ -> result = value }
+        assertNull(result)
+        assertEquals(2, loadCallbacks.size)
+    }
+
+    companion object {
+        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1)
+    }
+}
@@ -0,0 +1,118 @@
+package com.braintreepayments.api.sharedutils
+
+import android.os.Looper
+import com.braintreepayments.api.sharedutils.ConnectivityMonitor.NetworkState
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import java.time.Duration
+
+@RunWith(RobolectricTestRunner::class)
+class ConnectivityMonitorUnitTest {
+
+    private lateinit var scheduler: Scheduler
+    private lateinit var task: Runnable
+    private lateinit var sut: ConnectivityMonitor
+
+    @Before
+    fun beforeEach() {
+        scheduler = mockk(relaxed = true)
+        every { scheduler.runOnBackground(any()) } answers { firstArg<Runnable>().run() }
+        task = mockk(relaxed = true)
+        sut = ConnectivityMonitor(scheduler, unmeteredWaitMillis = UNMETERED_WAIT_MILLIS)
+    }
+
+    @Test
+    fun `before the network is known, the device is assumed to be online`() {
+        assertFalse(sut.isOffline)
+        assertTrue(sut.isValidated)
+
+        sut.runWhenValidated(preferUnmetered = true, task = task)
+
+        verify(exactly = 1) { task.run() }
+    }
+
+    @Test
+    fun `isOffline is only true when there is no network`() {
+        sut.updateNetworkState(NetworkState.UNVALIDATED)
+        assertFalse(sut.isOffline)
+        assertFalse(sut.isValidated)
+
+        sut.updateNetworkState(NetworkState.OFFLINE)
+        assertTrue(sut.isOffline)
+    }
+
+    @Test
+    fun `runWhenValidated runs the task immediately on a validated network`() {
+        sut.updateNetworkState(NetworkState.METERED)
+
+        sut.runWhenValidated(task = task)
+
+        verify(exactly = 1) { task.run() }
+        verify(exactly = 0) { scheduler.runOnBackground(any()) }
+    }
+
+    @Test
+    fun `runWhenValidated parks the task until a validated network is available`() {
+        sut.updateNetworkState(NetworkState.OFFLINE)
+
+        sut.runWhenValidated(task = task)
+        sut.updateNetworkState(NetworkState.UNVALIDATED)
+        verify(exactly = 0) { task.run() }
+
+        sut.updateNetworkState(NetworkState.METERED)
+        verify(exactly = 1) { scheduler.runOnBackground(task) }
+        verify(exactly = 1) { task.run() }
+
+        sut.updateNetworkState(NetworkState.UNMETERED)
+        verify(exactly = 1) { task.run() }
+    }
+
+    @Test
+    fun `runWhenValidated with preferUnmetered waits for an unmetered network`() {
+        sut.updateNetworkState(NetworkState.METERED)
+
+        sut.runWhenValidated(preferUnmetered = true, task = task)
+        verify(exactly = 0) { task.run() }
+
+        sut.updateNetworkState(NetworkState.UNMETERED)
+        verify(exactly = 1) { task.run() }
+    }
+
+    @Test
+    fun `runWhenValidated with preferUnmetered runs the task on a metered network once the wait is over`() {
+        sut.updateNetworkState(NetworkState.OFFLINE)
+        sut.runWhenValidated(preferUnmetered = true, task = task)
+
+        sut.updateNetworkState(NetworkState.METERED)
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(UNMETERED_WAIT_MILLIS - 1))
+        verify(exactly = 0) { task.run() }
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1))
+        verify(exactly = 1) { task.run() }
+    }
+
+    @Test
+    fun `when the network is lost before the wait is over, parked tasks stay parked`() {
+        sut.updateNetworkState(NetworkState.METERED)
+        sut.runWhenValidated(preferUnmetered = true, task = task)
+
+        sut.updateNetworkState(NetworkState.OFFLINE)
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(UNMETERED_WAIT_MILLIS))
+        verify(exactly = 0) { task.run() }
+
+        sut.updateNetworkState(NetworkState.UNMETERED)
+        verify(exactly = 1) { task.run() }
+    }
+
+    companion object {
+        private const val UNMETERED_WAIT_MILLIS = 1000L
+    }
+}
@@ -7,6 +7,7 @@ import io.mockk.mockk
 import io.mockk.slot
 import io.mockk.verify
 import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -18,6 +19,7 @@ class HttpClientUnitTest {
     private lateinit var mockOkHttpClient: OkHttpSynchronousHttpClient
     private lateinit var mockScheduler: Scheduler
     private lateinit var mockCallback: NetworkResponseCallback
+    private lateinit var connectivityMonitor: ConnectivityMonitor
     private lateinit var sut: HttpClient
 
     @Before
@@ -25,7 +27,9 @@ class HttpClientUnitTest {
         mockOkHttpClient = mockk<OkHttpSynchronousHttpClient>()
         mockScheduler = mockk<Scheduler>()
         mockCallback = mockk<NetworkResponseCallback>()
-        sut = HttpClient(mockOkHttpClient, mockScheduler)
+        connectivityMonitor = mockk<ConnectivityMonitor>()
+        every { connectivityMonitor.isOffline } returns false
+        sut = HttpClient(mockOkHttpClient, mockScheduler, connectivityMonitor)
     }
 
     @Test
@@ -42,15 +46,13 @@ class HttpClientUnitTest {
     }
 
     @Test
-    fun `when sendRequest is called with successful response, callback is called on main thread`() {
+    fun `when sendRequest is called with successful response, callback is called on the background thread`() {
         val request = mockk<OkHttpRequest>()
         val mockResponse = mockk<HttpResponse>()
         val backgroundSlot = slot<Runnable>()
-        val mainSlot = slot<Runnable>()
 
         every { mockOkHttpClient.executeRequest(request) } returns mockResponse
         every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
-        every { mockScheduler.runOnMain(capture(mainSlot)) } just Runs
         every { mockCallback.onResult(any()) } just Runs
 
         sut.sendRequest(request, mockCallback)
@@ -58,22 +60,17 @@ class HttpClientUnitTest {
         verify { mockScheduler.runOnBackground(any()) }
         backgroundSlot.captured.run()
 
-        verify { mockScheduler.runOnMain(any()) }
-        mainSlot.captured.run()
-
         verify { mockCallback.onResult(NetworkResponseCallback.Result.Success(mockResponse)) }
     }
 
     @Test
-    fun `when sendRequest is called with exception, callback is called with error on main thread`() {
+    fun `when sendRequest is called with exception, callback is called with error on the background thread`() {
         val request = mockk<OkHttpRequest>()
         val exception = RuntimeException("Network error")
         val backgroundSlot = slot<Runnable>()
-        val mainSlot = slot<Runnable>()
 
         every { mockOkHttpClient.executeRequest(request) } throws exception
         every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
-        every { mockScheduler.runOnMain(capture(mainSlot)) } just Runs
         every { mockCallback.onResult(any()) } just Runs
 
         sut.sendRequest(request, mockCallback)
@@ -81,9 +78,6 @@ class HttpClientUnitTest {
         verify { mockScheduler.runOnBackground(any()) }
         backgroundSlot.captured.run()
 
-        verify { mockScheduler.runOnMain(any()) }
-        mainSlot.captured.run()
-
         verify { mockCallback.onResult(NetworkResponseCallback.Result.Failure(exception)) }
     }
 
@@ -128,22 +122,19 @@ class HttpClientUnitTest {
     }
 
     @Test
-    fun `when successful response, notifyErrorOnMainThread is not called`() {
+    fun `when sendRequest completes, callback is not posted to the main thread`() {
         val request = mockk<OkHttpRequest>()
         val mockResponse = mockk<HttpResponse>()
         val backgroundSlot = slot<Runnable>()
-        val mainSlot = slot<Runnable>()
 
         every { mockOkHttpClient.executeRequest(request) } returns mockResponse
         every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
-        every { mockScheduler.runOnMain(capture(mainSlot)) } just Runs
         every { mockCallback.onResult(any()) } just Runs
 
         sut.sendRequest(request, mockCallback)
         backgroundSlot.captured.run()
-        mainSlot.captured.run()
 
-        verify(exactly = 1) { mockScheduler.runOnMain(any()) }
+        verify(exactly = 0) { mockScheduler.runOnMain(any()) }
         verify { mockCallback.onResult(NetworkResponseCallback.Result.Success(mockResponse)) }
     }
 
@@ -152,17 +143,67 @@ class HttpClientUnitTest {
         val request = mockk<OkHttpRequest>()
         val ioException = java.io.IOException("Network timeout")
         val backgroundSlot = slot<Runnable>()
-        val mainSlot = slot<Runnable>()
 
         every { mockOkHttpClient.executeRequest(request) } throws ioException
         every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
-        every { mockScheduler.runOnMain(capture(mainSlot)) } just Runs
         every { mockCallback.onResult(any()) } just Runs
 
         sut.sendRequest(request, mockCallback)
         backgroundSlot.captured.run()
-        mainSlot.captured.run()
 
         verify { mockCallback.onResult(NetworkResponseCallback.Result.Failure(ioException)) }
     }
+
+    @Test
+    fun `when request is cancelled before it is sent, request is not executed`() {
+        val request = mockk<OkHttpRequest>()
+        val backgroundSlot = slot<Runnable>()
+        val cancellableRequest = CancellableRequest()
+
+        every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
+
+        sut.sendRequest(request, mockCallback, cancellableRequest)
+        cancellableRequest.cancel()
+        backgroundSlot.captured.run()
+
+        verify(exactly = 0) { mockOkHttpClient.executeRequest(any(), any()) }
+        verify(exactly = 0) { mockScheduler.runOnMain(any()) }
+    }
+
+    @Test
+    fun `when request is cancelled while it is in flight, callback is not called`() {
+        val request = mockk<OkHttpRequest>()
+        val mockResponse = mockk<HttpResponse>()
+        val backgroundSlot = slot<Runnable>()
+        val cancellableRequest = CancellableRequest()
+
+        every { mockOkHttpClient.executeRequest(request, cancellableRequest) } answers {
+            cancellableRequest.cancel()
+            mockResponse
+        }
+        every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
+
+        sut.sendRequest(request, mockCallback, cancellableRequest)
+        backgroundSlot.captured.run()
+
+        verify(exactly = 0) { mockCallback.onResult(any()) }
+    }
+
+    @Test
+    fun `when the device is offline, callback receives NetworkUnavailableException without executing the request`() {
+        val request = mockk<OkHttpRequest>()
+        val backgroundSlot = slot<Runnable>()
+        val resultSlot = slot<NetworkResponseCallback.Result>()
+
+        every { connectivityMonitor.isOffline } returns true
+        every { mockScheduler.runOnBackground(capture(backgroundSlot)) } just Runs
+        every { mockCallback.onResult(capture(resultSlot)) } just Runs
+
+        sut.sendRequest(request, mockCallback)
+        backgroundSlot.captured.run()
+
+        verify(exactly = 0) { mockOkHttpClient.executeRequest(any(), any()) }
+        val result = resultSlot.captured as NetworkResponseCallback.Result.Failure
+        assertTrue(result.error is NetworkUnavailableException)
+    }
 }
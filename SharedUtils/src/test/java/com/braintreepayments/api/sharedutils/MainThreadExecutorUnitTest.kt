@@ -0,0 +1,41 @@
+package com.braintreepayments.api.sharedutils
+
+import android.os.Looper
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class MainThreadExecutorUnitTest {
+
+    private val sut = MainThreadExecutor()
+
+    @Test
+    fun `execute on the main thread runs the command immediately`() {
+        var didRun = false
+
+        sut.execute { didRun = true }
+
+        assertTrue(didRun)
+    }
+
+    @Test
+    fun `execute from a background thread posts the command to the main thread`() {
+        var runLooper: Looper? = null
+
+        val thread = Thread { sut.execute { runLooper = Looper.myLooper() } }
+        thread.start()
+        thread.join()
+        assertNull(runLooper)
+        assertFalse(shadowOf(Looper.getMainLooper()).isIdle)
+
+        shadowOf(Looper.getMainLooper()).idle()
+
+        assertEquals(Looper.getMainLooper(), runLooper)
+    }
+}
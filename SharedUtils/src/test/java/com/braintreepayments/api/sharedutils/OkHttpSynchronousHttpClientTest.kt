@@ -7,12 +7,16 @@ import io.mockk.slot
 import io.mockk.verify
 import okhttp3.Call
 import okhttp3.CertificatePinner
+import okhttp3.Headers.Companion.headersOf
 import okhttp3.OkHttpClient
 import okhttp3.Request
 import okhttp3.Response
 import okhttp3.ResponseBody
 import org.junit.After
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
@@ -105,4 +109,60 @@ class OkHttpSynchronousHttpClientTest {
         assertEquals("Bearer token", capturedRequest.header("Authorization"))
         assertEquals("Value", capturedRequest.header("Custom"))
     }
+
+    @Test
+    fun `when request is cancelled before it is executed, executeRequest throws IOException`() {
+        val okHttpRequest = OkHttpRequest("https://example.com", Method.Get)
+        every { okHttpClient.newCall(any()) } returns call
+        val cancellableRequest = CancellableRequest().apply { cancel() }
+
+        assertThrows(IOException::class.java) { sut.executeRequest(okHttpRequest, cancellableRequest) }
+        verify(exactly = 0) { call.execute() }
+    }
+
+    @Test
+    fun `when request is cancelled while in flight, the OkHttp call is cancelled`() {
+        val okHttpRequest = OkHttpRequest("https://example.com", Method.Get)
+        val cancellableRequest = CancellableRequest()
+        every { okHttpClient.newCall(any()) } returns call
+        every { call.execute() } answers {
+            cancellableRequest.cancel()
+            throw IOException("Canceled")
+        }
+
+        assertThrows(IOException::class.java) { sut.executeRequest(okHttpRequest, cancellableRequest) }
+        verify { call.cancel() }
+    }
+
+    @Test
+    fun `when response is successful, executeRequest returns its headers and status code`() {
+        val okHttpRequest = OkHttpRequest("https://example.com", Method.Get)
+        every { okHttpClient.newCall(any()) } returns call
+        every { call.execute() } returns response
+        every { response.isSuccessful } returns true
+        every { response.code } returns 200
+        every { response.headers } returns headersOf("ETag", "\"abc\"", "Content-Type", "application/json")
+        every { response.body } returns responseBody
+        every { responseBody.string() } returns "{}"
+
+        val httpResponse = sut.executeRequest(okHttpRequest)
+        assertEquals(200, httpResponse.statusCode)
+        assertEquals("\"abc\"", httpResponse.header("etag"))
+        assertFalse(httpResponse.isNotModified)
+    }
+
+    @Test
+    fun `when response is 304 Not Modified, executeRequest returns a not modified HttpResponse`() {
+        val okHttpRequest = OkHttpRequest("https://example.com", Method.Get)
+        every { okHttpClient.newCall(any()) } returns call
+        every { call.execute() } returns response
+        every { response.isSuccessful } returns false
+        every { response.code } returns 304
+        every { response.headers } returns headersOf("ETag", "\"abc\"")
+        every { response.body } returns null
+
+        val httpResponse = sut.executeRequest(okHttpRequest)
+        assertTrue(httpResponse.isNotModified)
+        assertNull(httpResponse.body)
+    }
 }
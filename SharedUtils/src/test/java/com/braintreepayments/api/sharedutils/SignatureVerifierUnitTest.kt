@@ -44,7 +44,7 @@ class SignatureVerifierUnitTest {
         } returns packageInfo
         every { context.packageManager } returns packageManager
 
-        sut = SignatureVerifier(certificateHelper)
+        sut = SignatureVerifier(certificateHelper, AppResolutionCache())
     }
 
     @Test
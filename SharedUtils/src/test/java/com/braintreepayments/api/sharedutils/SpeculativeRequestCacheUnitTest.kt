@@ -0,0 +1,189 @@
+package com.braintreepayments.api.sharedutils
+
+import android.os.Parcel
+import android.os.Parcelable
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class SpeculativeRequestCacheUnitTest {
+
+    private val time: Time = mockk()
+    private lateinit var sut: SpeculativeRequestCache<TestRequest, String>
+
+    @Before
+    fun beforeEach() {
+        every { time.currentTime } returns 0
+        sut = SpeculativeRequestCache(TestRequest::class.java, TIME_TO_LIVE, time)
+    }
+
+    @Test
+    fun `begin returns a copy of the request`() {
+        val request = TestRequest("1.00", listOf("item"))
+
+        val speculation = sut.begin(request)
+
+        assertNotSame(request, speculation.request)
+        assertEquals("1.00", speculation.request.amount)
+        assertEquals(listOf("item"), speculation.request.lineItems)
+    }
+
+    @Test
+    fun `consume when request is unchanged returns the result once`() {
+        val speculation = sut.begin(TestRequest("1.00"))
+        sut.complete(speculation, "result")
+
+        var first: String? = null
+        var second: String? = "unset"
+        sut.consume(TestRequest("1.00")) { first = it }
+        sut.consume(TestRequest("1.00")) { second = it }
+
+        assertEquals("result", first)
+        assertNull(second)
+    }
+
+    @Test
+    fun `consume when request changed returns null and discards the result`() {
+        val request = TestRequest("1.00")
+        val speculation = sut.begin(request)
+        sut.complete(speculation, "result")
+
+        request.lineItems = listOf("item")
+        var result: String? = "unset"
+        sut.consume(request) { result = it }
+
+        assertNull(result)
+        assertFalse(sut.contains(TestRequest("1.00")))
+    }
+
+    @Test
+    fun `consume when result expired returns null`() {
+        val speculation = sut.begin(TestRequest("1.00"))
+        sut.complete(speculation, "result")
+        every { time.currentTime } returns TIME_TO_LIVE
+
+        assertFalse(sut.contains(TestRequest("1.00")))
+        var result: String? = "unset"
+        sut.consume(TestRequest("1.00")) { result = it }
+
+        assertNull(result)
+    }
+
+    @Test
+    fun `consume while speculation in flight waits for the result`() {
+        val speculation = sut.begin(TestRequest("1.00"))
+        assertTrue(sut.contains(TestRequest("1.00")))
+
+        var result: String? = null
+        sut.consume(TestRequest("1.00")) { result = it }
+        assertNull(result)
+
+        sut.complete(speculation, "result")
+        assertEquals("result", result)
+        assertFalse(sut.contains(TestRequest("1.00")))
+    }
+
+    @Test
+    fun `complete when speculation failed releases waiting caller with null`() {
+        val speculation = sut.begin(TestRequest("1.00"))
+
+        var isCalled = false
+        var result: String? = "unset"
+        sut.consume(TestRequest("1.00")) {
+            isCalled = true
+            result = it
+        }
+        sut.complete(speculation, null)
+
+        assertTrue(isCalled)
+        assertNull(result)
+        assertFalse(sut.contains(TestRequest("1.00")))
+    }
+
+    @Test
+    fun `complete when speculation was replaced ignores the result`() {
+        val staleSpeculation = sut.begin(TestRequest("1.00"))
+        sut.begin(TestRequest("2.00"))
+
+        sut.complete(staleSpeculation, "result")
+
+        assertFalse(sut.contains(TestRequest("1.00")))
+        assertTrue(sut.contains(TestRequest("2.00")))
+    }
+
+    @Test
+    fun `begin releases callers waiting on the replaced speculation with null`() {
+        sut.begin(TestRequest("1.00"))
+        var result: String? = "unset"
+        sut.consume(TestRequest("1.00")) { result = it }
+
+        sut.begin(TestRequest("2.00"))
+
+        assertNull(result)
+    }
+
+    @Test
+    fun `complete and consume from different threads hand the result out exactly once`() {
+        val executor = Executors.newFixedThreadPool(THREAD_COUNT)
+        val handedOut = AtomicInteger()
+        val settled = CountDownLatch(THREAD_COUNT)
+        val speculation = sut.begin(TestRequest("1.00"))
+
+        repeat(THREAD_COUNT) { index ->
+            executor.execute {
+                if (index == 0) sut.complete(speculation, "result")
+                sut.consume(TestRequest("1.00")) { result ->
+                    if (result != null) handedOut.incrementAndGet()
+                    settled.countDown()
+                }
+            }
+        }
+
+        assertTrue(settled.await(5, TimeUnit.SECONDS))
+        executor.shutdown()
+        assertEquals(1, handedOut.get())
+    }
+
+    class TestRequest(
+        var amount: String,
+        var lineItems: List<String> = emptyList()
+    ) : Parcelable {
+
+        override fun writeToParcel(dest: Parcel, flags: Int) {
+            dest.writeString(amount)
+            dest.writeStringList(lineItems)
+        }
+
+        override fun describeContents(): Int = 0
+
+        companion object {
+            @JvmField
+            val CREATOR = object : Parcelable.Creator<TestRequest> {
+                override fun createFromParcel(source: Parcel) = TestRequest(
+                    requireNotNull(source.readString()),
+                    source.createStringArrayList().orEmpty()
+                )
+
+                override fun newArray(size: Int) = arrayOfNulls<TestRequest>(size)
+            }
+        }
+    }
+
+    companion object {
+        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(3)
+        private const val THREAD_COUNT = 8
+    }
+}
@@ -0,0 +1,52 @@
+package com.braintreepayments.api.shopperinsights
+
+import com.braintreepayments.api.sharedutils.CoalescingCache
+import com.braintreepayments.api.sharedutils.Time
+import java.util.concurrent.TimeUnit
+
+/**
+ * Caches shopper recommendations by shopper session ID and request for [TIME_TO_LIVE], so that a
+ * buyer moving back and forth between pages with an unchanged request does not trigger a network
+ * call on every page view. Concurrent fetches for the same session and request are coalesced into a
+ * single call, and errors are never cached.
+ *
+ * @param T the type of the cached recommendations
+ */
+internal class RecommendationsCache<T : Any>(
+    time: Time = Time()
+) {
+
+    private val cache = CoalescingCache<Key, T>(TIME_TO_LIVE, time)
+
+    /**
+     * @property request an immutable snapshot of the request, compared by value
+     */
+    private data class Key(val sessionId: String?, val request: Any?)
+
+    /**
+     * Returns the recommendations cached for [sessionId] and [request] to [callback], or calls [load]
+     * to fetch them. A [request] must not be mutated after it is passed in.
+     */
+    fun fetch(
+        sessionId: String?,
+        request: Any?,
+        load: (callback: (T?, Exception?) -> Unit) -> Unit,
+        callback: (T?, Exception?) -> Unit
+    ) = cache.fetch(Key(sessionId, request), load, callback)
+
+    /**
+     * Caches [value] as the recommendations for [sessionId] and [request], e.g. when they were
+     * fetched together with the session itself.
+     */
+    fun put(sessionId: String?, request: Any?, value: T) = cache.put(Key(sessionId, request), value)
+
+    /**
+     * Discards the recommendations cached for [sessionId]. Fetches in flight for [sessionId] still
+     * deliver their result to their callers, but the result is not cached.
+     */
+    fun invalidate(sessionId: String?) = cache.invalidate { it.sessionId == sessionId }
+
+    companion object {
+        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1)
+    }
+}
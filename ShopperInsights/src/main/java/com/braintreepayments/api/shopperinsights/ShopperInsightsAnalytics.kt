@@ -1,9 +1,14 @@
 package com.braintreepayments.api.shopperinsights
 
+import com.braintreepayments.api.core.AnalyticsSamplingPolicy
+
 internal object ShopperInsightsAnalytics {
     const val BUTTON_SELECTED = "shopper-insights:button-selected"
     const val BUTTON_PRESENTED = "shopper-insights:button-presented"
 
+    // buttons can be presented many times a minute when they are in a scrolling list
+    val BUTTON_PRESENTED_SAMPLING_POLICY = AnalyticsSamplingPolicy(maxEventsPerMinute = 20)
+
     const val GET_RECOMMENDED_PAYMENTS_FAILED = "shopper-insights:get-recommended-payments:failed"
     const val GET_RECOMMENDED_PAYMENTS_STARTED = "shopper-insights:get-recommended-payments:started"
     const val GET_RECOMMENDED_PAYMENTS_SUCCEEDED = "shopper-insights:get-recommended-payments:succeeded"
@@ -1,6 +1,8 @@
 package com.braintreepayments.api.shopperinsights
 
 import android.content.Context
+import androidx.annotation.MainThread
+import androidx.lifecycle.LifecycleOwner
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.BraintreeClient
@@ -10,11 +12,16 @@ import com.braintreepayments.api.core.DeviceInspectorProvider
 import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.core.MerchantRepository
 import com.braintreepayments.api.core.TokenizationKey
+import com.braintreepayments.api.core.cancelOnDestroy
+import com.braintreepayments.api.sharedutils.CancellableRequest
+import com.braintreepayments.api.shopperinsights.EligiblePaymentsApiRequest.Companion.toJson
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_PRESENTED
+import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_PRESENTED_SAMPLING_POLICY
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_SELECTED
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.GET_RECOMMENDED_PAYMENTS_FAILED
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.GET_RECOMMENDED_PAYMENTS_STARTED
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.GET_RECOMMENDED_PAYMENTS_SUCCEEDED
+import java.util.concurrent.Executor
 
 /**
  * Use [ShopperInsightsClient] to optimize your checkout experience
@@ -28,22 +35,30 @@ import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.GET_RE
 @Deprecated("Use ShopperInsightsClientV2 instead")
 class ShopperInsightsClient internal constructor(
     private val braintreeClient: BraintreeClient,
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
     private val api: ShopperInsightsApi = ShopperInsightsApi(
         EligiblePaymentsApi(braintreeClient, analyticsParamRepository)
     ),
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
     private val deviceInspector: DeviceInspector = DeviceInspectorProvider().deviceInspector,
-    private val shopperSessionId: String? = null
+    private val shopperSessionId: String? = null,
+    private val eligiblePaymentsCache: RecommendationsCache<EligiblePaymentsApiResult> = sharedEligiblePaymentsCache
 ) {
 
     /**
      * @param context: an Android context
      * @param authorization: a Tokenization Key or Client Token used to authenticate
      * @param shopperSessionId: the shopper session ID returned from your server SDK request
+     * @param callbackExecutor: an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String, shopperSessionId: String? = null) : this(
-        BraintreeClient(context, authorization),
+    @JvmOverloads
+    constructor(
+        context: Context,
+        authorization: String,
+        shopperSessionId: String? = null,
+        callbackExecutor: Executor? = null
+    ) : this(
+        BraintreeClient(context, authorization, callbackExecutor = callbackExecutor),
         shopperSessionId = shopperSessionId
     )
 
@@ -52,7 +67,7 @@ class ShopperInsightsClient internal constructor(
      *
      * @param request The [ShopperInsightsRequest] containing information about the shopper.
      * @param experiment optional JSON string representing an experiment you want to run
-     * @return A [ShopperInsightsResult] object indicating the recommended payment methods.
+     * @param callback receives a [ShopperInsightsResult] indicating the recommended payment methods.
      * Note: This feature is in beta. Its public API may change or be removed in future releases
      * PayPal recommendation is only available for US, AU, FR, DE, ITA, NED, ESP, Switzerland and
      * UK merchants. Venmo recommendation is only available for US merchants.
@@ -62,6 +77,28 @@ class ShopperInsightsClient internal constructor(
         experiment: String? = null,
         callback: ShopperInsightsCallback
     ) {
+        getRecommendedPaymentMethodsCancellable(request, experiment, callback)
+    }
+
+    /**
+     * Retrieves recommended payment methods, as [getRecommendedPaymentMethods] does, and returns a
+     * handle that stops [callback] from being called.
+     *
+     * @param request The [ShopperInsightsRequest] containing information about the shopper.
+     * @param experiment optional JSON string representing an experiment you want to run
+     * @param callback receives a [ShopperInsightsResult] indicating the recommended payment methods.
+     * @return a [CancellableRequest] that stops [callback] from being called. Recommendations that
+     * other callers are waiting for are still fetched and cached.
+     */
+    fun getRecommendedPaymentMethodsCancellable(
+        request: ShopperInsightsRequest,
+        experiment: String? = null,
+        callback: ShopperInsightsCallback
+    ): CancellableRequest {
+        val recommendationsRequest = CancellableRequest()
+        val requestCallback = ShopperInsightsCallback { result ->
+            if (recommendationsRequest.complete()) callback.onResult(result)
+        }
         analyticsParamRepository.reset()
         braintreeClient.sendAnalyticsEvent(
             GET_RECOMMENDED_PAYMENTS_STARTED,
@@ -73,44 +110,73 @@ class ShopperInsightsClient internal constructor(
 
         if (request.email == null && request.phone == null) {
             callbackFailure(
-                callback = callback,
+                callback = requestCallback,
                 error = IllegalArgumentException(
                     "One of ShopperInsightsRequest.email or ShopperInsightsRequest.phone must be " +
                         "non-null."
                 )
             )
-            return
+            return recommendationsRequest
         }
 
         if (merchantRepository.authorization is TokenizationKey) {
             callbackFailure(
-                callback = callback,
+                callback = requestCallback,
                 error = BraintreeException(
                     "Invalid authorization. This feature can only be used with a client token."
                 )
             )
-            return
+            return recommendationsRequest
         }
 
-        api.findEligiblePayments(
-            EligiblePaymentsApiRequest(
-                request,
-                currencyCode = currencyCode,
-                countryCode = countryCode,
-                accountDetails = includeAccountDetails,
-                constraintType = constraintType,
-                paymentSources = paymentSources
-            ),
+        val apiRequest = EligiblePaymentsApiRequest(
+            request,
+            currencyCode = currencyCode,
+            countryCode = countryCode,
+            accountDetails = includeAccountDetails,
+            constraintType = constraintType,
+            paymentSources = paymentSources
+        )
+        // the serialized request is an immutable snapshot of the merchant's mutable request
+        val requestSnapshot = Pair(merchantRepository.authorization.toString(), apiRequest.toJson())
+        eligiblePaymentsCache.fetch(
+            sessionId = shopperSessionId,
+            request = requestSnapshot,
+            load = { loadCallback ->
+                api.findEligiblePayments(apiRequest) { result, error -> loadCallback(result, error) }
+            },
             callback = { result, error ->
-                handleFindEligiblePaymentsResult(
-                    result,
-                    error,
-                    callback
-                )
+                if (!recommendationsRequest.isCancelled) {
+                    handleFindEligiblePaymentsResult(
+                        result,
+                        error,
+                        requestCallback
+                    )
+                }
             }
         )
+        return recommendationsRequest
     }
 
+    /**
+     * Retrieves recommended payment methods, as [getRecommendedPaymentMethods] does, and stops
+     * [callback] from being called when [lifecycleOwner] is destroyed.
+     *
+     * @param lifecycleOwner the [LifecycleOwner] whose destruction cancels the request
+     * @param request The [ShopperInsightsRequest] containing information about the shopper.
+     * @param experiment optional JSON string representing an experiment you want to run
+     * @param callback receives a [ShopperInsightsResult] indicating the recommended payment methods.
+     * @return a [CancellableRequest] that stops [callback] from being called
+     */
+    @MainThread
+    fun getRecommendedPaymentMethods(
+        lifecycleOwner: LifecycleOwner,
+        request: ShopperInsightsRequest,
+        experiment: String? = null,
+        callback: ShopperInsightsCallback
+    ): CancellableRequest =
+        getRecommendedPaymentMethodsCancellable(request, experiment, callback).cancelOnDestroy(lifecycleOwner)
+
     private fun handleFindEligiblePaymentsResult(
         result: EligiblePaymentsApiResult?,
         error: Exception?,
@@ -186,7 +252,8 @@ class ShopperInsightsClient internal constructor(
             shopperSessionId = shopperSessionId,
             buttonType = buttonType.stringValue,
             buttonOrder = presentmentDetails.buttonOrder.stringValue,
-            pageType = presentmentDetails.pageType.stringValue
+            pageType = presentmentDetails.pageType.stringValue,
+            samplingPolicy = BUTTON_PRESENTED_SAMPLING_POLICY
         )
 
         braintreeClient.sendAnalyticsEvent(BUTTON_PRESENTED, params)
@@ -227,7 +294,16 @@ class ShopperInsightsClient internal constructor(
             return AnalyticsEventParams(shopperSessionId = shopperSessionId)
         }
 
-    companion object {
+    internal companion object {
+
+        /**
+         * Shared across [ShopperInsightsClient] instances so that a buyer moving between pages does
+         * not fetch the same recommendations again.
+         */
+        val sharedEligiblePaymentsCache: RecommendationsCache<EligiblePaymentsApiResult> by lazy {
+            RecommendationsCache()
+        }
+
         // Default values
         private const val countryCode = "US"
         private const val currencyCode = "USD"
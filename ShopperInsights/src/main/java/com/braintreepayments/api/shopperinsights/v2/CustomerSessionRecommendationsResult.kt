@@ -0,0 +1,34 @@
+package com.braintreepayments.api.shopperinsights.v2
+
+import com.braintreepayments.api.core.ExperimentalBetaApi
+
+/**
+ * Represents the result of creating a customer session and generating its payment option
+ * recommendations.
+ */
+@ExperimentalBetaApi
+sealed class CustomerSessionRecommendationsResult {
+
+    /**
+     * Indicates that the customer session was created and its recommendations were generated.
+     *
+     * @property sessionId ID of the session created
+     * @property customerRecommendations The customer recommendations generated.
+     */
+    class Success internal constructor(
+        val sessionId: String,
+        val customerRecommendations: CustomerRecommendations
+    ) : CustomerSessionRecommendationsResult()
+
+    /**
+     * Indicates a failure during customer session creation or recommendations generation.
+     *
+     * @property error The exception that caused the failure.
+     * @property sessionId ID of the session created, if the session was created but its
+     * recommendations could not be generated
+     */
+    class Failure internal constructor(
+        val error: Exception,
+        val sessionId: String? = null
+    ) : CustomerSessionRecommendationsResult()
+}
@@ -4,17 +4,21 @@ import android.content.Context
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.BraintreeClient
+import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.DeviceInspector
 import com.braintreepayments.api.core.DeviceInspectorProvider
 import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.shopperinsights.ButtonType
 import com.braintreepayments.api.shopperinsights.PresentmentDetails
+import com.braintreepayments.api.shopperinsights.RecommendationsCache
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_PRESENTED
+import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_PRESENTED_SAMPLING_POLICY
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_SELECTED
 import com.braintreepayments.api.shopperinsights.v2.internal.CreateCustomerSessionApi
 import com.braintreepayments.api.shopperinsights.v2.internal.UpdateCustomerSessionApi
 import com.braintreepayments.api.shopperinsights.v2.internal.GenerateCustomerRecommendationsApi
+import java.util.concurrent.Executor
 
 /**
  * Use [ShopperInsightsClientV2] to optimize your checkout experience by prioritizing the customer’s preferred payment
@@ -36,18 +40,22 @@ class ShopperInsightsClientV2 internal constructor(
     private val generateCustomerRecommendationsApi: GenerateCustomerRecommendationsApi =
         GenerateCustomerRecommendationsApi(braintreeClient),
     private val deviceInspector: DeviceInspector = DeviceInspectorProvider().deviceInspector,
-    lazyAnalyticsClient: Lazy<AnalyticsClient> = AnalyticsClient.lazyInstance
+    lazyAnalyticsClient: Lazy<AnalyticsClient> = lazy { braintreeClient.analyticsClient },
+    private val recommendationsCache: RecommendationsCache<CustomerRecommendations> = customerRecommendationsCache
 ) {
 
     /**
      * @param context: an Android context
      * @param authorization: a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor: an [Executor] that callbacks are called on; defaults to the main thread
      */
+    @JvmOverloads
     constructor(
         context: Context,
-        authorization: String
+        authorization: String,
+        callbackExecutor: Executor? = null
     ) : this(
-        BraintreeClient(context, authorization)
+        BraintreeClient(context, authorization, callbackExecutor = callbackExecutor)
     )
 
     private val analyticsClient: AnalyticsClient by lazyAnalyticsClient
@@ -95,7 +103,10 @@ class ShopperInsightsClientV2 internal constructor(
         customerSessionCallback: (customerSessionResult: CustomerSessionResult) -> Unit
     ) {
         analyticsClient.sendEvent(ShopperInsightsAnalytics.UPDATE_CUSTOMER_SESSION_STARTED)
+        recommendationsCache.invalidate(sessionId)
         updateCustomerSessionApi.execute(customerSessionRequest, sessionId) { result ->
+            // recommendations fetched while the update was in flight may predate it
+            recommendationsCache.invalidate(sessionId)
             when (result) {
                 is UpdateCustomerSessionApi.UpdateCustomerSessionResult.Success -> {
                     analyticsClient.sendEvent(ShopperInsightsAnalytics.UPDATE_CUSTOMER_SESSION_SUCCEEDED)
@@ -126,30 +137,105 @@ class ShopperInsightsClientV2 internal constructor(
         customerRecommendationsCallback: (customerRecommendationsResult: CustomerRecommendationsResult) -> Unit
     ) {
         analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_STARTED)
-        generateCustomerRecommendationsApi.execute(customerSessionRequest, sessionId) {
-            generateCustomerRecommendationsResult ->
-                when (generateCustomerRecommendationsResult) {
-                    is GenerateCustomerRecommendationsApi.GenerateCustomerRecommendationsResult.Success -> {
-                        analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_SUCCEEDED)
-                        customerRecommendationsCallback(
-                            CustomerRecommendationsResult.Success(
-                                generateCustomerRecommendationsResult.customerRecommendations
-                            )
-                        )
-                    }
+        val onRecommendations: (CustomerRecommendations?, Exception?) -> Unit = { recommendations, error ->
+            if (recommendations != null) {
+                analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_SUCCEEDED)
+                customerRecommendationsCallback(CustomerRecommendationsResult.Success(recommendations))
+            } else {
+                analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_FAILED)
+                customerRecommendationsCallback(
+                    CustomerRecommendationsResult.Failure(
+                        error ?: BraintreeException("Customer recommendations could not be generated")
+                    )
+                )
+            }
+        }
+
+        if (sessionId == null) {
+            // without a session ID a new session is created for every call, so there is nothing to reuse
+            loadRecommendations(customerSessionRequest, null, onRecommendations)
+        } else {
+            recommendationsCache.fetch(
+                sessionId = sessionId,
+                request = snapshotOf(customerSessionRequest),
+                load = { loadCallback -> loadRecommendations(customerSessionRequest, sessionId, loadCallback) },
+                callback = onRecommendations
+            )
+        }
+    }
+
+    /**
+     * Creates a new customer session and generates its payment option recommendations, without
+     * waiting for a separate [generateCustomerRecommendations] call once the session is created.
+     * The recommendations are also cached for subsequent [generateCustomerRecommendations] calls
+     * with the same session ID and request.
+     *
+     * @param customerSessionRequest: a [CustomerSessionRequest] object containing the request parameters
+     * @param callback: a callback that returns the session ID and the customer recommendations
+     *
+     * Note: **This feature is in beta. Its public API may change in future releases.**
+     */
+    fun createCustomerSessionAndGenerateRecommendations(
+        customerSessionRequest: CustomerSessionRequest,
+        callback: (result: CustomerSessionRecommendationsResult) -> Unit
+    ) {
+        val requestSnapshot = snapshotOf(customerSessionRequest)
+        analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_STARTED)
+        createCustomerSessionApi.execute(customerSessionRequest) { createCustomerSessionResult ->
+            when (createCustomerSessionResult) {
+                is CreateCustomerSessionApi.CreateCustomerSessionResult.Success -> {
+                    analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_SUCCEEDED)
+                    val sessionId = createCustomerSessionResult.sessionId
 
-                    is GenerateCustomerRecommendationsApi.GenerateCustomerRecommendationsResult.Error -> {
-                        analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_FAILED)
-                        customerRecommendationsCallback(
-                            CustomerRecommendationsResult.Failure(
-                                generateCustomerRecommendationsResult.error
+                    analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_STARTED)
+                    loadRecommendations(customerSessionRequest, sessionId) { recommendations, error ->
+                        if (recommendations != null) {
+                            recommendationsCache.put(sessionId, requestSnapshot, recommendations)
+                            analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_SUCCEEDED)
+                            callback(CustomerSessionRecommendationsResult.Success(sessionId, recommendations))
+                        } else {
+                            analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_FAILED)
+                            callback(
+                                CustomerSessionRecommendationsResult.Failure(
+                                    error ?: BraintreeException("Customer recommendations could not be generated"),
+                                    sessionId
+                                )
                             )
-                        )
+                        }
                     }
                 }
+
+                is CreateCustomerSessionApi.CreateCustomerSessionResult.Error -> {
+                    analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_FAILED)
+                    callback(CustomerSessionRecommendationsResult.Failure(createCustomerSessionResult.error))
+                }
+            }
+        }
+    }
+
+    private fun loadRecommendations(
+        customerSessionRequest: CustomerSessionRequest?,
+        sessionId: String?,
+        callback: (CustomerRecommendations?, Exception?) -> Unit
+    ) {
+        generateCustomerRecommendationsApi.execute(customerSessionRequest, sessionId) { result ->
+            when (result) {
+                is GenerateCustomerRecommendationsApi.GenerateCustomerRecommendationsResult.Success ->
+                    callback(result.customerRecommendations, null)
+
+                is GenerateCustomerRecommendationsApi.GenerateCustomerRecommendationsResult.Error ->
+                    callback(null, result.error)
+            }
         }
     }
 
+    /**
+     * A copy of [customerSessionRequest] that is not affected by later changes to the merchant's
+     * request, used as part of the recommendations cache key.
+     */
+    private fun snapshotOf(customerSessionRequest: CustomerSessionRequest?): CustomerSessionRequest? =
+        customerSessionRequest?.let { it.copy(purchaseUnits = it.purchaseUnits?.toList()) }
+
     /**
      * Call this method when the PayPal, Venmo or Other button has been successfully displayed to the buyer.
      * This method sends analytics to help improve the Shopper Insights feature experience.
@@ -168,7 +254,8 @@ class ShopperInsightsClientV2 internal constructor(
             shopperSessionId = sessionId,
             buttonType = buttonType.stringValue,
             buttonOrder = presentmentDetails.buttonOrder.stringValue,
-            pageType = presentmentDetails.pageType.stringValue
+            pageType = presentmentDetails.pageType.stringValue,
+            samplingPolicy = BUTTON_PRESENTED_SAMPLING_POLICY
         )
         analyticsClient.sendEvent(BUTTON_PRESENTED, params)
     }
@@ -203,4 +290,15 @@ class ShopperInsightsClientV2 internal constructor(
     fun isVenmoAppInstalled(context: Context): Boolean {
         return deviceInspector.isVenmoInstalled(context)
     }
+
+    internal companion object {
+
+        /**
+         * Shared across [ShopperInsightsClientV2] instances so that recommendations are reused
+         * between the pages of a checkout flow.
+         */
+        val customerRecommendationsCache: RecommendationsCache<CustomerRecommendations> by lazy {
+            RecommendationsCache()
+        }
+    }
 }
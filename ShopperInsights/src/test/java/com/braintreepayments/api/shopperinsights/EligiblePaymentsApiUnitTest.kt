@@ -5,6 +5,7 @@ import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.ConfigurationCallback
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
 import io.mockk.every
 import io.mockk.mockk
@@ -138,6 +139,7 @@ class EligiblePaymentsApiUnitTest {
         } answers {
             val callback = callbackSlot.captured
             callback.onResult(null, error)
+            CancellableRequest()
         }
     }
 
@@ -148,6 +150,7 @@ class EligiblePaymentsApiUnitTest {
         } answers {
             val callback = callbackSlot.captured
             callback.onResult(responseBody, null)
+            CancellableRequest()
         }
     }
 
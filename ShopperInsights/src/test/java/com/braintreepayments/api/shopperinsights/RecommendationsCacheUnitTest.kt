@@ -0,0 +1,113 @@
+package com.braintreepayments.api.shopperinsights
+
+import com.braintreepayments.api.sharedutils.Time
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+
+class RecommendationsCacheUnitTest {
+
+    private val time: Time = mockk()
+    private lateinit var sut: RecommendationsCache<String>
+
+    private var loadCount = 0
+    private val pendingLoads = mutableListOf<(String?, Exception?) -> Unit>()
+    private val load: ((String?, Exception?) -> Unit) -> Unit = {
+        loadCount++
+        pendingLoads.add(it)
+    }
+
+    @Before
+    fun beforeEach() {
+        every { time.currentTime } returns 0
+        sut = RecommendationsCache(time)
+    }
+
+    @Test
+    fun `fetch reuses the result for the same session and request`() {
+        var first: String? = null
+        var second: String? = null
+        sut.fetch("session-id", "request", load) { value, _ -> first = value }
+        pendingLoads.single()("recommendations", null)
+        sut.fetch("session-id", "request", load) { value, _ -> second = value }
+
+        assertEquals(1, loadCount)
+        assertEquals("recommendations", first)
+        assertEquals("recommendations", second)
+    }
+
+    @Test
+    fun `fetch coalesces concurrent fetches for the same session and request`() {
+        val results = mutableListOf<String?>()
+        sut.fetch("session-id", "request", load) { value, _ -> results.add(value) }
+        sut.fetch("session-id", "request", load) { value, _ -> results.add(value) }
+        pendingLoads.single()("recommendations", null)
+
+        assertEquals(1, loadCount)
+        assertEquals(listOf<String?>("recommendations", "recommendations"), results)
+    }
+
+    @Test
+    fun `fetch does not share results between sessions or requests`() {
+        sut.fetch("session-id", "request", load) { _, _ -> }
+        sut.fetch("other-session-id", "request", load) { _, _ -> }
+        sut.fetch("session-id", "other-request", load) { _, _ -> }
+
+        assertEquals(3, loadCount)
+    }
+
+    @Test
+    fun `fetch when the result expired loads again`() {
+        sut.fetch("session-id", "request", load) { _, _ -> }
+        pendingLoads.single()("recommendations", null)
+        every { time.currentTime } returns TimeUnit.MINUTES.toMillis(1)
+
+        sut.fetch("session-id", "request", load) { _, _ -> }
+
+        assertEquals(2, loadCount)
+    }
+
+    @Test
+    fun `fetch does not cache errors`() {
+        var error: Exception? = null
+        sut.fetch("session-id", "request", load) { _, e -> error = e }
+        pendingLoads.single()(null, Exception("error"))
+        sut.fetch("session-id", "request", load) { _, _ -> }
+
+        assertEquals("error", error?.message)
+        assertEquals(2, loadCount)
+    }
+
+    @Test
+    fun `invalidate discards cached results for the session only`() {
+        sut.fetch("session-id", "request", load) { _, _ -> }
+        sut.fetch("other-session-id", "request", load) { _, _ -> }
+        pendingLoads.forEach { it("recommendations", null) }
+
+        sut.invalidate("session-id")
+        sut.fetch("session-id", "request", load) { _, _ -> }
+        sut.fetch("other-session-id", "request", load) { _, _ -> }
+
+        assertEquals(3, loadCount)
+    }
+
+    @Test
+    fun `invalidate while fetch in flight delivers the result without caching it`() {
+        var result: String? = null
+        sut.fetch("session-id", "request", load) { value, _ -> result = value }
+        sut.invalidate("session-id")
+        pendingLoads.single()("stale-recommendations", null)
+
+        assertEquals("stale-recommendations", result)
+
+        var next: String? = "unset"
+        sut.fetch("session-id", "request", load) { value, _ -> next = value }
+        assertEquals(2, loadCount)
+        assertEquals("unset", next)
+        pendingLoads.last()("recommendations", null)
+        assertEquals("recommendations", next)
+    }
+}
@@ -1,8 +1,12 @@
 package com.braintreepayments.api.shopperinsights
 
 import android.content.Context
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import androidx.test.core.app.ApplicationProvider
 import com.braintreepayments.api.core.AnalyticsEventParams
+import com.braintreepayments.api.core.AnalyticsSamplingPolicy
 import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
@@ -64,7 +68,8 @@ class ShopperInsightsClientUnitTest {
             api,
             merchantRepository,
             deviceInspector,
-            shopperSessionId = shopperSessionId
+            shopperSessionId = shopperSessionId,
+            eligiblePaymentsCache = RecommendationsCache()
         )
         context = ApplicationProvider.getApplicationContext()
     }
@@ -451,7 +456,8 @@ class ShopperInsightsClientUnitTest {
             shopperSessionId = shopperSessionId,
             buttonType = ButtonType.PAYPAL.stringValue,
             buttonOrder = presentmentDetails.buttonOrder.stringValue,
-            pageType = presentmentDetails.pageType.stringValue
+            pageType = presentmentDetails.pageType.stringValue,
+            samplingPolicy = AnalyticsSamplingPolicy(maxEventsPerMinute = 20)
         )
         sut.sendPresentedEvent(
             ButtonType.PAYPAL,
@@ -479,7 +485,8 @@ class ShopperInsightsClientUnitTest {
             shopperSessionId = shopperSessionId,
             buttonType = ButtonType.VENMO.stringValue,
             buttonOrder = presentmentDetails.buttonOrder.stringValue,
-            pageType = presentmentDetails.pageType.stringValue
+            pageType = presentmentDetails.pageType.stringValue,
+            samplingPolicy = AnalyticsSamplingPolicy(maxEventsPerMinute = 20)
         )
         sut.sendPresentedEvent(
             ButtonType.VENMO,
@@ -544,6 +551,87 @@ class ShopperInsightsClientUnitTest {
         assertFalse(sut.isVenmoAppInstalled(context))
     }
 
+    @Test
+    fun `getRecommendedPaymentMethods with the same request reuses the eligible payments result`() {
+        val result = EligiblePaymentsApiResult(
+            EligiblePaymentMethods(
+                paypal = EligiblePaymentMethodDetails(
+                    canBeVaulted = true,
+                    eligibleInPayPalNetwork = true,
+                    recommended = true,
+                    recommendedPriority = 1
+                ),
+                venmo = null
+            )
+        )
+        every { api.findEligiblePayments(any(), any()) } answers {
+            secondArg<EligiblePaymentsCallback>().onResult(result, null)
+        }
+        val callback = mockk<ShopperInsightsCallback>(relaxed = true)
+
+        sut.getRecommendedPaymentMethods(ShopperInsightsRequest("some-email", null), callback = callback)
+        sut.getRecommendedPaymentMethods(ShopperInsightsRequest("some-email", null), callback = callback)
+
+        verify(exactly = 1) { api.findEligiblePayments(any(), any()) }
+        verify(exactly = 2) {
+            callback.onResult(withArg { assertTrue(it is ShopperInsightsResult.Success) })
+        }
+    }
+
+    @Test
+    fun `getRecommendedPaymentMethods does not reuse a failed eligible payments request`() {
+        every { api.findEligiblePayments(any(), any()) } answers {
+            secondArg<EligiblePaymentsCallback>().onResult(null, Exception("error"))
+        }
+
+        sut.getRecommendedPaymentMethods(ShopperInsightsRequest("some-email", null)) {}
+        sut.getRecommendedPaymentMethods(ShopperInsightsRequest("some-email", null)) {}
+
+        verify(exactly = 2) { api.findEligiblePayments(any(), any()) }
+    }
+
+    @Test
+    fun `when getRecommendedPaymentMethodsCancellable is cancelled, the callback is not called`() {
+        val callback = mockk<ShopperInsightsCallback>(relaxed = true)
+        val apiCallbackSlot = slot<EligiblePaymentsCallback>()
+        every { api.findEligiblePayments(any(), capture(apiCallbackSlot)) } just runs
+
+        val request = sut.getRecommendedPaymentMethodsCancellable(
+            ShopperInsightsRequest("some-email", null),
+            "some_experiment",
+            callback
+        )
+        request.cancel()
+        apiCallbackSlot.captured.onResult(result = null, error = Exception("error"))
+
+        assertTrue(request.isCancelled)
+        verify(exactly = 0) { callback.onResult(any()) }
+    }
+
+    @Test
+    fun `when getRecommendedPaymentMethods is bound to a lifecycle, destroying it cancels the request`() {
+        val callback = mockk<ShopperInsightsCallback>(relaxed = true)
+        val apiCallbackSlot = slot<EligiblePaymentsCallback>()
+        every { api.findEligiblePayments(any(), capture(apiCallbackSlot)) } just runs
+        val lifecycleOwner = mockk<LifecycleOwner>()
+        val lifecycle = LifecycleRegistry.createUnsafe(lifecycleOwner)
+        every { lifecycleOwner.lifecycle } returns lifecycle
+        lifecycle.currentState = Lifecycle.State.RESUMED
+
+        val request = sut.getRecommendedPaymentMethods(
+            lifecycleOwner,
+            ShopperInsightsRequest("some-email", null),
+            "some_experiment",
+            callback
+        )
+        lifecycle.currentState = Lifecycle.State.DESTROYED
+        apiCallbackSlot.captured.onResult(result = null, error = Exception("error"))
+
+        assertTrue(request.isCancelled)
+        assertEquals(0, lifecycle.observerCount)
+        verify(exactly = 0) { callback.onResult(any()) }
+    }
+
     private fun executeTestForFindEligiblePaymentsApi(
         callback: ShopperInsightsCallback,
         request: ShopperInsightsRequest = ShopperInsightsRequest("some-email", null),
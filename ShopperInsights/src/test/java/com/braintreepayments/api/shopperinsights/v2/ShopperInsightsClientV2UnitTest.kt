@@ -3,6 +3,7 @@ package com.braintreepayments.api.shopperinsights.v2
 import android.content.Context
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
+import com.braintreepayments.api.core.AnalyticsSamplingPolicy
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.DeviceInspector
 import com.braintreepayments.api.core.ExperimentalBetaApi
@@ -11,6 +12,7 @@ import com.braintreepayments.api.shopperinsights.ButtonType
 import com.braintreepayments.api.shopperinsights.ExperimentType
 import com.braintreepayments.api.shopperinsights.PageType
 import com.braintreepayments.api.shopperinsights.PresentmentDetails
+import com.braintreepayments.api.shopperinsights.RecommendationsCache
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_PRESENTED
 import com.braintreepayments.api.shopperinsights.ShopperInsightsAnalytics.BUTTON_SELECTED
@@ -28,6 +30,7 @@ import io.mockk.verifyOrder
 import org.junit.Before
 import org.junit.Test
 import kotlin.test.assertEquals
+import kotlin.test.assertNull
 
 @OptIn(ExperimentalBetaApi::class)
 class ShopperInsightsClientV2UnitTest {
@@ -53,7 +56,8 @@ class ShopperInsightsClientV2UnitTest {
             updateCustomerSessionApi = updateCustomerSessionApi,
             generateCustomerRecommendationsApi = generateCustomerRecommendationsApi,
             deviceInspector = deviceInspector,
-            lazy { analyticsClient }
+            lazy { analyticsClient },
+            recommendationsCache = RecommendationsCache()
         )
     }
 
@@ -77,7 +81,8 @@ class ShopperInsightsClientV2UnitTest {
                     shopperSessionId = sessionId,
                     buttonType = ButtonType.PAYPAL.stringValue,
                     buttonOrder = ButtonOrder.FIRST.stringValue,
-                    pageType = PageType.CHECKOUT.stringValue
+                    pageType = PageType.CHECKOUT.stringValue,
+                    samplingPolicy = AnalyticsSamplingPolicy(maxEventsPerMinute = 20)
                 )
             )
         }
@@ -201,7 +206,7 @@ class ShopperInsightsClientV2UnitTest {
 
     @Test
     fun `when generateCustomerRecommendations is called and succeeds, callback is invoked with Success`() {
-        val customerSessionRequest = mockk<CustomerSessionRequest>()
+        val customerSessionRequest = CustomerSessionRequest(hashedEmail = "hashed-email")
         val sessionId = "test-session-id"
         val callbackSlot = slot<(GenerateCustomerRecommendationsResult) -> Unit>()
         val recommendations = mockk<CustomerRecommendations>()
@@ -221,7 +226,7 @@ class ShopperInsightsClientV2UnitTest {
 
     @Test
     fun `when generateCustomerRecommendations is called and fails, callback is invoked with Failure`() {
-        val customerSessionRequest = mockk<CustomerSessionRequest>()
+        val customerSessionRequest = CustomerSessionRequest(hashedEmail = "hashed-email")
         val sessionId = "test-session-id"
         val callbackSlot = slot<(GenerateCustomerRecommendationsResult) -> Unit>()
         val error = Exception("Test error")
@@ -321,7 +326,7 @@ class ShopperInsightsClientV2UnitTest {
 
     @Test
     fun `generateCustomerRecommendations sends started and succeeded analytics events`() {
-        val customerSessionRequest = mockk<CustomerSessionRequest>()
+        val customerSessionRequest = CustomerSessionRequest(hashedEmail = "hashed-email")
         val sessionId = "test-session-id"
         val callbackSlot = slot<(GenerateCustomerRecommendationsResult) -> Unit>()
         val recommendations = mockk<CustomerRecommendations>()
@@ -342,7 +347,7 @@ class ShopperInsightsClientV2UnitTest {
 
     @Test
     fun `generateCustomerRecommendations sends started and failed analytics events on error`() {
-        val customerSessionRequest = mockk<CustomerSessionRequest>()
+        val customerSessionRequest = CustomerSessionRequest(hashedEmail = "hashed-email")
         val sessionId = "test-session-id"
         val callbackSlot = slot<(GenerateCustomerRecommendationsResult) -> Unit>()
         val error = Exception("Test error")
@@ -360,4 +365,134 @@ class ShopperInsightsClientV2UnitTest {
             analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_FAILED)
         }
     }
+
+    @Test
+    fun `generateCustomerRecommendations with the same session and request reuses the recommendations`() {
+        val recommendations = mockk<CustomerRecommendations>()
+        every {
+            generateCustomerRecommendationsApi.execute(any(), sessionId, any())
+        } answers {
+            thirdArg<(GenerateCustomerRecommendationsResult) -> Unit>()(
+                GenerateCustomerRecommendationsResult.Success(recommendations)
+            )
+        }
+
+        val results = mutableListOf<CustomerRecommendationsResult>()
+        subject.generateCustomerRecommendations(CustomerSessionRequest(hashedEmail = "hashed-email"), sessionId) {
+            results.add(it)
+        }
+        subject.generateCustomerRecommendations(CustomerSessionRequest(hashedEmail = "hashed-email"), sessionId) {
+            results.add(it)
+        }
+
+        verify(exactly = 1) { generateCustomerRecommendationsApi.execute(any(), sessionId, any()) }
+        assertEquals(2, results.size)
+        results.forEach {
+            assertEquals(recommendations, (it as CustomerRecommendationsResult.Success).customerRecommendations)
+        }
+    }
+
+    @Test
+    fun `generateCustomerRecommendations with a different request fetches new recommendations`() {
+        subject.generateCustomerRecommendations(CustomerSessionRequest(hashedEmail = "hashed-email"), sessionId) {}
+        subject.generateCustomerRecommendations(CustomerSessionRequest(hashedEmail = "other-email"), sessionId) {}
+
+        verify(exactly = 2) { generateCustomerRecommendationsApi.execute(any(), sessionId, any()) }
+    }
+
+    @Test
+    fun `generateCustomerRecommendations without a session ID is not cached`() {
+        subject.generateCustomerRecommendations(null, null) {}
+        subject.generateCustomerRecommendations(null, null) {}
+
+        verify(exactly = 2) { generateCustomerRecommendationsApi.execute(null, null, any()) }
+    }
+
+    @Test
+    fun `updateCustomerSession invalidates recommendations cached for the session`() {
+        val request = CustomerSessionRequest(hashedEmail = "hashed-email")
+        every {
+            generateCustomerRecommendationsApi.execute(any(), sessionId, any())
+        } answers {
+            thirdArg<(GenerateCustomerRecommendationsResult) -> Unit>()(
+                GenerateCustomerRecommendationsResult.Success(mockk())
+            )
+        }
+
+        subject.generateCustomerRecommendations(request, sessionId) {}
+        subject.updateCustomerSession(request, sessionId) {}
+        subject.generateCustomerRecommendations(request, sessionId) {}
+
+        verify(exactly = 2) { generateCustomerRecommendationsApi.execute(any(), sessionId, any()) }
+    }
+
+    @Test
+    fun `createCustomerSessionAndGenerateRecommendations returns the session ID and recommendations`() {
+        val request = CustomerSessionRequest(hashedEmail = "hashed-email")
+        val recommendations = mockk<CustomerRecommendations>()
+        every { createCustomerSessionApi.execute(request, any()) } answers {
+            secondArg<(CreateCustomerSessionResult) -> Unit>()(CreateCustomerSessionResult.Success(sessionId))
+        }
+        every { generateCustomerRecommendationsApi.execute(request, sessionId, any()) } answers {
+            thirdArg<(GenerateCustomerRecommendationsResult) -> Unit>()(
+                GenerateCustomerRecommendationsResult.Success(recommendations)
+            )
+        }
+
+        var result: CustomerSessionRecommendationsResult? = null
+        subject.createCustomerSessionAndGenerateRecommendations(request) { result = it }
+
+        val success = result as CustomerSessionRecommendationsResult.Success
+        assertEquals(sessionId, success.sessionId)
+        assertEquals(recommendations, success.customerRecommendations)
+        verifyOrder {
+            analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_STARTED)
+            analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_SUCCEEDED)
+            analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_STARTED)
+            analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_SUCCEEDED)
+        }
+
+        subject.generateCustomerRecommendations(CustomerSessionRequest(hashedEmail = "hashed-email"), sessionId) {}
+        verify(exactly = 1) { generateCustomerRecommendationsApi.execute(any(), sessionId, any()) }
+    }
+
+    @Test
+    fun `createCustomerSessionAndGenerateRecommendations when session creation fails returns Failure`() {
+        val request = CustomerSessionRequest(hashedEmail = "hashed-email")
+        val error = Exception("Test error")
+        every { createCustomerSessionApi.execute(request, any()) } answers {
+            secondArg<(CreateCustomerSessionResult) -> Unit>()(CreateCustomerSessionResult.Error(error))
+        }
+
+        var result: CustomerSessionRecommendationsResult? = null
+        subject.createCustomerSessionAndGenerateRecommendations(request) { result = it }
+
+        val failure = result as CustomerSessionRecommendationsResult.Failure
+        assertEquals(error, failure.error)
+        assertNull(failure.sessionId)
+        verify(exactly = 0) { generateCustomerRecommendationsApi.execute(any(), any(), any()) }
+        verify { analyticsClient.sendEvent(ShopperInsightsAnalytics.CREATE_CUSTOMER_SESSION_FAILED) }
+    }
+
+    @Test
+    fun `createCustomerSessionAndGenerateRecommendations when recommendations fail returns the session ID`() {
+        val request = CustomerSessionRequest(hashedEmail = "hashed-email")
+        val error = Exception("Test error")
+        every { createCustomerSessionApi.execute(request, any()) } answers {
+            secondArg<(CreateCustomerSessionResult) -> Unit>()(CreateCustomerSessionResult.Success(sessionId))
+        }
+        every { generateCustomerRecommendationsApi.execute(request, sessionId, any()) } answers {
+            thirdArg<(GenerateCustomerRecommendationsResult) -> Unit>()(
+                GenerateCustomerRecommendationsResult.Error(error)
+            )
+        }
+
+        var result: CustomerSessionRecommendationsResult? = null
+        subject.createCustomerSessionAndGenerateRecommendations(request) { result = it }
+
+        val failure = result as CustomerSessionRecommendationsResult.Failure
+        assertEquals(error, failure.error)
+        assertEquals(sessionId, failure.sessionId)
+        verify { analyticsClient.sendEvent(ShopperInsightsAnalytics.GET_CUSTOMER_RECOMMENDATIONS_FAILED) }
+    }
 }
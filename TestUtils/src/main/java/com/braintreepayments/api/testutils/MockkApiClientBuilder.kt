@@ -2,6 +2,7 @@ package com.braintreepayments.api.testutils
 
 import com.braintreepayments.api.core.ApiClient
 import com.braintreepayments.api.core.TokenizeCallback
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import io.mockk.every
 import io.mockk.mockk
 import org.json.JSONObject
@@ -40,11 +41,13 @@ class MockkApiClientBuilder {
         every { apiClient.tokenizeREST(any(), any()) } answers {
             val listener = lastArg() as TokenizeCallback
             listener.onResult(tokenizeRESTSuccess, tokenizeRESTError)
+            CancellableRequest()
         }
 
         every { apiClient.tokenizeGraphQL(any(), any()) } answers {
             val listener = lastArg() as TokenizeCallback
             listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError)
+            CancellableRequest()
         }
         return apiClient
     }
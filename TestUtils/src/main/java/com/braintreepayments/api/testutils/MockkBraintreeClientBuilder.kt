@@ -1,13 +1,17 @@
 package com.braintreepayments.api.testutils
 
 import android.content.pm.ActivityInfo
+import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.Authorization
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.ConfigurationCallback
+import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
 import io.mockk.every
 import io.mockk.mockk
+import java.util.concurrent.Executor
 
 @Suppress("MagicNumber", "TooManyFunctions")
 class MockkBraintreeClientBuilder {
@@ -94,6 +98,12 @@ class MockkBraintreeClientBuilder {
 
         every { braintreeClient.launchesBrowserSwitchAsNewTask() } returns launchesBrowserSwitchAsNewTask
 
+        every { braintreeClient.callbackExecutor } returns Executor { it.run() }
+
+        every { braintreeClient.merchantRepository } returns MerchantRepository.instance
+
+        every { braintreeClient.analyticsParamRepository } returns AnalyticsParamRepository.instance
+
         every { braintreeClient.getConfiguration(any()) } answers { call ->
             val callback = call.invocation.args[0] as ConfigurationCallback
             callback.onResult(configurationSuccess, configurationException)
@@ -103,6 +113,7 @@ class MockkBraintreeClientBuilder {
             val callback = call.invocation.args[1] as HttpResponseCallback
             sendGraphQLPostSuccess?.let { callback.onResult(it, null) }
                 ?: sendGraphQLPostError?.let { callback.onResult(null, it) }
+            CancellableRequest()
         }
 
         every { braintreeClient.getReturnUrlScheme() } returns returnUrlScheme
@@ -115,6 +126,7 @@ class MockkBraintreeClientBuilder {
             val callback = call.invocation.args[2] as HttpResponseCallback
             sendPostSuccess?.let { callback.onResult(it, null) }
                 ?: sendPostError?.let { callback.onResult(null, it) }
+            CancellableRequest()
         }
 
         every {
@@ -128,6 +140,7 @@ class MockkBraintreeClientBuilder {
             val callback = call.invocation.args[3] as HttpResponseCallback
             sendPostSuccess?.let { callback.onResult(it, null) }
                 ?: sendPostError?.let { callback.onResult(null, it) }
+            CancellableRequest()
         }
 
         every { braintreeClient.sendGET(any<String>(), responseCallback = any<HttpResponseCallback>())
@@ -135,6 +148,7 @@ class MockkBraintreeClientBuilder {
             val callback = call.invocation.args[1] as HttpResponseCallback
             sendGetSuccess?.let { callback.onResult(it, null) }
                 ?: sendGetError?.let { callback.onResult(null, it) }
+            CancellableRequest()
         }
 
         return braintreeClient
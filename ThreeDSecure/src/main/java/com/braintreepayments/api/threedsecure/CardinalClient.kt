@@ -3,6 +3,7 @@ package com.braintreepayments.api.threedsecure
 import android.content.Context
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.Time
 import com.cardinalcommerce.cardinalmobilesdk.Cardinal
 import com.cardinalcommerce.cardinalmobilesdk.enums.CardinalEnvironment
 import com.cardinalcommerce.cardinalmobilesdk.enums.CardinalRenderType
@@ -12,11 +13,24 @@ import com.cardinalcommerce.cardinalmobilesdk.models.CardinalConfigurationParame
 import com.cardinalcommerce.cardinalmobilesdk.models.ValidateResponse
 import com.cardinalcommerce.cardinalmobilesdk.services.CardinalInitService
 import org.json.JSONArray
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
-internal class CardinalClient {
+@Suppress("TooManyFunctions")
+internal class CardinalClient(
+    private val time: Time = Time()
+) {
+    @Volatile
     var consumerSessionId: String? = null
         private set
 
+    // pre-warm state is written from Cardinal callbacks and read from the caller's thread
+    private val lock = Any()
+    private var prewarmedSession: PrewarmedSession? = null
+    private var prewarmingSessionKey: SessionKey? = null
+    private var prewarmingGeneration = 0
+    private val prewarmCallbacks = mutableListOf<CardinalInitializeCallback>()
+
     @Throws(BraintreeException::class)
     @Suppress("TooGenericExceptionCaught")
     fun initialize(
@@ -25,6 +39,34 @@ internal class CardinalClient {
         request: ThreeDSecureRequest,
         callback: CardinalInitializeCallback
     ) {
+        val sessionKey = SessionKey(configuration, request)
+        val prewarmedSessionId = synchronized(lock) {
+            when (getSessionState(sessionKey)) {
+                CardinalSessionState.READY -> {
+                    val sessionId = prewarmedSession?.consumerSessionId
+                    prewarmedSession = null
+                    sessionId
+                }
+
+                CardinalSessionState.IN_PROGRESS -> {
+                    prewarmCallbacks.add(callback)
+                    return
+                }
+
+                CardinalSessionState.UNAVAILABLE -> {
+                    prewarmedSession = null
+                    null
+                }
+            }
+        }
+        if (prewarmedSessionId != null) {
+            consumerSessionId = prewarmedSessionId
+            callback.onResult(prewarmedSessionId, null)
+            return
+        }
+        // a new init supersedes any pre-warm still in flight for different inputs
+        finishPrewarm(null)
+
         configureCardinal(context, configuration, request)
 
         try {
@@ -53,6 +95,107 @@ internal class CardinalClient {
         }
     }
 
+    /**
+     * Sets up a Cardinal consumer session ahead of a lookup so that the device data collection
+     * performed by [Cardinal.init] is not on the critical path of [initialize]. The session is
+     * handed to the next [initialize] call with a matching configuration and request UI
+     * parameters, as long as it is used within [SESSION_TIME_TO_LIVE].
+     */
+    @Throws(BraintreeException::class)
+    @Suppress("TooGenericExceptionCaught")
+    fun prewarm(
+        context: Context,
+        configuration: Configuration,
+        request: ThreeDSecureRequest
+    ) {
+        val sessionKey = SessionKey(configuration, request)
+        val generation = synchronized(lock) {
+            if (getSessionState(sessionKey) != CardinalSessionState.UNAVAILABLE) return
+            prewarmedSession = null
+            prewarmingSessionKey = sessionKey
+            prewarmingGeneration = cleanupGeneration.get()
+            prewarmingGeneration
+        }
+
+        try {
+            configureCardinal(context, configuration, request)
+            val cardinalInitService = object : CardinalInitService {
+                override fun onSetupCompleted(sessionId: String) {
+                    val isCurrent = synchronized(lock) {
+                        val isCurrent = generation == cleanupGeneration.get()
+                        if (isCurrent && prewarmingSessionKey === sessionKey) {
+                            prewarmedSession = PrewarmedSession(sessionKey, sessionId, time.currentTime, generation)
+                        }
+                        isCurrent
+                    }
+                    finishPrewarm(if (isCurrent) sessionId else null, sessionKey)
+                }
+
+                override fun onValidated(validateResponse: ValidateResponse?, serverJWT: String?) {
+                    finishPrewarm(null, sessionKey)
+                }
+            }
+
+            Cardinal.getInstance().init(configuration.cardinalAuthenticationJwt, cardinalInitService)
+        } catch (e: BraintreeException) {
+            finishPrewarm(null, sessionKey)
+            throw e
+        } catch (e: RuntimeException) {
+            finishPrewarm(null, sessionKey)
+            throw BraintreeException("Cardinal SDK init Error.", e)
+        }
+    }
+
+    /**
+     * Returns the state of the pre-warmed consumer session for the given [configuration] and
+     * [request], without consuming it.
+     */
+    fun getSessionState(
+        configuration: Configuration,
+        request: ThreeDSecureRequest
+    ): CardinalSessionState = synchronized(lock) { getSessionState(SessionKey(configuration, request)) }
+
+    // only called while holding the lock
+    private fun getSessionState(sessionKey: SessionKey): CardinalSessionState {
+        val session = prewarmedSession
+        val generation = cleanupGeneration.get()
+        return when {
+            prewarmingSessionKey == sessionKey &&
+                prewarmingGeneration == generation -> CardinalSessionState.IN_PROGRESS
+            session != null && session.sessionKey == sessionKey &&
+                session.generation == generation &&
+                time.currentTime - session.createdAt < SESSION_TIME_TO_LIVE -> CardinalSessionState.READY
+            else -> CardinalSessionState.UNAVAILABLE
+        }
+    }
+
+    /**
+     * Ends the pre-warm started for [sessionKey], or any pre-warm in flight when [sessionKey] is
+     * null, and hands the result to the lookups waiting on it.
+     */
+    private fun finishPrewarm(sessionId: String?, sessionKey: SessionKey? = null) {
+        val callbacks = synchronized(lock) {
+            val inFlightKey = prewarmingSessionKey ?: return
+            if (sessionKey != null && inFlightKey !== sessionKey) return
+            prewarmingSessionKey = null
+            val callbacks = prewarmCallbacks.toList()
+            prewarmCallbacks.clear()
+            // the session is single use, so a lookup waiting on it consumes it immediately
+            if (callbacks.isNotEmpty()) prewarmedSession = null
+            callbacks
+        }
+        if (callbacks.isEmpty()) return
+
+        consumerSessionId = sessionId
+        callbacks.forEach { callback ->
+            if (sessionId == null) {
+                callback.onResult(null, BraintreeException("consumer session id not available"))
+            } else {
+                callback.onResult(sessionId, null)
+            }
+        }
+    }
+
     @Throws(BraintreeException::class)
     @Suppress("TooGenericExceptionCaught")
     fun continueLookup(
@@ -120,6 +263,15 @@ internal class CardinalClient {
     }
 
     fun cleanup() {
+        // Cardinal is a process-wide singleton that may be cleaned up through another
+        // CardinalClient, so cleanup invalidates the sessions pre-warmed by every instance
+        // the generation is shared by every instance, so it is incremented atomically rather than
+        // under the lock of this instance
+        cleanupGeneration.incrementAndGet()
+        synchronized(lock) {
+            prewarmedSession = null
+        }
+        finishPrewarm(null)
         Cardinal.getInstance().cleanup()
     }
 
@@ -135,7 +287,43 @@ internal class CardinalClient {
         }
     }
 
+    /**
+     * Identifies the inputs a Cardinal consumer session was configured and initialized with. A
+     * pre-warmed session can only be reused for a lookup whose inputs match.
+     */
+    private data class SessionKey(
+        val cardinalAuthenticationJwt: String?,
+        val environment: String?,
+        val uiType: ThreeDSecureUiType,
+        val renderTypes: List<ThreeDSecureRenderType>?,
+        val v2UiCustomization: ThreeDSecureV2UiCustomization?,
+        val requestorAppUrl: String?,
+    ) {
+        constructor(configuration: Configuration, request: ThreeDSecureRequest) : this(
+            cardinalAuthenticationJwt = configuration.cardinalAuthenticationJwt,
+            environment = configuration.environment,
+            uiType = request.uiType,
+            renderTypes = request.renderTypes,
+            v2UiCustomization = request.v2UiCustomization,
+            requestorAppUrl = request.requestorAppUrl,
+        )
+    }
+
+    private class PrewarmedSession(
+        val sessionKey: SessionKey,
+        val consumerSessionId: String,
+        val createdAt: Long,
+        val generation: Int,
+    )
+
     companion object {
         private const val REQUEST_TIMEOUT = 8000
+        private val SESSION_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+
+        /**
+         * Incremented each time the Cardinal singleton is cleaned up. Sessions pre-warmed before
+         * then are no longer valid.
+         */
+        private val cleanupGeneration = AtomicInteger()
     }
 }
@@ -0,0 +1,22 @@
+package com.braintreepayments.api.threedsecure
+
+/**
+ * State of a pre-warmed Cardinal consumer session at the time a lookup is started.
+ */
+internal enum class CardinalSessionState {
+
+    /**
+     * A pre-warmed session matching the lookup exists and is within its validity window.
+     */
+    READY,
+
+    /**
+     * A matching session is still being set up; the lookup waits for it to complete.
+     */
+    IN_PROGRESS,
+
+    /**
+     * No usable pre-warmed session exists; the lookup sets up a new session.
+     */
+    UNAVAILABLE,
+}
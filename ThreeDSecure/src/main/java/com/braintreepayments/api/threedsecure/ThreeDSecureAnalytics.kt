@@ -17,4 +17,9 @@ internal object ThreeDSecureAnalytics {
     // JWT Events
     const val JWT_AUTH_SUCCEEDED = "3ds:verify:authenticate-jwt:succeeded"
     const val JWT_AUTH_FAILED = "3ds:verify:authenticate-jwt:failed"
+
+    // Prewarm Events, sent when a lookup starts after `ThreeDSecureClient.prewarm` was called
+    const val PREWARM_SESSION_READY = "3ds:verify:prewarm:session-ready"
+    const val PREWARM_SESSION_IN_PROGRESS = "3ds:verify:prewarm:session-in-progress"
+    const val PREWARM_SESSION_UNAVAILABLE = "3ds:verify:prewarm:session-unavailable"
 }
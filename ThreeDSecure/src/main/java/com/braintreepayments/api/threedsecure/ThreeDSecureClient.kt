@@ -1,7 +1,9 @@
 package com.braintreepayments.api.threedsecure
 
 import android.content.Context
+import androidx.annotation.MainThread
 import androidx.annotation.RestrictTo
+import androidx.lifecycle.LifecycleOwner
 import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
@@ -9,8 +11,11 @@ import com.braintreepayments.api.core.BuildConfig
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.InvalidArgumentException
 import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.core.cancelOnDestroy
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.threedsecure.ThreeDSecureParams.Companion.fromJson
 import com.cardinalcommerce.cardinalmobilesdk.models.CardinalActionCode
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -27,18 +32,59 @@ class ThreeDSecureClient internal constructor(
     private val braintreeClient: BraintreeClient,
     private val cardinalClient: CardinalClient = CardinalClient(),
     private val api: ThreeDSecureAPI = ThreeDSecureAPI(braintreeClient),
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
 ) {
+    private var isPrewarmRequested = false
+
     /**
      * Initializes a new [ThreeDSecureClient] instance
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
+    @JvmOverloads
     constructor(
         context: Context,
-        authorization: String
-    ) : this(BraintreeClient(context, authorization))
+        authorization: String,
+        callbackExecutor: Executor? = null
+    ) : this(BraintreeClient(context, authorization, callbackExecutor = callbackExecutor))
+
+    /**
+     * Call this method ahead of [createPaymentAuthRequest] or [prepareLookup], for example when the
+     * checkout screen is shown, to set up the 3D Secure device data collection session in the
+     * background once the configuration is available. A lookup started shortly afterwards with
+     * matching UI parameters reuses the session instead of waiting for it to be set up.
+     *
+     * Calling this method is optional. If 3D Secure is not enabled for the merchant, or the session
+     * cannot be set up, the lookup falls back to setting up the session on demand.
+     *
+     * @param context Android context
+     * @param request Optional. A [ThreeDSecureRequest] whose [ThreeDSecureRequest.uiType],
+     * [ThreeDSecureRequest.renderTypes], [ThreeDSecureRequest.v2UiCustomization] and
+     * [ThreeDSecureRequest.requestorAppUrl] match the request that will be used for the lookup.
+     */
+    @JvmOverloads
+    fun prewarm(
+        context: Context,
+        request: ThreeDSecureRequest = ThreeDSecureRequest()
+    ) {
+        isPrewarmRequested = true
+        braintreeClient.getConfiguration { configuration: Configuration?, _ ->
+            if (configuration == null ||
+                !configuration.isThreeDSecureEnabled ||
+                configuration.cardinalAuthenticationJwt == null
+            ) {
+                return@getConfiguration
+            }
+
+            try {
+                cardinalClient.prewarm(context, configuration, request)
+            } catch (ignored: BraintreeException) {
+                // the lookup will set up the session on demand
+            }
+        }
+    }
 
     /**
      * Call this method to initiate the 3D Secure flow.
@@ -62,20 +108,44 @@ class ThreeDSecureClient internal constructor(
         request: ThreeDSecureRequest,
         callback: ThreeDSecurePaymentAuthRequestCallback
     ) {
+        createPaymentAuthRequestCancellable(context, request, callback)
+    }
+
+    /**
+     * Call this method to initiate the 3D Secure flow, as [createPaymentAuthRequest] does, and
+     * return a handle that cancels the lookup, e.g. when the user leaves the checkout screen while
+     * the lookup is in flight.
+     *
+     * @param context  Android context
+     * @param request  the [ThreeDSecureRequest] with information used for authentication.
+     * @param callback [ThreeDSecureResultCallback]
+     * @return a [CancellableRequest] that stops the lookup; [callback] is not called once it has
+     * been cancelled
+     */
+    fun createPaymentAuthRequestCancellable(
+        context: Context,
+        request: ThreeDSecureRequest,
+        callback: ThreeDSecurePaymentAuthRequestCallback
+    ): CancellableRequest {
+        val lookupRequest = CancellableRequest()
+        val lookupCallback = ThreeDSecurePaymentAuthRequestCallback { paymentAuthRequest ->
+            if (lookupRequest.complete()) callback.onThreeDSecurePaymentAuthRequest(paymentAuthRequest)
+        }
         braintreeClient.sendAnalyticsEvent(ThreeDSecureAnalytics.VERIFY_STARTED)
         if (request.amount == null || request.nonce == null) {
             callbackCreatePaymentAuthFailure(
-                callback,
+                lookupCallback,
                 ThreeDSecurePaymentAuthRequest.Failure(
                     InvalidArgumentException(
                         "The ThreeDSecureRequest nonce and amount cannot be null"
                     )
                 )
             )
-            return
+            return lookupRequest
         }
 
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
+            if (lookupRequest.isCancelled) return@getConfiguration
             val failure = when {
                 configuration == null -> {
                     error ?: BraintreeException("Configuration is null")
@@ -96,31 +166,56 @@ class ThreeDSecureClient internal constructor(
                 }
 
                 else -> {
-                    initializeCardinalClient(context, configuration, request, callback)
+                    initializeCardinalClient(context, configuration, request, lookupRequest, lookupCallback)
                     return@getConfiguration
                 }
             }
 
             callbackCreatePaymentAuthFailure(
-                callback,
+                lookupCallback,
                 ThreeDSecurePaymentAuthRequest.Failure(failure)
             )
         }
+        return lookupRequest
     }
 
+    /**
+     * Call this method to initiate the 3D Secure flow, as [createPaymentAuthRequest] does, and
+     * cancel the lookup when [lifecycleOwner] is destroyed, e.g. when the user leaves the checkout
+     * screen while the lookup is in flight.
+     *
+     * @param lifecycleOwner the [LifecycleOwner] whose destruction cancels the lookup
+     * @param context  Android context
+     * @param request  the [ThreeDSecureRequest] with information used for authentication.
+     * @param callback [ThreeDSecureResultCallback]
+     * @return a [CancellableRequest] that stops the lookup; [callback] is not called once it has
+     * been cancelled
+     */
+    @MainThread
+    fun createPaymentAuthRequest(
+        lifecycleOwner: LifecycleOwner,
+        context: Context,
+        request: ThreeDSecureRequest,
+        callback: ThreeDSecurePaymentAuthRequestCallback
+    ): CancellableRequest =
+        createPaymentAuthRequestCancellable(context, request, callback).cancelOnDestroy(lifecycleOwner)
+
     private fun initializeCardinalClient(
         context: Context,
         configuration: Configuration,
         request: ThreeDSecureRequest,
+        lookupRequest: CancellableRequest,
         callback: ThreeDSecurePaymentAuthRequestCallback
     ) {
+        sendPrewarmSessionStateEvent(configuration, request)
         try {
             cardinalClient.initialize(
                 context = context,
                 configuration = configuration,
                 request = request
             ) { _, _ ->
-                api.performLookup(
+                if (lookupRequest.isCancelled) return@initialize
+                val performLookupRequest = api.performLookup(
                     request = request,
                     cardinalConsumerSessionId = cardinalClient.consumerSessionId
                 ) { threeDSecureResult: ThreeDSecureParams?, performLookupError: Exception? ->
@@ -137,6 +232,7 @@ class ThreeDSecureClient internal constructor(
                         )
                     }
                 }
+                lookupRequest.attach(performLookupRequest)
             }
         } catch (initializeException: BraintreeException) {
             callbackCreatePaymentAuthFailure(
@@ -199,6 +295,7 @@ class ThreeDSecureClient internal constructor(
                 return@getConfiguration
             }
 
+            sendPrewarmSessionStateEvent(configuration, request)
             try {
                 cardinalClient.initialize(
                     context,
@@ -396,6 +493,19 @@ class ThreeDSecureClient internal constructor(
         }
     }
 
+    private fun sendPrewarmSessionStateEvent(
+        configuration: Configuration,
+        request: ThreeDSecureRequest
+    ) {
+        if (!isPrewarmRequested) return
+        val eventName = when (cardinalClient.getSessionState(configuration, request)) {
+            CardinalSessionState.READY -> ThreeDSecureAnalytics.PREWARM_SESSION_READY
+            CardinalSessionState.IN_PROGRESS -> ThreeDSecureAnalytics.PREWARM_SESSION_IN_PROGRESS
+            CardinalSessionState.UNAVAILABLE -> ThreeDSecureAnalytics.PREWARM_SESSION_UNAVAILABLE
+        }
+        braintreeClient.sendAnalyticsEvent(eventName, sendImmediately = false)
+    }
+
     private fun callbackCreatePaymentAuthFailure(
         callback: ThreeDSecurePaymentAuthRequestCallback,
         failure: ThreeDSecurePaymentAuthRequest.Failure
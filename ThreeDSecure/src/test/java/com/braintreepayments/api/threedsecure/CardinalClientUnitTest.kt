@@ -4,6 +4,7 @@ import android.content.Context
 import androidx.fragment.app.FragmentActivity
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
+import com.braintreepayments.api.sharedutils.Time
 import com.cardinalcommerce.cardinalmobilesdk.Cardinal
 import com.cardinalcommerce.cardinalmobilesdk.enums.CardinalEnvironment
 import com.cardinalcommerce.cardinalmobilesdk.enums.CardinalUiType
@@ -17,11 +18,13 @@ import io.mockk.mockkStatic
 import io.mockk.slot
 import io.mockk.verify
 import junit.framework.TestCase.assertEquals
+import junit.framework.TestCase.assertNull
 import junit.framework.TestCase.assertSame
 import junit.framework.TestCase.assertTrue
 import junit.framework.TestCase.fail
 import org.junit.Before
 import org.junit.Test
+import java.util.concurrent.TimeUnit
 
 class CardinalClientUnitTest {
 
@@ -298,6 +301,170 @@ class CardinalClientUnitTest {
         }
     }
 
+    @Test
+    fun prewarm_initializesCardinalAndReportsSessionInProgress() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+
+        verify { cardinalInstance.configure(context, any()) }
+        verify { cardinalInstance.init("token", any()) }
+        assertEquals(CardinalSessionState.IN_PROGRESS, sut.getSessionState(configuration, request))
+    }
+
+    @Test
+    fun initialize_afterPrewarmCompletes_reusesConsumerSessionIdWithoutInitializingCardinal() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+        val time = mockk<Time>()
+        every { time.currentTime } returns 1000L
+
+        val sut = CardinalClient(time)
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+        assertEquals(CardinalSessionState.READY, sut.getSessionState(configuration, request))
+
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+
+        verify { cardinalInitializeCallback.onResult("prewarmed-session-id", null) }
+        verify(exactly = 1) { cardinalInstance.init(any(), any()) }
+        assertEquals("prewarmed-session-id", sut.consumerSessionId)
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+    }
+
+    @Test
+    fun initialize_whilePrewarmInProgress_waitsForPrewarmedSession() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify(exactly = 1) { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        verify(exactly = 0) { cardinalInitializeCallback.onResult(any(), any()) }
+
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+
+        verify { cardinalInitializeCallback.onResult("prewarmed-session-id", null) }
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+    }
+
+    @Test
+    fun initialize_whenPrewarmedSessionExpired_initializesNewSession() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+        val time = mockk<Time>()
+        every { time.currentTime } returns 0L
+
+        val sut = CardinalClient(time)
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+
+        every { time.currentTime } returns TimeUnit.MINUTES.toMillis(5)
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+
+        verify(exactly = 2) { cardinalInstance.init("token", any()) }
+        verify(exactly = 0) { cardinalInitializeCallback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun initialize_whenRequestUiParametersDifferFromPrewarm_initializesNewSession() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        sut.prewarm(context, configuration, ThreeDSecureRequest())
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+
+        val request = ThreeDSecureRequest(uiType = ThreeDSecureUiType.NATIVE)
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+
+        verify(exactly = 2) { cardinalInstance.configure(context, any()) }
+        verify(exactly = 2) { cardinalInstance.init("token", any()) }
+        assertNull(sut.consumerSessionId)
+    }
+
+    @Test
+    fun prewarm_whenPrewarmedSessionReady_doesNotInitializeCardinalAgain() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+
+        sut.prewarm(context, configuration, request)
+
+        verify(exactly = 1) { cardinalInstance.init(any(), any()) }
+    }
+
+    @Test
+    fun cleanup_throughAnotherCardinalClient_invalidatesPrewarmedSession() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+        assertEquals(CardinalSessionState.READY, sut.getSessionState(configuration, request))
+
+        CardinalClient().cleanup()
+
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+        verify(exactly = 2) { cardinalInstance.init("token", any()) }
+        verify(exactly = 0) { cardinalInitializeCallback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun cleanup_whilePrewarmInProgress_failsWaitingLookupAndDiscardsLateSession() {
+        every { Cardinal.getInstance() } returns cardinalInstance
+        every { configuration.cardinalAuthenticationJwt } returns "token"
+
+        val sut = CardinalClient()
+        val request = ThreeDSecureRequest()
+        sut.prewarm(context, configuration, request)
+        sut.initialize(context, configuration, request, cardinalInitializeCallback)
+
+        val cardinalInitServiceSlot = slot<CardinalInitService>()
+        verify { cardinalInstance.init("token", capture(cardinalInitServiceSlot)) }
+
+        CardinalClient().cleanup()
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+
+        cardinalInitServiceSlot.captured.onSetupCompleted("prewarmed-session-id")
+
+        verify { cardinalInitializeCallback.onResult(null, any()) }
+        assertEquals(CardinalSessionState.UNAVAILABLE, sut.getSessionState(configuration, request))
+    }
+
     @Test
     fun cleanup_cleansUpCardinalInstance() {
         every { Cardinal.getInstance() } returns cardinalInstance
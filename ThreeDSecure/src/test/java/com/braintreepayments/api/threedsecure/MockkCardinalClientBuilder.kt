@@ -11,6 +11,7 @@ internal class MockkCardinalClientBuilder {
     private var error: Exception? = null
     private var initializeRuntimeError: BraintreeException? = null
     private var successReferenceId: String? = null
+    private var sessionState: CardinalSessionState = CardinalSessionState.UNAVAILABLE
 
     fun successReferenceId(successReferenceId: String): MockkCardinalClientBuilder {
         this.successReferenceId = successReferenceId
@@ -27,10 +28,18 @@ internal class MockkCardinalClientBuilder {
         return this
     }
 
+    fun sessionState(sessionState: CardinalSessionState): MockkCardinalClientBuilder {
+        this.sessionState = sessionState
+        return this
+    }
+
     fun build(): CardinalClient {
         val cardinalClient = mockk<CardinalClient>(relaxed = true)
 
         every { cardinalClient.consumerSessionId } returns successReferenceId
+        every {
+            cardinalClient.getSessionState(any<Configuration>(), any<ThreeDSecureRequest>())
+        } returns sessionState
 
         if (initializeRuntimeError != null) {
             every {
@@ -28,5 +28,17 @@ class ThreeDSecureAnalyticsUnitTest {
             "3ds:verify:authenticate-jwt:failed",
             ThreeDSecureAnalytics.JWT_AUTH_FAILED
         )
+        assertEquals(
+            "3ds:verify:prewarm:session-ready",
+            ThreeDSecureAnalytics.PREWARM_SESSION_READY
+        )
+        assertEquals(
+            "3ds:verify:prewarm:session-in-progress",
+            ThreeDSecureAnalytics.PREWARM_SESSION_IN_PROGRESS
+        )
+        assertEquals(
+            "3ds:verify:prewarm:session-unavailable",
+            ThreeDSecureAnalytics.PREWARM_SESSION_UNAVAILABLE
+        )
     }
 }
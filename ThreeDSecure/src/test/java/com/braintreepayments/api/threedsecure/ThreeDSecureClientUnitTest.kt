@@ -1,7 +1,11 @@
 package com.braintreepayments.api.threedsecure
 
 import androidx.fragment.app.FragmentActivity
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import com.braintreepayments.api.core.*
+import com.braintreepayments.api.sharedutils.CancellableRequest
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import com.braintreepayments.api.testutils.TestConfigurationBuilder
@@ -499,6 +503,133 @@ class ThreeDSecureClientUnitTest {
         )
     }
 
+    @Test
+    fun prewarm_prewarmsCardinalClient() {
+        val cardinalClient = MockkCardinalClientBuilder().build()
+
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+
+        val sut = ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        )
+        sut.prewarm(activity, basicRequest)
+
+        verify { cardinalClient.prewarm(activity, threeDSecureEnabledConfig, basicRequest) }
+    }
+
+    @Test
+    fun prewarm_withoutCardinalJWT_doesNotPrewarmCardinalClient() {
+        val cardinalClient = MockkCardinalClientBuilder().build()
+
+        val configuration = Configuration.fromJson(TestConfigurationBuilder()
+            .threeDSecureEnabled(true)
+            .build())
+
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(configuration)
+            .build()
+
+        val sut = ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        )
+        sut.prewarm(activity)
+
+        verify(exactly = 0) { cardinalClient.prewarm(any(), any(), any()) }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_afterPrewarm_sendsSessionStateAnalyticsEvent() {
+        val cardinalClient = MockkCardinalClientBuilder()
+            .successReferenceId("df-reference-id")
+            .sessionState(CardinalSessionState.READY)
+            .build()
+
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+
+        val sut = ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        )
+        sut.prewarm(activity, basicRequest)
+        sut.createPaymentAuthRequest(activity, basicRequest, paymentAuthRequestCallback)
+
+        verify {
+            braintreeClient.sendAnalyticsEvent(
+                ThreeDSecureAnalytics.PREWARM_SESSION_READY,
+                any(),
+                false
+            )
+        }
+    }
+
+    @Test
+    fun prepareLookup_afterPrewarm_sendsSessionStateAnalyticsEvent() {
+        val cardinalClient = MockkCardinalClientBuilder()
+            .successReferenceId("fake-df")
+            .sessionState(CardinalSessionState.IN_PROGRESS)
+            .build()
+
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+
+        val sut = ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        )
+        sut.prewarm(activity, basicRequest)
+        sut.prepareLookup(activity, basicRequest, mockk(relaxed = true))
+
+        verify {
+            braintreeClient.sendAnalyticsEvent(
+                ThreeDSecureAnalytics.PREWARM_SESSION_IN_PROGRESS,
+                any(),
+                false
+            )
+        }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_withoutPrewarm_doesNotSendSessionStateAnalyticsEvent() {
+        val cardinalClient = MockkCardinalClientBuilder()
+            .successReferenceId("df-reference-id")
+            .build()
+
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+
+        val sut = ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        )
+        sut.createPaymentAuthRequest(activity, basicRequest, paymentAuthRequestCallback)
+
+        verify(exactly = 0) {
+            braintreeClient.sendAnalyticsEvent(
+                ThreeDSecureAnalytics.PREWARM_SESSION_UNAVAILABLE,
+                any(),
+                any()
+            )
+        }
+    }
+
     @Test
     fun sendAnalyticsAndCallbackResult_whenAuthenticatingWithCardinal_sendsAnalyticsEvent() {
         val cardinalClient = MockkCardinalClientBuilder()
@@ -816,4 +947,46 @@ class ThreeDSecureClientUnitTest {
         assertEquals(exceptionMessage, jwtCaptor.captured.errorDescription)
         assertEquals(exceptionMessage, verifyCaptor.captured.errorDescription)
     }
+
+    @Test
+    fun createPaymentAuthRequestCancellable_whenCancelled_cancelsLookupAndDoesNotCallBack() {
+        val cardinalClient = MockkCardinalClientBuilder()
+            .successReferenceId("df-reference-id")
+            .build()
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+        val lookupRequest = CancellableRequest()
+        every { threeDSecureAPI.performLookup(any(), any(), any()) } returns lookupRequest
+
+        val sut = ThreeDSecureClient(braintreeClient, cardinalClient, threeDSecureAPI, merchantRepository)
+        sut.createPaymentAuthRequestCancellable(activity, basicRequest, paymentAuthRequestCallback).cancel()
+
+        assertTrue(lookupRequest.isCancelled)
+        verify(exactly = 0) { paymentAuthRequestCallback.onThreeDSecurePaymentAuthRequest(any()) }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_withLifecycleOwner_cancelsLookupWhenLifecycleIsDestroyed() {
+        val cardinalClient = MockkCardinalClientBuilder()
+            .successReferenceId("df-reference-id")
+            .build()
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(threeDSecureEnabledConfig)
+            .build()
+        val lookupRequest = CancellableRequest()
+        every { threeDSecureAPI.performLookup(any(), any(), any()) } returns lookupRequest
+        val lifecycleOwner = mockk<LifecycleOwner>()
+        val lifecycle = LifecycleRegistry.createUnsafe(lifecycleOwner)
+        every { lifecycleOwner.lifecycle } returns lifecycle
+        lifecycle.currentState = Lifecycle.State.RESUMED
+
+        val sut = ThreeDSecureClient(braintreeClient, cardinalClient, threeDSecureAPI, merchantRepository)
+        sut.createPaymentAuthRequest(lifecycleOwner, activity, basicRequest, paymentAuthRequestCallback)
+        lifecycle.currentState = Lifecycle.State.DESTROYED
+
+        assertTrue(lookupRequest.isCancelled)
+        assertEquals(0, lifecycle.observerCount)
+        verify(exactly = 0) { paymentAuthRequestCallback.onThreeDSecurePaymentAuthRequest(any()) }
+    }
 }
@@ -15,8 +15,8 @@ import org.json.JSONObject
 internal class VenmoApi(
     private val braintreeClient: BraintreeClient,
     private val apiClient: ApiClient,
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
 ) {
 
     @Suppress("LongMethod")
@@ -25,7 +25,10 @@ import com.braintreepayments.api.core.usecase.GetDefaultAppUseCase
 import com.braintreepayments.api.core.usecase.GetReturnLinkTypeUseCase
 import com.braintreepayments.api.core.usecase.GetReturnLinkTypeUseCase.ReturnLinkTypeResult
 import com.braintreepayments.api.core.usecase.GetReturnLinkUseCase
+import com.braintreepayments.api.sharedutils.SpeculativeRequestCache
 import java.util.Objects
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -37,8 +40,8 @@ class VenmoClient internal constructor(
     private val apiClient: ApiClient = ApiClient(braintreeClient),
     private val venmoApi: VenmoApi = VenmoApi(braintreeClient, apiClient),
     private val sharedPrefsWriter: VenmoSharedPrefsWriter = VenmoSharedPrefsWriter(),
-    private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val analyticsParamRepository: AnalyticsParamRepository = braintreeClient.analyticsParamRepository,
+    private val merchantRepository: MerchantRepository = braintreeClient.merchantRepository,
     private val venmoRepository: VenmoRepository = VenmoRepository.instance,
     getDefaultAppUseCase: GetDefaultAppUseCase =
         GetDefaultAppUseCase(merchantRepository.applicationContext.packageManager),
@@ -49,7 +52,9 @@ class VenmoClient internal constructor(
         getDefaultAppUseCase,
         getAppLinksCompatibleBrowserUseCase
     ),
-    private val getReturnLinkUseCase: GetReturnLinkUseCase = GetReturnLinkUseCase(merchantRepository)
+    private val getReturnLinkUseCase: GetReturnLinkUseCase = GetReturnLinkUseCase(merchantRepository),
+    private val paymentContextCache: SpeculativeRequestCache<VenmoRequest, String> =
+        SpeculativeRequestCache(VenmoRequest::class.java, PAYMENT_CONTEXT_TIME_TO_LIVE)
 ) {
     /**
      * Used for linking events from the client to server side request
@@ -78,20 +83,23 @@ class VenmoClient internal constructor(
      * your application to be used to return to your app from the PayPal
      * @param deepLinkFallbackUrlScheme A return url scheme that will be used as a deep link fallback when returning to
      * your app via App Link is not available (buyer unchecks the "Open supported links" setting).
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
     @JvmOverloads
     constructor(
         context: Context,
         authorization: String,
         appLinkReturnUrl: Uri,
-        deepLinkFallbackUrlScheme: String? = null
+        deepLinkFallbackUrlScheme: String? = null,
+        callbackExecutor: Executor? = null
     ) : this(
         BraintreeClient(
             context = context,
             authorization = authorization,
             returnUrlScheme = null,
             appLinkReturnUri = appLinkReturnUrl,
-            deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme
+            deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme,
+            callbackExecutor = callbackExecutor
         )
     )
 
@@ -116,6 +124,45 @@ class VenmoClient internal constructor(
         )
     )
 
+    /**
+     * Creates the Venmo payment context for a [VenmoRequest] ahead of time, e.g. while the buyer is
+     * still reviewing their cart. When [createPaymentAuthRequest] is later called with a request
+     * that has the same values, the prefetched payment context is used instead of creating a new
+     * one, so the switch to the Venmo app can start without waiting on a network round trip.
+     *
+     * A prefetched payment context is used at most once and expires after a few minutes. Changing
+     * any value of the request, such as its amounts or line items, invalidates it, so call this
+     * method again whenever the cart changes. Errors are not reported; [createPaymentAuthRequest]
+     * creates the payment context as usual if prefetching failed.
+     *
+     * @param request [VenmoRequest] that will be passed to [createPaymentAuthRequest]
+     */
+    fun prefetchPaymentContext(request: VenmoRequest) {
+        if (paymentContextCache.contains(request)) return
+
+        val prefetch = paymentContextCache.begin(request)
+        braintreeClient.getConfiguration { configuration: Configuration?, _: Exception? ->
+            val collectsCustomerData = request.collectCustomerShippingAddress ||
+                request.collectCustomerBillingAddress
+            if (configuration == null || !configuration.isVenmoEnabled ||
+                (collectsCustomerData && !configuration.venmoEnrichedCustomerDataEnabled)
+            ) {
+                paymentContextCache.complete(prefetch, null)
+                return@getConfiguration
+            }
+
+            var venmoProfileId = prefetch.request.profileId
+            if (TextUtils.isEmpty(venmoProfileId)) {
+                venmoProfileId = configuration.venmoMerchantId
+            }
+            venmoApi.createPaymentContext(
+                prefetch.request, venmoProfileId
+            ) { paymentContextId: String?, _: Exception? ->
+                paymentContextCache.complete(prefetch, paymentContextId?.ifEmpty { null })
+            }
+        }
+    }
+
     /**
      * Start the Pay With Venmo flow. This will return a [VenmoPaymentAuthRequestParams] that
      * will be used to authenticate the user by switching to the Venmo app or mobile browser in
@@ -169,9 +216,7 @@ class VenmoClient internal constructor(
             }
 
             val finalVenmoProfileId = venmoProfileId
-            venmoApi.createPaymentContext(
-                request, venmoProfileId
-            ) { paymentContextId: String?, exception: Exception? ->
+            val paymentContextCallback = VenmoApiCallback { paymentContextId: String?, exception: Exception? ->
                 if (exception == null) {
                     if (!paymentContextId.isNullOrEmpty()) {
                         contextId = paymentContextId
@@ -195,6 +240,14 @@ class VenmoClient internal constructor(
                     callbackPaymentAuthFailure(callback, VenmoPaymentAuthRequest.Failure(exception))
                 }
             }
+
+            paymentContextCache.consume(request) { prefetchedPaymentContextId ->
+                if (prefetchedPaymentContextId != null) {
+                    paymentContextCallback.onResult(prefetchedPaymentContextId, null)
+                } else {
+                    venmoApi.createPaymentContext(request, finalVenmoProfileId, paymentContextCallback)
+                }
+            }
         }
     }
 
@@ -272,6 +325,7 @@ class VenmoClient internal constructor(
                 }
             }
         val params = VenmoPaymentAuthRequestParams(browserSwitchOptions)
+            .also { it.braintreeClient = braintreeClient }
 
         callback.onVenmoPaymentAuthRequest(VenmoPaymentAuthRequest.ReadyToLaunch(params))
     }
@@ -318,66 +372,76 @@ class VenmoClient internal constructor(
             venmoApi.createNonceFromPaymentContext(paymentContextId) { nonce: VenmoAccountNonce?, error: Exception? ->
 
                 if (nonce != null) {
-                    isVaultRequest = sharedPrefsWriter.getVenmoVaultOption(
-                        merchantRepository.applicationContext
-                    )
-                    if (isVaultRequest && isClientTokenAuth) {
-                        vaultVenmoAccountNonce(
-                            nonce.string
-                        ) { venmoAccountNonce: VenmoAccountNonce?, vaultError: Exception? ->
-                            if (venmoAccountNonce != null) {
-                                callbackSuccess(
-                                    callback,
-                                    VenmoResult.Success(venmoAccountNonce)
-                                )
-                            } else if (vaultError != null) {
-                                callbackTokenizeFailure(
-                                    callback,
-                                    VenmoResult.Failure(vaultError)
-                                )
+                    getVenmoVaultOption { shouldVault ->
+                        isVaultRequest = shouldVault
+                        if (isVaultRequest && isClientTokenAuth) {
+                            vaultVenmoAccountNonce(
+                                nonce.string
+                            ) { venmoAccountNonce: VenmoAccountNonce?, vaultError: Exception? ->
+                                if (venmoAccountNonce != null) {
+                                    callbackSuccess(
+                                        callback,
+                                        VenmoResult.Success(venmoAccountNonce)
+                                    )
+                                } else if (vaultError != null) {
+                                    callbackTokenizeFailure(
+                                        callback,
+                                        VenmoResult.Failure(vaultError)
+                                    )
+                                }
                             }
+                        } else {
+                            callbackSuccess(callback, VenmoResult.Success(nonce))
                         }
-                    } else {
-                        callbackSuccess(callback, VenmoResult.Success(nonce))
                     }
                 } else if (error != null) {
                     callbackTokenizeFailure(callback, VenmoResult.Failure(error))
                 }
             }
         } else if (paymentMethodNonce != null && username != null) {
-            isVaultRequest = sharedPrefsWriter.getVenmoVaultOption(
-                merchantRepository.applicationContext
-            )
-
-            if (isVaultRequest && isClientTokenAuth) {
-                vaultVenmoAccountNonce(
-                    paymentMethodNonce
-                ) { venmoAccountNonce: VenmoAccountNonce?, error: Exception? ->
-
-                    if (venmoAccountNonce != null) {
-                        callbackSuccess(callback, VenmoResult.Success(venmoAccountNonce))
-                    } else if (error != null) {
-                        callbackTokenizeFailure(callback, VenmoResult.Failure(error))
+            getVenmoVaultOption { shouldVault ->
+                isVaultRequest = shouldVault
+
+                if (isVaultRequest && isClientTokenAuth) {
+                    vaultVenmoAccountNonce(
+                        paymentMethodNonce
+                    ) { venmoAccountNonce: VenmoAccountNonce?, error: Exception? ->
+
+                        if (venmoAccountNonce != null) {
+                            callbackSuccess(callback, VenmoResult.Success(venmoAccountNonce))
+                        } else if (error != null) {
+                            callbackTokenizeFailure(callback, VenmoResult.Failure(error))
+                        }
                     }
+                } else {
+                    val venmoAccountNonce = VenmoAccountNonce(
+                        paymentMethodNonce,
+                        isDefault = false,
+                        email = null,
+                        externalId = null,
+                        firstName = null,
+                        lastName = null,
+                        phoneNumber = null,
+                        username,
+                        billingAddress = null,
+                        shippingAddress = null
+                    )
+                    callbackSuccess(callback, VenmoResult.Success(venmoAccountNonce))
                 }
-            } else {
-                val venmoAccountNonce = VenmoAccountNonce(
-                    paymentMethodNonce,
-                    isDefault = false,
-                    email = null,
-                    externalId = null,
-                    firstName = null,
-                    lastName = null,
-                    phoneNumber = null,
-                    username,
-                    billingAddress = null,
-                    shippingAddress = null
-                )
-                callbackSuccess(callback, VenmoResult.Success(venmoAccountNonce))
             }
         }
     }
 
+    // the vault option is read once the SDK's preferences have loaded, without waiting for them on
+    // the calling thread
+    private fun getVenmoVaultOption(callback: (Boolean) -> Unit) {
+        sharedPrefsWriter.getVenmoVaultOption(
+            merchantRepository.applicationContext,
+            braintreeClient.callbackExecutor,
+            callback
+        )
+    }
+
     private fun parse(deepLinkUri: String, key: String): String? {
         val keyFromBrowserSwitch = Uri.parse(deepLinkUri).getQueryParameter(key)
         if (keyFromBrowserSwitch != null) {
@@ -434,4 +498,8 @@ class VenmoClient internal constructor(
             )
             return eventParameters
         }
+
+    companion object {
+        private val PAYMENT_CONTEXT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(3)
+    }
 }
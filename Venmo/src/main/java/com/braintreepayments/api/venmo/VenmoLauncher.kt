@@ -9,6 +9,7 @@ import com.braintreepayments.api.BrowserSwitchFinalResult
 import com.braintreepayments.api.BrowserSwitchStartResult
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
+import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 
 /**
@@ -26,7 +27,17 @@ class VenmoLauncher internal constructor(
         lazyAnalyticsClient = AnalyticsClient.lazyInstance
     )
 
-    private val analyticsClient: AnalyticsClient by lazyAnalyticsClient
+    // used when the launcher has not launched a request of a client, e.g. when the app was
+    // restarted during the app switch
+    private val defaultAnalyticsClient: AnalyticsClient by lazyAnalyticsClient
+
+    // the client that created the request launched last, whose authorization and session the
+    // launch and the return to the app are reported under
+    @Volatile
+    private var launchingClient: BraintreeClient? = null
+
+    private val analyticsClient: AnalyticsClient
+        get() = launchingClient?.analyticsClient ?: defaultAnalyticsClient
 
     /**
      * Launches the Venmo authentication flow by switching to the Venmo app or a mobile browser, if
@@ -43,6 +54,7 @@ class VenmoLauncher internal constructor(
         activity: ComponentActivity,
         paymentAuthRequest: VenmoPaymentAuthRequest.ReadyToLaunch
     ): VenmoPendingRequest {
+        launchingClient = paymentAuthRequest.requestParams.braintreeClient
         analyticsClient.sendEvent(VenmoAnalytics.APP_SWITCH_STARTED, analyticsEventParams)
         try {
             assertCanPerformBrowserSwitch(activity, paymentAuthRequest.requestParams)
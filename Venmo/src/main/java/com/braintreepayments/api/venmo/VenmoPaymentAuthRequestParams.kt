@@ -2,6 +2,7 @@ package com.braintreepayments.api.venmo
 
 import androidx.annotation.RestrictTo
 import com.braintreepayments.api.BrowserSwitchOptions
+import com.braintreepayments.api.core.BraintreeClient
 
 /**
  * Used to request Venmo authentication via [VenmoLauncher.launch] )}
@@ -9,4 +10,11 @@ import com.braintreepayments.api.BrowserSwitchOptions
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 data class VenmoPaymentAuthRequestParams internal constructor(
     val browserSwitchOptions: BrowserSwitchOptions
-)
+) {
+
+    /**
+     * The client that created the request, so that [VenmoLauncher] reports under its
+     * authorization and session.
+     */
+    internal var braintreeClient: BraintreeClient? = null
+}
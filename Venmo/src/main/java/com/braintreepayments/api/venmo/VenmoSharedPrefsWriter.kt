@@ -2,7 +2,13 @@ package com.braintreepayments.api.venmo
 
 import android.content.Context
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import java.util.concurrent.Executor
 
+/**
+ * Persists the vault option of a Venmo request until the Venmo app returns. Reads and writes wait
+ * for the SDK's preferences to load without blocking the calling thread, and run in the order they
+ * were made.
+ */
 internal class VenmoSharedPrefsWriter {
     fun persistVenmoVaultOption(context: Context, shouldVault: Boolean) {
         persistVenmoVaultOption(BraintreeSharedPreferences.getInstance(context), shouldVault)
@@ -12,15 +18,27 @@ internal class VenmoSharedPrefsWriter {
         braintreeSharedPreferences: BraintreeSharedPreferences,
         shouldVault: Boolean
     ) {
-        braintreeSharedPreferences.putBoolean(VAULT_VENMO_KEY, shouldVault)
+        braintreeSharedPreferences.whenLoaded {
+            braintreeSharedPreferences.putBoolean(VAULT_VENMO_KEY, shouldVault)
+        }
     }
 
-    fun getVenmoVaultOption(context: Context): Boolean {
-        return getVenmoVaultOption(BraintreeSharedPreferences.getInstance(context))
+    /**
+     * Calls [callback] with the persisted vault option: right away on the calling thread if the
+     * preferences have loaded, and on [executor] otherwise.
+     */
+    fun getVenmoVaultOption(context: Context, executor: Executor, callback: (Boolean) -> Unit) {
+        getVenmoVaultOption(BraintreeSharedPreferences.getInstance(context), executor, callback)
     }
 
-    fun getVenmoVaultOption(braintreeSharedPreferences: BraintreeSharedPreferences): Boolean {
-        return braintreeSharedPreferences.getBoolean(VAULT_VENMO_KEY)
+    fun getVenmoVaultOption(
+        braintreeSharedPreferences: BraintreeSharedPreferences,
+        executor: Executor,
+        callback: (Boolean) -> Unit
+    ) {
+        braintreeSharedPreferences.whenLoaded(executor) {
+            callback(braintreeSharedPreferences.getBoolean(VAULT_VENMO_KEY))
+        }
     }
 
     companion object {
@@ -10,6 +10,7 @@ import com.braintreepayments.api.core.AnalyticsEventParams
 import com.braintreepayments.api.core.AnalyticsParamRepository
 import com.braintreepayments.api.core.ApiClient
 import com.braintreepayments.api.core.Authorization
+import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.BraintreeRequestCodes
 import com.braintreepayments.api.core.Configuration
@@ -20,6 +21,7 @@ import com.braintreepayments.api.core.IntegrationType
 import com.braintreepayments.api.core.LinkType
 import com.braintreepayments.api.core.MerchantRepository
 import com.braintreepayments.api.core.usecase.GetDefaultAppUseCase
+import com.braintreepayments.api.sharedutils.AppResolutionCache
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import io.mockk.every
@@ -34,6 +36,7 @@ import org.junit.runner.RunWith
 import kotlin.test.assertFalse
 import org.robolectric.RobolectricTestRunner
 import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
 import kotlin.test.assertTrue
 
 @RunWith(RobolectricTestRunner::class)
@@ -59,7 +62,8 @@ class VenmoClientUnitTest {
     private val getReturnLinkUseCase = mockk<GetReturnLinkUseCase>(relaxed = true)
 
     private val packageManager = mockk<PackageManager>(relaxed = true)
-    private val getDefaultAppUseCase: GetDefaultAppUseCase = GetDefaultAppUseCase(packageManager)
+    private val getDefaultAppUseCase: GetDefaultAppUseCase =
+        GetDefaultAppUseCase(packageManager, AppResolutionCache())
     private val getAppLinksCompatibleBrowserUseCase: GetAppLinksCompatibleBrowserUseCase =
         GetAppLinksCompatibleBrowserUseCase(getDefaultAppUseCase)
 
@@ -95,6 +99,9 @@ class VenmoClientUnitTest {
         venmoTokenizeCallback = mockk(relaxed = true)
         venmoPaymentAuthRequestCallback = mockk(relaxed = true)
         sharedPrefsWriter = mockk(relaxed = true)
+        every { sharedPrefsWriter.getVenmoVaultOption(any(), any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(false)
+        }
 
         clientToken = Authorization.fromString(Fixtures.BASE64_CLIENT_TOKEN)
         tokenizationKey = Authorization.fromString(Fixtures.TOKENIZATION_KEY)
@@ -897,7 +904,9 @@ class VenmoClientUnitTest {
             .createNonceFromPaymentContextSuccess(nonce)
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -957,7 +966,9 @@ class VenmoClientUnitTest {
                 JSONObject(Fixtures.PAYMENT_METHODS_VENMO_ACCOUNT_RESPONSE)))
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -982,7 +993,9 @@ class VenmoClientUnitTest {
         val braintreeClient = MockkBraintreeClientBuilder().build()
 
         every { browserSwitchResult.returnUrl } returns SUCCESS_URL
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
         every { merchantRepository.authorization } returns tokenizationKey
 
         sut = VenmoClient(
@@ -1016,7 +1029,9 @@ class VenmoClientUnitTest {
             .vaultVenmoAccountNonceSuccess(venmoAccountNonce)
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -1064,7 +1079,9 @@ class VenmoClientUnitTest {
             .vaultVenmoAccountNonceSuccess(venmoAccountNonce)
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -1107,7 +1124,9 @@ class VenmoClientUnitTest {
             .vaultVenmoAccountNonceError(error)
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -1159,7 +1178,9 @@ class VenmoClientUnitTest {
             .vaultVenmoAccountNonceError(error)
             .build()
 
-        every { sharedPrefsWriter.getVenmoVaultOption(context) } returns true
+        every { sharedPrefsWriter.getVenmoVaultOption(context, any(), any()) } answers {
+            thirdArg<(Boolean) -> Unit>().invoke(true)
+        }
 
         sut = VenmoClient(
             braintreeClient,
@@ -1192,4 +1213,98 @@ class VenmoClientUnitTest {
         assertEquals(expectedVaultAnalyticsParams.appSwitchUrl, analyticsSlot.captured.appSwitchUrl)
         assertEquals(error.message, analyticsSlot.captured.errorDescription)
     }
+
+    @Test
+    fun prefetchPaymentContext_createsPaymentContextFromCopyOfRequest() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(venmoEnabledConfiguration)
+            .build()
+        venmoApi = MockkVenmoApiBuilder()
+            .createPaymentContextSuccess("venmo-payment-context-id")
+            .build()
+        val request = VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE, profileId = "sample-venmo-merchant")
+
+        sut = createVenmoClient(braintreeClient)
+        sut.prefetchPaymentContext(request)
+        sut.prefetchPaymentContext(request)
+
+        val requestSlot = slot<VenmoRequest>()
+        verify(exactly = 1) {
+            venmoApi.createPaymentContext(capture(requestSlot), "sample-venmo-merchant", any())
+        }
+        assertNotSame(request, requestSlot.captured)
+    }
+
+    @Test
+    fun prefetchPaymentContext_whenVenmoDisabled_doesNotCreatePaymentContext() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(venmoDisabledConfiguration)
+            .build()
+
+        sut = createVenmoClient(braintreeClient)
+        sut.prefetchPaymentContext(VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE))
+
+        verify(exactly = 0) { venmoApi.createPaymentContext(any(), any(), any()) }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_whenPaymentContextWasPrefetched_usesPrefetchedPaymentContext() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(venmoEnabledConfiguration)
+            .build()
+        every { merchantRepository.authorization } returns clientToken
+        venmoApi = MockkVenmoApiBuilder()
+            .createPaymentContextSuccess("venmo-payment-context-id")
+            .build()
+
+        sut = createVenmoClient(braintreeClient)
+        sut.prefetchPaymentContext(VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE, totalAmount = "1.00"))
+        sut.createPaymentAuthRequest(
+            context,
+            VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE, totalAmount = "1.00"),
+            venmoPaymentAuthRequestCallback
+        )
+
+        verify(exactly = 1) { venmoApi.createPaymentContext(any(), any(), any()) }
+        val venmoUrlSlot = slot<Uri>()
+        verify { venmoRepository.venmoUrl = capture(venmoUrlSlot) }
+        assertEquals("venmo-payment-context-id", venmoUrlSlot.captured.getQueryParameter("resource_id"))
+        verify {
+            venmoPaymentAuthRequestCallback.onVenmoPaymentAuthRequest(ofType<VenmoPaymentAuthRequest.ReadyToLaunch>())
+        }
+    }
+
+    @Test
+    fun createPaymentAuthRequest_whenAmountChangedSincePrefetch_createsNewPaymentContext() {
+        val braintreeClient = MockkBraintreeClientBuilder()
+            .configurationSuccess(venmoEnabledConfiguration)
+            .build()
+        every { merchantRepository.authorization } returns clientToken
+        venmoApi = MockkVenmoApiBuilder()
+            .createPaymentContextSuccess("venmo-payment-context-id")
+            .build()
+        val request = VenmoRequest(VenmoPaymentMethodUsage.SINGLE_USE, totalAmount = "1.00")
+
+        sut = createVenmoClient(braintreeClient)
+        sut.prefetchPaymentContext(request)
+        request.totalAmount = "2.00"
+        sut.createPaymentAuthRequest(context, request, venmoPaymentAuthRequestCallback)
+
+        verify(exactly = 2) { venmoApi.createPaymentContext(any(), any(), any()) }
+        verify { venmoApi.createPaymentContext(request, any(), any()) }
+    }
+
+    private fun createVenmoClient(braintreeClient: BraintreeClient) = VenmoClient(
+        braintreeClient,
+        apiClient,
+        venmoApi,
+        sharedPrefsWriter,
+        analyticsParamRepository,
+        merchantRepository,
+        venmoRepository,
+        getDefaultAppUseCase,
+        getAppLinksCompatibleBrowserUseCase,
+        getReturnLinkTypeUseCase,
+        getReturnLinkUseCase
+    )
 }
@@ -10,6 +10,7 @@ import com.braintreepayments.api.BrowserSwitchOptions
 import com.braintreepayments.api.BrowserSwitchStartResult
 import com.braintreepayments.api.core.AnalyticsClient
 import com.braintreepayments.api.core.AnalyticsEventParams
+import com.braintreepayments.api.core.BraintreeClient
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.verify
@@ -34,6 +35,7 @@ class VenmoLauncherUnitTest {
     private val intent: Intent = mockk(relaxed = true)
     private val pendingRequestString = "pending_request_string"
     private val options: BrowserSwitchOptions = mockk(relaxed = true)
+    private val braintreeClient: BraintreeClient = mockk(relaxed = true)
 
     private lateinit var sut: VenmoLauncher
 
@@ -41,6 +43,8 @@ class VenmoLauncherUnitTest {
 
     @Before
     fun setup() {
+        every { braintreeClient.analyticsClient } returns analyticsClient
+        every { paymentAuthRequestParams.braintreeClient } returns braintreeClient
         every { paymentAuthRequestParams.browserSwitchOptions } returns options
         every { venmoRepository.venmoUrl } returns appSwitchUrl
 
@@ -269,4 +273,23 @@ class VenmoLauncherUnitTest {
             "https://play.google.com/store/apps/details?id=com.venmo"
         )
     }
+
+    @Test
+    fun `launch and handleReturnToApp report under the client that created the request`() {
+        val defaultAnalyticsClient: AnalyticsClient = mockk(relaxed = true)
+        sut = VenmoLauncher(browserSwitchClient, venmoRepository, lazy { defaultAnalyticsClient })
+        every {
+            browserSwitchClient.start(activity, options)
+        } returns BrowserSwitchStartResult.Started(pendingRequestString)
+        every {
+            browserSwitchClient.completeRequest(intent, pendingRequestString)
+        } returns BrowserSwitchFinalResult.NoResult
+
+        sut.launch(activity, VenmoPaymentAuthRequest.ReadyToLaunch(paymentAuthRequestParams))
+        sut.handleReturnToApp(VenmoPendingRequest.Started(pendingRequestString), intent)
+
+        verify { analyticsClient.sendEvent(VenmoAnalytics.APP_SWITCH_SUCCEEDED, any()) }
+        verify { analyticsClient.sendEvent(VenmoAnalytics.HANDLE_RETURN_NO_RESULT, any()) }
+        verify(exactly = 0) { defaultAnalyticsClient.sendEvent(any(), any()) }
+    }
 }
@@ -1,24 +1,46 @@
 package com.braintreepayments.api.venmo
 
 import com.braintreepayments.api.sharedutils.BraintreeSharedPreferences
+import io.mockk.every
 import io.mockk.mockk
+import io.mockk.slot
 import io.mockk.verify
+import java.util.concurrent.Executor
 import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
 
 class VenmoSharedPrefsWriterUnitTest {
     private val braintreeSharedPreferences: BraintreeSharedPreferences = mockk(relaxed = true)
+    private val executor = Executor { it.run() }
 
     @Test
-    fun `persistVenmoVaultOption persists vault option`() {
+    fun `persistVenmoVaultOption persists vault option once the preferences have loaded`() {
+        val loaded = slot<Runnable>()
+        every { braintreeSharedPreferences.whenLoaded(capture(loaded)) } returns Unit
+
         val sut = VenmoSharedPrefsWriter()
         sut.persistVenmoVaultOption(braintreeSharedPreferences, true)
+        verify(exactly = 0) { braintreeSharedPreferences.putBoolean(any(), any()) }
+
+        loaded.captured.run()
         verify { braintreeSharedPreferences.putBoolean("com.braintreepayments.api.Venmo.VAULT_VENMO_KEY", true) }
     }
 
     @Test
-    fun `getVenmoVaultOption retrieves vault option from SharedPrefs`() {
+    fun `getVenmoVaultOption retrieves vault option from SharedPrefs once they have loaded`() {
+        val loaded = slot<Runnable>()
+        every { braintreeSharedPreferences.whenLoaded(executor, capture(loaded)) } returns Unit
+        every {
+            braintreeSharedPreferences.getBoolean("com.braintreepayments.api.Venmo.VAULT_VENMO_KEY")
+        } returns true
+        var result: Boolean? = null
+
         val sut = VenmoSharedPrefsWriter()
-        sut.getVenmoVaultOption(braintreeSharedPreferences)
-        verify { braintreeSharedPreferences.getBoolean("com.braintreepayments.api.Venmo.VAULT_VENMO_KEY") }
+        sut.getVenmoVaultOption(braintreeSharedPreferences, executor) { result = it }
+        assertNull(result)
+
+        loaded.captured.run()
+        assertEquals(true, result)
     }
 }
@@ -11,6 +11,7 @@ import com.visa.checkout.Environment
 import com.visa.checkout.Profile
 import com.visa.checkout.Profile.ProfileBuilder
 import com.visa.checkout.VisaPaymentSummary
+import java.util.concurrent.Executor
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -26,9 +27,11 @@ class VisaCheckoutClient internal constructor(
      *
      * @param context an Android Context
      * @param authorization a Tokenization Key or Client Token used to authenticate
+     * @param callbackExecutor an [Executor] that callbacks are called on; defaults to the main thread
      */
-    constructor(context: Context, authorization: String) : this(
-        BraintreeClient(context, authorization)
+    @JvmOverloads
+    constructor(context: Context, authorization: String, callbackExecutor: Executor? = null) : this(
+        BraintreeClient(context, authorization, callbackExecutor = callbackExecutor)
     )
 
     /**